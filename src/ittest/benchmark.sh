@@ -0,0 +1,10 @@
+#!/bin/sh
+
+echo "running read path benchmarks..."
+echo "API_HOST: $API_HOST"
+echo "API_PORT: $API_PORT"
+echo "API_REACTIVE_PORT: $API_REACTIVE_PORT"
+
+# Servlet and reactive lookups at rising client concurrency; the output is kept in data/
+report="data/benchmark-readpath${BENCHMARK_LABEL:+-$BENCHMARK_LABEL}.txt"
+go test -run '^$' -bench GetFeatureFlag -benchtime "${BENCHMARK_TIME:-200000x}" -cpu 8,64,256 ./... | tee "$report"
@@ -0,0 +1,171 @@
+package main
+
+import (
+	"encoding/json"
+	"fmt"
+	"io"
+	"net/http"
+	"os"
+	"sort"
+	"sync"
+	"testing"
+	"time"
+)
+
+// FeatureFlagValue matches the lookup response of GET /{orgId}/{featureFlagName}
+type FeatureFlagValue struct {
+	Name           string `json:"name"`
+	Enabled        bool   `json:"enabled"`
+	OrganizationID int64  `json:"organizationId"`
+}
+
+func featureFlagURL(orgId int64, flagName string) string {
+	env_vars := ReadEnviornmentVariables()
+	return fmt.Sprintf("http://%s:%s/%d/%s", env_vars.Apihost, env_vars.Apiport, orgId, flagName)
+}
+
+// reactiveFeatureFlagURL points at the WebFlux lookup server, which only runs
+// when featureflags.reactive.enabled=true. Empty when API_REACTIVE_PORT is unset.
+func reactiveFeatureFlagURL(orgId int64, flagName string) string {
+	port := os.Getenv("API_REACTIVE_PORT")
+	if port == "" {
+		return ""
+	}
+	env_vars := ReadEnviornmentVariables()
+	return fmt.Sprintf("http://%s:%s/%d/%s", env_vars.Apihost, port, orgId, flagName)
+}
+
+func TestGetFeatureFlag(t *testing.T) {
+	// The servlet path writes pre-encoded bytes with an explicit Content-Length
+	checkFeatureFlagLookup(t, featureFlagURL(1, "FeatureFlag1"), true)
+}
+
+func TestGetFeatureFlagReactive(t *testing.T) {
+	url := reactiveFeatureFlagURL(1, "FeatureFlag1")
+	if url == "" {
+		t.Skip("API_REACTIVE_PORT not set")
+	}
+	checkFeatureFlagLookup(t, url, false)
+}
+
+func checkFeatureFlagLookup(t *testing.T, url string, requireContentLength bool) {
+	resp, err := http.Get(url)
+	if err != nil {
+		t.Fatalf("Error: %v", err)
+	}
+	defer resp.Body.Close()
+
+	body, err := io.ReadAll(resp.Body)
+	if err != nil {
+		t.Fatalf("Error reading response body: %v", err)
+	}
+
+	if resp.StatusCode != http.StatusOK {
+		t.Fatalf("Expected status 200, got %d: %s", resp.StatusCode, string(body))
+	}
+	if requireContentLength && resp.ContentLength != int64(len(body)) {
+		t.Errorf("Expected Content-Length %d, got %d", len(body), resp.ContentLength)
+	}
+
+	var value FeatureFlagValue
+	if err := json.Unmarshal(body, &value); err != nil {
+		t.Fatalf("Error unmarshaling response JSON: %v", err)
+	}
+	if value.Name != "FeatureFlag1" || value.OrganizationID != 1 {
+		t.Errorf("Unexpected lookup response: %s", string(body))
+	}
+}
+
+// serverAllocatedBytes reads the JVM allocation counter. It only advances when
+// a young collection runs, so it is meaningful over many requests, not one.
+func serverAllocatedBytes(b *testing.B) float64 {
+	env_vars := ReadEnviornmentVariables()
+	url := fmt.Sprintf("http://%s:%s/actuator/metrics/jvm.gc.memory.allocated", env_vars.Apihost, env_vars.Apiport)
+
+	resp, err := http.Get(url)
+	if err != nil {
+		b.Fatalf("Error reading allocation metric: %v", err)
+	}
+	defer resp.Body.Close()
+
+	var metric struct {
+		Measurements []struct {
+			Value float64 `json:"value"`
+		} `json:"measurements"`
+	}
+	if err := json.NewDecoder(resp.Body).Decode(&metric); err != nil || len(metric.Measurements) == 0 {
+		b.Fatalf("Unexpected allocation metric response: %v", err)
+	}
+	return metric.Measurements[0].Value
+}
+
+// BenchmarkGetFeatureFlag measures the servlet lookup endpoint end to end.
+// Besides ns/op it reports p50/p99 latency and server-B/op, the approximate
+// bytes the service allocated per request. Run with a large -benchtime so
+// several collections happen:
+//
+//	go test -run '^$' -bench GetFeatureFlag -benchtime 200000x -cpu 8,64,256
+func BenchmarkGetFeatureFlag(b *testing.B) {
+	benchmarkLookup(b, featureFlagURL(1, "FeatureFlag1"))
+}
+
+// BenchmarkGetFeatureFlagReactive runs the same load against the WebFlux/R2DBC
+// lookup server. Give the app container a fixed CPU budget (for example
+// docker update --cpus 2 feature-flag-service-api) so both paths are compared
+// on equal terms.
+func BenchmarkGetFeatureFlagReactive(b *testing.B) {
+	url := reactiveFeatureFlagURL(1, "FeatureFlag1")
+	if url == "" {
+		b.Skip("API_REACTIVE_PORT not set")
+	}
+	benchmarkLookup(b, url)
+}
+
+func benchmarkLookup(b *testing.B, url string) {
+	client := &http.Client{Transport: &http.Transport{MaxIdleConnsPerHost: 1024}}
+
+	var mu sync.Mutex
+	latencies := make([]time.Duration, 0, b.N)
+
+	before := serverAllocatedBytes(b)
+	b.ResetTimer()
+
+	b.RunParallel(func(pb *testing.PB) {
+		local := make([]time.Duration, 0, 1024)
+		for pb.Next() {
+			start := time.Now()
+			resp, err := client.Get(url)
+			if err != nil {
+				b.Errorf("Error: %v", err)
+				return
+			}
+			io.Copy(io.Discard, resp.Body)
+			resp.Body.Close()
+			local = append(local, time.Since(start))
+			if resp.StatusCode != http.StatusOK {
+				b.Errorf("Expected status 200, got %d", resp.StatusCode)
+				return
+			}
+		}
+		mu.Lock()
+		latencies = append(latencies, local...)
+		mu.Unlock()
+	})
+
+	b.StopTimer()
+	b.ReportMetric((serverAllocatedBytes(b)-before)/float64(b.N), "server-B/op")
+	reportPercentiles(b, latencies)
+}
+
+func reportPercentiles(b *testing.B, latencies []time.Duration) {
+	if len(latencies) == 0 {
+		return
+	}
+	sort.Slice(latencies, func(i, j int) bool { return latencies[i] < latencies[j] })
+	percentile := func(p float64) float64 {
+		index := int(p * float64(len(latencies)-1))
+		return float64(latencies[index].Microseconds()) / 1000
+	}
+	b.ReportMetric(percentile(0.50), "p50-ms")
+	b.ReportMetric(percentile(0.99), "p99-ms")
+}
@@ -0,0 +1,12 @@
+#!/bin/sh
+
+echo "running load tests..."
+echo "API_HOST: $API_HOST"
+echo "API_PORT: $API_PORT"
+
+# The load tests only build with the loadtest tag; the report is written to data/loadtest-report.txt
+gotestsum --junitfile data/load-tests.xml \
+        --format=standard-verbose \
+        --junitfile-testsuite-name=full \
+        --junitfile-testcase-classname=full \
+        -- -v -tags loadtest -run '^TestLoad$' -timeout 60m ./...
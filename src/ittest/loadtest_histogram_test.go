@@ -0,0 +1,156 @@
+//go:build loadtest
+
+package main
+
+import (
+	"fmt"
+	"io"
+	"math/bits"
+	"time"
+)
+
+// Histogram records latencies in microseconds with the bucketing of an
+// HdrHistogram at 3 significant digits: values below 2048µs are counted
+// exactly, and above that every power of two is split into 1024 linear
+// sub-buckets, so any recorded value is off by less than 0.1%. Memory is
+// fixed (about 150KB up to a minute) whatever the number of samples, so a
+// worker can record millions of requests without keeping them. Not safe
+// for concurrent use; give each worker its own and Merge them.
+type Histogram struct {
+	counts  []uint64
+	total   uint64
+	sum     uint64
+	min     uint64
+	max     uint64
+	highest uint64
+}
+
+const (
+	histogramSubBucketBits = 11
+	histogramSubBuckets    = 1 << histogramSubBucketBits
+	histogramHalfBuckets   = histogramSubBuckets / 2
+)
+
+// NewHistogram tracks values up to highest; larger ones are recorded as highest
+func NewHistogram(highest time.Duration) *Histogram {
+	h := &Histogram{highest: uint64(highest.Microseconds())}
+	h.counts = make([]uint64, histogramIndex(h.highest)+1)
+	return h
+}
+
+func histogramIndex(value uint64) int {
+	shift := bits.Len64(value) - histogramSubBucketBits
+	if shift < 0 {
+		shift = 0
+	}
+	return shift*histogramHalfBuckets + int(value>>uint(shift))
+}
+
+// histogramHighestEquivalent is the largest value counted in the same bucket
+// as index, which is what percentiles report, as HdrHistogram does
+func histogramHighestEquivalent(index int) uint64 {
+	if index < histogramSubBuckets {
+		return uint64(index)
+	}
+	shift := index/histogramHalfBuckets - 1
+	subBucket := uint64(index - shift*histogramHalfBuckets)
+	return (subBucket+1)<<uint(shift) - 1
+}
+
+func (h *Histogram) Record(latency time.Duration) {
+	value := uint64(0)
+	if latency > 0 {
+		value = uint64(latency.Microseconds())
+	}
+	if value > h.highest {
+		value = h.highest
+	}
+	h.counts[histogramIndex(value)]++
+	if h.total == 0 || value < h.min {
+		h.min = value
+	}
+	if value > h.max {
+		h.max = value
+	}
+	h.total++
+	h.sum += value
+}
+
+// Merge adds the samples of other, which must track the same highest value
+func (h *Histogram) Merge(other *Histogram) {
+	if other.total == 0 {
+		return
+	}
+	for i, count := range other.counts {
+		h.counts[i] += count
+	}
+	if h.total == 0 || other.min < h.min {
+		h.min = other.min
+	}
+	if other.max > h.max {
+		h.max = other.max
+	}
+	h.total += other.total
+	h.sum += other.sum
+}
+
+func (h *Histogram) Count() uint64 {
+	return h.total
+}
+
+// ValueAt returns the latency at or below which the given fraction of samples fall
+func (h *Histogram) ValueAt(quantile float64) time.Duration {
+	if h.total == 0 {
+		return 0
+	}
+	rank := uint64(quantile*float64(h.total) + 0.5)
+	if rank < 1 {
+		rank = 1
+	}
+	seen := uint64(0)
+	for i, count := range h.counts {
+		seen += count
+		if seen >= rank {
+			value := histogramHighestEquivalent(i)
+			if value > h.max {
+				value = h.max
+			}
+			return time.Duration(value) * time.Microsecond
+		}
+	}
+	return h.Max()
+}
+
+func (h *Histogram) Max() time.Duration {
+	return time.Duration(h.max) * time.Microsecond
+}
+
+func (h *Histogram) Mean() time.Duration {
+	if h.total == 0 {
+		return 0
+	}
+	return time.Duration(h.sum/h.total) * time.Microsecond
+}
+
+var reportedQuantiles = []float64{0.5, 0.75, 0.9, 0.95, 0.99, 0.999, 0.9999, 1}
+
+// WritePercentiles writes the distribution in the columns of HdrHistogram's
+// percentile output (value in milliseconds), which its plotter reads
+func (h *Histogram) WritePercentiles(w io.Writer) {
+	fmt.Fprintf(w, "%12s %14s %10s %14s\n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)")
+	for _, quantile := range reportedQuantiles {
+		value := h.ValueAt(quantile)
+		count := uint64(quantile * float64(h.total))
+		if quantile < 1 {
+			fmt.Fprintf(w, "%12.3f %14.12f %10d %14.2f\n", millis(value), quantile, count, 1/(1-quantile))
+		} else {
+			fmt.Fprintf(w, "%12.3f %14.12f %10d\n", millis(value), quantile, h.total)
+		}
+	}
+	fmt.Fprintf(w, "#[Mean    = %12.3f, Max = %12.3f]\n", millis(h.Mean()), millis(h.Max()))
+	fmt.Fprintf(w, "#[Samples = %12d]\n", h.total)
+}
+
+func millis(d time.Duration) float64 {
+	return float64(d.Microseconds()) / 1000
+}
@@ -0,0 +1,94 @@
+//go:build loadtest
+
+package main
+
+import (
+	"fmt"
+	"math/rand"
+)
+
+// OrgTree is a synthetic organization hierarchy, listed level by level from
+// the roots down, so that every organization comes after its parent
+type OrgTree struct {
+	Levels      [][]OrganizationCreateRequest
+	hasChildren map[int64]bool
+}
+
+// GenerateOrgTree builds roots trees of the given depth (levels below the
+// root) with IDs from firstID. Each organization above the last level gets
+// between fanout/2 and 3*fanout/2 children, so subtrees are uneven like real
+// customers' are; the same seed always gives the same tree.
+func GenerateOrgTree(firstID int64, roots, fanout, depth int, seed int64) OrgTree {
+	random := rand.New(rand.NewSource(seed))
+	tree := OrgTree{hasChildren: make(map[int64]bool)}
+	nextID := firstID
+	newOrg := func(parentID *int64) OrganizationCreateRequest {
+		id := nextID
+		nextID++
+		return OrganizationCreateRequest{ID: &id, Name: fmt.Sprintf("loadtest-org-%d", id), ParentID: parentID}
+	}
+
+	level := make([]OrganizationCreateRequest, 0, roots)
+	for i := 0; i < roots; i++ {
+		level = append(level, newOrg(nil))
+	}
+	tree.Levels = append(tree.Levels, level)
+
+	for d := 0; d < depth; d++ {
+		var children []OrganizationCreateRequest
+		for _, parent := range level {
+			count := fanout/2 + random.Intn(fanout+1)
+			if count < 1 {
+				count = 1
+			}
+			for i := 0; i < count; i++ {
+				children = append(children, newOrg(parent.ID))
+			}
+			tree.hasChildren[*parent.ID] = true
+		}
+		tree.Levels = append(tree.Levels, children)
+		level = children
+	}
+	return tree
+}
+
+// Organizations lists every organization, parents before children
+func (tree OrgTree) Organizations() []OrganizationCreateRequest {
+	var all []OrganizationCreateRequest
+	for _, level := range tree.Levels {
+		all = append(all, level...)
+	}
+	return all
+}
+
+func (tree OrgTree) Size() int {
+	size := 0
+	for _, level := range tree.Levels {
+		size += len(level)
+	}
+	return size
+}
+
+func (tree OrgTree) Roots() []int64 {
+	return tree.ids(func(id int64) bool { return true }, tree.Levels[0])
+}
+
+// Leaves are the organizations without children, toggled synchronously
+func (tree OrgTree) Leaves() []int64 {
+	return tree.ids(func(id int64) bool { return !tree.hasChildren[id] }, tree.Organizations())
+}
+
+// Parents are the organizations with children, toggled through a background job
+func (tree OrgTree) Parents() []int64 {
+	return tree.ids(func(id int64) bool { return tree.hasChildren[id] }, tree.Organizations())
+}
+
+func (tree OrgTree) ids(include func(int64) bool, orgs []OrganizationCreateRequest) []int64 {
+	var ids []int64
+	for _, org := range orgs {
+		if include(*org.ID) {
+			ids = append(ids, *org.ID)
+		}
+	}
+	return ids
+}
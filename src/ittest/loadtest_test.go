@@ -0,0 +1,703 @@
+//go:build loadtest
+
+package main
+
+import (
+	"bytes"
+	"encoding/json"
+	"fmt"
+	"io"
+	"math/rand"
+	"net/http"
+	"os"
+	"path/filepath"
+	"sort"
+	"strconv"
+	"sync"
+	"testing"
+	"time"
+)
+
+// The load tests check the service against the non-functional requirements
+// in Design.md: 10,000 lookups per second, 50ms p95 lookups and 200ms p95
+// toggles. They only build with -tags loadtest, so the integration tests
+// stay quick; run them with make loadtest. Every threshold and the shape of
+// the load can be changed through the LOADTEST_* variables read below.
+
+var loadTestFlags = []string{"FeatureFlag1", "FeatureFlag2", "FeatureFlag3", "FeatureFlag4", "FeatureFlag5"}
+
+const (
+	opLookup               = "lookup"
+	opToggle               = "toggle"
+	opHierarchyToggle      = "hierarchy-toggle"
+	opHierarchyPropagation = "hierarchy-propagation"
+	opImport               = "import"
+	opImportJob            = "import-job"
+
+	highestLatency  = time.Minute
+	jobPollInterval = 250 * time.Millisecond
+)
+
+type loadTestConfig struct {
+	baseURL    string
+	reportPath string
+	seed       int64
+
+	// SLOs
+	sloRate      int
+	sloReadP95   time.Duration
+	sloToggleP95 time.Duration
+	sloErrorRate float64
+
+	// Load
+	rate                    int
+	workers                 int
+	warmUp                  time.Duration
+	duration                time.Duration
+	zipfExponent            float64
+	toggleShare             float64
+	hierarchyToggleInterval time.Duration
+	jobTimeout              time.Duration
+
+	// Organizations
+	firstOrgID   int64
+	roots        int
+	fanout       int
+	depth        int
+	batchSize    int
+	importFanout int
+	importDepth  int
+}
+
+func readLoadTestConfig() loadTestConfig {
+	env_vars := ReadEnviornmentVariables()
+	sloRate := envInt("LOADTEST_SLO_RATE", 10000)
+	return loadTestConfig{
+		baseURL:    fmt.Sprintf("http://%s:%s", env_vars.Apihost, env_vars.Apiport),
+		reportPath: envString("LOADTEST_REPORT", "data/loadtest-report.txt"),
+		seed:       int64(envInt("LOADTEST_SEED", 1)),
+
+		sloRate:      sloRate,
+		sloReadP95:   envDuration("LOADTEST_SLO_READ_P95", 50*time.Millisecond),
+		sloToggleP95: envDuration("LOADTEST_SLO_TOGGLE_P95", 200*time.Millisecond),
+		sloErrorRate: envFloat("LOADTEST_SLO_ERROR_RATE", 0.001),
+
+		// Offered a little above the SLO, since the served rate also counts
+		// the time the last responses take to come back
+		rate:                    envInt("LOADTEST_RATE", sloRate*102/100),
+		workers:                 envInt("LOADTEST_WORKERS", 256),
+		warmUp:                  envDuration("LOADTEST_WARMUP", 15*time.Second),
+		duration:                envDuration("LOADTEST_DURATION", time.Minute),
+		zipfExponent:            envFloat("LOADTEST_ZIPF_EXPONENT", 1.1),
+		toggleShare:             envFloat("LOADTEST_TOGGLE_SHARE", 0.01),
+		hierarchyToggleInterval: envDuration("LOADTEST_HIERARCHY_TOGGLE_INTERVAL", 2*time.Second),
+		jobTimeout:              envDuration("LOADTEST_JOB_TIMEOUT", 5*time.Minute),
+
+		// Each run gets its own IDs, so runs against the same database don't collide
+		firstOrgID:   int64(envInt("LOADTEST_FIRST_ORG_ID", int(time.Now().Unix()%1000000)*1000000+1000000000)),
+		roots:        envInt("LOADTEST_ROOTS", 10),
+		fanout:       envInt("LOADTEST_FANOUT", 8),
+		depth:        envInt("LOADTEST_DEPTH", 3),
+		batchSize:    envInt("LOADTEST_BATCH_SIZE", 500),
+		importFanout: envInt("LOADTEST_IMPORT_FANOUT", 20),
+		importDepth:  envInt("LOADTEST_IMPORT_DEPTH", 3),
+	}
+}
+
+func envString(name string, fallback string) string {
+	if value := os.Getenv(name); value != "" {
+		return value
+	}
+	return fallback
+}
+
+func envInt(name string, fallback int) int {
+	if value, err := strconv.Atoi(os.Getenv(name)); err == nil {
+		return value
+	}
+	return fallback
+}
+
+func envFloat(name string, fallback float64) float64 {
+	if value, err := strconv.ParseFloat(os.Getenv(name), 64); err == nil {
+		return value
+	}
+	return fallback
+}
+
+func envDuration(name string, fallback time.Duration) time.Duration {
+	if value, err := time.ParseDuration(os.Getenv(name)); err == nil {
+		return value
+	}
+	return fallback
+}
+
+// opStats are the latencies and failures of one kind of request
+type opStats struct {
+	latency *Histogram
+	errors  uint64
+}
+
+func newOpStats() *opStats {
+	return &opStats{latency: NewHistogram(highestLatency)}
+}
+
+func (s *opStats) merge(other *opStats) {
+	s.latency.Merge(other.latency)
+	s.errors += other.errors
+}
+
+type opStatsSet map[string]*opStats
+
+func (set opStatsSet) get(op string) *opStats {
+	stats, ok := set[op]
+	if !ok {
+		stats = newOpStats()
+		set[op] = stats
+	}
+	return stats
+}
+
+func (set opStatsSet) record(op string, latency time.Duration, ok bool) {
+	stats := set.get(op)
+	stats.latency.Record(latency)
+	if !ok {
+		stats.errors++
+	}
+}
+
+func (set opStatsSet) merge(other opStatsSet) {
+	for op, stats := range other {
+		set.get(op).merge(stats)
+	}
+}
+
+// loadWorker sends requests from one goroutine, with its own random source
+// and statistics so workers never contend with each other
+type loadWorker struct {
+	random *rand.Rand
+	hot    *rand.Zipf
+	stats  opStatsSet
+}
+
+type loadTester struct {
+	cfg    loadTestConfig
+	client *http.Client
+	tree   OrgTree
+	// Shuffled, so the hottest organizations of the skewed mix sit anywhere in the tree
+	orgs    []int64
+	leaves  []int64
+	parents []int64
+}
+
+type submittedJob struct {
+	id        int64
+	submitted time.Time
+}
+
+func newLoadTester(t *testing.T, cfg loadTestConfig) *loadTester {
+	l := &loadTester{
+		cfg: cfg,
+		client: &http.Client{
+			Timeout: highestLatency,
+			Transport: &http.Transport{
+				MaxIdleConns:        cfg.workers,
+				MaxIdleConnsPerHost: cfg.workers,
+				IdleConnTimeout:     90 * time.Second,
+			},
+		},
+		tree: GenerateOrgTree(cfg.firstOrgID, cfg.roots, cfg.fanout, cfg.depth, cfg.seed),
+	}
+	random := rand.New(rand.NewSource(cfg.seed))
+	l.orgs = shuffled(random, l.tree.Leaves(), l.tree.Parents())
+	l.leaves = l.tree.Leaves()
+	l.parents = shuffled(random, l.tree.Parents())
+
+	l.waitUntilReady(t)
+	start := time.Now()
+	l.createOrganizations(t, l.tree.Organizations())
+	t.Logf("Created %d organizations from ID %d in %s", l.tree.Size(), cfg.firstOrgID, time.Since(start))
+
+	// Give every organization a stored value for FeatureFlag1; the other flags
+	// are looked up with no row until the scenarios toggle them
+	var jobs []submittedJob
+	for _, root := range l.tree.Roots() {
+		started := time.Now()
+		status, body, err := l.do(http.MethodPost, fmt.Sprintf("%s/%d/FeatureFlag1/true", cfg.baseURL, root), nil)
+		if err != nil || status != http.StatusAccepted {
+			t.Fatalf("Seeding FeatureFlag1 on %d failed: %d %v %s", root, status, err, string(body))
+		}
+		jobs = append(jobs, submittedJob{id: parseJobID(t, body), submitted: started})
+	}
+	if stats := l.awaitJobs(t, "/job-status/%d", jobs); stats.errors > 0 {
+		t.Fatalf("Seeding FeatureFlag1 failed for %d of %d roots", stats.errors, len(jobs))
+	}
+	return l
+}
+
+func shuffled(random *rand.Rand, lists ...[]int64) []int64 {
+	var all []int64
+	for _, list := range lists {
+		all = append(all, list...)
+	}
+	random.Shuffle(len(all), func(i, j int) { all[i], all[j] = all[j], all[i] })
+	return all
+}
+
+func (l *loadTester) waitUntilReady(t *testing.T) {
+	deadline := time.Now().Add(2 * time.Minute)
+	for {
+		status, _, err := l.do(http.MethodGet, l.cfg.baseURL+"/actuator/health", nil)
+		if err == nil && status == http.StatusOK {
+			return
+		}
+		if time.Now().After(deadline) {
+			t.Fatalf("Service not ready after 2 minutes: %d %v", status, err)
+		}
+		time.Sleep(time.Second)
+	}
+}
+
+// createOrganizations posts orgs in batches small enough to be saved
+// immediately; parents come before their children
+func (l *loadTester) createOrganizations(t *testing.T, orgs []OrganizationCreateRequest) {
+	for from := 0; from < len(orgs); from += l.cfg.batchSize {
+		to := from + l.cfg.batchSize
+		if to > len(orgs) {
+			to = len(orgs)
+		}
+		body, err := json.Marshal(orgs[from:to])
+		if err != nil {
+			t.Fatalf("Error marshaling organizations: %v", err)
+		}
+		status, response, err := l.do(http.MethodPost, l.cfg.baseURL+"/organizations/bulk", body)
+		if err != nil || status != http.StatusOK {
+			t.Fatalf("Creating organizations %d to %d failed: %d %v %s", from, to, status, err, string(response))
+		}
+	}
+}
+
+func (l *loadTester) do(method string, url string, body []byte) (int, []byte, error) {
+	var reader io.Reader
+	if body != nil {
+		reader = bytes.NewReader(body)
+	}
+	req, err := http.NewRequest(method, url, reader)
+	if err != nil {
+		return 0, nil, err
+	}
+	if body != nil {
+		req.Header.Set("Content-Type", "application/json")
+	}
+	resp, err := l.client.Do(req)
+	if err != nil {
+		return 0, nil, err
+	}
+	defer resp.Body.Close()
+	response, err := io.ReadAll(resp.Body)
+	return resp.StatusCode, response, err
+}
+
+func parseJobID(t *testing.T, body []byte) int64 {
+	var response struct {
+		JobID int64 `json:"jobId"`
+	}
+	if err := json.Unmarshal(body, &response); err != nil || response.JobID == 0 {
+		t.Fatalf("No job ID in response: %s", string(body))
+	}
+	return response.JobID
+}
+
+func (l *loadTester) newWorker(index int) *loadWorker {
+	random := rand.New(rand.NewSource(l.cfg.seed + int64(index)))
+	return &loadWorker{
+		random: random,
+		hot:    rand.NewZipf(random, l.cfg.zipfExponent, 1, uint64(len(l.orgs)-1)),
+		stats:  opStatsSet{},
+	}
+}
+
+// runOpenLoop starts rate requests a second for duration whether or not
+// earlier ones have returned, as independent clients would. Each latency is
+// measured from the request's scheduled start, so time spent waiting behind
+// slow responses is counted rather than hidden (no coordinated omission).
+// Returns the statistics of all workers and the time from the first
+// scheduled start to the last response.
+func (l *loadTester) runOpenLoop(rate int, duration time.Duration,
+	request func(w *loadWorker, scheduled time.Time)) (opStatsSet, time.Duration) {
+	workers := make([]*loadWorker, l.cfg.workers)
+	schedule := make(chan time.Time, l.cfg.workers*16)
+	var wg sync.WaitGroup
+	for i := range workers {
+		workers[i] = l.newWorker(i)
+		wg.Add(1)
+		go func(w *loadWorker) {
+			defer wg.Done()
+			for scheduled := range schedule {
+				request(w, scheduled)
+			}
+		}(workers[i])
+	}
+
+	interval := time.Second / time.Duration(rate)
+	start := time.Now()
+	for scheduled := start; scheduled.Sub(start) < duration; scheduled = scheduled.Add(interval) {
+		// Sleeping is coarse, so requests due within a millisecond go out together
+		if wait := time.Until(scheduled); wait > time.Millisecond {
+			time.Sleep(wait)
+		}
+		schedule <- scheduled
+	}
+	close(schedule)
+	wg.Wait()
+	elapsed := time.Since(start)
+
+	stats := opStatsSet{}
+	for _, w := range workers {
+		stats.merge(w.stats)
+	}
+	return stats, elapsed
+}
+
+// readMix looks up a random flag, of an organization drawn from a Zipf
+// distribution (a few very hot organizations, mostly cache hits) or
+// uniformly (mostly cache misses), and toggles a leaf organization's flag
+// for toggleShare of the requests
+func (l *loadTester) readMix(uniform bool, toggleShare float64) func(w *loadWorker, scheduled time.Time) {
+	return func(w *loadWorker, scheduled time.Time) {
+		if toggleShare > 0 && w.random.Float64() < toggleShare {
+			orgID := l.leaves[w.random.Intn(len(l.leaves))]
+			url := fmt.Sprintf("%s/%d/FeatureFlag3/%t", l.cfg.baseURL, orgID, w.random.Intn(2) == 0)
+			status, _, err := l.do(http.MethodPost, url, nil)
+			w.stats.record(opToggle, time.Since(scheduled), err == nil && status == http.StatusOK)
+			return
+		}
+		var orgID int64
+		if uniform {
+			orgID = l.orgs[w.random.Intn(len(l.orgs))]
+		} else {
+			orgID = l.orgs[w.hot.Uint64()]
+		}
+		flag := loadTestFlags[w.random.Intn(len(loadTestFlags))]
+		status, _, err := l.do(http.MethodGet, fmt.Sprintf("%s/%d/%s", l.cfg.baseURL, orgID, flag), nil)
+		w.stats.record(opLookup, time.Since(scheduled), err == nil && status == http.StatusOK)
+	}
+}
+
+// hierarchyToggles toggles FeatureFlag2 on organizations with children at a
+// steady interval until stopped, returning the submission latencies and the
+// jobs to wait for
+func (l *loadTester) hierarchyToggles(stop <-chan struct{}) (*opStats, []submittedJob) {
+	stats := newOpStats()
+	var jobs []submittedJob
+	ticker := time.NewTicker(l.cfg.hierarchyToggleInterval)
+	defer ticker.Stop()
+	for i := 0; ; i++ {
+		select {
+		case <-stop:
+			return stats, jobs
+		case <-ticker.C:
+		}
+		orgID := l.parents[i%len(l.parents)]
+		url := fmt.Sprintf("%s/%d/FeatureFlag2/%t", l.cfg.baseURL, orgID, i%2 == 0)
+		start := time.Now()
+		status, body, err := l.do(http.MethodPost, url, nil)
+		stats.latency.Record(time.Since(start))
+		switch {
+		case err != nil:
+			stats.errors++
+		case status == http.StatusAccepted:
+			var response struct {
+				JobID int64 `json:"jobId"`
+			}
+			if json.Unmarshal(body, &response) != nil {
+				stats.errors++
+				continue
+			}
+			jobs = append(jobs, submittedJob{id: response.JobID, submitted: start})
+		case status != http.StatusOK:
+			stats.errors++
+		}
+	}
+}
+
+// awaitJobs polls the jobs until each has finished, recording the time from
+// its submission until it was seen finished (so up to a poll round late).
+// A job that fails, is cancelled or outlasts the job timeout is an error.
+func (l *loadTester) awaitJobs(t *testing.T, statusPath string, jobs []submittedJob) *opStats {
+	stats := newOpStats()
+	deadline := time.Now().Add(l.cfg.jobTimeout)
+	pending := jobs
+	for len(pending) > 0 {
+		if time.Now().After(deadline) {
+			t.Errorf("%d jobs unfinished after %s", len(pending), l.cfg.jobTimeout)
+			stats.errors += uint64(len(pending))
+			break
+		}
+		var unfinished []submittedJob
+		for _, job := range pending {
+			status, body, err := l.do(http.MethodGet, l.cfg.baseURL+fmt.Sprintf(statusPath, job.id), nil)
+			var response struct {
+				Status string `json:"status"`
+			}
+			if err != nil || status != http.StatusOK || json.Unmarshal(body, &response) != nil {
+				unfinished = append(unfinished, job)
+				continue
+			}
+			switch response.Status {
+			case "COMPLETED", "SUPERSEDED":
+				stats.latency.Record(time.Since(job.submitted))
+			case "FAILED", "CANCELLED":
+				t.Errorf("Job %d ended %s", job.id, response.Status)
+				stats.errors++
+			default:
+				unfinished = append(unfinished, job)
+			}
+		}
+		pending = unfinished
+		if len(pending) > 0 {
+			time.Sleep(jobPollInterval)
+		}
+	}
+	return stats
+}
+
+// bulkImport imports a new tree of organizations in one request, which is
+// large enough to become a background job, and waits for it
+func (l *loadTester) bulkImport(t *testing.T) opStatsSet {
+	stats := opStatsSet{}
+	firstID := l.cfg.firstOrgID + int64(l.tree.Size())
+	tree := GenerateOrgTree(firstID, 1, l.cfg.importFanout, l.cfg.importDepth, l.cfg.seed+1)
+	// Runs alongside the read load, so failures are reported with Errorf rather than Fatalf
+	body, err := json.Marshal(tree.Organizations())
+	if err != nil {
+		t.Errorf("Error marshaling organizations: %v", err)
+		return stats
+	}
+	start := time.Now()
+	status, response, err := l.do(http.MethodPost, l.cfg.baseURL+"/organizations/bulk", body)
+	stats.record(opImport, time.Since(start), err == nil && (status == http.StatusOK || status == http.StatusAccepted))
+	switch {
+	case err != nil || (status != http.StatusOK && status != http.StatusAccepted):
+		t.Errorf("Importing %d organizations failed: %d %v %s", tree.Size(), status, err, string(response))
+	case status == http.StatusAccepted:
+		var accepted struct {
+			JobID int64 `json:"jobId"`
+		}
+		if err := json.Unmarshal(response, &accepted); err != nil || accepted.JobID == 0 {
+			t.Errorf("No job ID in import response: %s", string(response))
+			return stats
+		}
+		job := submittedJob{id: accepted.JobID, submitted: start}
+		stats[opImportJob] = l.awaitJobs(t, "/organizations/jobs/%d", []submittedJob{job})
+	}
+	t.Logf("Imported %d organizations in %s", tree.Size(), time.Since(start))
+	return stats
+}
+
+type sloCheck struct {
+	description string
+	actual      string
+	passed      bool
+}
+
+type scenarioResult struct {
+	name    string
+	elapsed time.Duration
+	stats   opStatsSet
+	checks  []sloCheck
+}
+
+func newScenarioResult(name string, elapsed time.Duration, stats opStatsSet) *scenarioResult {
+	return &scenarioResult{name: name, elapsed: elapsed, stats: stats}
+}
+
+func (r *scenarioResult) checkP95(op string, limit time.Duration) {
+	description := fmt.Sprintf("%s p95 <= %s", op, limit)
+	stats, ok := r.stats[op]
+	if !ok || stats.latency.Count() == 0 {
+		r.checks = append(r.checks, sloCheck{description, "no requests", false})
+		return
+	}
+	p95 := stats.latency.ValueAt(0.95)
+	r.checks = append(r.checks, sloCheck{description, fmt.Sprintf("%.3fms", millis(p95)), p95 <= limit})
+}
+
+func (r *scenarioResult) checkRate(op string, minRate int) {
+	rate := r.servedRate(op)
+	r.checks = append(r.checks, sloCheck{fmt.Sprintf("%s rate >= %d/s", op, minRate),
+		fmt.Sprintf("%.0f/s", rate), rate >= float64(minRate)})
+}
+
+func (r *scenarioResult) checkErrors(maxRate float64) {
+	var requests, errors uint64
+	for _, stats := range r.stats {
+		requests += stats.latency.Count()
+		errors += stats.errors
+	}
+	rate := 0.0
+	if requests > 0 {
+		rate = float64(errors) / float64(requests)
+	}
+	r.checks = append(r.checks, sloCheck{fmt.Sprintf("error rate <= %.2f%%", maxRate*100),
+		fmt.Sprintf("%.3f%% (%d of %d)", rate*100, errors, requests), rate <= maxRate})
+}
+
+// servedRate counts successful requests over the scenario's whole run
+func (r *scenarioResult) servedRate(op string) float64 {
+	stats, ok := r.stats[op]
+	if !ok || r.elapsed <= 0 {
+		return 0
+	}
+	return float64(stats.latency.Count()-stats.errors) / r.elapsed.Seconds()
+}
+
+func (r *scenarioResult) failed() []sloCheck {
+	var failed []sloCheck
+	for _, check := range r.checks {
+		if !check.passed {
+			failed = append(failed, check)
+		}
+	}
+	return failed
+}
+
+func TestLoad(t *testing.T) {
+	cfg := readLoadTestConfig()
+	l := newLoadTester(t, cfg)
+	var results []*scenarioResult
+	defer func() {
+		writeLoadReport(t, cfg, l.tree, results)
+	}()
+
+	if cfg.warmUp > 0 {
+		t.Logf("Warming up for %s", cfg.warmUp)
+		l.runOpenLoop(cfg.rate, cfg.warmUp, l.readMix(false, 0))
+	}
+
+	scenario := func(name string, run func(t *testing.T) *scenarioResult) {
+		t.Run(name, func(t *testing.T) {
+			result := run(t)
+			results = append(results, result)
+			for _, check := range result.failed() {
+				t.Errorf("SLO missed: %s, was %s", check.description, check.actual)
+			}
+		})
+	}
+
+	for _, mix := range []struct {
+		name    string
+		uniform bool
+	}{{"ReadHeavySkewed", false}, {"ReadHeavyUniform", true}} {
+		uniform := mix.uniform
+		scenario(mix.name, func(t *testing.T) *scenarioResult {
+			// Toggles come on top of the lookup rate
+			rate := int(float64(cfg.rate) / (1 - cfg.toggleShare))
+			stats, elapsed := l.runOpenLoop(rate, cfg.duration, l.readMix(uniform, cfg.toggleShare))
+			result := newScenarioResult(t.Name(), elapsed, stats)
+			result.checkRate(opLookup, cfg.sloRate)
+			result.checkP95(opLookup, cfg.sloReadP95)
+			if cfg.toggleShare > 0 {
+				result.checkP95(opToggle, cfg.sloToggleP95)
+			}
+			result.checkErrors(cfg.sloErrorRate)
+			return result
+		})
+	}
+
+	scenario("HierarchyTogglesDuringReads", func(t *testing.T) *scenarioResult {
+		stop := make(chan struct{})
+		var toggles *opStats
+		var jobs []submittedJob
+		done := make(chan struct{})
+		go func() {
+			toggles, jobs = l.hierarchyToggles(stop)
+			close(done)
+		}()
+		stats, elapsed := l.runOpenLoop(cfg.rate, cfg.duration, l.readMix(false, 0))
+		close(stop)
+		<-done
+		stats[opHierarchyToggle] = toggles
+		// Propagation time is reported but has no SLO: it grows with the subtree
+		stats[opHierarchyPropagation] = l.awaitJobs(t, "/job-status/%d", jobs)
+		result := newScenarioResult(t.Name(), elapsed, stats)
+		result.checkRate(opLookup, cfg.sloRate)
+		result.checkP95(opLookup, cfg.sloReadP95)
+		result.checkP95(opHierarchyToggle, cfg.sloToggleP95)
+		result.checkErrors(cfg.sloErrorRate)
+		return result
+	})
+
+	scenario("BulkImportDuringReads", func(t *testing.T) *scenarioResult {
+		var imports opStatsSet
+		done := make(chan struct{})
+		go func() {
+			imports = l.bulkImport(t)
+			close(done)
+		}()
+		stats, elapsed := l.runOpenLoop(cfg.rate, cfg.duration, l.readMix(false, 0))
+		<-done
+		stats.merge(imports)
+		result := newScenarioResult(t.Name(), elapsed, stats)
+		result.checkRate(opLookup, cfg.sloRate)
+		result.checkP95(opLookup, cfg.sloReadP95)
+		result.checkErrors(cfg.sloErrorRate)
+		return result
+	})
+}
+
+// writeLoadReport writes a summary per scenario, the SLO checks and the
+// latency distribution of every kind of request
+func writeLoadReport(t *testing.T, cfg loadTestConfig, tree OrgTree, results []*scenarioResult) {
+	var report bytes.Buffer
+	fmt.Fprintf(&report, "Load test report, %s\n", time.Now().Format(time.RFC3339))
+	fmt.Fprintf(&report, "Target %s: %d lookups/s offered by %d workers for %s per scenario\n",
+		cfg.baseURL, cfg.rate, cfg.workers, cfg.duration)
+	fmt.Fprintf(&report, "Organizations: %d (%d roots, fan-out %d, depth %d, seed %d)\n",
+		tree.Size(), cfg.roots, cfg.fanout, cfg.depth, cfg.seed)
+
+	missed := 0
+	for _, result := range results {
+		fmt.Fprintf(&report, "\n== %s (%.1fs)\n", result.name, result.elapsed.Seconds())
+		fmt.Fprintf(&report, "%-22s %10s %8s %10s %10s %10s %10s %10s\n",
+			"request", "count", "errors", "rate/s", "p50 ms", "p95 ms", "p99 ms", "max ms")
+		ops := make([]string, 0, len(result.stats))
+		for op := range result.stats {
+			ops = append(ops, op)
+		}
+		sort.Strings(ops)
+		for _, op := range ops {
+			stats := result.stats[op]
+			fmt.Fprintf(&report, "%-22s %10d %8d %10.0f %10.3f %10.3f %10.3f %10.3f\n",
+				op, stats.latency.Count(), stats.errors, result.servedRate(op),
+				millis(stats.latency.ValueAt(0.5)), millis(stats.latency.ValueAt(0.95)),
+				millis(stats.latency.ValueAt(0.99)), millis(stats.latency.Max()))
+		}
+		for _, check := range result.checks {
+			outcome := "PASS"
+			if !check.passed {
+				outcome = "FAIL"
+				missed++
+			}
+			fmt.Fprintf(&report, "SLO %-40s %-28s %s\n", check.description, check.actual, outcome)
+		}
+		for _, op := range ops {
+			fmt.Fprintf(&report, "\n-- %s latency distribution\n", op)
+			result.stats[op].latency.WritePercentiles(&report)
+		}
+	}
+	if missed == 0 {
+		fmt.Fprintf(&report, "\nAll SLOs met\n")
+	} else {
+		fmt.Fprintf(&report, "\n%d SLO checks missed\n", missed)
+	}
+
+	fmt.Print(report.String())
+	if err := os.MkdirAll(filepath.Dir(cfg.reportPath), 0o755); err != nil {
+		t.Logf("Could not create report directory: %v", err)
+		return
+	}
+	if err := os.WriteFile(cfg.reportPath, report.Bytes(), 0o644); err != nil {
+		t.Logf("Could not write report: %v", err)
+	}
+}
@@ -0,0 +1,40 @@
+package com.featureflags.config;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfiguration {
+
+    /**
+     * Thread pool shared by hierarchy propagation and organization import jobs.
+     * Replaced by a virtual thread executor in VirtualThreadConfiguration when
+     * virtual threads are enabled.
+     */
+    @Bean(name = "featureFlagTaskExecutor")
+    @ConditionalOnProperty(name = "featureflags.threads.virtual.enabled", havingValue = "false",
+            matchIfMissing = true)
+    public ThreadPoolTaskExecutor featureFlagTaskExecutor(
+            @Value("${featureflags.executor.core-pool-size:3}") int corePoolSize,
+            @Value("${featureflags.executor.max-pool-size:10}") int maxPoolSize,
+            @Value("${featureflags.executor.queue-capacity:50}") int queueCapacity,
+            FeatureFlagMetrics metrics) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("feature-flag-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        // Jobs borrow connections from the background pool, never the interactive one
+        executor.setTaskDecorator(Workload.BACKGROUND.taskDecorator());
+        metrics.monitorExecutor("featureFlagTaskExecutor", executor);
+        return executor;
+    }
+}
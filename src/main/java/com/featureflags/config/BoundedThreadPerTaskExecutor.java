@@ -0,0 +1,171 @@
+package com.featureflags.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts a new thread for every task, with at most {@code concurrencyLimit}
+ * tasks running at once: the limit is what keeps background jobs from
+ * holding more database connections than intended. Tasks beyond it wait in
+ * a queue of {@code queueCapacity}, and are rejected once it is full, like a
+ * ThreadPoolTaskExecutor's. Callers never wait: most submit from a request or
+ * scheduler thread that still holds its transaction's connection.
+ */
+public class BoundedThreadPerTaskExecutor implements AsyncTaskExecutor, DisposableBean {
+
+    private final ThreadFactory threadFactory;
+    private final int concurrencyLimit;
+    private final Semaphore permits;
+    private final BlockingQueue<Runnable> queue;
+    private final long awaitTerminationSeconds;
+    private TaskDecorator taskDecorator;
+
+    public BoundedThreadPerTaskExecutor(ThreadFactory threadFactory, int concurrencyLimit, int queueCapacity,
+            long awaitTerminationSeconds) {
+        if (concurrencyLimit < 1) {
+            throw new IllegalArgumentException("concurrencyLimit must be positive");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        this.threadFactory = threadFactory;
+        this.concurrencyLimit = concurrencyLimit;
+        this.permits = new Semaphore(concurrencyLimit);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.awaitTerminationSeconds = awaitTerminationSeconds;
+    }
+
+    /**
+     * Wrap every task before it runs, like ThreadPoolTaskExecutor#setTaskDecorator
+     */
+    public void setTaskDecorator(TaskDecorator taskDecorator) {
+        this.taskDecorator = taskDecorator;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Runnable work = taskDecorator != null ? taskDecorator.decorate(task) : task;
+        if (permits.tryAcquire()) {
+            start(work);
+            return;
+        }
+        if (!queue.offer(work)) {
+            throw new TaskRejectedException("Executor is busy: " + concurrencyLimit + " tasks running and "
+                    + queue.size() + " queued");
+        }
+        // A slot may have freed up before the task was queued
+        startQueued();
+    }
+
+    /**
+     * Run a task on a new thread in a slot already taken; the thread goes on
+     * with queued tasks before giving the slot back
+     */
+    private void start(Runnable work) {
+        Thread thread;
+        try {
+            thread = threadFactory.newThread(() -> {
+                try {
+                    Runnable next = work;
+                    while (next != null) {
+                        runQuietly(next);
+                        next = queue.poll();
+                    }
+                } finally {
+                    permits.release();
+                    startQueued();
+                }
+            });
+            if (thread == null) {
+                throw new TaskRejectedException("Thread factory did not create a worker thread");
+            }
+            thread.start();
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw e instanceof TaskRejectedException ? (TaskRejectedException) e
+                    : new TaskRejectedException("Worker thread could not be started", e);
+        }
+    }
+
+    private void startQueued() {
+        while (!queue.isEmpty() && permits.tryAcquire()) {
+            Runnable next = queue.poll();
+            if (next == null) {
+                permits.release();
+                return;
+            }
+            start(next);
+        }
+    }
+
+    // A failing task must not take the tasks queued behind it down with it
+    private static void runQuietly(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    @Override
+    @Deprecated
+    public void execute(Runnable task, long startTimeout) {
+        execute(task);
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        FutureTask<Object> future = new FutureTask<>(task, null);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * Tasks currently running
+     */
+    public int getActiveCount() {
+        return concurrencyLimit - permits.availablePermits();
+    }
+
+    /**
+     * Tasks queued for a free slot
+     */
+    public int getWaitingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Wait for running tasks to finish, like a pool shut down with
+     * waitForTasksToCompleteOnShutdown
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        // Workers keep their slot while tasks are queued, so this also waits for the queue
+        if (permits.tryAcquire(concurrencyLimit, awaitTerminationSeconds, TimeUnit.SECONDS)) {
+            permits.release(concurrencyLimit);
+        }
+    }
+}
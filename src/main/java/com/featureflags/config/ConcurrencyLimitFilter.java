@@ -0,0 +1,73 @@
+package com.featureflags.config;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits at most {@code maxConcurrentRequests} requests at a time. With one
+ * virtual thread per request nothing else bounds concurrency, and every
+ * request would end up queueing inside the connection pool. Requests that
+ * cannot be admitted within the timeout get a 503 with Retry-After instead.
+ * Actuator endpoints bypass the limit so probes keep working under load.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long admissionTimeoutNanos;
+    private final FeatureFlagMetrics metrics;
+
+    public ConcurrencyLimitFilter(int maxConcurrentRequests, Duration admissionTimeout, FeatureFlagMetrics metrics) {
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.admissionTimeoutNanos = admissionTimeout.toNanos();
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean admitted;
+        try {
+            admitted = permits.tryAcquire(admissionTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+
+        if (!admitted) {
+            metrics.requestRejected();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent requests");
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+}
@@ -0,0 +1,239 @@
+package com.featureflags.config;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.jdbc.DataSourceHealthIndicator;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseDataSource;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pools for the primary (spring.datasource.*), one per
+ * {@link Workload}:
+ * <ul>
+ * <li>interactive - request handling, sized by spring.datasource.hikari.*</li>
+ * <li>background - hierarchy propagation and imports, manual retries (and
+ * Liquibase)</li>
+ * <li>streaming - subtree exports</li>
+ * <li>maintenance - scheduled tasks</li>
+ * <li>health - actuator health checks</li>
+ * </ul>
+ * With featureflags.datasource.replica.enabled, interactive read-only
+ * transactions (flag lookups, job status, organization reads) go to one or
+ * more streaming replicas instead.
+ */
+@Configuration
+public class DataSourceConfiguration implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceConfiguration.class);
+
+    private final ObjectProvider<FeatureFlagMetrics> metricsProvider;
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private final Duration probeInterval;
+    private final List<HikariDataSource> replicaPools = new ArrayList<>();
+    private ReplicaRoutingDataSource replicaRouting;
+    private final ScheduledExecutorService lagProbe = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-lag-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Providers: the meter registry binds the data source's pool metrics, so
+    // it cannot be a dependency of the data source
+    public DataSourceConfiguration(ObjectProvider<FeatureFlagMetrics> metricsProvider,
+            ObjectProvider<MeterRegistry> meterRegistryProvider,
+            @Value("${featureflags.datasource.replica.lag-probe-interval:1s}") Duration probeInterval) {
+        this.metricsProvider = metricsProvider;
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.probeInterval = probeInterval;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource interactiveDataSource(DataSourceProperties properties) {
+        return workloadPool(properties, Workload.INTERACTIVE);
+    }
+
+    /**
+     * One connection per job the executor may run at once, plus spare ones
+     * for manual retries, which run a propagation on the request thread, and
+     * for Liquibase at startup
+     */
+    @Bean
+    @LiquibaseDataSource
+    public HikariDataSource backgroundDataSource(DataSourceProperties properties,
+            @Value("${featureflags.executor.max-pool-size:10}") int maxConcurrentJobs,
+            @Value("${featureflags.datasource.pools.background.spare:2}") int spare) {
+        HikariDataSource dataSource = workloadPool(properties, Workload.BACKGROUND);
+        dataSource.setMaximumPoolSize(maxConcurrentJobs + spare);
+        dataSource.setMinimumIdle(1);
+        return dataSource;
+    }
+
+    /**
+     * One connection per export that may stream at once, as each holds its
+     * connection until the last row is written
+     */
+    @Bean
+    public HikariDataSource streamingDataSource(DataSourceProperties properties,
+            @Value("${featureflags.streaming.max-concurrent:4}") int maxConcurrentStreams) {
+        HikariDataSource dataSource = workloadPool(properties, Workload.STREAMING);
+        dataSource.setMaximumPoolSize(maxConcurrentStreams);
+        dataSource.setMinimumIdle(0);
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource maintenanceDataSource(DataSourceProperties properties,
+            @Value("${featureflags.datasource.pools.maintenance.max-size:2}") int maxSize) {
+        HikariDataSource dataSource = workloadPool(properties, Workload.MAINTENANCE);
+        dataSource.setMaximumPoolSize(maxSize);
+        dataSource.setMinimumIdle(1);
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource healthDataSource(DataSourceProperties properties,
+            @Value("${featureflags.datasource.pools.health.max-size:2}") int maxSize,
+            @Value("${featureflags.datasource.pools.health.connection-timeout:2s}") Duration connectionTimeout) {
+        HikariDataSource dataSource = workloadPool(properties, Workload.HEALTH);
+        dataSource.setMaximumPoolSize(maxSize);
+        dataSource.setMinimumIdle(1);
+        // A probe that cannot get a connection quickly should report DOWN, not hang
+        dataSource.setConnectionTimeout(connectionTimeout.toMillis());
+        return dataSource;
+    }
+
+    private static HikariDataSource workloadPool(DataSourceProperties properties, Workload workload) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(workload.name().toLowerCase());
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("interactiveDataSource") HikariDataSource interactiveDataSource,
+            @Qualifier("backgroundDataSource") HikariDataSource backgroundDataSource,
+            @Qualifier("streamingDataSource") HikariDataSource streamingDataSource,
+            @Qualifier("maintenanceDataSource") HikariDataSource maintenanceDataSource,
+            @Qualifier("healthDataSource") HikariDataSource healthDataSource,
+            DataSourceProperties properties,
+            @Value("${featureflags.datasource.replica.enabled:false}") boolean replicasEnabled,
+            @Value("${featureflags.datasource.replica.urls:}") String[] replicaUrls,
+            @Value("${featureflags.datasource.replica.max-lag:2s}") Duration maxLag) {
+        DataSource target = new WorkloadRoutingDataSource(interactiveDataSource, backgroundDataSource,
+                streamingDataSource, maintenanceDataSource, healthDataSource);
+        if (replicasEnabled) {
+            replicaRouting = new ReplicaRoutingDataSource(target,
+                    replicaPools(properties, replicaUrls, interactiveDataSource), maxLag);
+            logger.info("Routing read-only transactions to {} replica(s), max lag {}ms",
+                    replicaRouting.getReplicaCount(), maxLag.toMillis());
+            target = replicaRouting;
+        }
+
+        // Defer the routing decision to the first statement, after the
+        // transaction manager has marked the transaction read-only
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+        proxy.setTargetDataSource(target);
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        proxy.afterPropertiesSet();
+        return proxy;
+    }
+
+    private List<DataSource> replicaPools(DataSourceProperties properties, String[] replicaUrls,
+            HikariDataSource interactiveDataSource) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url.trim())
+                    .build();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            if (interactiveDataSource.getMaximumPoolSize() > 0) {
+                replica.setMaximumPoolSize(interactiveDataSource.getMaximumPoolSize());
+            }
+            replica.setReadOnly(true);
+            replicaPools.add(replica);
+            replicas.add(replica);
+        }
+        if (replicas.isEmpty()) {
+            throw new IllegalStateException(
+                    "featureflags.datasource.replica.urls must list at least one replica JDBC URL");
+        }
+        return replicas;
+    }
+
+    /**
+     * Database health is checked on the health pool only; the default
+     * indicator would borrow a connection from every pool
+     */
+    @Bean
+    public DataSourceHealthIndicator dbHealthIndicator(@Qualifier("healthDataSource") DataSource healthDataSource) {
+        return new DataSourceHealthIndicator(healthDataSource);
+    }
+
+    @Bean
+    public FilterRegistrationBean<HealthWorkloadFilter> healthWorkloadFilter() {
+        FilterRegistrationBean<HealthWorkloadFilter> registration =
+                new FilterRegistrationBean<>(new HealthWorkloadFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Replica metrics are attached and the lag probe started once the context
+     * is up; until the first probe every read goes to the primary, so the
+     * replica pools are still unstarted here
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (replicaRouting == null) {
+            return;
+        }
+        FeatureFlagMetrics metrics = metricsProvider.getObject();
+        MeterRegistry meterRegistry = meterRegistryProvider.getObject();
+        for (int i = 0; i < replicaPools.size(); i++) {
+            HikariDataSource replica = replicaPools.get(i);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            int index = i;
+            metrics.monitorReplicaLag(replica.getPoolName(), replicaRouting, r -> r.getLagMillis(index));
+        }
+        replicaRouting.setMetrics(metrics);
+        lagProbe.scheduleWithFixedDelay(replicaRouting::refreshLag, 0, probeInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        lagProbe.shutdownNow();
+        replicaPools.forEach(HikariDataSource::close);
+    }
+}
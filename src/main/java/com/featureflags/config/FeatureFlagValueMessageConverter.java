@@ -0,0 +1,123 @@
+package com.featureflags.config;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.featureflags.model.FeatureFlagValue;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Writes {@link FeatureFlagValue} lookups as JSON without going through
+ * Jackson. Everything before the organization ID is encoded once per flag
+ * name and value, so a response only costs copying those bytes and the ID
+ * digits. The output matches what Jackson would produce for the same object.
+ */
+public class FeatureFlagValueMessageConverter extends AbstractHttpMessageConverter<FeatureFlagValue> {
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    // Flag names are checked against the registered set before lookup, so
+    // this holds one entry per registered flag
+    private final ConcurrentMap<String, byte[][]> prefixes = new ConcurrentHashMap<>();
+
+    public FeatureFlagValueMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return FeatureFlagValue.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected FeatureFlagValue readInternal(Class<? extends FeatureFlagValue> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("FeatureFlagValue is a response-only type", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(FeatureFlagValue value, MediaType contentType) {
+        Long organizationId = value.getOrganizationId();
+        int idLength = organizationId != null ? decimalLength(organizationId) : NULL.length;
+        return (long) prefix(value).length + idLength + 1;
+    }
+
+    @Override
+    protected void writeInternal(FeatureFlagValue value, HttpOutputMessage outputMessage) throws IOException {
+        writeTo(value, outputMessage.getBody());
+    }
+
+    void writeTo(FeatureFlagValue value, OutputStream out) throws IOException {
+        out.write(prefix(value));
+        Long organizationId = value.getOrganizationId();
+        if (organizationId != null) {
+            writeDecimal(organizationId, out);
+        } else {
+            out.write(NULL);
+        }
+        out.write('}');
+    }
+
+    private byte[] prefix(FeatureFlagValue value) {
+        byte[][] byValue = prefixes.computeIfAbsent(value.getName(), FeatureFlagValueMessageConverter::encodePrefixes);
+        return byValue[value.isEnabled() ? 1 : 0];
+    }
+
+    private static byte[][] encodePrefixes(String name) {
+        String quotedName = new String(JsonStringEncoder.getInstance().quoteAsString(name));
+        return new byte[][] {
+                encodePrefix(quotedName, false),
+                encodePrefix(quotedName, true)
+        };
+    }
+
+    private static byte[] encodePrefix(String quotedName, boolean enabled) {
+        return ("{\"name\":\"" + quotedName + "\",\"enabled\":" + enabled + ",\"organizationId\":")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the digits of {@code value} without building a String. Works on the
+     * negated value so that {@link Long#MIN_VALUE} needs no special case.
+     */
+    static void writeDecimal(long value, OutputStream out) throws IOException {
+        long negated = value;
+        if (value < 0) {
+            out.write('-');
+        } else {
+            negated = -value;
+        }
+
+        long divisor = 1;
+        while (negated / divisor <= -10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            out.write((int) ('0' - negated / divisor));
+            negated %= divisor;
+            divisor /= 10;
+        }
+    }
+
+    static int decimalLength(long value) {
+        int length = value < 0 ? 2 : 1;
+        long negated = value < 0 ? value : -value;
+        while (negated <= -10) {
+            negated /= 10;
+            length++;
+        }
+        return length;
+    }
+}
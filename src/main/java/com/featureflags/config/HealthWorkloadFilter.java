@@ -0,0 +1,33 @@
+package com.featureflags.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Runs health endpoint requests as the {@link Workload#HEALTH} workload, so
+ * probes use their own small connection pool and keep answering while the
+ * others are exhausted
+ */
+public class HealthWorkloadFilter extends OncePerRequestFilter {
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/actuator/health");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Workload previous = Workload.HEALTH.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Workload.end(previous);
+        }
+    }
+}
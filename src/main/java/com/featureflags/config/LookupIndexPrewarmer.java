@@ -0,0 +1,77 @@
+package com.featureflags.config;
+
+import com.featureflags.health.WarmUpHealthIndicator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Reads the indexes behind flag lookups, and the organizations with the
+ * closure table index that hierarchy checks read, into the primary's shared
+ * buffers at startup with pg_prewarm, so the first lookups and hierarchy
+ * checks after a database restart or failover do not each wait on disk.
+ * A partitioned relation is prewarmed partition by partition. Reported as
+ * the lookupIndexes task of {@link WarmUpHealthIndicator}; skipped when the
+ * extension is not installed.
+ */
+@Component
+public class LookupIndexPrewarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(LookupIndexPrewarmer.class);
+
+    static final String TASK = "lookupIndexes";
+    static final List<String> RELATIONS = List.of("uq_feature_flags_organization_id_name", "organizations",
+            "organizations_pkey", "organization_closure_pkey");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WarmUpHealthIndicator warmUp;
+    private final boolean enabled;
+
+    @Autowired
+    public LookupIndexPrewarmer(JdbcTemplate jdbcTemplate, WarmUpHealthIndicator warmUp,
+            @Value("${featureflags.warm-up.prewarm-indexes:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.warmUp = warmUp;
+        this.enabled = enabled;
+        if (enabled) {
+            warmUp.begin(TASK);
+        }
+    }
+
+    /**
+     * Runs on the background executor (and its connection pool); readiness
+     * waits for it through the warm-up indicator rather than by blocking startup
+     */
+    @Async("featureFlagTaskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Boolean installed = jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_prewarm')", Boolean.class);
+            if (!Boolean.TRUE.equals(installed)) {
+                logger.info("pg_prewarm is not installed; lookup indexes are read on first use");
+            } else {
+                for (String relation : RELATIONS) {
+                    Long blocks = jdbcTemplate.queryForObject("SELECT COALESCE(sum(pg_prewarm(relid)), 0)::BIGINT " +
+                            "FROM pg_partition_tree(CAST(? AS regclass)) WHERE isleaf", Long.class, relation);
+                    logger.info("Prewarmed {} ({} blocks)", relation, blocks);
+                }
+            }
+            warmUp.complete(TASK);
+        } catch (RuntimeException e) {
+            logger.warn("Could not prewarm lookup indexes: {}", e.getMessage());
+            warmUp.fail(TASK);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.featureflags.config;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Read-your-writes on top of ReplicaRoutingDataSource. Flags written within
+ * the last few seconds are read from the primary, and reads that miss on a
+ * replica can be repeated on the primary. Everything here is a pass-through
+ * when replica routing is disabled.
+ */
+@Component
+public class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> primaryRequired = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final long readYourWritesNanos;
+    private final FeatureFlagMetrics metrics;
+    // Keyed by flag name, which is bounded by the flag registry
+    private final Map<String, Long> lastWriteNanos = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReplicaRouting(@Value("${featureflags.datasource.replica.enabled:false}") boolean enabled,
+            @Value("${featureflags.datasource.replica.read-your-writes-window:5s}") Duration readYourWritesWindow,
+            @Value("${featureflags.datasource.replica.max-lag:2s}") Duration maxLag,
+            FeatureFlagMetrics metrics) {
+        this.enabled = enabled;
+        // A replica serving reads is at most max-lag behind, so the window never needs to be shorter
+        this.readYourWritesNanos = (readYourWritesWindow.compareTo(maxLag) >= 0 ? readYourWritesWindow : maxLag)
+                .toNanos();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Note a committed write to a flag; reads of it go to the primary until the
+     * replicas have caught up
+     */
+    public void recordWrite(String featureFlagName) {
+        if (enabled) {
+            lastWriteNanos.put(featureFlagName, System.nanoTime());
+        }
+    }
+
+    /**
+     * Run a flag read, on the primary if the flag was written recently. Must be
+     * called before the surrounding transaction has issued any query.
+     */
+    public <T> T read(String featureFlagName, Supplier<T> query) {
+        if (enabled && isRecentlyWritten(featureFlagName)) {
+            metrics.readRoutedToPrimary("recent-write");
+            return onPrimary(query);
+        }
+        return query.get();
+    }
+
+    /**
+     * Run a lookup and, if a replica did not have the row yet, repeat it on the
+     * primary. Meant for rows clients read right after creating them, such as a
+     * job they have just been handed the ID of. Inside a transaction the
+     * connection is already chosen, so the result is returned as is.
+     */
+    public <T> Optional<T> findWithPrimaryFallback(Supplier<Optional<T>> query) {
+        Optional<T> result = query.get();
+        if (result.isPresent() || !enabled || primaryRequired.get() != null
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return result;
+        }
+        metrics.readRoutedToPrimary("not-found");
+        return onPrimary(query);
+    }
+
+    /**
+     * Run a read on the primary regardless of the transaction's read-only flag
+     */
+    public <T> T onPrimary(Supplier<T> query) {
+        if (!enabled || primaryRequired.get() != null) {
+            return query.get();
+        }
+        primaryRequired.set(Boolean.TRUE);
+        try {
+            return query.get();
+        } finally {
+            primaryRequired.remove();
+        }
+    }
+
+    private boolean isRecentlyWritten(String featureFlagName) {
+        Long writtenAt = lastWriteNanos.get(featureFlagName);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - writtenAt < readYourWritesNanos) {
+            return true;
+        }
+        lastWriteNanos.remove(featureFlagName, writtenAt);
+        return false;
+    }
+
+    static boolean isPrimaryRequired() {
+        return primaryRequired.get() != null;
+    }
+}
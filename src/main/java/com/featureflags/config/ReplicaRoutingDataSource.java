@@ -0,0 +1,135 @@
+package com.featureflags.config;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Routes connections for interactive read-only transactions to a read replica
+ * and everything else, including background and health work, to the primary.
+ * Replicas lagging more than the configured limit, or unreachable, are
+ * skipped; when none is usable reads go to the primary. Must be wrapped in a
+ * LazyConnectionDataSourceProxy so the choice is made once the transaction's
+ * read-only flag is known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+    static final long UNAVAILABLE = Long.MAX_VALUE;
+
+    /**
+     * Zero when the replica has replayed everything it received, otherwise the
+     * age of the last replayed transaction
+     */
+    private static final String LAG_QUERY = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() "
+            + "THEN 0 ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final List<DataSource> replicas;
+    private final long maxLagMillis;
+    private volatile FeatureFlagMetrics metrics;
+    private final AtomicLongArray lagMillis;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration maxLag) {
+        this.replicas = replicas;
+        this.maxLagMillis = maxLag.toMillis();
+        this.lagMillis = new AtomicLongArray(replicas.size());
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+            // Not trusted until the first probe has measured it
+            lagMillis.set(i, UNAVAILABLE);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || ReplicaRouting.isPrimaryRequired()
+                || Workload.current() != Workload.INTERACTIVE) {
+            return PRIMARY;
+        }
+        int count = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), count);
+        for (int i = 0; i < count; i++) {
+            int replica = (start + i) % count;
+            if (lagMillis.get(replica) <= maxLagMillis) {
+                return replica;
+            }
+        }
+        FeatureFlagMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.readRoutedToPrimary("lag");
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * Attached after construction: the meter registry itself needs the data
+     * source while it is being created
+     */
+    public void setMetrics(FeatureFlagMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Measure the replication lag of every replica; called periodically
+     */
+    public void refreshLag() {
+        for (int i = 0; i < replicas.size(); i++) {
+            try (Connection connection = replicas.get(i).getConnection();
+                    Statement statement = connection.createStatement();
+                    ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                resultSet.next();
+                recordLag(i, resultSet.getLong(1));
+            } catch (SQLException e) {
+                if (lagMillis.get(i) != UNAVAILABLE) {
+                    logger.warn("Replica {} is unreachable, sending its reads to the primary: {}", i + 1,
+                            e.getMessage());
+                }
+                recordLag(i, UNAVAILABLE);
+            }
+        }
+    }
+
+    void recordLag(int replica, long millis) {
+        long previous = lagMillis.getAndSet(replica, millis);
+        if (previous <= maxLagMillis && millis > maxLagMillis && millis != UNAVAILABLE) {
+            logger.warn("Replica {} is {}ms behind (limit {}ms), sending its reads to the primary",
+                    replica + 1, millis, maxLagMillis);
+        }
+    }
+
+    /**
+     * Last measured lag in milliseconds, or NaN when the replica could not be
+     * reached
+     */
+    public double getLagMillis(int replica) {
+        long lag = lagMillis.get(replica);
+        return lag == UNAVAILABLE ? Double.NaN : lag;
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+}
@@ -0,0 +1,14 @@
+package com.featureflags.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Periodic maintenance tasks, such as reclaiming hierarchy update jobs left
+ * running by a stopped node (FeatureFlagJobReclaimer) and keeping the job
+ * table's monthly partitions (FeatureFlagJobPartitionMaintainer)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
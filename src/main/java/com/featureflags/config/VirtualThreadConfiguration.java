@@ -0,0 +1,97 @@
+package com.featureflags.config;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs Tomcat request handling and background jobs on virtual threads.
+ * Requires Java 21 (see the virtual-threads Maven profile); startup fails on
+ * older runtimes rather than silently falling back to platform threads.
+ */
+@Configuration
+@ConditionalOnProperty(name = "featureflags.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+    public VirtualThreadConfiguration() {
+        VirtualThreads.requireSupported();
+        logger.info("Running request handling and background jobs on virtual threads");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("http-");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    /**
+     * Replaces the platform thread pool. max-pool-size keeps its meaning as
+     * the number of jobs that may run (and hold a connection) at once, and
+     * queue-capacity as the number that may wait for one.
+     */
+    @Bean(name = "featureFlagTaskExecutor")
+    public BoundedThreadPerTaskExecutor featureFlagTaskExecutor(
+            @Value("${featureflags.executor.max-pool-size:10}") int maxConcurrentJobs,
+            @Value("${featureflags.executor.queue-capacity:50}") int queueCapacity,
+            FeatureFlagMetrics metrics) {
+        BoundedThreadPerTaskExecutor executor = new BoundedThreadPerTaskExecutor(
+                VirtualThreads.threadFactory("feature-flag-"), maxConcurrentJobs, queueCapacity, 30);
+        executor.setTaskDecorator(Workload.BACKGROUND.taskDecorator());
+        metrics.monitorExecutor("featureFlagTaskExecutor", executor,
+                BoundedThreadPerTaskExecutor::getWaitingCount, BoundedThreadPerTaskExecutor::getActiveCount);
+        return executor;
+    }
+
+    /**
+     * Admission control sized to the connection pool, so bursts wait (briefly)
+     * in front of the service rather than in Hikari's connection queue
+     */
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(DataSource dataSource,
+            @Value("${featureflags.threads.virtual.max-concurrent-requests:0}") int maxConcurrentRequests,
+            @Value("${featureflags.threads.virtual.admission-timeout:1s}") Duration admissionTimeout,
+            FeatureFlagMetrics metrics) {
+        int limit = maxConcurrentRequests > 0 ? maxConcurrentRequests : connectionPoolSize(dataSource);
+        logger.info("Admitting at most {} concurrent requests", limit);
+
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limit, admissionTimeout, metrics);
+        metrics.monitorExecutor("http", filter,
+                ConcurrencyLimitFilter::getWaitingCount, f -> limit - f.getAvailablePermits());
+
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    private static int connectionPoolSize(DataSource dataSource) {
+        try {
+            // Unwraps through the replica routing proxy to the primary pool
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                // -1 until the pool starts when the size is left at its default
+                int size = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+                if (size > 0) {
+                    return size;
+                }
+            }
+        } catch (SQLException e) {
+            logger.warn("Could not determine the connection pool size: {}", e.getMessage());
+        }
+        return 10; // Hikari's default maximum pool size
+    }
+}
@@ -0,0 +1,57 @@
+package com.featureflags.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to Java 21 virtual threads from code compiled for Java 11. Only used
+ * when {@code featureflags.threads.virtual.enabled=true}.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    static boolean isSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * Thread factory for virtual threads named {@code prefix0}, {@code prefix1}, ...
+     */
+    static ThreadFactory threadFactory(String prefix) {
+        requireSupported();
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException
+                | InvocationTargetException e) {
+            throw new IllegalStateException("Virtual threads could not be created", e);
+        }
+    }
+
+    /**
+     * Unbounded executor that starts a new virtual thread for every task
+     */
+    static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        ThreadFactory factory = threadFactory(prefix);
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Virtual thread executor could not be created", e);
+        }
+    }
+
+    static void requireSupported() {
+        if (!isSupported()) {
+            throw new IllegalStateException("featureflags.threads.virtual.enabled=true requires Java 21 or newer, "
+                    + "running on " + Runtime.version());
+        }
+    }
+}
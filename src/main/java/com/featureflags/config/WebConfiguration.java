@@ -0,0 +1,48 @@
+package com.featureflags.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    private final int maxConcurrentStreams;
+    private final int streamQueueCapacity;
+
+    public WebConfiguration(@Value("${featureflags.streaming.max-concurrent:4}") int maxConcurrentStreams,
+            @Value("${featureflags.streaming.queue-capacity:16}") int streamQueueCapacity) {
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.streamQueueCapacity = streamQueueCapacity;
+    }
+
+    /**
+     * Put the flag lookup writer ahead of Jackson; it only claims
+     * FeatureFlagValue responses
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new FeatureFlagValueMessageConverter());
+    }
+
+    /**
+     * Subtree exports are written by a small pool of their own, with
+     * connections from the streaming pool; the controller admits no more than
+     * its threads and queue hold
+     */
+    @Bean(name = "streamingTaskExecutor")
+    public ThreadPoolTaskExecutor streamingTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentStreams);
+        executor.setMaxPoolSize(maxConcurrentStreams);
+        executor.setQueueCapacity(streamQueueCapacity);
+        executor.setThreadNamePrefix("streaming-");
+        executor.setTaskDecorator(Workload.STREAMING.taskDecorator());
+        return executor;
+    }
+}
@@ -0,0 +1,64 @@
+package com.featureflags.config;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * The kind of work the current thread is doing, which decides the connection
+ * pool it borrows from (see WorkloadRoutingDataSource). Threads that never
+ * set one are request threads and count as {@link #INTERACTIVE}.
+ */
+public enum Workload {
+    INTERACTIVE,
+    /** Jobs on featureFlagTaskExecutor and manual retries */
+    BACKGROUND,
+    /** Subtree exports, each holding a connection for the whole stream */
+    STREAMING,
+    /** Scheduled maintenance tasks */
+    MAINTENANCE,
+    HEALTH;
+
+    private static final ThreadLocal<Workload> current = new ThreadLocal<>();
+
+    public static Workload current() {
+        Workload workload = current.get();
+        return workload != null ? workload : INTERACTIVE;
+    }
+
+    /**
+     * Run the action as this workload, restoring the previous one afterwards
+     */
+    public void run(Runnable action) {
+        Workload previous = begin();
+        try {
+            action.run();
+        } finally {
+            end(previous);
+        }
+    }
+
+    /**
+     * Decorator for executors whose tasks all run as this workload
+     */
+    public TaskDecorator taskDecorator() {
+        return task -> () -> run(task);
+    }
+
+    /**
+     * Switch the current thread to this workload
+     *
+     * @return the workload to hand back to {@link #end(Workload)}
+     */
+    Workload begin() {
+        Workload previous = current.get();
+        current.set(this);
+        return previous;
+    }
+
+    static void end(Workload previous) {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.featureflags.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands each {@link Workload} connections from its own pool, so a hierarchy
+ * job holding every background connection cannot make a lookup or a health
+ * probe wait
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+
+    public WorkloadRoutingDataSource(DataSource interactive, DataSource background, DataSource streaming,
+            DataSource maintenance, DataSource health) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Workload.INTERACTIVE, interactive);
+        targets.put(Workload.BACKGROUND, background);
+        targets.put(Workload.STREAMING, streaming);
+        targets.put(Workload.MAINTENANCE, maintenance);
+        targets.put(Workload.HEALTH, health);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(interactive);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return Workload.current();
+    }
+}
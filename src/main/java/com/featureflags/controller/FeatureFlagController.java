@@ -2,22 +2,33 @@ package com.featureflags.controller;
 
 import com.featureflags.model.FeatureFlag;
 import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.model.FeatureFlagJobPage;
+import com.featureflags.model.FeatureFlagJobStats;
+import com.featureflags.model.FeatureFlagJobSummary;
+import com.featureflags.model.FeatureFlagValue;
 import com.featureflags.service.FeatureFlagService;
 import com.featureflags.service.FeatureFlagValidator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/")
 public class FeatureFlagController {
 
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final int MAX_JOB_PAGE_SIZE = 500;
+
     private final FeatureFlagService featureFlagService;
     private final FeatureFlagValidator featureFlagValidator;
 
@@ -27,8 +38,14 @@ public class FeatureFlagController {
         this.featureFlagValidator = featureFlagValidator;
     }
 
+    /**
+     * Look up a feature flag for an organization
+     * GET /{orgId}/{featureFlagName}
+     * Returned as a plain body (no ResponseEntity/headers object) and written by
+     * FeatureFlagValueMessageConverter, keeping the hot path allocation-light
+     */
     @GetMapping("/{orgId}/{featureFlagName}")
-    public ResponseEntity<FeatureFlag> getFeatureFlag(
+    public FeatureFlagValue getFeatureFlag(
             @PathVariable Long orgId,
             @PathVariable String featureFlagName) {
         if (!featureFlagValidator.isFeatureFlagRegistered(featureFlagName)) {
@@ -36,14 +53,14 @@ public class FeatureFlagController {
                     "Feature flag '" + featureFlagName + "' is not registered");
         }
         boolean enabled = featureFlagService.getFeatureFlag(orgId, featureFlagName);
-        FeatureFlag featureFlag = new FeatureFlag(featureFlagName, null, enabled, orgId);
-        return ResponseEntity.ok(featureFlag);
+        return new FeatureFlagValue(featureFlagName, enabled, orgId);
     }
 
     /**
      * Set feature flag for an organization
      * Automatically determines whether to process immediately or in background
-     * based on hierarchy
+     * based on hierarchy. For background processing, a repeated Idempotency-Key
+     * header returns the job created for the first request.
      * POST /{orgId}/{featureFlagName}/{enabled}
      */
     @PostMapping("/{orgId}/{featureFlagName}/{enabled}")
@@ -51,12 +68,17 @@ public class FeatureFlagController {
             @PathVariable Long orgId,
             @PathVariable String featureFlagName,
             @PathVariable boolean enabled,
-            @RequestParam(required = false) String description) {
+            @RequestParam(required = false) String description,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
         if (!featureFlagValidator.isFeatureFlagRegistered(featureFlagName)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND,
                     "Feature flag '" + featureFlagName + "' is not registered");
         }
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
 
         // Check if organization has children to determine processing strategy
         boolean hasChildren = featureFlagService.organizationHasChildren(orgId);
@@ -78,7 +100,7 @@ public class FeatureFlagController {
 
         } else {
             // Has children, process in background (asynchronous)
-            Long jobId = featureFlagService.setFeatureFlagWithHierarchy(orgId, featureFlagName, enabled);
+            Long jobId = submitHierarchyUpdate(orgId, featureFlagName, enabled, idempotencyKey);
 
             response.put("message", "Background processing started for organization hierarchy");
             response.put("processedImmediately", false);
@@ -92,6 +114,14 @@ public class FeatureFlagController {
         }
     }
 
+    private Long submitHierarchyUpdate(Long orgId, String featureFlagName, boolean enabled, String idempotencyKey) {
+        try {
+            return featureFlagService.setFeatureFlagWithHierarchy(orgId, featureFlagName, enabled, idempotencyKey);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+        }
+    }
+
     /**
      * Get status of background job
      * GET /job-status/{jobId}
@@ -107,13 +137,42 @@ public class FeatureFlagController {
     }
 
     /**
-     * Get all jobs for an organization
-     * GET /jobs/{orgId}
+     * Get aggregate phase timings and throughput of jobs completed in the last
+     * {@code hours} hours
+     * GET /jobs/stats
+     */
+    @GetMapping("/jobs/stats")
+    public ResponseEntity<FeatureFlagJobStats> getJobStats(@RequestParam(defaultValue = "24") int hours) {
+        if (hours <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "hours must be positive");
+        }
+        return ResponseEntity.ok(featureFlagService.getJobStats(Duration.ofHours(hours)));
+    }
+
+    /**
+     * Get an organization's jobs, newest first, {@code limit} at a time;
+     * optionally only those with the given statuses or created in
+     * [since, until). Pass the returned nextCursor as {@code cursor} for the
+     * next page.
+     * GET /jobs/{orgId}?status=FAILED&since=2024-01-01T00:00:00&limit=50&cursor=...
      */
     @GetMapping("/jobs/{orgId}")
-    public ResponseEntity<List<FeatureFlagJob>> getJobsForOrganization(@PathVariable Long orgId) {
-        List<FeatureFlagJob> jobs = featureFlagService.getJobsForOrganization(orgId);
-        return ResponseEntity.ok(jobs);
+    public ResponseEntity<FeatureFlagJobPage> getJobsForOrganization(@PathVariable Long orgId,
+            @RequestParam(required = false) Set<FeatureFlagJob.JobStatus> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime until,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (limit <= 0 || limit > MAX_JOB_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + MAX_JOB_PAGE_SIZE);
+        }
+        try {
+            return ResponseEntity.ok(featureFlagService.getJobsForOrganization(orgId, status, since, until, cursor,
+                    limit));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     /**
@@ -138,14 +197,30 @@ public class FeatureFlagController {
         }
     }
 
+    /**
+     * Cancel a background job; a running job stops before its next chunk of
+     * organizations, keeping the ones already written
+     * POST /jobs/{jobId}/cancel
+     */
+    @PostMapping("/jobs/{jobId}/cancel")
+    public ResponseEntity<FeatureFlagJob> cancelJob(@PathVariable Long jobId) {
+        try {
+            return ResponseEntity.ok(featureFlagService.cancelJob(jobId));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Job not found: " + jobId);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
     /**
      * Get retry chain for a job (original + all retries)
      * GET /job-retry-chain/{jobId}
      */
     @GetMapping("/job-retry-chain/{jobId}")
-    public ResponseEntity<List<FeatureFlagJob>> getJobRetryChain(@PathVariable Long jobId) {
+    public ResponseEntity<List<FeatureFlagJobSummary>> getJobRetryChain(@PathVariable Long jobId) {
         try {
-            List<FeatureFlagJob> retryChain = featureFlagService.getJobRetryChain(jobId);
+            List<FeatureFlagJobSummary> retryChain = featureFlagService.getJobRetryChain(jobId);
             return ResponseEntity.ok(retryChain);
         } catch (IllegalArgumentException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Job not found: " + jobId);
@@ -1,12 +1,33 @@
 package com.featureflags.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.featureflags.model.Organization;
+import com.featureflags.model.OrganizationDescendant;
+import com.featureflags.model.OrganizationJob;
+import com.featureflags.service.OrganizationJobService;
 import com.featureflags.service.OrganizationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.featureflags.model.OrganizationBulkResult;
 
@@ -15,15 +36,44 @@ import com.featureflags.model.OrganizationBulkResult;
 public class OrganizationController {
 
     private final OrganizationService organizationService;
+    private final OrganizationJobService organizationJobService;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor streamingTaskExecutor;
+    private final Duration streamTimeout;
+    // Exports running or waiting for a streaming thread; more are refused
+    private final Semaphore streamPermits;
 
     @Autowired
-    public OrganizationController(OrganizationService organizationService) {
+    public OrganizationController(OrganizationService organizationService,
+            OrganizationJobService organizationJobService,
+            ObjectMapper objectMapper,
+            @Qualifier("streamingTaskExecutor") ThreadPoolTaskExecutor streamingTaskExecutor,
+            @Value("${featureflags.streaming.timeout:30m}") Duration streamTimeout,
+            @Value("${featureflags.streaming.max-concurrent:4}") int maxConcurrentStreams,
+            @Value("${featureflags.streaming.queue-capacity:16}") int streamQueueCapacity) {
         this.organizationService = organizationService;
+        this.organizationJobService = organizationJobService;
+        this.objectMapper = objectMapper;
+        this.streamingTaskExecutor = streamingTaskExecutor;
+        this.streamTimeout = streamTimeout;
+        this.streamPermits = new Semaphore(maxConcurrentStreams + streamQueueCapacity);
     }
 
+    /**
+     * Import organizations in bulk
+     * Small batches are saved immediately; large ones become a background job
+     * POST /organizations/bulk
+     */
     @PostMapping("/bulk")
     public ResponseEntity<OrganizationBulkResult> processOrganizations(
             @RequestBody List<Organization> organizations) {
+        if (organizationJobService.shouldImportInBackground(organizations)) {
+            Long jobId = organizationJobService.submitImport(organizations);
+            return ResponseEntity.accepted().body(OrganizationBulkResult.accepted(
+                    "Background import started for " + organizations.size() + " organizations",
+                    jobId, "/organizations/jobs/" + jobId));
+        }
+
         // Let the service handle all validations after sorting
         OrganizationBulkResult result = organizationService.processOrganizations(organizations);
         if (result.getMessage().contains("FAILED")) {
@@ -32,20 +82,192 @@ public class OrganizationController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Add a new organization under a parent. Existing organizations are
+     * moved with PUT, which checks the depth limit and recomputes the flags
+     * they inherit; they are refused here
+     * POST /organizations/{orgId}/parent/{parentId}?name=...
+     */
     @PostMapping("/{orgId}/parent/{parentId}")
     public ResponseEntity<Void> addOrganizationToParent(
             @PathVariable Long orgId,
             @PathVariable Long parentId,
             @RequestParam String name) {
         Organization org = new Organization(orgId, name, parentId);
-        organizationService.addOrganization(org);
+        try {
+            organizationService.addOrganization(org);
+        } catch (UnsupportedOperationException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Move an organization, with its subtree, under another parent; the flags
+     * it inherited are recomputed by a background job when they change
+     * PUT /organizations/{orgId}/parent/{parentId}
+     */
+    @PutMapping("/{orgId}/parent/{parentId}")
+    public ResponseEntity<Map<String, Object>> moveOrganization(
+            @PathVariable Long orgId,
+            @PathVariable Long parentId) {
+        Long jobId;
+        try {
+            jobId = organizationJobService.submitMove(orgId, parentId);
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("organizationId", orgId);
+        response.put("parentId", parentId);
+        if (jobId == null) {
+            response.put("message", "Organization moved; no inherited flags changed");
+            return ResponseEntity.ok(response);
+        }
+        response.put("jobId", jobId);
+        response.put("message", "Organization moved; inherited flags are being recomputed");
+        response.put("trackingUrl", "/organizations/jobs/" + jobId);
+        return ResponseEntity.accepted().body(response);
+    }
+
+    /**
+     * Delete an organization with its subtree, their flags and their job
+     * history; a background job deletes it in batches
+     * DELETE /organizations/{orgId}
+     */
+    @DeleteMapping("/{orgId}")
+    public ResponseEntity<Map<String, Object>> deleteOrganization(@PathVariable Long orgId) {
+        Long jobId;
+        try {
+            jobId = organizationJobService.submitDeletion(orgId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("organizationId", orgId);
+        response.put("jobId", jobId);
+        response.put("message", "Organization is being deleted with its subtree");
+        response.put("trackingUrl", "/organizations/jobs/" + jobId);
+        return ResponseEntity.accepted().body(response);
+    }
+
     @GetMapping("/{orgId}")
     public ResponseEntity<Organization> getOrganization(
             @PathVariable Long orgId) {
         Organization org = organizationService.getOrganization(orgId);
         return ResponseEntity.ok(org);
     }
-}
\ No newline at end of file
+
+    /**
+     * Export the descendants of an organization as NDJSON, one object per
+     * line, by depth then id; optionally only those at most maxDepth levels
+     * below it. Pass the cursor of the last line received to resume.
+     * Written on the streaming executor, as background work, and cut off
+     * after the streaming timeout; when all of its threads and queue slots
+     * are taken the export is refused with 503.
+     * GET /organizations/{orgId}/descendants?maxDepth=2&cursor=...
+     */
+    @GetMapping("/{orgId}/descendants")
+    public WebAsyncTask<Void> getDescendants(@PathVariable Long orgId,
+            @RequestParam(required = false) Integer maxDepth,
+            @RequestParam(required = false) String cursor,
+            HttpServletResponse response) {
+        if (maxDepth != null && maxDepth < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxDepth must be at least 1");
+        }
+        if (organizationService.getOrganization(orgId) == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Organization not found: " + orgId);
+        }
+        OrganizationDescendant after;
+        try {
+            after = organizationService.findDescendantsStart(orgId, cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        if (!streamPermits.tryAcquire()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many exports in progress");
+        }
+
+        int depthLimit = maxDepth != null ? maxDepth : Integer.MAX_VALUE;
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        // The permit goes back once the export has run, or at completion if it
+        // never started, its task then purged so it no longer takes a queue slot
+        AtomicBoolean claimed = new AtomicBoolean();
+        WebAsyncTask<Void> task = new WebAsyncTask<>(streamTimeout.toMillis(), streamingTaskExecutor, () -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                writeDescendants(orgId, after, depthLimit, response.getOutputStream());
+            } finally {
+                streamPermits.release();
+            }
+            return null;
+        });
+        task.onCompletion(() -> {
+            if (claimed.compareAndSet(false, true)) {
+                streamingTaskExecutor.getThreadPoolExecutor().purge();
+                streamPermits.release();
+            }
+        });
+        return task;
+    }
+
+    private void writeDescendants(Long orgId, OrganizationDescendant after, int depthLimit, OutputStream out)
+            throws IOException {
+        try {
+            organizationService.forEachDescendant(orgId, after, depthLimit, descendant -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(descendant));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Get status of a background organization job
+     * GET /organizations/jobs/{jobId}
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<OrganizationJob> getJobStatus(@PathVariable Long jobId) {
+        try {
+            return ResponseEntity.ok(organizationJobService.getJobStatus(jobId));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Job not found: " + jobId);
+        }
+    }
+
+    /**
+     * Resume a failed organization job from its last committed chunk
+     * POST /organizations/jobs/{jobId}/retry
+     */
+    @PostMapping("/jobs/{jobId}/retry")
+    public ResponseEntity<Map<String, Object>> retryFailedJob(@PathVariable Long jobId) {
+        try {
+            organizationJobService.retryFailedJob(jobId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("jobId", jobId);
+            response.put("message", "Job retry initiated successfully");
+            response.put("trackingUrl", "/organizations/jobs/" + jobId);
+
+            return ResponseEntity.accepted().body(response);
+
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
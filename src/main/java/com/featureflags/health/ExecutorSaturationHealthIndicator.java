@@ -0,0 +1,41 @@
+package com.featureflags.health;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Readiness contributor reporting OUT_OF_SERVICE while any monitored executor
+ * (background jobs, and request admission with virtual threads) has
+ * featureflags.health.executor-max-queue-depth or more tasks waiting, so the
+ * load balancer sends new work to other instances until it drains
+ */
+@Component
+public class ExecutorSaturationHealthIndicator implements HealthIndicator {
+
+    private final FeatureFlagMetrics metrics;
+    private final int maxQueueDepth;
+
+    @Autowired
+    public ExecutorSaturationHealthIndicator(FeatureFlagMetrics metrics,
+            @Value("${featureflags.health.executor-max-queue-depth:40}") int maxQueueDepth) {
+        this.metrics = metrics;
+        this.maxQueueDepth = maxQueueDepth;
+    }
+
+    @Override
+    public Health health() {
+        Map<String, Double> queueDepths = metrics.executorQueueDepths();
+        boolean saturated = queueDepths.values().stream().anyMatch(depth -> depth >= maxQueueDepth);
+        return (saturated ? Health.status(Status.OUT_OF_SERVICE) : Health.up())
+                .withDetail("queueDepth", queueDepths)
+                .withDetail("maxQueueDepth", maxQueueDepth)
+                .build();
+    }
+}
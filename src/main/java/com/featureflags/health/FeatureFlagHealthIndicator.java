@@ -1,35 +1,90 @@
 package com.featureflags.health;
 
-import com.featureflags.repository.FeatureFlagRepository;
-import com.featureflags.repository.OrganizationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Database connectivity and approximate table sizes. A single catalog query
+ * on the health pool, with a timeout, answers both: row counts are the
+ * planner's estimates from pg_class (as of the last ANALYZE or VACUUM), never
+ * a scan. The result is reused for featureflags.health.cache-ttl, so probes
+ * from every load balancer and orchestrator cost one query per interval.
+ */
 @Component
 public class FeatureFlagHealthIndicator implements HealthIndicator {
 
-    private final FeatureFlagRepository featureFlagRepository;
-    private final OrganizationRepository organizationRepository;
+    // A partitioned table's estimate is the sum of its partitions'
+    private static final String ESTIMATES = "SELECT t.relname, " +
+            "CASE WHEN bool_or(c.reltuples < 0) THEN -1 ELSE sum(c.reltuples) END AS reltuples " +
+            "FROM (VALUES ('feature_flags'), ('organizations')) AS t(relname) " +
+            "JOIN LATERAL pg_partition_tree(t.relname::regclass) p ON p.isleaf " +
+            "JOIN pg_class c ON c.oid = p.relid " +
+            "GROUP BY t.relname ORDER BY t.relname";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long cacheTtlNanos;
+    private volatile Health cached;
+    private volatile long cachedAt;
 
     @Autowired
-    public FeatureFlagHealthIndicator(FeatureFlagRepository featureFlagRepository,
-            OrganizationRepository organizationRepository) {
-        this.featureFlagRepository = featureFlagRepository;
-        this.organizationRepository = organizationRepository;
+    public FeatureFlagHealthIndicator(@Qualifier("healthDataSource") DataSource healthDataSource,
+            @Value("${featureflags.health.cache-ttl:5s}") Duration cacheTtl,
+            @Value("${featureflags.health.query-timeout:1s}") Duration queryTimeout) {
+        this(queryTemplate(healthDataSource, queryTimeout), cacheTtl);
+    }
+
+    FeatureFlagHealthIndicator(JdbcTemplate jdbcTemplate, Duration cacheTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheTtlNanos = cacheTtl.toNanos();
+    }
+
+    private static JdbcTemplate queryTemplate(DataSource dataSource, Duration queryTimeout) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setQueryTimeout((int) Math.max(1, queryTimeout.toSeconds()));
+        return jdbcTemplate;
     }
 
     @Override
     public Health health() {
-        try {
-            // Try to access repositories to check database connectivity
-            featureFlagRepository.count();
-            organizationRepository.count();
+        Health health = cached;
+        if (health != null && System.nanoTime() - cachedAt < cacheTtlNanos) {
+            return health;
+        }
+        synchronized (this) {
+            // Concurrent probes wait for one check instead of each running their own
+            if (cached != null && System.nanoTime() - cachedAt < cacheTtlNanos) {
+                return cached;
+            }
+            health = check();
+            cached = health;
+            cachedAt = System.nanoTime();
+            return health;
+        }
+    }
 
+    private Health check() {
+        try {
+            Map<String, Object> estimates = jdbcTemplate.query(ESTIMATES, rs -> {
+                Map<String, Object> rows = new LinkedHashMap<>();
+                while (rs.next()) {
+                    // -1 until the table is first analyzed
+                    float reltuples = rs.getFloat("reltuples");
+                    rows.put(rs.getString("relname"), reltuples < 0 ? "unknown" : (long) reltuples);
+                }
+                return rows;
+            });
             return Health.up()
-                    .withDetail("featureFlags", "Database connection is healthy")
-                    .withDetail("organizations", "Database connection is healthy")
+                    .withDetail("approximateRows", estimates)
                     .build();
         } catch (Exception e) {
             return Health.down()
@@ -37,4 +92,4 @@ public class FeatureFlagHealthIndicator implements HealthIndicator {
                     .build();
         }
     }
-}
\ No newline at end of file
+}
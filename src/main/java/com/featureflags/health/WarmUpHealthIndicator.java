@@ -0,0 +1,76 @@
+package com.featureflags.health;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Readiness contributor tracking startup warm-up tasks (loading caches,
+ * reading indexes into memory). OUT_OF_SERVICE while any task is running, so
+ * an instance only takes traffic once it can serve it at full speed. A failed
+ * task does not hold readiness back: the instance then serves cold. Each
+ * task's duration is recorded as featureflags.warmup.
+ */
+@Component
+public class WarmUpHealthIndicator implements HealthIndicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpHealthIndicator.class);
+
+    static final String WARMING = "warming";
+    static final String DONE = "done";
+    static final String FAILED = "failed";
+
+    private final FeatureFlagMetrics metrics;
+    private final Map<String, String> tasks = new ConcurrentHashMap<>();
+    private final Map<String, Long> startNanos = new ConcurrentHashMap<>();
+
+    @Autowired
+    public WarmUpHealthIndicator(FeatureFlagMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void begin(String task) {
+        startNanos.put(task, System.nanoTime());
+        tasks.put(task, WARMING);
+    }
+
+    public void complete(String task) {
+        finish(task, DONE, FeatureFlagMetrics.OUTCOME_SUCCESS);
+    }
+
+    public void fail(String task) {
+        finish(task, FAILED, FeatureFlagMetrics.OUTCOME_FAILED);
+    }
+
+    private void finish(String task, String state, String outcome) {
+        Long start = startNanos.get(task);
+        tasks.put(task, state);
+        if (start == null) {
+            return;
+        }
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        metrics.recordWarmUp(task, outcome, duration);
+        logger.info("Warm-up task {} {} after {}ms", task, state, duration.toMillis());
+        if (!tasks.containsValue(WARMING)) {
+            long firstStart = startNanos.values().stream().mapToLong(Long::longValue).min().orElse(start);
+            logger.info("Warm-up finished after {}ms", Duration.ofNanos(System.nanoTime() - firstStart).toMillis());
+        }
+    }
+
+    @Override
+    public Health health() {
+        Map<String, String> snapshot = new TreeMap<>(tasks);
+        Health.Builder builder = snapshot.containsValue(WARMING) ? Health.status(Status.OUT_OF_SERVICE) : Health.up();
+        return builder.withDetails(snapshot).build();
+    }
+}
@@ -0,0 +1,422 @@
+package com.featureflags.metrics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Meters for the lookup path, hierarchy propagation and organization ingest.
+ * Tags are limited to small fixed value sets; organization IDs and flag names
+ * are never used as tags.
+ */
+@Component
+public class FeatureFlagMetrics {
+
+    public static final String OUTCOME_ENABLED = "enabled";
+    public static final String OUTCOME_DISABLED = "disabled";
+    public static final String OUTCOME_MISSING = "missing";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_FAILED = "failed";
+    public static final String OUTCOME_RETRYING = "retrying";
+    public static final String OUTCOME_SUPERSEDED = "superseded";
+    public static final String OUTCOME_CANCELLED = "cancelled";
+
+    public static final String MODE_SYNC = "sync";
+    public static final String MODE_BACKGROUND = "background";
+
+    private static final Duration LOOKUP_SLO = Duration.ofMillis(50);
+    private static final Duration TOGGLE_SLO = Duration.ofMillis(200);
+    private static final int THROUGHPUT_WINDOW_SECONDS = 60;
+
+    private final MeterRegistry registry;
+    private final Timer lookupEnabledTimer;
+    private final Timer lookupDisabledTimer;
+    private final Timer lookupMissingTimer;
+    private final Timer toggleTimer;
+    private final Timer descendantsTimer;
+    private final Counter propagatedOrganizations;
+    private final Counter lookupsFilteredOut;
+    private final Counter lookupFilterFalsePositives;
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private final ThroughputWindow propagationThroughput = new ThroughputWindow(THROUGHPUT_WINDOW_SECONDS);
+
+    @Autowired
+    public FeatureFlagMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.lookupEnabledTimer = lookupTimer(registry, OUTCOME_ENABLED);
+        this.lookupDisabledTimer = lookupTimer(registry, OUTCOME_DISABLED);
+        this.lookupMissingTimer = lookupTimer(registry, OUTCOME_MISSING);
+        this.toggleTimer = Timer.builder("featureflags.toggle")
+                .description("Feature flag toggle latency for a single organization")
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(TOGGLE_SLO)
+                .register(registry);
+        this.descendantsTimer = Timer.builder("featureflags.hierarchy.descendants")
+                .description("Time to enumerate all descendants of an organization")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.propagatedOrganizations = Counter.builder("featureflags.propagation.organizations")
+                .description("Organizations updated by hierarchy propagation")
+                .register(registry);
+        // Observed false-positive rate: false-positive / (absent + false-positive)
+        this.lookupsFilteredOut = Counter.builder("featureflags.lookups.filter")
+                .description("Lookups of flags with no row, by whether the key filter answered them")
+                .tag("result", "absent")
+                .register(registry);
+        this.lookupFilterFalsePositives = Counter.builder("featureflags.lookups.filter")
+                .description("Lookups of flags with no row, by whether the key filter answered them")
+                .tag("result", "false-positive")
+                .register(registry);
+
+        Gauge.builder("featureflags.propagation.throughput", propagationThroughput,
+                ThroughputWindow::ratePerSecond)
+                .description("Organizations propagated per second over the last minute")
+                .baseUnit("organizations")
+                .register(registry);
+        Gauge.builder("featureflags.propagation.jobs.active", activeJobs, AtomicInteger::get)
+                .description("Hierarchy propagation jobs currently running")
+                .register(registry);
+    }
+
+    private static Timer lookupTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("featureflags.lookup")
+                .description("Feature flag lookup latency")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(LOOKUP_SLO)
+                .register(registry);
+    }
+
+    public Timer.Sample startTimer() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Start time for {@link #recordLookup}; unlike {@link #startTimer()} this
+     * does not allocate
+     */
+    public long monotonicTime() {
+        return registry.config().clock().monotonicTime();
+    }
+
+    /**
+     * Record a single flag lookup
+     *
+     * @param startTime value of {@link #monotonicTime()} when the lookup began
+     * @param outcome   one of {@link #OUTCOME_ENABLED}, {@link #OUTCOME_DISABLED},
+     *                  {@link #OUTCOME_MISSING}
+     */
+    public void recordLookup(long startTime, String outcome) {
+        long elapsed = monotonicTime() - startTime;
+        switch (outcome) {
+            case OUTCOME_ENABLED:
+                lookupEnabledTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                break;
+            case OUTCOME_DISABLED:
+                lookupDisabledTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                break;
+            default:
+                lookupMissingTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Expose hit, miss and eviction counts and size of the lookup cache as the
+     * cache.* meters tagged cache=featureflags.lookups
+     */
+    public void monitorLookupCache(Cache<?, ?> cache) {
+        CaffeineCacheMetrics.monitor(registry, cache, "featureflags.lookups");
+    }
+
+    /**
+     * Expose the size of the lookup key filter and its false-positive rate
+     * expected from how full it is
+     */
+    public <T> void monitorLookupFilter(T filter, ToDoubleFunction<T> memoryBytes,
+            ToDoubleFunction<T> expectedFalsePositiveRate) {
+        Gauge.builder("featureflags.lookups.filter.memory", filter, memoryBytes)
+                .description("Memory held by the lookup key filter")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("featureflags.lookups.filter.false_positive_rate", filter, expectedFalsePositiveRate)
+                .description("Expected share of absent keys the lookup key filter lets through")
+                .register(registry);
+    }
+
+    /**
+     * Count a lookup answered by the key filter without the cache or database
+     */
+    public void lookupFilteredOut() {
+        lookupsFilteredOut.increment();
+    }
+
+    /**
+     * Count a lookup the key filter let through that found no row
+     */
+    public void lookupFilterFalsePositive() {
+        lookupFilterFalsePositives.increment();
+    }
+
+    /**
+     * Expose whether the lookup cache is listening for invalidations from
+     * other instances (1) or bypassed until it is again (0)
+     */
+    public <T> void monitorInvalidationListener(T listener, ToDoubleFunction<T> listening) {
+        Gauge.builder("featureflags.cache.invalidation.listening", listener, listening)
+                .description("Whether cross-instance cache invalidations are being received")
+                .register(registry);
+    }
+
+    /**
+     * Count a cache invalidation received from the database
+     *
+     * @param kind "flag" for one flag of some organizations, "organization"
+     *             for every flag of some organizations
+     */
+    public void invalidationReceived(String kind) {
+        Counter.builder("featureflags.cache.invalidations")
+                .description("Cache invalidations received from any instance, including this one")
+                .tag("kind", kind)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Record how long a startup warm-up task took
+     *
+     * @param outcome {@link #OUTCOME_SUCCESS} or {@link #OUTCOME_FAILED}
+     */
+    public void recordWarmUp(String task, String outcome, Duration duration) {
+        Timer.builder("featureflags.warmup")
+                .description("Startup warm-up task duration")
+                .tag("task", task)
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(duration);
+    }
+
+    /**
+     * Record a single organization toggle
+     */
+    public void recordToggle(Timer.Sample sample) {
+        sample.stop(toggleTimer);
+    }
+
+    public void recordDescendantLookup(Timer.Sample sample) {
+        sample.stop(descendantsTimer);
+    }
+
+    public void propagationJobStarted() {
+        activeJobs.incrementAndGet();
+    }
+
+    public void propagationJobFinished(String outcome) {
+        activeJobs.decrementAndGet();
+        Counter.builder("featureflags.propagation.jobs")
+                .description("Finished hierarchy propagation job runs")
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    public void organizationsPropagated(int count) {
+        propagatedOrganizations.increment(count);
+        propagationThroughput.add(count);
+    }
+
+    /**
+     * @param trigger "automatic" for backoff retries, "manual" for operator retries
+     */
+    public void propagationRetried(String trigger) {
+        Counter.builder("featureflags.propagation.retries")
+                .description("Hierarchy propagation jobs re-queued after a failure")
+                .tag("trigger", trigger)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Count hierarchy update submissions that did not add a subtree rewrite
+     *
+     * @param reason "superseded" for queued jobs collapsed into a newer request,
+     *               "idempotent-replay" for a repeated Idempotency-Key
+     */
+    public void propagationCoalesced(String reason, int count) {
+        Counter.builder("featureflags.propagation.coalesced")
+                .description("Hierarchy propagation jobs collapsed into another job")
+                .tag("reason", reason)
+                .register(registry)
+                .increment(count);
+    }
+
+    /**
+     * Record a month of job history archived and dropped by retention
+     */
+    public void jobPartitionDropped(long archivedJobs) {
+        Counter.builder("featureflags.jobs.partitions.dropped")
+                .description("Monthly job partitions dropped past the retention period")
+                .register(registry)
+                .increment();
+        Counter.builder("featureflags.jobs.archived")
+                .description("Jobs exported to the archive before their partition was dropped")
+                .register(registry)
+                .increment(archivedJobs);
+    }
+
+    /**
+     * Record organizations written by a bulk import
+     *
+     * @param mode {@link #MODE_SYNC} or {@link #MODE_BACKGROUND}
+     */
+    public void organizationsIngested(String mode, int count) {
+        Counter.builder("featureflags.organizations.ingested")
+                .description("Organizations written by bulk imports")
+                .tag("mode", mode)
+                .register(registry)
+                .increment(count);
+    }
+
+    /**
+     * Record the end of a bulk import request or job
+     */
+    public void importFinished(String mode, String outcome) {
+        Counter.builder("featureflags.organizations.imports")
+                .description("Finished bulk organization imports")
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Expose queue depth and busy threads of the background executor
+     */
+    public void monitorExecutor(String name, ThreadPoolTaskExecutor executor) {
+        monitorExecutor(name, executor, e -> queueDepth(e.getThreadPoolExecutor()),
+                ThreadPoolTaskExecutor::getActiveCount);
+    }
+
+    /**
+     * Expose queue depth and busy workers of any executor or concurrency limit
+     */
+    public <T> void monitorExecutor(String name, T executor, ToDoubleFunction<T> queueDepth,
+            ToDoubleFunction<T> active) {
+        Gauge.builder("featureflags.executor.queue.depth", executor, queueDepth)
+                .description("Tasks waiting for a worker")
+                .tag("executor", name)
+                .register(registry);
+        Gauge.builder("featureflags.executor.active", executor, active)
+                .description("Workers currently running a task")
+                .tag("executor", name)
+                .register(registry);
+    }
+
+    /**
+     * Current queue depth of every monitored executor, by executor name
+     */
+    public Map<String, Double> executorQueueDepths() {
+        Map<String, Double> depths = new TreeMap<>();
+        for (Gauge gauge : registry.find("featureflags.executor.queue.depth").gauges()) {
+            depths.put(gauge.getId().getTag("executor"), gauge.value());
+        }
+        return depths;
+    }
+
+    /**
+     * Count a request turned away by the concurrency limit
+     */
+    public void requestRejected() {
+        Counter.builder("featureflags.requests.rejected")
+                .description("Requests rejected because the concurrency limit was reached")
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Expose the replication lag of a read replica as last measured
+     */
+    public <T> void monitorReplicaLag(String replica, T source, ToDoubleFunction<T> lagMillis) {
+        Gauge.builder("featureflags.datasource.replica.lag", source, lagMillis)
+                .description("Replication lag of a read replica; NaN while it is unreachable")
+                .baseUnit("milliseconds")
+                .tag("replica", replica)
+                .register(registry);
+    }
+
+    /**
+     * Count a read that would have gone to a replica but was sent to the primary
+     *
+     * @param reason "lag" when no replica was within the lag limit, "recent-write"
+     *               for read-your-writes, "not-found" for a replica miss re-read
+     *               from the primary
+     */
+    public void readRoutedToPrimary(String reason) {
+        Counter.builder("featureflags.datasource.primary.reads")
+                .description("Replica-eligible reads served by the primary")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    private static double queueDepth(ThreadPoolExecutor executor) {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Events per second over a sliding window of one-second buckets
+     */
+    static final class ThroughputWindow {
+        private final int seconds;
+        private final AtomicLongArray counts;
+        private final AtomicLongArray epochs;
+
+        ThroughputWindow(int seconds) {
+            this.seconds = seconds;
+            this.counts = new AtomicLongArray(seconds);
+            this.epochs = new AtomicLongArray(seconds);
+        }
+
+        void add(long count) {
+            add(count, System.currentTimeMillis() / 1000);
+        }
+
+        void add(long count, long nowSecond) {
+            int slot = (int) (nowSecond % seconds);
+            long epoch = epochs.get(slot);
+            if (epoch != nowSecond && epochs.compareAndSet(slot, epoch, nowSecond)) {
+                counts.set(slot, 0);
+            }
+            counts.addAndGet(slot, count);
+        }
+
+        double ratePerSecond() {
+            return ratePerSecond(System.currentTimeMillis() / 1000);
+        }
+
+        double ratePerSecond(long nowSecond) {
+            long total = 0;
+            for (int i = 0; i < seconds; i++) {
+                if (nowSecond - epochs.get(i) < seconds) {
+                    total += counts.get(i);
+                }
+            }
+            return (double) total / seconds;
+        }
+    }
+}
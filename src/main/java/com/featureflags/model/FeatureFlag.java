@@ -19,7 +19,8 @@ public class FeatureFlag {
     @Column(name = "enabled")
     private boolean enabled;
 
-    @Column(name = "organization_id")
+    // The partition key of feature_flags
+    @Column(name = "organization_id", nullable = false)
     private Long organizationId;
 
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -51,17 +51,56 @@ public class FeatureFlagJob {
     @Column(name = "parent_job_id")
     private Long parentJobId;
 
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "discovery_millis", nullable = false)
+    private long discoveryMillis;
+
+    @Column(name = "write_millis", nullable = false)
+    private long writeMillis;
+
+    @Column(name = "checkpoint_millis", nullable = false)
+    private long checkpointMillis;
+
+    @Column(name = "rows_written", nullable = false)
+    private int rowsWritten;
+
+    @Column(name = "rows_skipped", nullable = false)
+    private int rowsSkipped;
+
+    @Column(name = "orgs_per_second")
+    private Double orgsPerSecond;
+
+    @Column(name = "requested_at", nullable = false, updatable = false)
+    private LocalDateTime requestedAt;
+
+    @Column(name = "superseded_by_job_id")
+    private Long supersededByJobId;
+
+    @Column(name = "idempotency_key", updatable = false)
+    private String idempotencyKey;
+
+    // Last organization written, in write order: the root, then descendants in
+    // the pre-order of its interval. Committed with each chunk; null until the
+    // root is written.
+    @Column(name = "last_processed_org_id")
+    private Long lastProcessedOrgId;
+
     public enum JobStatus {
         PENDING,
         IN_PROGRESS,
         COMPLETED,
         FAILED,
-        RETRYING
+        RETRYING,
+        SUPERSEDED,
+        CANCELLED
     }
 
     public FeatureFlagJob() {
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
+        this.requestedAt = this.createdAt;
         this.status = JobStatus.PENDING;
         this.processedOrganizations = 0;
         this.retryCount = 0;
@@ -174,6 +213,7 @@ public class FeatureFlagJob {
 
     public void markAsInProgress() {
         this.status = JobStatus.IN_PROGRESS;
+        this.startedAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
     }
 
@@ -190,8 +230,29 @@ public class FeatureFlagJob {
         this.updatedAt = LocalDateTime.now();
     }
 
+    /**
+     * Stop this job in favour of a later request for the same organization and
+     * flag, which rewrites the whole subtree with the newer value
+     */
+    public void markAsSuperseded(Long supersededByJobId) {
+        this.status = JobStatus.SUPERSEDED;
+        this.supersededByJobId = supersededByJobId;
+        this.completedAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public void markAsCancelled() {
+        this.status = JobStatus.CANCELLED;
+        this.completedAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+
     public void incrementProcessedOrganizations() {
-        this.processedOrganizations++;
+        addProcessedOrganizations(1);
+    }
+
+    public void addProcessedOrganizations(int count) {
+        this.processedOrganizations += count;
         this.updatedAt = LocalDateTime.now();
     }
 
@@ -233,11 +294,151 @@ public class FeatureFlagJob {
         this.updatedAt = LocalDateTime.now();
     }
 
+    /**
+     * Prepare a failed job to run again from its cursor: organizations already
+     * written are kept, the run statistics start over
+     */
     public void resetForRetry() {
-        this.processedOrganizations = 0;
         this.errorMessage = null;
         this.completedAt = null;
+        this.startedAt = null;
+        this.discoveryMillis = 0;
+        this.writeMillis = 0;
+        this.checkpointMillis = 0;
+        this.rowsWritten = 0;
+        this.rowsSkipped = 0;
+        this.orgsPerSecond = null;
         this.status = JobStatus.PENDING;
         this.updatedAt = LocalDateTime.now();
     }
+
+    /**
+     * Continue the request of an earlier run of it (the job a retry is created
+     * for), from that run's cursor
+     */
+    public void resumeFrom(FeatureFlagJob previous) {
+        this.requestedAt = previous.requestedAt;
+        this.lastProcessedOrgId = previous.lastProcessedOrgId;
+        this.processedOrganizations = previous.processedOrganizations;
+    }
+
+    public Long getLastProcessedOrgId() {
+        return lastProcessedOrgId;
+    }
+
+    /**
+     * Move the cursor past an organization, the last written so far
+     */
+    public void advanceCursor(Long organizationId) {
+        this.lastProcessedOrgId = organizationId;
+    }
+
+    /**
+     * Put back the progress of a chunk whose transaction rolled back, so the
+     * cursor never runs ahead of what was committed
+     */
+    public void restoreProgress(Long lastProcessedOrgId, int processedOrganizations, int rowsWritten,
+            int rowsSkipped) {
+        this.lastProcessedOrgId = lastProcessedOrgId;
+        this.processedOrganizations = processedOrganizations;
+        this.rowsWritten = rowsWritten;
+        this.rowsSkipped = rowsSkipped;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public long getDiscoveryMillis() {
+        return discoveryMillis;
+    }
+
+    public long getWriteMillis() {
+        return writeMillis;
+    }
+
+    public long getCheckpointMillis() {
+        return checkpointMillis;
+    }
+
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public int getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    public Double getOrgsPerSecond() {
+        return orgsPerSecond;
+    }
+
+    /**
+     * Record the time spent so far in each phase of this run: finding the
+     * organizations to update, writing their feature flag rows and saving job
+     * progress
+     */
+    public void recordPhaseTimings(long discoveryMillis, long writeMillis, long checkpointMillis) {
+        this.discoveryMillis = discoveryMillis;
+        this.writeMillis = writeMillis;
+        this.checkpointMillis = checkpointMillis;
+    }
+
+    public void incrementRowsWritten() {
+        addRowsWritten(1);
+    }
+
+    public void addRowsWritten(int count) {
+        this.rowsWritten += count;
+    }
+
+    /**
+     * Count an organization whose row was not written because it already had
+     * the job's value
+     */
+    public void incrementRowsSkipped() {
+        addRowsSkipped(1);
+    }
+
+    public void addRowsSkipped(int count) {
+        this.rowsSkipped += count;
+    }
+
+    /**
+     * Record the average throughput of this run over its wall-clock duration,
+     * counting organizations written or found to already have the value;
+     * organizations processed by an earlier run that this one resumed don't count
+     */
+    public void recordThroughput(long elapsedMillis) {
+        this.orgsPerSecond = (rowsWritten + rowsSkipped) * 1000.0 / Math.max(elapsedMillis, 1);
+    }
+
+    /**
+     * When the change was requested; retries keep the time of the request they
+     * retry, so they never supersede a newer request
+     */
+    public LocalDateTime getRequestedAt() {
+        return requestedAt;
+    }
+
+    public Long getSupersededByJobId() {
+        return supersededByJobId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    /**
+     * Whether this job was submitted for the same change, used to reject an
+     * Idempotency-Key reused for a different request
+     */
+    public boolean isSameRequest(Long organizationId, String featureFlagName, boolean enabled) {
+        return this.organizationId.equals(organizationId) && this.featureFlagName.equals(featureFlagName)
+                && this.enabled == enabled;
+    }
 }
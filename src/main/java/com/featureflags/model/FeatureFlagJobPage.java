@@ -0,0 +1,25 @@
+package com.featureflags.model;
+
+import java.util.List;
+
+/**
+ * One page of an organization's jobs, newest first. {@code nextCursor} is
+ * passed back to fetch the following page and is null on the last one.
+ */
+public class FeatureFlagJobPage {
+    private final List<FeatureFlagJobSummary> jobs;
+    private final String nextCursor;
+
+    public FeatureFlagJobPage(List<FeatureFlagJobSummary> jobs, String nextCursor) {
+        this.jobs = jobs;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<FeatureFlagJobSummary> getJobs() {
+        return jobs;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,90 @@
+package com.featureflags.model;
+
+/**
+ * Aggregate timing and throughput of completed hierarchy update jobs
+ */
+public class FeatureFlagJobStats {
+    private final long jobCount;
+    private final long organizationsProcessed;
+    private final long rowsWritten;
+    private final long rowsSkipped;
+    private final long discoveryMillis;
+    private final long writeMillis;
+    private final long checkpointMillis;
+    private final double averageOrgsPerSecond;
+    private final double maxOrgsPerSecond;
+
+    /**
+     * Used by the JPQL constructor expression; sums and averages are null when
+     * no job matched
+     */
+    public FeatureFlagJobStats(Long jobCount, Long organizationsProcessed, Long rowsWritten, Long rowsSkipped,
+            Long discoveryMillis, Long writeMillis, Long checkpointMillis, Double averageOrgsPerSecond,
+            Double maxOrgsPerSecond) {
+        this.jobCount = valueOf(jobCount);
+        this.organizationsProcessed = valueOf(organizationsProcessed);
+        this.rowsWritten = valueOf(rowsWritten);
+        this.rowsSkipped = valueOf(rowsSkipped);
+        this.discoveryMillis = valueOf(discoveryMillis);
+        this.writeMillis = valueOf(writeMillis);
+        this.checkpointMillis = valueOf(checkpointMillis);
+        this.averageOrgsPerSecond = averageOrgsPerSecond != null ? averageOrgsPerSecond : 0.0;
+        this.maxOrgsPerSecond = maxOrgsPerSecond != null ? maxOrgsPerSecond : 0.0;
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    public long getJobCount() {
+        return jobCount;
+    }
+
+    public long getOrganizationsProcessed() {
+        return organizationsProcessed;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public long getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    public long getDiscoveryMillis() {
+        return discoveryMillis;
+    }
+
+    public long getWriteMillis() {
+        return writeMillis;
+    }
+
+    public long getCheckpointMillis() {
+        return checkpointMillis;
+    }
+
+    /**
+     * Mean of the per-job throughput; small jobs weigh as much as large ones
+     */
+    public double getAverageOrgsPerSecond() {
+        return averageOrgsPerSecond;
+    }
+
+    public double getMaxOrgsPerSecond() {
+        return maxOrgsPerSecond;
+    }
+
+    /**
+     * Organizations per second of processing time across all jobs, which is
+     * the figure to size capacity against
+     */
+    public double getAggregateOrgsPerSecond() {
+        long busyMillis = discoveryMillis + writeMillis + checkpointMillis;
+        return busyMillis == 0 ? 0.0 : organizationsProcessed * 1000.0 / busyMillis;
+    }
+
+    public double getAverageDurationMillis() {
+        return jobCount == 0 ? 0.0 : (double) (discoveryMillis + writeMillis + checkpointMillis) / jobCount;
+    }
+}
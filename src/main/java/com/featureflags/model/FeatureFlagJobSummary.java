@@ -0,0 +1,34 @@
+package com.featureflags.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a hierarchy update job shown in job listings and retry
+ * chains; read as a projection, without the timing and cursor columns or a
+ * managed entity
+ */
+public interface FeatureFlagJobSummary {
+    Long getId();
+
+    Long getOrganizationId();
+
+    String getFeatureFlagName();
+
+    boolean isEnabled();
+
+    FeatureFlagJob.JobStatus getStatus();
+
+    Integer getTotalOrganizations();
+
+    Integer getProcessedOrganizations();
+
+    String getErrorMessage();
+
+    Integer getRetryCount();
+
+    Long getParentJobId();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getCompletedAt();
+}
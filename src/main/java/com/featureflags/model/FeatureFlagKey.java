@@ -0,0 +1,44 @@
+package com.featureflags.model;
+
+/**
+ * An (organization, flag) pair as looked up, whether or not a row exists for it
+ */
+public final class FeatureFlagKey {
+    private final Long organizationId;
+    private final String name;
+
+    public FeatureFlagKey(Long organizationId, String name) {
+        this.organizationId = organizationId;
+        this.name = name;
+    }
+
+    public Long getOrganizationId() {
+        return organizationId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FeatureFlagKey)) {
+            return false;
+        }
+        FeatureFlagKey other = (FeatureFlagKey) o;
+        return organizationId.equals(other.organizationId) && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * organizationId.hashCode() + name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return organizationId + "/" + name;
+    }
+}
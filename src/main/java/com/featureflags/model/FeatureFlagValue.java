@@ -0,0 +1,28 @@
+package com.featureflags.model;
+
+/**
+ * Immutable result of a feature flag lookup for one organization
+ */
+public final class FeatureFlagValue {
+    private final String name;
+    private final boolean enabled;
+    private final Long organizationId;
+
+    public FeatureFlagValue(String name, boolean enabled, Long organizationId) {
+        this.name = name;
+        this.enabled = enabled;
+        this.organizationId = organizationId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Long getOrganizationId() {
+        return organizationId;
+    }
+}
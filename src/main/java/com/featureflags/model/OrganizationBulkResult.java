@@ -6,10 +6,13 @@ public class OrganizationBulkResult {
     private OperationStatus status;
     private String message;
     private List<Long> orgIds;
+    private Long jobId;
+    private String trackingUrl;
 
     public enum OperationStatus {
         SUCCESS,
-        FAILED
+        FAILED,
+        ACCEPTED
     }
 
     public OrganizationBulkResult() {
@@ -44,4 +47,22 @@ public class OrganizationBulkResult {
     public List<Long> getOrgIds() {
         return orgIds;
     }
+
+    public Long getJobId() {
+        return jobId;
+    }
+
+    public String getTrackingUrl() {
+        return trackingUrl;
+    }
+
+    /**
+     * Result for an import handed off to a background job
+     */
+    public static OrganizationBulkResult accepted(String message, Long jobId, String trackingUrl) {
+        OrganizationBulkResult result = new OrganizationBulkResult(OperationStatus.ACCEPTED, message);
+        result.jobId = jobId;
+        result.trackingUrl = trackingUrl;
+        return result;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.featureflags.model;
+
+/**
+ * One line of a subtree export: a descendant, how many levels below the
+ * exported organization it is, and the cursor resuming the export after it.
+ */
+public class OrganizationDescendant {
+
+    public static final String CURSOR_SEPARATOR = "_";
+
+    private final Long id;
+    private final String name;
+    private final Long parentId;
+    private final int depth;
+
+    public OrganizationDescendant(Long id, String name, Long parentId, int depth) {
+        this.id = id;
+        this.name = name;
+        this.parentId = parentId;
+        this.depth = depth;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public String getCursor() {
+        return depth + CURSOR_SEPARATOR + id;
+    }
+}
@@ -0,0 +1,48 @@
+package com.featureflags.model;
+
+/**
+ * An organization's place in the pre-order numbering of its tree: it is
+ * numbered {@code enter} within the tree of root {@code rootId}, and its
+ * descendants are the organizations of that tree numbered in (enter, exit]
+ */
+public final class OrganizationInterval {
+    private final Long organizationId;
+    private final Long rootId;
+    private final long enter;
+    private final long exit;
+
+    public OrganizationInterval(Long organizationId, Long rootId, long enter, long exit) {
+        this.organizationId = organizationId;
+        this.rootId = rootId;
+        this.enter = enter;
+        this.exit = exit;
+    }
+
+    public Long getOrganizationId() {
+        return organizationId;
+    }
+
+    public Long getRootId() {
+        return rootId;
+    }
+
+    public long getEnter() {
+        return enter;
+    }
+
+    public long getExit() {
+        return exit;
+    }
+
+    /**
+     * Whether other is a descendant of this organization
+     */
+    public boolean contains(OrganizationInterval other) {
+        return rootId.equals(other.rootId) && enter < other.enter && other.enter <= exit;
+    }
+
+    @Override
+    public String toString() {
+        return organizationId + "@" + rootId + "(" + enter + ", " + exit + "]";
+    }
+}
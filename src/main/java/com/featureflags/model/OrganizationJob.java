@@ -0,0 +1,271 @@
+package com.featureflags.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "organization_jobs")
+public class OrganizationJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "job_type", nullable = false)
+    private JobType jobType;
+
+    @Column(name = "organization_id")
+    private Long organizationId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private FeatureFlagJob.JobStatus status;
+
+    @Column(name = "total_organizations")
+    private Integer totalOrganizations;
+
+    @Column(name = "processed_organizations")
+    private Integer processedOrganizations;
+
+    // Index of the next payload entry to process; everything before it is committed
+    @Column(name = "last_position")
+    private Integer lastPosition;
+
+    // Move jobs: the last organization of the subtree recomputed, in pre-order;
+    // delete jobs: the last organization deleted
+    @Column(name = "last_processed_org_id")
+    private Long lastProcessedOrgId;
+
+    @JsonIgnore
+    @Column(name = "payload", columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "error_message")
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "retry_count")
+    private Integer retryCount;
+
+    @Column(name = "max_retries")
+    private Integer maxRetries;
+
+    public enum JobType {
+        IMPORT,
+        MOVE,
+        DELETE
+    }
+
+    public OrganizationJob() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+        this.status = FeatureFlagJob.JobStatus.PENDING;
+        this.processedOrganizations = 0;
+        this.lastPosition = 0;
+        this.retryCount = 0;
+        this.maxRetries = 3; // Default max retries
+    }
+
+    public OrganizationJob(JobType jobType, Integer totalOrganizations, String payload) {
+        this();
+        this.jobType = jobType;
+        this.totalOrganizations = totalOrganizations;
+        this.payload = payload;
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public JobType getJobType() {
+        return jobType;
+    }
+
+    public void setJobType(JobType jobType) {
+        this.jobType = jobType;
+    }
+
+    public Long getOrganizationId() {
+        return organizationId;
+    }
+
+    public void setOrganizationId(Long organizationId) {
+        this.organizationId = organizationId;
+    }
+
+    public FeatureFlagJob.JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(FeatureFlagJob.JobStatus status) {
+        this.status = status;
+    }
+
+    public Integer getTotalOrganizations() {
+        return totalOrganizations;
+    }
+
+    public void setTotalOrganizations(Integer totalOrganizations) {
+        this.totalOrganizations = totalOrganizations;
+    }
+
+    public Integer getProcessedOrganizations() {
+        return processedOrganizations;
+    }
+
+    public void setProcessedOrganizations(Integer processedOrganizations) {
+        this.processedOrganizations = processedOrganizations;
+    }
+
+    public Integer getLastPosition() {
+        return lastPosition;
+    }
+
+    public void setLastPosition(Integer lastPosition) {
+        this.lastPosition = lastPosition;
+    }
+
+    public Long getLastProcessedOrgId() {
+        return lastProcessedOrgId;
+    }
+
+    public void setLastProcessedOrgId(Long lastProcessedOrgId) {
+        this.lastProcessedOrgId = lastProcessedOrgId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public Integer getRetryCount() {
+        return retryCount;
+    }
+
+    public void setRetryCount(Integer retryCount) {
+        this.retryCount = retryCount;
+    }
+
+    public Integer getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(Integer maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public void markAsInProgress() {
+        this.status = FeatureFlagJob.JobStatus.IN_PROGRESS;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public void markAsCompleted() {
+        this.status = FeatureFlagJob.JobStatus.COMPLETED;
+        this.completedAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public void markAsFailed(String errorMessage) {
+        this.status = FeatureFlagJob.JobStatus.FAILED;
+        this.errorMessage = errorMessage;
+        this.completedAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Record a committed chunk: the cursor moves past it and the progress counter
+     * grows by its size
+     */
+    public void advance(int nextPosition, int chunkSize) {
+        this.lastPosition = nextPosition;
+        this.processedOrganizations += chunkSize;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Record a committed chunk of a move job, which ends with the given
+     * organization
+     */
+    public void advancePast(Long organizationId, int chunkSize) {
+        this.lastProcessedOrgId = organizationId;
+        this.processedOrganizations += chunkSize;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public void incrementRetryCount() {
+        this.retryCount++;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public boolean canRetry() {
+        return this.retryCount < this.maxRetries;
+    }
+
+    public void markAsRetrying() {
+        this.status = FeatureFlagJob.JobStatus.RETRYING;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Put the job back in the queue, keeping the cursor so the next run resumes
+     * after the last committed chunk
+     */
+    public void resetForRetry() {
+        this.errorMessage = null;
+        this.completedAt = null;
+        this.status = FeatureFlagJob.JobStatus.PENDING;
+        this.updatedAt = LocalDateTime.now();
+    }
+}
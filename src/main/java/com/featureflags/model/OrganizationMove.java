@@ -0,0 +1,50 @@
+package com.featureflags.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The payload of a move job: the parent an organization was moved to, and
+ * the flags whose value differs between its old and new parent, each with
+ * the old parent's value (null when it had no row). Rows of the moved
+ * subtree in that state were inherited, and take the new parent's value.
+ */
+public class OrganizationMove {
+
+    private Long parentId;
+    private Long previousParentId;
+    private Map<String, Boolean> previousValues = new TreeMap<>();
+
+    public OrganizationMove() {
+    }
+
+    public OrganizationMove(Long parentId, Long previousParentId, Map<String, Boolean> previousValues) {
+        this.parentId = parentId;
+        this.previousParentId = previousParentId;
+        this.previousValues = new TreeMap<>(previousValues);
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public Long getPreviousParentId() {
+        return previousParentId;
+    }
+
+    public void setPreviousParentId(Long previousParentId) {
+        this.previousParentId = previousParentId;
+    }
+
+    public Map<String, Boolean> getPreviousValues() {
+        return previousValues;
+    }
+
+    public void setPreviousValues(Map<String, Boolean> previousValues) {
+        this.previousValues = previousValues;
+    }
+}
@@ -0,0 +1,112 @@
+package com.featureflags.reactive;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import com.featureflags.model.FeatureFlagValue;
+import com.featureflags.service.FeatureFlagAccessStats;
+import com.featureflags.service.FeatureFlagKeyFilter;
+import com.featureflags.service.FeatureFlagLookupCache;
+import com.featureflags.service.FeatureFlagValidator;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * WebFlux version of the lookup endpoint in FeatureFlagController. Same path
+ * and response body, served from the event loop without blocking. Lookups go
+ * through the same key filter, lookup cache and access stats as the servlet
+ * path; a miss is read through R2DBC from the primary, as the replica routing
+ * of the JDBC reads does not apply to it.
+ */
+public class ReactiveFeatureFlagHandler {
+
+    private final ReactiveFeatureFlagRepository repository;
+    private final FeatureFlagValidator featureFlagValidator;
+    private final FeatureFlagKeyFilter keyFilter;
+    private final FeatureFlagLookupCache lookupCache;
+    private final FeatureFlagAccessStats accessStats;
+    private final FeatureFlagMetrics metrics;
+
+    public ReactiveFeatureFlagHandler(ReactiveFeatureFlagRepository repository,
+            FeatureFlagValidator featureFlagValidator,
+            FeatureFlagKeyFilter keyFilter,
+            FeatureFlagLookupCache lookupCache,
+            FeatureFlagAccessStats accessStats,
+            FeatureFlagMetrics metrics) {
+        this.repository = repository;
+        this.featureFlagValidator = featureFlagValidator;
+        this.keyFilter = keyFilter;
+        this.lookupCache = lookupCache;
+        this.accessStats = accessStats;
+        this.metrics = metrics;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return route(GET("/{orgId}/{featureFlagName}"), this::getFeatureFlag);
+    }
+
+    /**
+     * GET /{orgId}/{featureFlagName}
+     */
+    public Mono<ServerResponse> getFeatureFlag(ServerRequest request) {
+        String featureFlagName = request.pathVariable("featureFlagName");
+        Long orgId;
+        try {
+            orgId = Long.valueOf(request.pathVariable("orgId"));
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest().build();
+        }
+
+        if (!featureFlagValidator.isFeatureFlagRegistered(featureFlagName)) {
+            return ServerResponse.notFound().build();
+        }
+
+        long start = metrics.monotonicTime();
+        accessStats.recordRead(orgId, featureFlagName);
+        return lookup(orgId, featureFlagName)
+                .map(value -> {
+                    if (value.isEmpty()) {
+                        metrics.recordLookup(start, FeatureFlagMetrics.OUTCOME_MISSING);
+                        return false;
+                    }
+                    boolean enabled = value.get();
+                    metrics.recordLookup(start,
+                            enabled ? FeatureFlagMetrics.OUTCOME_ENABLED : FeatureFlagMetrics.OUTCOME_DISABLED);
+                    return enabled;
+                })
+                .flatMap(enabled -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(new FeatureFlagValue(featureFlagName, enabled, orgId)));
+    }
+
+    /**
+     * FeatureFlagService.lookup without blocking: the flag value, empty if the
+     * flag has no row. A value read from the database is cached unless an
+     * eviction happened while it was being read.
+     */
+    private Mono<Optional<Boolean>> lookup(Long orgId, String featureFlagName) {
+        if (!keyFilter.mightExist(orgId, featureFlagName)) {
+            return Mono.just(Optional.empty());
+        }
+        Optional<Boolean> cached = lookupCache.getIfPresent(orgId, featureFlagName);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        long stamp = lookupCache.stamp();
+        return repository.findEnabledByOrganizationIdAndName(orgId, featureFlagName)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .doOnNext(value -> {
+                    lookupCache.putIfNotEvicted(orgId, featureFlagName, value.orElse(null), stamp);
+                    if (value.isEmpty()) {
+                        keyFilter.recordMissing();
+                    }
+                });
+    }
+}
@@ -0,0 +1,29 @@
+package com.featureflags.reactive;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of the lookup queries in FeatureFlagRepository
+ */
+public class ReactiveFeatureFlagRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveFeatureFlagRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Emits the enabled column, or completes empty when the flag has no row for
+     * the organization
+     */
+    public Mono<Boolean> findEnabledByOrganizationIdAndName(Long organizationId, String name) {
+        return databaseClient
+                .sql("SELECT enabled FROM feature_flags WHERE organization_id = :organizationId AND name = :name")
+                .bind("organizationId", organizationId)
+                .bind("name", name)
+                .map(row -> row.get("enabled", Boolean.class))
+                .one();
+    }
+}
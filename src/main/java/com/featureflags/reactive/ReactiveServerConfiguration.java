@@ -0,0 +1,146 @@
+package com.featureflags.reactive;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import com.featureflags.service.FeatureFlagAccessStats;
+import com.featureflags.service.FeatureFlagKeyFilter;
+import com.featureflags.service.FeatureFlagLookupCache;
+import com.featureflags.service.FeatureFlagValidator;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+/**
+ * Serves the read-only lookup endpoint from a Reactor Netty server on its own
+ * port, next to the Tomcat server that keeps handling writes and job APIs.
+ *
+ * The R2DBC connection pool is deliberately not exposed as a bean: a
+ * ConnectionFactory bean makes Spring Boot back off from configuring the JDBC
+ * DataSource that JPA and Liquibase rely on.
+ */
+@Configuration
+@ConditionalOnProperty(name = "featureflags.reactive.enabled", havingValue = "true")
+public class ReactiveServerConfiguration implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveServerConfiguration.class);
+
+    private final ConnectionPool connectionPool;
+
+    public ReactiveServerConfiguration(DataSourceProperties dataSourceProperties,
+            @Value("${featureflags.reactive.pool.max-size:10}") int maxPoolSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(toR2dbcUrl(dataSourceProperties.getUrl()))
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, dataSourceProperties.getUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, dataSourceProperties.getPassword())
+                .build();
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration
+                .builder(ConnectionFactories.get(options))
+                .initialSize(1)
+                .maxSize(maxPoolSize)
+                .maxIdleTime(Duration.ofMinutes(30))
+                .build());
+    }
+
+    /**
+     * jdbc:postgresql://host:5432/db becomes r2dbc:postgresql://host:5432/db
+     */
+    static String toR2dbcUrl(String jdbcUrl) {
+        if (jdbcUrl == null || !jdbcUrl.startsWith("jdbc:postgresql:")) {
+            throw new IllegalStateException("Reactive reads need a PostgreSQL datasource URL, got: " + jdbcUrl);
+        }
+        return "r2dbc:" + jdbcUrl.substring("jdbc:".length());
+    }
+
+    @Bean
+    public ReactiveFeatureFlagRepository reactiveFeatureFlagRepository() {
+        return new ReactiveFeatureFlagRepository(DatabaseClient.create(connectionPool));
+    }
+
+    @Bean
+    public ReactiveFeatureFlagHandler reactiveFeatureFlagHandler(ReactiveFeatureFlagRepository repository,
+            FeatureFlagValidator featureFlagValidator,
+            FeatureFlagKeyFilter keyFilter,
+            FeatureFlagLookupCache lookupCache,
+            FeatureFlagAccessStats accessStats,
+            FeatureFlagMetrics metrics) {
+        return new ReactiveFeatureFlagHandler(repository, featureFlagValidator, keyFilter, lookupCache,
+                accessStats, metrics);
+    }
+
+    @Bean
+    public ReactiveHttpServer reactiveHttpServer(ReactiveFeatureFlagHandler handler,
+            @Value("${featureflags.reactive.port:8081}") int port,
+            @Value("${featureflags.reactive.event-loop-threads:0}") int eventLoopThreads) {
+        return new ReactiveHttpServer(handler, port, eventLoopThreads);
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+
+    /**
+     * Starts and stops the Netty server with the application context
+     */
+    static class ReactiveHttpServer implements SmartLifecycle {
+
+        private final ReactiveFeatureFlagHandler handler;
+        private final int port;
+        private final int eventLoopThreads;
+        private LoopResources loopResources;
+        private DisposableServer server;
+
+        ReactiveHttpServer(ReactiveFeatureFlagHandler handler, int port, int eventLoopThreads) {
+            this.handler = handler;
+            this.port = port;
+            this.eventLoopThreads = eventLoopThreads > 0 ? eventLoopThreads
+                    : Math.max(Runtime.getRuntime().availableProcessors(), 4);
+        }
+
+        @Override
+        public synchronized void start() {
+            ReactorHttpHandlerAdapter adapter = new ReactorHttpHandlerAdapter(
+                    RouterFunctions.toHttpHandler(handler.routes(), HandlerStrategies.withDefaults()));
+            loopResources = LoopResources.create("reactive-http", eventLoopThreads, true);
+            server = HttpServer.create()
+                    .port(port)
+                    .runOn(loopResources)
+                    .handle(adapter)
+                    .bindNow();
+            logger.info("Reactive lookup server started on port {} with {} event loop threads",
+                    server.port(), eventLoopThreads);
+        }
+
+        @Override
+        public synchronized void stop() {
+            if (server != null) {
+                server.disposeNow(Duration.ofSeconds(10));
+                loopResources.disposeLater().block(Duration.ofSeconds(10));
+                server = null;
+            }
+        }
+
+        @Override
+        public synchronized boolean isRunning() {
+            return server != null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.featureflags.repository;
+
+import com.featureflags.model.FeatureFlagKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookup counts per organization and flag (feature_flag_access_stats). Every
+ * node adds its own counts with an upsert, which JPA cannot express.
+ */
+@Repository
+public class FeatureFlagAccessStatsRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public FeatureFlagAccessStatsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Add read counts, in one batch
+     */
+    public void addReads(Map<FeatureFlagKey, Long> reads, LocalDateTime readAt) {
+        Timestamp timestamp = Timestamp.valueOf(readAt);
+        List<Object[]> rows = new ArrayList<>(reads.size());
+        reads.forEach((key, count) -> rows.add(
+                new Object[] { key.getOrganizationId(), key.getName(), count, timestamp }));
+        jdbcTemplate.batchUpdate("INSERT INTO feature_flag_access_stats (organization_id, name, reads, last_read_at) " +
+                "VALUES (?, ?, ?, ?) ON CONFLICT (organization_id, name) DO UPDATE " +
+                "SET reads = feature_flag_access_stats.reads + EXCLUDED.reads, " +
+                "last_read_at = GREATEST(feature_flag_access_stats.last_read_at, EXCLUDED.last_read_at)", rows);
+    }
+
+    /**
+     * The most read entries among those read since the given time, most read first
+     */
+    public List<FeatureFlagKey> findMostRead(LocalDateTime since, int limit) {
+        return jdbcTemplate.query("SELECT organization_id, name FROM feature_flag_access_stats " +
+                "WHERE last_read_at >= ? ORDER BY reads DESC LIMIT ?",
+                (rs, rowNum) -> new FeatureFlagKey(rs.getLong("organization_id"), rs.getString("name")),
+                Timestamp.valueOf(since), limit);
+    }
+}
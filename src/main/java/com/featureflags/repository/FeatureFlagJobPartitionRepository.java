@@ -0,0 +1,101 @@
+package com.featureflags.repository;
+
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The monthly partitions of feature_flag_jobs, named feature_flag_jobs_pYYYY_MM
+ * (see V10__partition_feature_flag_jobs.sql). Partition DDL names tables,
+ * which JPA queries cannot bind, so this goes through JDBC; the names are
+ * only ever built from a {@link YearMonth}. Joins the caller's transaction.
+ */
+@Repository
+public class FeatureFlagJobPartitionRepository {
+
+    private static final String PARTITION_PREFIX = "feature_flag_jobs_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("uuuu_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public FeatureFlagJobPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    /**
+     * Months with a partition attached, oldest first
+     */
+    public List<YearMonth> findPartitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'feature_flag_jobs'::regclass", String.class)
+                .stream()
+                .filter(name -> name.startsWith(PARTITION_PREFIX))
+                .map(name -> YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    public void createPartition(YearMonth month) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) +
+                " PARTITION OF feature_flag_jobs FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" +
+                month.plusMonths(1).atDay(1) + "')");
+    }
+
+    /**
+     * Jobs of the month that are still queued, running or waiting to be retried
+     */
+    public long countUnfinishedJobs(YearMonth month) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + partitionName(month) +
+                " WHERE status IN ('PENDING', 'IN_PROGRESS', 'RETRYING')", Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Serialize partition maintenance across nodes until the end of the
+     * current transaction
+     *
+     * @return false if another node holds the lock
+     */
+    public boolean tryLockMaintenance() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtextextended('feature_flag_jobs:partition-maintenance', 0))",
+                Boolean.class));
+    }
+
+    /**
+     * Write every job of the month to {@code out} as CSV with a header row
+     *
+     * @return the number of jobs written
+     */
+    public long exportPartition(YearMonth month, OutputStream out) {
+        String copy = "COPY " + partitionName(month) + " TO STDOUT WITH (FORMAT csv, HEADER)";
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(copy, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return rows != null ? rows : 0;
+    }
+
+    public void dropPartition(YearMonth month) {
+        jdbcTemplate.execute("ALTER TABLE feature_flag_jobs DETACH PARTITION " + partitionName(month));
+        jdbcTemplate.execute("DROP TABLE " + partitionName(month));
+    }
+}
@@ -1,15 +1,152 @@
 package com.featureflags.repository;
 
 import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.model.FeatureFlagJobStats;
+import com.featureflags.model.FeatureFlagJobSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface FeatureFlagJobRepository extends JpaRepository<FeatureFlagJob, Long> {
 
-    List<FeatureFlagJob> findByOrganizationIdOrderByCreatedAtDesc(Long organizationId);
+    /**
+     * A page of the organization's jobs with one of the given statuses, created
+     * in [since, until), newest first and continuing after the job created at
+     * {@code afterCreatedAt} with ID {@code afterId}. The page size comes from
+     * {@code page}; no count query is run.
+     */
+    @Query("SELECT j.id AS id, j.organizationId AS organizationId, j.featureFlagName AS featureFlagName, " +
+            "j.enabled AS enabled, j.status AS status, j.totalOrganizations AS totalOrganizations, " +
+            "j.processedOrganizations AS processedOrganizations, j.errorMessage AS errorMessage, " +
+            "j.retryCount AS retryCount, j.parentJobId AS parentJobId, j.createdAt AS createdAt, " +
+            "j.completedAt AS completedAt " +
+            "FROM FeatureFlagJob j WHERE j.organizationId = :organizationId AND j.status IN :statuses " +
+            "AND j.createdAt >= :since AND j.createdAt < :until " +
+            "AND (j.createdAt < :afterCreatedAt OR (j.createdAt = :afterCreatedAt AND j.id < :afterId)) " +
+            "ORDER BY j.createdAt DESC, j.id DESC")
+    List<FeatureFlagJobSummary> findPage(@Param("organizationId") Long organizationId,
+            @Param("statuses") Collection<FeatureFlagJob.JobStatus> statuses,
+            @Param("since") LocalDateTime since, @Param("until") LocalDateTime until,
+            @Param("afterCreatedAt") LocalDateTime afterCreatedAt, @Param("afterId") Long afterId,
+            Pageable page);
+
+    /**
+     * The original job the given one descends from and every retry of it, at
+     * any depth, in creation order. Walks parent_job_id up to the original and
+     * back down, so only the chain's own rows are read. If the original has
+     * been dropped by retention, the chain starts at its oldest remaining job.
+     */
+    @Query(value = "WITH RECURSIVE ancestors AS (" +
+            "SELECT id, parent_job_id, 0 AS depth FROM feature_flag_jobs WHERE id = :jobId " +
+            "UNION ALL " +
+            "SELECT j.id, j.parent_job_id, a.depth + 1 FROM feature_flag_jobs j " +
+            "JOIN ancestors a ON j.id = a.parent_job_id" +
+            "), chain AS (" +
+            "SELECT j.* FROM feature_flag_jobs j " +
+            "WHERE j.id = (SELECT id FROM ancestors ORDER BY depth DESC LIMIT 1) " +
+            "UNION ALL " +
+            "SELECT j.* FROM feature_flag_jobs j JOIN chain c ON j.parent_job_id = c.id" +
+            ") " +
+            "SELECT id AS \"id\", organization_id AS \"organizationId\", " +
+            "feature_flag_name AS \"featureFlagName\", enabled AS \"enabled\", status AS \"status\", " +
+            "total_organizations AS \"totalOrganizations\", " +
+            "processed_organizations AS \"processedOrganizations\", error_message AS \"errorMessage\", " +
+            "retry_count AS \"retryCount\", parent_job_id AS \"parentJobId\", created_at AS \"createdAt\", " +
+            "completed_at AS \"completedAt\" " +
+            "FROM chain ORDER BY created_at, id", nativeQuery = true)
+    List<FeatureFlagJobSummary> findRetryChain(@Param("jobId") Long jobId);
 
     List<FeatureFlagJob> findByStatusOrderByCreatedAtDesc(FeatureFlagJob.JobStatus status);
+
+    @Query("SELECT new com.featureflags.model.FeatureFlagJobStats(COUNT(j), SUM(j.processedOrganizations), " +
+            "SUM(j.rowsWritten), SUM(j.rowsSkipped), SUM(j.discoveryMillis), SUM(j.writeMillis), " +
+            "SUM(j.checkpointMillis), AVG(j.orgsPerSecond), MAX(j.orgsPerSecond)) " +
+            "FROM FeatureFlagJob j WHERE j.status = :status AND j.completedAt >= :since")
+    FeatureFlagJobStats aggregateStats(@Param("status") FeatureFlagJob.JobStatus status,
+            @Param("since") LocalDateTime since);
+
+    Optional<FeatureFlagJob> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Serialize submissions with the given Idempotency-Key until the end of the
+     * current transaction. The partitioned jobs table cannot have a unique
+     * index on the key alone, so this is what keeps it unique.
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtextextended('idempotency-key:' || :idempotencyKey, 0))",
+            nativeQuery = true)
+    Integer lockIdempotencyKey(@Param("idempotencyKey") String idempotencyKey);
+
+    /**
+     * The latest request for the organization and flag made after the given
+     * time, i.e. the one superseding a job requested at that time
+     */
+    Optional<FeatureFlagJob> findFirstByOrganizationIdAndFeatureFlagNameAndRequestedAtAfterOrderByRequestedAtDesc(
+            Long organizationId, String featureFlagName, LocalDateTime requestedAt);
+
+    /**
+     * Lock the queued jobs for the organization and flag other than the given
+     * one. Rows already locked belong to a job a worker has picked up; those
+     * are skipped rather than waited for.
+     */
+    @Query(value = "SELECT * FROM feature_flag_jobs WHERE organization_id = :organizationId " +
+            "AND feature_flag_name = :featureFlagName AND status = 'PENDING' AND id <> :jobId " +
+            "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<FeatureFlagJob> lockPendingJobs(@Param("organizationId") Long organizationId,
+            @Param("featureFlagName") String featureFlagName, @Param("jobId") Long jobId);
+
+    /**
+     * Serialize hierarchy updates of the organization and flag until the end of
+     * the current transaction
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtextextended(" +
+            ":featureFlagName || ':' || CAST(:organizationId AS text), 0))", nativeQuery = true)
+    Integer lockHierarchyUpdates(@Param("organizationId") Long organizationId,
+            @Param("featureFlagName") String featureFlagName);
+
+    /**
+     * Lock the job row for the rest of the transaction and read its current
+     * status
+     */
+    @Query(value = "SELECT status FROM feature_flag_jobs WHERE id = :jobId FOR UPDATE", nativeQuery = true)
+    String lockStatus(@Param("jobId") Long jobId);
+
+    /**
+     * Mark the job and every retry below it in its chain CANCELLED, unless
+     * already finished. The chain is walked down parent_job_id from the job,
+     * so a retry of a retry is cancelled too and never started.
+     *
+     * @return the number of jobs cancelled
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = "WITH RECURSIVE chain AS (" +
+            "SELECT id FROM feature_flag_jobs WHERE id = :jobId " +
+            "UNION ALL " +
+            "SELECT j.id FROM feature_flag_jobs j JOIN chain c ON j.parent_job_id = c.id" +
+            ") " +
+            "UPDATE feature_flag_jobs SET status = 'CANCELLED', completed_at = :now, updated_at = :now " +
+            "WHERE id IN (SELECT id FROM chain) AND status IN ('PENDING', 'IN_PROGRESS', 'RETRYING')",
+            nativeQuery = true)
+    int cancel(@Param("jobId") Long jobId, @Param("now") LocalDateTime now);
+
+    List<FeatureFlagJob> findByStatusAndUpdatedAtBefore(FeatureFlagJob.JobStatus status, LocalDateTime updatedBefore);
+
+    /**
+     * Take over a running job whose row has not been updated since the given
+     * time; of several nodes reclaiming the same job, only one gets a count of 1
+     */
+    @Modifying
+    @Query("UPDATE FeatureFlagJob j SET j.updatedAt = :now WHERE j.id = :jobId " +
+            "AND j.status = com.featureflags.model.FeatureFlagJob$JobStatus.IN_PROGRESS " +
+            "AND j.updatedAt < :updatedBefore")
+    int claimAbandoned(@Param("jobId") Long jobId, @Param("updatedBefore") LocalDateTime updatedBefore,
+            @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,59 @@
+package com.featureflags.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Streams the (organization, flag) keys of feature_flags without loading
+ * entities or the whole result. Postgres only streams with a fetch size
+ * inside a transaction, so callers must hold one.
+ */
+@Repository
+public class FeatureFlagKeyRepository {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public FeatureFlagKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The planner's row estimate for feature_flags, summed over its
+     * partitions; 0 before the table is first analyzed
+     */
+    public long estimateCount() {
+        Double estimate = jdbcTemplate.queryForObject("SELECT sum(GREATEST(c.reltuples, 0)) " +
+                "FROM pg_partition_tree('feature_flags'::regclass) p JOIN pg_class c ON c.oid = p.relid " +
+                "WHERE p.isleaf", Double.class);
+        return estimate != null ? estimate.longValue() : 0;
+    }
+
+    /**
+     * Pass every key to the consumer as (flag name, organization id)
+     *
+     * @return the number of keys
+     */
+    public long forEachKey(ObjLongConsumer<String> consumer) {
+        Long keys = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("SELECT organization_id, name " +
+                    "FROM feature_flags WHERE organization_id IS NOT NULL");
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            long count = 0;
+            while (rs.next()) {
+                consumer.accept(rs.getString(2), rs.getLong(1));
+                count++;
+            }
+            return count;
+        });
+        return keys != null ? keys : 0;
+    }
+}
@@ -0,0 +1,119 @@
+package com.featureflags.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The online conversion of feature_flags to the hash-partitioned
+ * feature_flags_partitioned (see V14__partition_feature_flags.sql): existing
+ * rows are copied in id order, progress is kept in
+ * feature_flags_partition_backfill, and the tables are swapped once every row
+ * has been copied. Table DDL is not something JPA can express, so this goes
+ * through JDBC. Joins the caller's transaction.
+ */
+@Repository
+public class FeatureFlagPartitionBackfillRepository {
+
+    // Locking the batch keeps a row from being deleted between being read and
+    // copied, which the mirror trigger would miss; a row changed after being
+    // read has already been written by the trigger, so the copy is skipped
+    private static final String COPY = "WITH batch AS (" +
+            "SELECT id, name, description, enabled, organization_id, created_at, updated_at FROM feature_flags " +
+            "WHERE id > ? ORDER BY id LIMIT ? FOR KEY SHARE" +
+            "), copied AS (" +
+            "INSERT INTO feature_flags_partitioned " +
+            "(id, name, description, enabled, organization_id, created_at, updated_at) " +
+            "SELECT id, name, description, enabled, organization_id, created_at, updated_at FROM batch " +
+            "WHERE organization_id IS NOT NULL " +
+            "ON CONFLICT (organization_id, name) DO NOTHING" +
+            ") " +
+            "SELECT max(id) FROM batch";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public FeatureFlagPartitionBackfillRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Lock the backfill's progress until the transaction ends
+     *
+     * @return the id copied up to, or empty if the tables have been swapped or
+     * another node holds the lock
+     */
+    public Optional<Long> lockProgress() {
+        List<Long> lastIds = jdbcTemplate.queryForList("SELECT last_id FROM feature_flags_partition_backfill " +
+                "WHERE completed_at IS NULL FOR UPDATE SKIP LOCKED", Long.class);
+        return lastIds.stream().findFirst();
+    }
+
+    public boolean isCompleted() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " +
+                "feature_flags_partition_backfill WHERE completed_at IS NOT NULL)", Boolean.class));
+    }
+
+    /**
+     * Copy the next rows of feature_flags after afterId, in id order
+     *
+     * @return the last id copied, or empty if there were no rows left
+     */
+    public Optional<Long> copyBatch(long afterId, int limit) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(COPY, Long.class, afterId, limit));
+    }
+
+    public void saveProgress(long lastId) {
+        jdbcTemplate.update("UPDATE feature_flags_partition_backfill SET last_id = ?", lastId);
+    }
+
+    /**
+     * Copy the rows written since the last batch and put the partitioned
+     * table in place of feature_flags, under a lock that blocks reads and
+     * writes of feature_flags until the transaction ends; waits at most
+     * lockTimeout for the lock. The old table is kept as
+     * feature_flags_unpartitioned, without its id default, to be dropped by
+     * hand.
+     *
+     * @return the rows copied under the lock
+     */
+    public long swap(long afterId, Duration lockTimeout) {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '" + lockTimeout.toMillis() + "ms'");
+        jdbcTemplate.execute("LOCK TABLE feature_flags IN ACCESS EXCLUSIVE MODE");
+        long copied = jdbcTemplate.update("INSERT INTO feature_flags_partitioned " +
+                "(id, name, description, enabled, organization_id, created_at, updated_at) " +
+                "SELECT id, name, description, enabled, organization_id, created_at, updated_at FROM feature_flags " +
+                "WHERE id > ? AND organization_id IS NOT NULL " +
+                "ON CONFLICT (organization_id, name) DO NOTHING", afterId);
+
+        jdbcTemplate.execute("DROP TRIGGER feature_flags_mirror ON feature_flags");
+        jdbcTemplate.execute("DROP FUNCTION feature_flags_mirror()");
+        jdbcTemplate.execute("ALTER TABLE feature_flags ALTER COLUMN id DROP IDENTITY");
+        jdbcTemplate.execute("ALTER TABLE feature_flags RENAME TO feature_flags_unpartitioned");
+        jdbcTemplate.execute("ALTER TABLE feature_flags_unpartitioned " +
+                "RENAME CONSTRAINT feature_flags_pkey TO feature_flags_unpartitioned_pkey");
+        jdbcTemplate.execute("ALTER TABLE feature_flags_unpartitioned " +
+                "RENAME CONSTRAINT feature_flags_organization_id_fkey TO feature_flags_unpartitioned_organization_id_fkey");
+        jdbcTemplate.execute("ALTER INDEX uq_feature_flags_organization_id_name " +
+                "RENAME TO uq_feature_flags_unpartitioned_organization_id_name");
+
+        jdbcTemplate.execute("ALTER TABLE feature_flags_partitioned RENAME TO feature_flags");
+        jdbcTemplate.execute("ALTER TABLE feature_flags " +
+                "RENAME CONSTRAINT feature_flags_partitioned_pkey TO feature_flags_pkey");
+        jdbcTemplate.execute("ALTER TABLE feature_flags " +
+                "RENAME CONSTRAINT feature_flags_partitioned_organization_id_fkey TO feature_flags_organization_id_fkey");
+        jdbcTemplate.execute("ALTER INDEX uq_feature_flags_partitioned_organization_id_name " +
+                "RENAME TO uq_feature_flags_organization_id_name");
+        jdbcTemplate.execute("ALTER SEQUENCE feature_flags_partitioned_id_seq RENAME TO feature_flags_id_seq");
+        // Rows were copied with the old table's ids
+        jdbcTemplate.queryForObject("SELECT setval('feature_flags_id_seq', COALESCE(max(id), 0) + 1, false) " +
+                "FROM feature_flags", Long.class);
+
+        jdbcTemplate.update("UPDATE feature_flags_partition_backfill SET completed_at = now()");
+        return copied;
+    }
+}
@@ -0,0 +1,139 @@
+package com.featureflags.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a flag value to a range of a subtree (see
+ * {@link OrganizationIntervalRepository}) with set-based statements over the
+ * interval index, which JPA cannot express. Only rows that change are
+ * written: rows that already have the value are neither updated nor locked,
+ * so re-applying a value costs index reads and no WAL. Once feature_flags is
+ * hash-partitioned the rows are written one partition after another, so each
+ * partition's index is visited once per chunk and concurrent writes lock
+ * rows in the same order.
+ */
+@Repository
+public class FeatureFlagPropagationRepository {
+
+    // Locks the rows to change in write order, then updates them
+    private static final String UPDATE_CHANGED = "WITH changed AS (" +
+            "SELECT f.id, f.organization_id FROM feature_flags f JOIN organizations o ON o.id = f.organization_id " +
+            "WHERE f.name = ? AND o.tree_root_id = ? AND o.tree_enter > ? AND o.tree_enter <= ? " +
+            "AND f.enabled %s ? " +
+            "ORDER BY %s FOR NO KEY UPDATE OF f" +
+            ") " +
+            "UPDATE feature_flags f SET enabled = ?, updated_at = now() FROM changed c " +
+            "WHERE f.id = c.id AND f.organization_id = c.organization_id " +
+            "RETURNING f.organization_id";
+
+    // A row inserted concurrently since the check is left as it is
+    private static final String INSERT_MISSING = "INSERT INTO feature_flags " +
+            "(name, enabled, organization_id, created_at, updated_at) " +
+            "SELECT ?, ?, o.id, now(), now() FROM organizations o " +
+            "WHERE o.tree_root_id = ? AND o.tree_enter > ? AND o.tree_enter <= ? " +
+            "AND NOT EXISTS (SELECT 1 FROM feature_flags f WHERE f.organization_id = o.id AND f.name = ?) " +
+            "ORDER BY %s " +
+            "ON CONFLICT (organization_id, name) DO NOTHING " +
+            "RETURNING organization_id";
+
+    private static final String DELETE_HOLDING = "WITH doomed AS (" +
+            "SELECT f.id, f.organization_id FROM feature_flags f JOIN organizations o ON o.id = f.organization_id " +
+            "WHERE f.name = ? AND o.tree_root_id = ? AND o.tree_enter > ? AND o.tree_enter <= ? " +
+            "AND f.enabled = ? " +
+            "ORDER BY %s FOR UPDATE OF f" +
+            ") " +
+            "DELETE FROM feature_flags f USING doomed d " +
+            "WHERE f.id = d.id AND f.organization_id = d.organization_id " +
+            "RETURNING f.organization_id";
+
+    private static final String BY_PARTITION = "(SELECT p FROM generate_series(0, %1$d - 1) p " +
+            "WHERE satisfies_hash_partition('feature_flags'::regclass, %1$d, p, o.id)), o.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Fixed once the table has been partitioned (see FeatureFlagPartitionBackfill)
+    private volatile int partitions;
+
+    @Autowired
+    public FeatureFlagPropagationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Set a flag for the organizations of a tree numbered in (afterEnter, upToEnter]:
+     * update the rows with another value, then create the missing ones
+     *
+     * @return the organizations whose row was updated or created; the others
+     * already had the value
+     */
+    public List<Long> writeRange(String featureFlagName, boolean enabled, Long rootId, long afterEnter,
+            long upToEnter) {
+        String order = writeOrder();
+        List<Long> written = new ArrayList<>(jdbcTemplate.queryForList(
+                String.format(UPDATE_CHANGED, "IS DISTINCT FROM", order),
+                Long.class, featureFlagName, rootId, afterEnter, upToEnter, enabled, enabled));
+        written.addAll(jdbcTemplate.queryForList(String.format(INSERT_MISSING, order),
+                Long.class, featureFlagName, enabled, rootId, afterEnter, upToEnter, featureFlagName));
+        return written;
+    }
+
+    /**
+     * Replace the value the organizations of a tree numbered in
+     * (afterEnter, upToEnter] inherited: rows in the previous state take the
+     * current one, where null stands for no row. Rows in another state were
+     * set within the range and are kept.
+     *
+     * @return the organizations whose row was updated, created or deleted
+     */
+    public List<Long> replaceInheritedRange(String featureFlagName, Boolean previous, Boolean current, Long rootId,
+            long afterEnter, long upToEnter) {
+        String order = writeOrder();
+        if (previous == null) {
+            return current == null ? List.of() : jdbcTemplate.queryForList(String.format(INSERT_MISSING, order),
+                    Long.class, featureFlagName, current, rootId, afterEnter, upToEnter, featureFlagName);
+        }
+        if (current == null) {
+            return jdbcTemplate.queryForList(String.format(DELETE_HOLDING, order),
+                    Long.class, featureFlagName, rootId, afterEnter, upToEnter, previous);
+        }
+        return jdbcTemplate.queryForList(String.format(UPDATE_CHANGED, "=", order),
+                Long.class, featureFlagName, rootId, afterEnter, upToEnter, previous, current);
+    }
+
+    /**
+     * Every flag of an organization, by name
+     */
+    public Map<String, Boolean> findValues(Long organizationId) {
+        Map<String, Boolean> values = new HashMap<>();
+        jdbcTemplate.query("SELECT name, enabled FROM feature_flags WHERE organization_id = ?",
+                rs -> {
+                    values.put(rs.getString("name"), rs.getBoolean("enabled"));
+                }, organizationId);
+        return values;
+    }
+
+    private String writeOrder() {
+        int partitions = countPartitions();
+        return partitions > 0 ? String.format(BY_PARTITION, partitions) : "o.id";
+    }
+
+    /**
+     * The number of hash partitions of feature_flags, or 0 while it is not
+     * partitioned
+     */
+    int countPartitions() {
+        if (partitions == 0) {
+            Integer count = jdbcTemplate.queryForObject("SELECT count(*) FROM pg_inherits " +
+                    "WHERE inhparent = 'feature_flags'::regclass", Integer.class);
+            partitions = count != null ? count : 0;
+        }
+        return partitions;
+    }
+}
@@ -2,10 +2,21 @@ package com.featureflags.repository;
 
 import com.featureflags.model.FeatureFlag;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
 @Repository
 public interface FeatureFlagRepository extends JpaRepository<FeatureFlag, Long> {
     Optional<FeatureFlag> findByOrganizationIdAndName(Long organizationId, String name);
-}
\ No newline at end of file
+
+    /**
+     * Read only the enabled column; served by an index-only scan on
+     * (organization_id, name) INCLUDE (enabled). Returns null when the flag
+     * has no row for the organization.
+     */
+    @Query("SELECT f.enabled FROM FeatureFlag f WHERE f.organizationId = :organizationId AND f.name = :name")
+    Boolean findEnabledByOrganizationIdAndName(@Param("organizationId") Long organizationId,
+            @Param("name") String name);
+}
@@ -0,0 +1,206 @@
+package com.featureflags.repository;
+
+import com.featureflags.model.Organization;
+import com.featureflags.model.OrganizationDescendant;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * The hierarchy as a closure table (organization_closure): a row for every
+ * ancestor of every organization, including itself at depth 0. Rows are
+ * written with set-based inserts, which JPA cannot express; organizations
+ * must be flushed before their rows are added.
+ */
+@Repository
+public class OrganizationClosureRepository {
+
+    private static final int FETCH_SIZE = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public OrganizationClosureRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Add the rows of saved organizations that have no descendants yet. A
+     * parent must be stored with its rows or be in the batch; rows already
+     * present (an organization saved again under the same parent) are kept.
+     * One insert for the batch's own rows, then one per level of the batch.
+     */
+    public void addOrganizations(List<Organization> organizations) {
+        List<Long> ids = new ArrayList<>(organizations.size());
+        Map<Long, Long> parentIds = new HashMap<>();
+        for (Organization org : organizations) {
+            ids.add(org.getId());
+            parentIds.put(org.getId(), org.getParentId());
+        }
+        jdbcTemplate.update("INSERT INTO organization_closure (ancestor_id, descendant_id, depth) " +
+                "SELECT id, id, 0 FROM unnest(?) AS batch(id) ON CONFLICT DO NOTHING",
+                ps -> ps.setArray(1, bigintArray(ps, ids)));
+
+        // A level's parents are stored or in an earlier level, so their rows exist by then
+        Map<Integer, List<Organization>> levels = new TreeMap<>();
+        Map<Long, Integer> levelById = new HashMap<>();
+        for (Organization org : organizations) {
+            if (org.getParentId() != null) {
+                levels.computeIfAbsent(level(org.getId(), parentIds, levelById), k -> new ArrayList<>()).add(org);
+            }
+        }
+        for (List<Organization> level : levels.values()) {
+            List<Long> childIds = new ArrayList<>(level.size());
+            List<Long> levelParentIds = new ArrayList<>(level.size());
+            for (Organization org : level) {
+                childIds.add(org.getId());
+                levelParentIds.add(org.getParentId());
+            }
+            jdbcTemplate.update("INSERT INTO organization_closure (ancestor_id, descendant_id, depth) " +
+                    "SELECT a.ancestor_id, batch.id, a.depth + 1 " +
+                    "FROM unnest(?, ?) AS batch(id, parent_id) " +
+                    "JOIN organization_closure a ON a.descendant_id = batch.parent_id " +
+                    "ON CONFLICT DO NOTHING",
+                    ps -> {
+                        ps.setArray(1, bigintArray(ps, childIds));
+                        ps.setArray(2, bigintArray(ps, levelParentIds));
+                    });
+        }
+    }
+
+    /**
+     * How many parents up the batch an organization is from a parent outside
+     * it; the batch has been checked for cycles
+     */
+    private static int level(Long id, Map<Long, Long> parentIds, Map<Long, Integer> levelById) {
+        Integer known = levelById.get(id);
+        if (known != null) {
+            return known;
+        }
+        Long parentId = parentIds.get(id);
+        int level = parentId != null && parentIds.containsKey(parentId)
+                ? level(parentId, parentIds, levelById) + 1
+                : 0;
+        levelById.put(id, level);
+        return level;
+    }
+
+    /**
+     * Attach a root organization, with its whole subtree, under a parent: its
+     * subtree's rows gain every ancestor of the parent
+     */
+    public void attach(Long organizationId, Long parentId) {
+        jdbcTemplate.update("INSERT INTO organization_closure (ancestor_id, descendant_id, depth) " +
+                "SELECT a.ancestor_id, d.descendant_id, a.depth + d.depth + 1 " +
+                "FROM organization_closure a, organization_closure d " +
+                "WHERE a.descendant_id = ? AND d.ancestor_id = ?",
+                parentId, organizationId);
+    }
+
+    /**
+     * Move an organization, with its whole subtree, under another parent: its
+     * subtree's rows lose the ancestors above it and gain every ancestor of
+     * the new parent
+     */
+    public void move(Long organizationId, Long parentId) {
+        jdbcTemplate.update("DELETE FROM organization_closure c " +
+                "USING organization_closure d, organization_closure a " +
+                "WHERE d.ancestor_id = ? AND a.descendant_id = ? AND a.depth > 0 " +
+                "AND c.descendant_id = d.descendant_id AND c.ancestor_id = a.ancestor_id",
+                organizationId, organizationId);
+        attach(organizationId, parentId);
+    }
+
+    /**
+     * How many levels an organization is below its root
+     */
+    public int findDepth(Long organizationId) {
+        Integer depth = jdbcTemplate.queryForObject("SELECT max(depth) FROM organization_closure " +
+                "WHERE descendant_id = ?", Integer.class, organizationId);
+        return depth != null ? depth : 0;
+    }
+
+    /**
+     * How many levels an organization's deepest descendant is below it
+     */
+    public int findHeight(Long organizationId) {
+        Integer height = jdbcTemplate.queryForObject("SELECT max(depth) FROM organization_closure " +
+                "WHERE ancestor_id = ?", Integer.class, organizationId);
+        return height != null ? height : 0;
+    }
+
+    /**
+     * Every descendant, in ascending id order
+     */
+    public List<Long> findDescendantIds(Long organizationId) {
+        return jdbcTemplate.queryForList("SELECT descendant_id FROM organization_closure " +
+                "WHERE ancestor_id = ? AND depth > 0 ORDER BY descendant_id", Long.class, organizationId);
+    }
+
+    /**
+     * Pass the descendants at most maxDepth levels below an organization to
+     * the consumer, by depth then id, starting after (afterDepth, afterId).
+     * They are read from one range of the (ancestor_id, depth, descendant_id)
+     * index and streamed with a fetch size, which Postgres only does inside
+     * a transaction, so callers must hold one.
+     *
+     * @return the number of descendants passed
+     */
+    public long forEachDescendant(Long organizationId, int afterDepth, long afterId, int maxDepth,
+            Consumer<OrganizationDescendant> consumer) {
+        Long descendants = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("SELECT c.descendant_id, o.name, " +
+                    "o.parent_id, c.depth FROM organization_closure c JOIN organizations o ON o.id = c.descendant_id " +
+                    "WHERE c.ancestor_id = ? AND (c.depth, c.descendant_id) > (?, ?) AND c.depth <= ? " +
+                    "ORDER BY c.depth, c.descendant_id");
+            statement.setLong(1, organizationId);
+            statement.setInt(2, afterDepth);
+            statement.setLong(3, afterId);
+            statement.setInt(4, maxDepth);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            long count = 0;
+            while (rs.next()) {
+                consumer.accept(new OrganizationDescendant(rs.getLong(1), rs.getString(2),
+                        rs.getObject(3, Long.class), rs.getInt(4)));
+                count++;
+            }
+            return count;
+        });
+        return descendants != null ? descendants : 0;
+    }
+
+    public long countDescendants(Long organizationId) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM organization_closure " +
+                "WHERE ancestor_id = ? AND depth > 0", Long.class, organizationId);
+        return count != null ? count : 0;
+    }
+
+    public boolean hasDescendants(Long organizationId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM organization_closure " +
+                "WHERE ancestor_id = ? AND depth > 0)", Boolean.class, organizationId));
+    }
+
+    /**
+     * Every ancestor, nearest first
+     */
+    public List<Long> findAncestorIds(Long organizationId) {
+        return jdbcTemplate.queryForList("SELECT ancestor_id FROM organization_closure " +
+                "WHERE descendant_id = ? AND depth > 0 ORDER BY depth", Long.class, organizationId);
+    }
+
+    private static Array bigintArray(PreparedStatement ps, List<Long> ids) throws SQLException {
+        return ps.getConnection().createArrayOf("bigint", ids.toArray());
+    }
+}
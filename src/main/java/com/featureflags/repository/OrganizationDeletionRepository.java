@@ -0,0 +1,124 @@
+package com.featureflags.repository;
+
+import com.featureflags.model.OrganizationInterval;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Deletes a subtree and everything that references its organizations, from
+ * the end of its pre-order numbering backwards, so descendants always go
+ * before their ancestors. Every statement works on one range of the
+ * subtree's interval (see {@link OrganizationIntervalRepository}), and
+ * statements that may touch many rows take a limit, so each transaction
+ * holds a bounded number of row locks and writes a bounded amount of WAL.
+ */
+@Repository
+public class OrganizationDeletionRepository {
+
+    private static final String IN_RANGE = "o.tree_root_id = ? AND o.tree_enter >= ? AND o.tree_enter <= ?";
+
+    private static final String DELETE_FEATURE_FLAGS = "WITH doomed AS (" +
+            "SELECT f.id, f.organization_id FROM feature_flags f JOIN organizations o ON o.id = f.organization_id " +
+            "WHERE " + IN_RANGE + " LIMIT ?" +
+            ") " +
+            "DELETE FROM feature_flags f USING doomed d WHERE f.id = d.id AND f.organization_id = d.organization_id";
+
+    private static final String DELETE_FEATURE_FLAG_JOBS = "WITH doomed AS (" +
+            "SELECT j.id, j.created_at FROM feature_flag_jobs j JOIN organizations o ON o.id = j.organization_id " +
+            "WHERE " + IN_RANGE + " LIMIT ?" +
+            ") " +
+            "DELETE FROM feature_flag_jobs j USING doomed d WHERE j.id = d.id AND j.created_at = d.created_at";
+
+    // No foreign key holds these back, but left behind they would have the warm-up preload deleted organizations
+    private static final String DELETE_ACCESS_STATS = "WITH doomed AS (" +
+            "SELECT s.organization_id, s.name FROM feature_flag_access_stats s " +
+            "JOIN organizations o ON o.id = s.organization_id WHERE " + IN_RANGE + " LIMIT ?" +
+            ") " +
+            "DELETE FROM feature_flag_access_stats s USING doomed d " +
+            "WHERE s.organization_id = d.organization_id AND s.name = d.name";
+
+    private static final String RUNNING = "('PENDING', 'IN_PROGRESS', 'RETRYING')";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public OrganizationDeletionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Jobs that have not finished and would write into the subtree: hierarchy
+     * updates of its organizations, and recomputations after they moved
+     */
+    public long countRunningJobs(OrganizationInterval subtree) {
+        Long count = jdbcTemplate.queryForObject("SELECT " +
+                "(SELECT count(*) FROM feature_flag_jobs j JOIN organizations o ON o.id = j.organization_id " +
+                "WHERE " + IN_RANGE + " AND j.status IN " + RUNNING + ") + " +
+                "(SELECT count(*) FROM organization_jobs j JOIN organizations o ON o.id = j.organization_id " +
+                "WHERE " + IN_RANGE + " AND j.job_type = 'MOVE' AND j.status IN " + RUNNING + ")",
+                Long.class, subtree.getRootId(), subtree.getEnter(), subtree.getExit(),
+                subtree.getRootId(), subtree.getEnter(), subtree.getExit());
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Where the last organizations of a subtree in pre-order start: deleting
+     * from there to the end of the subtree removes at most limit of them, and
+     * never an organization before its descendants
+     */
+    public long findTailStart(OrganizationInterval subtree, int limit) {
+        Long start = jdbcTemplate.queryForObject("SELECT min(tree_enter) FROM (" +
+                "SELECT o.tree_enter FROM organizations o WHERE " + IN_RANGE +
+                " ORDER BY o.tree_enter DESC LIMIT ?) tail",
+                Long.class, subtree.getRootId(), subtree.getEnter(), subtree.getExit(), limit);
+        return start != null ? start : subtree.getEnter();
+    }
+
+    /**
+     * Delete at most limit flag rows of the organizations of a tree numbered
+     * in [fromEnter, toEnter]
+     *
+     * @return the number deleted; fewer than limit once none are left
+     */
+    public int deleteFeatureFlags(Long rootId, long fromEnter, long toEnter, int limit) {
+        return jdbcTemplate.update(DELETE_FEATURE_FLAGS, rootId, fromEnter, toEnter, limit);
+    }
+
+    /**
+     * Delete at most limit hierarchy update jobs of the organizations of a
+     * tree numbered in [fromEnter, toEnter]
+     *
+     * @return the number deleted; fewer than limit once none are left
+     */
+    public int deleteFeatureFlagJobs(Long rootId, long fromEnter, long toEnter, int limit) {
+        return jdbcTemplate.update(DELETE_FEATURE_FLAG_JOBS, rootId, fromEnter, toEnter, limit);
+    }
+
+    /**
+     * Delete at most limit lookup counts of the organizations of a tree
+     * numbered in [fromEnter, toEnter]
+     *
+     * @return the number deleted; fewer than limit once none are left
+     */
+    public int deleteAccessStats(Long rootId, long fromEnter, long toEnter, int limit) {
+        return jdbcTemplate.update(DELETE_ACCESS_STATS, rootId, fromEnter, toEnter, limit);
+    }
+
+    /**
+     * Delete the organizations of a tree numbered in [fromEnter, toEnter]
+     * with their closure rows, once nothing else references them. The range
+     * must run to the end of a subtree, so it holds every descendant of every
+     * organization in it.
+     *
+     * @return the organizations deleted
+     */
+    public List<Long> deleteOrganizations(Long rootId, long fromEnter, long toEnter) {
+        jdbcTemplate.update("DELETE FROM organization_closure c USING organizations o " +
+                "WHERE c.descendant_id = o.id AND " + IN_RANGE, rootId, fromEnter, toEnter);
+        return jdbcTemplate.queryForList("DELETE FROM organizations o WHERE " + IN_RANGE + " RETURNING o.id",
+                Long.class, rootId, fromEnter, toEnter);
+    }
+}
@@ -0,0 +1,304 @@
+package com.featureflags.repository;
+
+import com.featureflags.model.Organization;
+import com.featureflags.model.OrganizationInterval;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * The pre-order interval numbering of organization trees (the tree_root_id,
+ * tree_enter and tree_exit columns of organizations), which makes a subtree
+ * one index range. A tree is numbered level by level from its closure rows,
+ * each organization getting an interval sized by its subtree with about half
+ * of it left free; a new organization takes a fixed share of its parent's
+ * interval from the free end, and only when that is used up is the tree
+ * renumbered.
+ * Changes to a tree's numbering lock its root row, which propagation shares
+ * while it writes a range.
+ */
+@Repository
+public class OrganizationIntervalRepository {
+
+    /** A root's interval: every other organization of its tree is numbered inside it */
+    static final long ROOT_EXIT = Long.MAX_VALUE >> 1;
+
+    /**
+     * Interval width per unit of subtree weight when renumbering; a leaf gets
+     * twice this, so it can take several children before its tree is renumbered
+     */
+    static final long WIDTH_UNIT = 1024;
+
+    /**
+     * A new organization takes this fraction of its parent's interval, so a
+     * parent holds this many children less one before its free end is halved
+     */
+    static final int CHILD_SLOTS = 128;
+
+    /**
+     * The most a new organization takes: with {@link #CHILD_SLOTS} per level
+     * below it, an organization seven levels below its root still gets a
+     * width of 4
+     */
+    static final long MAX_NEW_ORGANIZATION_WIDTH = 1L << 44;
+
+    private static final String LOCK_FOR_NUMBERING = "NO KEY UPDATE";
+    private static final String LOCK_FOR_PROPAGATION = "SHARE";
+
+    // Places one level of a tree inside its parents' intervals, siblings in
+    // their previous order (new organizations last). An organization's weight
+    // is 2^(d+1) summed over its subtree at relative depth d, so an interval
+    // is at least twice what its children take.
+    private static final String RENUMBER_LEVEL = "WITH width AS (" +
+            "SELECT o.id, o.parent_id, o.tree_enter AS previous_enter, " +
+            "(? * sum(2::BIGINT << LEAST(s.depth, 16)))::BIGINT AS width " +
+            "FROM organization_closure c " +
+            "JOIN organizations o ON o.id = c.descendant_id " +
+            "JOIN organization_closure s ON s.ancestor_id = o.id " +
+            "WHERE c.ancestor_id = ? AND c.depth = ? " +
+            "GROUP BY o.id, o.parent_id, o.tree_enter" +
+            "), placed AS (" +
+            "SELECT w.id, w.width, p.tree_enter + 1 + COALESCE(sum(w.width) OVER (PARTITION BY w.parent_id " +
+            "ORDER BY w.previous_enter NULLS LAST, w.id " +
+            "ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING), 0)::BIGINT AS enter " +
+            "FROM width w JOIN organizations p ON p.id = w.parent_id" +
+            ") " +
+            "UPDATE organizations o " +
+            "SET tree_root_id = ?, tree_enter = placed.enter, tree_exit = placed.enter + placed.width - 1 " +
+            "FROM placed WHERE o.id = placed.id";
+
+    private static final RowMapper<OrganizationInterval> INTERVAL = (rs, rowNum) -> new OrganizationInterval(
+            rs.getLong("id"), rs.getLong("tree_root_id"), rs.getLong("tree_enter"), rs.getLong("tree_exit"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public OrganizationIntervalRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<OrganizationInterval> find(Long organizationId) {
+        return findAll(List.of(organizationId)).values().stream().findFirst();
+    }
+
+    /**
+     * Find an organization's interval and keep its tree from being renumbered
+     * until the transaction ends
+     */
+    public Optional<OrganizationInterval> findLockingTree(Long organizationId) {
+        return Optional.ofNullable(lockTrees(List.of(organizationId), LOCK_FOR_PROPAGATION).get(organizationId));
+    }
+
+    /**
+     * Find the intervals of organizations and keep their trees from being
+     * numbered or written by anyone else until the transaction ends
+     */
+    public Map<Long, OrganizationInterval> findLockingTrees(Collection<Long> organizationIds) {
+        return lockTrees(organizationIds, LOCK_FOR_NUMBERING);
+    }
+
+    /**
+     * The next organizations of a subtree in pre-order, after the one numbered
+     * afterEnter
+     */
+    public List<OrganizationInterval> findChunk(OrganizationInterval subtree, long afterEnter, int limit) {
+        return jdbcTemplate.query("SELECT id, tree_root_id, tree_enter, tree_exit FROM organizations " +
+                "WHERE tree_root_id = ? AND tree_enter > ? AND tree_enter <= ? ORDER BY tree_enter LIMIT ?",
+                INTERVAL, subtree.getRootId(), afterEnter, subtree.getExit(), limit);
+    }
+
+    /**
+     * Number saved organizations that have their closure rows but no interval
+     * yet, given parents first. Each takes a slot of a fixed share of its
+     * parent's interval at its free end, or half of what is left once no slot
+     * fits; a tree whose gaps have run out is renumbered.
+     */
+    public void number(List<Organization> organizations) {
+        Set<Long> numbered = findAll(organizations.stream().map(Organization::getId).collect(Collectors.toList()))
+                .keySet();
+        List<Organization> unnumbered = organizations.stream()
+                .filter(org -> !numbered.contains(org.getId()))
+                .collect(Collectors.toList());
+        if (unnumbered.isEmpty()) {
+            return;
+        }
+        Set<Long> unnumberedIds = unnumbered.stream().map(Organization::getId).collect(Collectors.toSet());
+        Set<Long> storedParentIds = unnumbered.stream()
+                .map(Organization::getParentId)
+                .filter(parentId -> parentId != null && !unnumberedIds.contains(parentId))
+                .collect(Collectors.toSet());
+
+        Map<Long, OrganizationInterval> intervals = new HashMap<>(lockTrees(storedParentIds, LOCK_FOR_NUMBERING));
+        Map<Long, Long> lastChildExits = findLastChildExits(storedParentIds);
+        Set<Long> renumberedRoots = new TreeSet<>();
+        List<OrganizationInterval> placed = new ArrayList<>();
+        for (Organization org : unnumbered) {
+            OrganizationInterval interval;
+            if (org.getParentId() == null) {
+                interval = new OrganizationInterval(org.getId(), org.getId(), 0, ROOT_EXIT);
+            } else {
+                OrganizationInterval parent = intervals.get(org.getParentId());
+                if (parent == null) {
+                    // The parent's tree is renumbered, this organization with it
+                    continue;
+                }
+                long lastExit = lastChildExits.getOrDefault(parent.getOrganizationId(), parent.getEnter());
+                long width = childWidth(parent, lastExit);
+                if (width < 1) {
+                    renumberedRoots.add(parent.getRootId());
+                    continue;
+                }
+                interval = new OrganizationInterval(org.getId(), parent.getRootId(), lastExit + 1, lastExit + width);
+                lastChildExits.put(parent.getOrganizationId(), interval.getExit());
+            }
+            intervals.put(org.getId(), interval);
+            placed.add(interval);
+        }
+        placed.removeIf(interval -> renumberedRoots.contains(interval.getRootId()));
+
+        if (!placed.isEmpty()) {
+            jdbcTemplate.update("UPDATE organizations o " +
+                    "SET tree_root_id = batch.root_id, tree_enter = batch.enter, tree_exit = batch.exit " +
+                    "FROM unnest(?, ?, ?, ?) AS batch(id, root_id, enter, exit) WHERE o.id = batch.id",
+                    ps -> {
+                        ps.setArray(1, bigintArray(ps, placed.stream()
+                                .map(OrganizationInterval::getOrganizationId).collect(Collectors.toList())));
+                        ps.setArray(2, bigintArray(ps, placed.stream()
+                                .map(OrganizationInterval::getRootId).collect(Collectors.toList())));
+                        ps.setArray(3, bigintArray(ps, placed.stream()
+                                .map(OrganizationInterval::getEnter).collect(Collectors.toList())));
+                        ps.setArray(4, bigintArray(ps, placed.stream()
+                                .map(OrganizationInterval::getExit).collect(Collectors.toList())));
+                    });
+        }
+        renumberedRoots.forEach(this::renumber);
+    }
+
+    /**
+     * The width a new child of the parent takes when the parent's last child
+     * ends at lastExit, or 0 when there is no room left
+     */
+    static long childWidth(OrganizationInterval parent, long lastExit) {
+        long free = parent.getExit() - lastExit;
+        long slot = Math.min((parent.getExit() - parent.getEnter() + 1) / CHILD_SLOTS, MAX_NEW_ORGANIZATION_WIDTH);
+        return slot >= 1 && slot <= free ? slot : free / 2;
+    }
+
+    /**
+     * Place a subtree that has been moved under another parent (its closure
+     * rows and parent already updated), given both intervals as locked by
+     * {@link #findLockingTrees}. When it fits in half of the free end of the
+     * parent's interval it is shifted there with one update, keeping its
+     * numbering; otherwise the tree it joins is renumbered. The range it
+     * leaves in its old tree is left free.
+     */
+    public void move(OrganizationInterval subtree, OrganizationInterval parent) {
+        Long lastChildExit = jdbcTemplate.queryForObject("SELECT max(tree_exit) FROM organizations " +
+                "WHERE parent_id = ? AND id <> ?", Long.class, parent.getOrganizationId(), subtree.getOrganizationId());
+        long lastExit = lastChildExit != null ? lastChildExit : parent.getEnter();
+        long width = subtree.getExit() - subtree.getEnter() + 1;
+        if (width > (parent.getExit() - lastExit) / 2) {
+            renumber(parent.getRootId());
+            return;
+        }
+        long offset = lastExit + 1 - subtree.getEnter();
+        jdbcTemplate.update("UPDATE organizations " +
+                "SET tree_root_id = ?, tree_enter = tree_enter + ?, tree_exit = tree_exit + ? " +
+                "WHERE tree_root_id = ? AND tree_enter >= ? AND tree_enter <= ?",
+                parent.getRootId(), offset, offset, subtree.getRootId(), subtree.getEnter(), subtree.getExit());
+    }
+
+    /**
+     * Number a whole tree from its closure rows, one statement per level,
+     * keeping the order of organizations already numbered
+     */
+    public void renumber(Long rootId) {
+        jdbcTemplate.update("UPDATE organizations SET tree_root_id = id, tree_enter = 0, tree_exit = ? WHERE id = ?",
+                ROOT_EXIT, rootId);
+        Integer height = jdbcTemplate.queryForObject("SELECT max(depth) FROM organization_closure " +
+                "WHERE ancestor_id = ?", Integer.class, rootId);
+        for (int depth = 1; height != null && depth <= height; depth++) {
+            jdbcTemplate.update(RENUMBER_LEVEL, WIDTH_UNIT, rootId, depth, rootId);
+        }
+    }
+
+    private Map<Long, OrganizationInterval> findAll(Collection<Long> organizationIds) {
+        Map<Long, OrganizationInterval> intervals = new HashMap<>();
+        if (organizationIds.isEmpty()) {
+            return intervals;
+        }
+        jdbcTemplate.query("SELECT id, tree_root_id, tree_enter, tree_exit FROM organizations " +
+                "WHERE id = ANY(?) AND tree_root_id IS NOT NULL",
+                ps -> ps.setArray(1, bigintArray(ps, new ArrayList<>(organizationIds))),
+                rs -> {
+                    OrganizationInterval interval = INTERVAL.mapRow(rs, 0);
+                    intervals.put(interval.getOrganizationId(), interval);
+                });
+        return intervals;
+    }
+
+    /**
+     * Lock the root rows of the organizations' trees, in id order, and return
+     * the organizations' intervals as of holding the locks. Moving a subtree
+     * to another tree changes its root, so the roots are read again once locked.
+     */
+    private Map<Long, OrganizationInterval> lockTrees(Collection<Long> organizationIds, String lockMode) {
+        Set<Long> locked = new HashSet<>();
+        while (true) {
+            Map<Long, OrganizationInterval> intervals = findAll(organizationIds);
+            List<Long> unlocked = intervals.values().stream()
+                    .map(OrganizationInterval::getRootId)
+                    .filter(rootId -> !locked.contains(rootId))
+                    .distinct()
+                    .sorted()
+                    .collect(Collectors.toList());
+            if (unlocked.isEmpty()) {
+                return intervals;
+            }
+            jdbcTemplate.query("SELECT id FROM organizations WHERE id = ANY(?) ORDER BY id FOR " + lockMode,
+                    ps -> ps.setArray(1, bigintArray(ps, unlocked)),
+                    rs -> {
+                    });
+            locked.addAll(unlocked);
+        }
+    }
+
+    /**
+     * Where the interval of each parent's last numbered child ends
+     */
+    private Map<Long, Long> findLastChildExits(Collection<Long> parentIds) {
+        Map<Long, Long> lastChildExits = new HashMap<>();
+        if (parentIds.isEmpty()) {
+            return lastChildExits;
+        }
+        jdbcTemplate.query("SELECT parent_id, max(tree_exit) AS last_exit FROM organizations " +
+                "WHERE parent_id = ANY(?) GROUP BY parent_id",
+                ps -> ps.setArray(1, bigintArray(ps, new ArrayList<>(parentIds))),
+                rs -> {
+                    long lastExit = rs.getLong("last_exit");
+                    if (!rs.wasNull()) {
+                        lastChildExits.put(rs.getLong("parent_id"), lastExit);
+                    }
+                });
+        return lastChildExits;
+    }
+
+    private static Array bigintArray(PreparedStatement ps, List<Long> ids) throws SQLException {
+        return ps.getConnection().createArrayOf("bigint", ids.toArray());
+    }
+}
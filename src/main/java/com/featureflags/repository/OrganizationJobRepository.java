@@ -0,0 +1,18 @@
+package com.featureflags.repository;
+
+import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.model.OrganizationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrganizationJobRepository extends JpaRepository<OrganizationJob, Long> {
+
+    List<OrganizationJob> findByStatusOrderByCreatedAtDesc(FeatureFlagJob.JobStatus status);
+
+    boolean existsByOrganizationIdAndJobTypeAndStatusIn(Long organizationId, OrganizationJob.JobType jobType,
+            Collection<FeatureFlagJob.JobStatus> statuses);
+}
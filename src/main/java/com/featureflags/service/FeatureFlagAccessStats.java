@@ -0,0 +1,83 @@
+package com.featureflags.service;
+
+import com.featureflags.config.Workload;
+import com.featureflags.model.FeatureFlagKey;
+import com.featureflags.repository.FeatureFlagAccessStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts a sample of flag lookups per organization and flag and adds them to
+ * feature_flag_access_stats periodically, so a starting instance knows which
+ * entries to preload (see FeatureFlagLookupWarmer). Counts are estimates:
+ * one lookup in sample-rate is counted, as sample-rate reads, and counts not
+ * yet flushed are lost when the instance stops.
+ */
+@Component
+public class FeatureFlagAccessStats {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeatureFlagAccessStats.class);
+
+    private final FeatureFlagAccessStatsRepository repository;
+    private final int sampleRate;
+    private final int maxEntries;
+    private final AtomicReference<Map<FeatureFlagKey, LongAdder>> counts =
+            new AtomicReference<>(new ConcurrentHashMap<>());
+
+    @Autowired
+    public FeatureFlagAccessStats(FeatureFlagAccessStatsRepository repository,
+            @Value("${featureflags.cache.access-stats.sample-rate:64}") int sampleRate,
+            @Value("${featureflags.cache.access-stats.max-entries:100000}") int maxEntries) {
+        this.repository = repository;
+        this.sampleRate = Math.max(sampleRate, 1);
+        this.maxEntries = maxEntries;
+    }
+
+    public void recordRead(Long organizationId, String featureFlagName) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        Map<FeatureFlagKey, LongAdder> current = counts.get();
+        FeatureFlagKey key = new FeatureFlagKey(organizationId, featureFlagName);
+        LongAdder count = current.get(key);
+        if (count == null) {
+            // Entries first seen once the map is full wait for the next interval
+            if (current.size() >= maxEntries) {
+                return;
+            }
+            count = current.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.add(sampleRate);
+    }
+
+    /**
+     * Add the counts gathered since the last flush; on failure they are dropped
+     */
+    @Scheduled(fixedDelayString = "${featureflags.cache.access-stats.flush-interval:PT1M}")
+    public void flush() {
+        Map<FeatureFlagKey, LongAdder> flushed = counts.getAndSet(new ConcurrentHashMap<>());
+        if (flushed.isEmpty()) {
+            return;
+        }
+        Map<FeatureFlagKey, Long> reads = new HashMap<>(flushed.size());
+        flushed.forEach((key, count) -> reads.put(key, count.sum()));
+        try {
+            Workload.MAINTENANCE.run(() -> repository.addReads(reads, LocalDateTime.now()));
+        } catch (DataAccessException e) {
+            logger.warn("Could not save lookup counts for {} entries: {}", reads.size(), e.getMessage());
+        }
+    }
+}
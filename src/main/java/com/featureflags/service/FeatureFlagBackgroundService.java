@@ -1,137 +1,445 @@
 package com.featureflags.service;
 
+import com.featureflags.config.ReplicaRouting;
+import com.featureflags.config.Workload;
+import com.featureflags.metrics.FeatureFlagMetrics;
 import com.featureflags.model.FeatureFlag;
 import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.model.FeatureFlagJobPage;
+import com.featureflags.model.FeatureFlagJobStats;
+import com.featureflags.model.FeatureFlagJobSummary;
+import com.featureflags.model.OrganizationInterval;
 import com.featureflags.repository.FeatureFlagJobRepository;
+import com.featureflags.repository.FeatureFlagPropagationRepository;
 import com.featureflags.repository.FeatureFlagRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class FeatureFlagBackgroundService {
 
     private static final Logger logger = LoggerFactory.getLogger(FeatureFlagBackgroundService.class);
 
+    // Bounds for job listings without a time filter or cursor
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime FAR_FUTURE = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final String CURSOR_SEPARATOR = "_";
+
     private final FeatureFlagRepository featureFlagRepository;
+    private final FeatureFlagPropagationRepository propagationRepository;
     private final FeatureFlagJobRepository jobRepository;
     private final OrganizationService organizationService;
+    private final FeatureFlagMetrics metrics;
+    private final ReplicaRouting replicaRouting;
+    private final TransactionTemplate transactionTemplate;
+    private final LookupCacheInvalidator cacheInvalidator;
+    private final int chunkSize;
 
     @Autowired
     public FeatureFlagBackgroundService(FeatureFlagRepository featureFlagRepository,
+            FeatureFlagPropagationRepository propagationRepository,
             FeatureFlagJobRepository jobRepository,
-            OrganizationService organizationService) {
+            OrganizationService organizationService,
+            FeatureFlagMetrics metrics,
+            ReplicaRouting replicaRouting,
+            TransactionTemplate transactionTemplate,
+            LookupCacheInvalidator cacheInvalidator,
+            @Value("${featureflags.flags.propagation.chunk-size:500}") int chunkSize) {
         this.featureFlagRepository = featureFlagRepository;
+        this.propagationRepository = propagationRepository;
         this.jobRepository = jobRepository;
         this.organizationService = organizationService;
+        this.metrics = metrics;
+        this.replicaRouting = replicaRouting;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheInvalidator = cacheInvalidator;
+        this.chunkSize = chunkSize;
     }
 
     /**
      * Process feature flag update for an organization and all its descendants in
      * the background
-     * This method returns immediately while the processing happens asynchronously
+     * This method returns immediately while the processing happens asynchronously.
+     * Descendants are written in pre-order chunks of
+     * {@code featureflags.flags.propagation.chunk-size}, each
+     * one range of the subtree's interval written with a single statement and
+     * committed with the job's progress in its own transaction; before each
+     * chunk the job row is re-read, so a cancellation or a newer request stops
+     * the job within one chunk. The job's cursor is committed with each chunk,
+     * so a retry or a reclaimed job continues after the last committed chunk.
      */
     @Async("featureFlagTaskExecutor")
-    @Transactional
     public void processFeatureFlagHierarchyUpdate(Long jobId) {
-        FeatureFlagJob job = jobRepository.findById(jobId)
+        // Retries call this directly; the job row is only guaranteed on the primary
+        FeatureFlagJob job = replicaRouting.onPrimary(() -> jobRepository.findById(jobId))
                 .orElseThrow(() -> new IllegalArgumentException("Job not found: " + jobId));
+        if (job.getStatus() == FeatureFlagJob.JobStatus.SUPERSEDED
+                || job.getStatus() == FeatureFlagJob.JobStatus.CANCELLED) {
+            logger.info("Skipping job {}: {}", jobId, job.getStatus());
+            return;
+        }
 
+        metrics.propagationJobStarted();
+        String outcome = FeatureFlagMetrics.OUTCOME_FAILED;
+        PhaseTimings timings = new PhaseTimings();
         try {
             logger.info("Starting background processing for job {} - Organization: {}, Flag: {}, Enabled: {}",
                     jobId, job.getOrganizationId(), job.getFeatureFlagName(), job.isEnabled());
 
-            job.markAsInProgress();
-            jobRepository.save(job);
-
-            // First, update the parent organization
-            updateFeatureFlagForOrganization(job.getOrganizationId(), job.getFeatureFlagName(), job.isEnabled());
-            job.incrementProcessedOrganizations();
-            jobRepository.save(job);
-
-            // Get all descendant organization IDs
-            List<Long> descendantIds = organizationService.getAllDescendantIds(job.getOrganizationId());
-            logger.info("Found {} descendant organizations to update for job {}", descendantIds.size(), jobId);
-
-            // Update total count if it wasn't set correctly initially
-            if (job.getTotalOrganizations() == null || job.getTotalOrganizations() != descendantIds.size() + 1) {
-                job.setTotalOrganizations(descendantIds.size() + 1); // +1 for parent org
-                jobRepository.save(job);
+            // First, update the parent organization, unless an earlier run already did
+            Long resumeAfter = job.getLastProcessedOrgId();
+            List<Long> parentWritten = new ArrayList<>();
+            String stopped = runChunk(job, timings, parentWritten, () -> {
+                job.markAsInProgress();
+                if (resumeAfter == null) {
+                    writeFeatureFlag(job, timings, job.getOrganizationId(), parentWritten);
+                    job.incrementProcessedOrganizations();
+                    job.advanceCursor(job.getOrganizationId());
+                    metrics.organizationsPropagated(1);
+                }
+            });
+            if (stopped != null) {
+                outcome = stopped;
+                return;
             }
 
-            // Process each descendant organization
-            for (Long descendantId : descendantIds) {
-                try {
-                    updateFeatureFlagForOrganization(descendantId, job.getFeatureFlagName(), job.isEnabled());
-                    job.incrementProcessedOrganizations();
+            // Count the descendant organizations
+            long discoveryStart = System.nanoTime();
+            int descendantCount = (int) organizationService.countDescendants(job.getOrganizationId());
+            timings.discoveryNanos += System.nanoTime() - discoveryStart;
+            logger.info("Found {} descendant organizations to update for job {}", descendantCount, jobId);
 
-                    // Save progress every 10 organizations or at the end
-                    if (job.getProcessedOrganizations() % 10 == 0 ||
-                            job.getProcessedOrganizations().equals(job.getTotalOrganizations())) {
-                        jobRepository.save(job);
-                        logger.debug("Job {} progress: {}/{} organizations processed",
-                                jobId, job.getProcessedOrganizations(), job.getTotalOrganizations());
-                    }
-
-                } catch (Exception e) {
-                    logger.error("Failed to update feature flag for organization {} in job {}: {}",
-                            descendantId, jobId, e.getMessage());
-                    // Continue processing other organizations even if one fails
-                }
+            // Update total count if it wasn't set correctly initially; saved with the next chunk
+            if (job.getTotalOrganizations() == null || job.getTotalOrganizations() != descendantCount + 1) {
+                job.setTotalOrganizations(descendantCount + 1); // +1 for parent org
+            }
+            if (resumeAfter != null && !resumeAfter.equals(job.getOrganizationId())) {
+                logger.info("Resuming job {} after organization {}", jobId, resumeAfter);
             }
 
-            job.markAsCompleted();
-            jobRepository.save(job);
+            // Process the descendant organizations chunk by chunk, in pre-order
+            // after the cursor; the step that finds none left completes the job
+            do {
+                List<Long> writtenIds = new ArrayList<>();
+                stopped = runChunk(job, timings, writtenIds, () -> writeNextChunk(job, timings, writtenIds));
+                if (stopped != null) {
+                    outcome = stopped;
+                    return;
+                }
+                logger.debug("Job {} progress: {}/{} organizations processed",
+                        jobId, job.getProcessedOrganizations(), job.getTotalOrganizations());
+            } while (job.getStatus() != FeatureFlagJob.JobStatus.COMPLETED);
+            outcome = FeatureFlagMetrics.OUTCOME_SUCCESS;
 
-            logger.info("Completed background processing for job {} - Processed {}/{} organizations",
-                    jobId, job.getProcessedOrganizations(), job.getTotalOrganizations());
+            logger.info("Completed background processing for job {} - Processed {}/{} organizations " +
+                    "(discovery {}ms, write {}ms, checkpoint {}ms, {} orgs/sec)",
+                    jobId, job.getProcessedOrganizations(), job.getTotalOrganizations(),
+                    job.getDiscoveryMillis(), job.getWriteMillis(), job.getCheckpointMillis(),
+                    String.format("%.1f", job.getOrgsPerSecond()));
 
         } catch (Exception e) {
             logger.error("Failed to process job {}: {}", jobId, e.getMessage(), e);
+            timings.applyTo(job);
 
             // Check if job can be retried
             if (job.canRetry()) {
                 logger.info("Job {} failed but can be retried. Retry count: {}/{}",
                         jobId, job.getRetryCount(), job.getMaxRetries());
+                outcome = FeatureFlagMetrics.OUTCOME_RETRYING;
                 scheduleRetry(job);
             } else {
                 logger.error("Job {} failed and exhausted all retries. Marking as permanently failed.", jobId);
                 job.markAsFailed(e.getMessage());
                 jobRepository.save(job);
             }
+        } finally {
+            metrics.propagationJobFinished(outcome);
+        }
+    }
+
+    /**
+     * Run one step of a job in its own transaction, committing its writes
+     * together with the job's progress. The job row is locked and re-read
+     * first, so a cancellation or a newer request for the same organization and
+     * flag is seen before anything more is written. If the transaction rolls
+     * back, the job's progress is put back to the last commit.
+     *
+     * @param organizationIds organizations the step writes the flag of, filled
+     *                        in by the step if not known before; their cached
+     *                        lookups are invalidated on commit
+     * @return the outcome the job stopped with, or null to carry on
+     */
+    private String runChunk(FeatureFlagJob job, PhaseTimings timings, List<Long> organizationIds, Runnable work) {
+        Long lastProcessedOrgId = job.getLastProcessedOrgId();
+        int processedOrganizations = job.getProcessedOrganizations();
+        int rowsWritten = job.getRowsWritten();
+        int rowsSkipped = job.getRowsSkipped();
+        try {
+            return transactionTemplate.execute(status -> runInTransaction(job, timings, organizationIds, work));
+        } catch (RuntimeException e) {
+            job.restoreProgress(lastProcessedOrgId, processedOrganizations, rowsWritten, rowsSkipped);
+            throw e;
+        }
+    }
+
+    private String runInTransaction(FeatureFlagJob job, PhaseTimings timings, List<Long> organizationIds,
+            Runnable work) {
+        // Wait for an earlier job on the same organization and flag to stop,
+        // so the newest value is always the last one written
+        jobRepository.lockHierarchyUpdates(job.getOrganizationId(), job.getFeatureFlagName());
+        if (cancelIfRequested(job, timings)) {
+            return FeatureFlagMetrics.OUTCOME_CANCELLED;
+        }
+        if (supersedeIfNewerRequest(job, timings)) {
+            return FeatureFlagMetrics.OUTCOME_SUPERSEDED;
+        }
+        work.run();
+        checkpoint(job, timings);
+        String featureFlagName = job.getFeatureFlagName();
+        cacheInvalidator.flagChanged(featureFlagName, organizationIds);
+        TransactionCallbacks.afterCommit(() -> replicaRouting.recordWrite(featureFlagName));
+        return null;
+    }
+
+    /**
+     * Write the flag of the next chunk of descendants after the
+     * job's cursor in pre-order, one range of the subtree's interval written
+     * with set-based statements that skip rows already holding the value, or
+     * complete the job if none are left. The
+     * subtree is kept from being renumbered until the chunk commits, so the
+     * range read is the range written.
+     */
+    private void writeNextChunk(FeatureFlagJob job, PhaseTimings timings, List<Long> writtenIds) {
+        long discoveryStart = System.nanoTime();
+        OrganizationInterval subtree = organizationService.lockSubtree(job.getOrganizationId());
+        long afterEnter = subtree.getEnter();
+        Long cursor = job.getLastProcessedOrgId();
+        if (cursor != null && !cursor.equals(job.getOrganizationId())) {
+            Optional<OrganizationInterval> position = organizationService.findInterval(cursor)
+                    .filter(subtree::contains);
+            if (position.isPresent()) {
+                afterEnter = position.get().getEnter();
+            } else {
+                // Rewriting is idempotent, so start over rather than guess a position
+                logger.warn("Organization {} at the cursor of job {} has left the subtree; restarting from the top",
+                        cursor, job.getId());
+            }
+        }
+        List<OrganizationInterval> chunk = organizationService.findSubtreeChunk(subtree, afterEnter, chunkSize);
+        timings.discoveryNanos += System.nanoTime() - discoveryStart;
+        if (chunk.isEmpty()) {
+            timings.applyTo(job);
+            job.markAsCompleted();
+            return;
+        }
+
+        OrganizationInterval last = chunk.get(chunk.size() - 1);
+        long writeStart = System.nanoTime();
+        List<Long> written;
+        try {
+            written = propagationRepository.writeRange(job.getFeatureFlagName(), job.isEnabled(),
+                    subtree.getRootId(), afterEnter, last.getEnter());
+        } finally {
+            timings.writeNanos += System.nanoTime() - writeStart;
+        }
+        writtenIds.addAll(written);
+        job.addProcessedOrganizations(chunk.size());
+        job.addRowsWritten(written.size());
+        job.addRowsSkipped(chunk.size() - written.size());
+        job.advanceCursor(last.getOrganizationId());
+        metrics.organizationsPropagated(chunk.size());
+    }
+
+    /**
+     * Stop the job if it was cancelled (see {@link #cancelJob(Long)}), keeping
+     * the progress made so far
+     */
+    private boolean cancelIfRequested(FeatureFlagJob job, PhaseTimings timings) {
+        String status = jobRepository.lockStatus(job.getId());
+        if (!FeatureFlagJob.JobStatus.CANCELLED.name().equals(status)) {
+            return false;
+        }
+        timings.applyTo(job);
+        job.markAsCancelled();
+        jobRepository.save(job);
+        logger.info("Job {} cancelled after {}/{} organizations", job.getId(),
+                job.getProcessedOrganizations(), job.getTotalOrganizations());
+        return true;
+    }
+
+    /**
+     * Write the job's flag value for one organization, unless it already has
+     * it, charging the time to the write phase
+     *
+     * @param writtenIds gets the organization if its row was written
+     */
+    private void writeFeatureFlag(FeatureFlagJob job, PhaseTimings timings, Long organizationId,
+            List<Long> writtenIds) {
+        long start = System.nanoTime();
+        try {
+            if (updateFeatureFlagForOrganization(organizationId, job.getFeatureFlagName(), job.isEnabled())) {
+                writtenIds.add(organizationId);
+                job.incrementRowsWritten();
+            } else {
+                job.incrementRowsSkipped();
+            }
+        } finally {
+            timings.writeNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Save job progress together with the phase timings measured so far
+     */
+    private void checkpoint(FeatureFlagJob job, PhaseTimings timings) {
+        timings.applyTo(job);
+        long start = System.nanoTime();
+        jobRepository.save(job);
+        timings.checkpointNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Stop the job if the same organization and flag have been requested again
+     * since; the newer job rewrites the whole subtree, so finishing this one
+     * would be wasted work
+     */
+    private boolean supersedeIfNewerRequest(FeatureFlagJob job, PhaseTimings timings) {
+        Optional<FeatureFlagJob> newer = jobRepository
+                .findFirstByOrganizationIdAndFeatureFlagNameAndRequestedAtAfterOrderByRequestedAtDesc(
+                        job.getOrganizationId(), job.getFeatureFlagName(), job.getRequestedAt());
+        if (newer.isEmpty()) {
+            return false;
+        }
+        timings.applyTo(job);
+        job.markAsSuperseded(newer.get().getId());
+        jobRepository.save(job);
+        logger.info("Job {} superseded by job {} after {}/{} organizations", job.getId(), newer.get().getId(),
+                job.getProcessedOrganizations(), job.getTotalOrganizations());
+        return true;
+    }
+
+    /**
+     * Phase durations of one run, kept in nanoseconds because a single row
+     * write is usually well under a millisecond
+     */
+    private static final class PhaseTimings {
+        private final long startNanos = System.nanoTime();
+        private long discoveryNanos;
+        private long writeNanos;
+        private long checkpointNanos;
+
+        void applyTo(FeatureFlagJob job) {
+            job.recordPhaseTimings(TimeUnit.NANOSECONDS.toMillis(discoveryNanos),
+                    TimeUnit.NANOSECONDS.toMillis(writeNanos),
+                    TimeUnit.NANOSECONDS.toMillis(checkpointNanos));
+            job.recordThroughput(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
         }
     }
 
     /**
      * Update feature flag for a single organization (denormalized storage)
+     *
+     * @return false if the row already had the value and was left alone
      */
-    private void updateFeatureFlagForOrganization(Long organizationId, String featureFlagName, boolean enabled) {
-        FeatureFlag featureFlag = featureFlagRepository
-                .findByOrganizationIdAndName(organizationId, featureFlagName)
+    private boolean updateFeatureFlagForOrganization(Long organizationId, String featureFlagName,
+            boolean enabled) {
+        Optional<FeatureFlag> existing = featureFlagRepository.findByOrganizationIdAndName(organizationId,
+                featureFlagName);
+        if (existing.isPresent() && existing.get().isEnabled() == enabled) {
+            return false;
+        }
+        FeatureFlag featureFlag = existing
                 .orElseGet(() -> new FeatureFlag(featureFlagName, null, enabled, organizationId));
 
         featureFlag.setEnabled(enabled);
         featureFlagRepository.save(featureFlag);
+        return true;
     }
 
     /**
-     * Get job status for tracking background processing
+     * Get job status for tracking background processing. A job created moments
+     * ago may not have reached the replica yet, so a miss is re-read from the
+     * primary.
      */
     public FeatureFlagJob getJobStatus(Long jobId) {
-        return jobRepository.findById(jobId)
+        return replicaRouting.findWithPrimaryFallback(() -> jobRepository.findById(jobId))
                 .orElseThrow(() -> new IllegalArgumentException("Job not found: " + jobId));
     }
 
     /**
-     * Get all jobs for an organization
+     * Get a page of an organization's jobs, newest first, optionally limited to
+     * the given statuses and to jobs created in [since, until). {@code cursor}
+     * is the {@code nextCursor} of the previous page, or null for the first.
      */
-    public List<FeatureFlagJob> getJobsForOrganization(Long organizationId) {
-        return jobRepository.findByOrganizationIdOrderByCreatedAtDesc(organizationId);
+    public FeatureFlagJobPage getJobsForOrganization(Long organizationId, Set<FeatureFlagJob.JobStatus> statuses,
+            LocalDateTime since, LocalDateTime until, String cursor, int limit) {
+        LocalDateTime afterCreatedAt = FAR_FUTURE;
+        Long afterId = Long.MAX_VALUE;
+        if (cursor != null) {
+            int separator = cursor.lastIndexOf(CURSOR_SEPARATOR);
+            try {
+                afterCreatedAt = LocalDateTime.parse(cursor.substring(0, separator));
+                afterId = Long.valueOf(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+
+        // One extra row tells whether there is a next page
+        List<FeatureFlagJobSummary> jobs = jobRepository.findPage(organizationId,
+                statuses == null || statuses.isEmpty() ? EnumSet.allOf(FeatureFlagJob.JobStatus.class) : statuses,
+                since != null ? since : EPOCH, until != null ? until : FAR_FUTURE,
+                afterCreatedAt, afterId, PageRequest.of(0, limit + 1));
+        if (jobs.size() <= limit) {
+            return new FeatureFlagJobPage(jobs, null);
+        }
+        jobs = jobs.subList(0, limit);
+        FeatureFlagJobSummary last = jobs.get(limit - 1);
+        return new FeatureFlagJobPage(jobs, last.getCreatedAt() + CURSOR_SEPARATOR + last.getId());
+    }
+
+    /**
+     * Aggregate phase timings and throughput of jobs completed within the window
+     */
+    @Transactional(readOnly = true)
+    public FeatureFlagJobStats getJobStats(Duration window) {
+        return jobRepository.aggregateStats(FeatureFlagJob.JobStatus.COMPLETED, LocalDateTime.now().minus(window));
+    }
+
+    /**
+     * Cancel a job together with every retry below it in its chain. A queued
+     * job never starts; a running one stops before its next chunk. The update
+     * waits for at most the chunk a worker is committing.
+     *
+     * @throws IllegalArgumentException if the job does not exist
+     * @throws IllegalStateException    if the job has already finished
+     */
+    @Transactional
+    public FeatureFlagJob cancelJob(Long jobId) {
+        FeatureFlagJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Job not found: " + jobId));
+        if (jobRepository.cancel(jobId, LocalDateTime.now()) == 0) {
+            throw new IllegalStateException("Can only cancel pending, running or retrying jobs. Current status: "
+                    + job.getStatus());
+        }
+        logger.info("Cancellation requested for job {}", jobId);
+        return jobRepository.findById(jobId).orElse(job);
     }
 
     /**
@@ -152,6 +460,7 @@ public class FeatureFlagBackgroundService {
         );
         retryJob.setRetryCount(failedJob.getRetryCount());
         retryJob.setMaxRetries(failedJob.getMaxRetries());
+        retryJob.resumeFrom(failedJob);
         retryJob = jobRepository.save(retryJob);
 
         // Calculate delay with exponential backoff: 2^retryCount seconds
@@ -159,6 +468,7 @@ public class FeatureFlagBackgroundService {
 
         logger.info("Scheduling retry for job {} in {} seconds. New retry job ID: {}",
                 failedJob.getId(), delaySeconds, retryJob.getId());
+        metrics.propagationRetried("automatic");
 
         // Schedule the retry asynchronously with delay
         scheduleDelayedRetry(retryJob.getId(), delaySeconds);
@@ -201,30 +511,29 @@ public class FeatureFlagBackgroundService {
                 originalJob.getTotalOrganizations(),
                 originalJob.getId());
         retryJob.setMaxRetries(originalJob.getMaxRetries() + 1); // Allow one more retry for manual retries
+        // Still the original request (a newer one for the same org and flag wins),
+        // continued from where it stopped
+        retryJob.resumeFrom(originalJob);
         retryJob = jobRepository.save(retryJob);
 
         logger.info("Manual retry initiated for job {}. New retry job ID: {}", jobId, retryJob.getId());
+        metrics.propagationRetried("manual");
 
-        // Start processing immediately
-        processFeatureFlagHierarchyUpdate(retryJob.getId());
+        // Start processing immediately, on the request thread but with background connections
+        Long retryJobId = retryJob.getId();
+        Workload.BACKGROUND.run(() -> processFeatureFlagHierarchyUpdate(retryJobId));
 
         return retryJob.getId();
     }
 
     /**
-     * Get retry chain for a job (original job + all retries)
+     * Get retry chain for a job (original job + all retries, including retries
+     * of retries), in creation order. Like {@link #getJobStatus}, a miss is
+     * re-read from the primary.
      */
-    public List<FeatureFlagJob> getJobRetryChain(Long jobId) {
-        FeatureFlagJob job = getJobStatus(jobId);
-
-        // Find the root job (original job)
-        Long rootJobId = job.getParentJobId() != null ? job.getParentJobId() : job.getId();
-
-        // Get all jobs in the retry chain
-        List<FeatureFlagJob> allJobs = jobRepository.findByOrganizationIdOrderByCreatedAtDesc(job.getOrganizationId());
-
-        return allJobs.stream()
-                .filter(j -> j.getId().equals(rootJobId) || rootJobId.equals(j.getParentJobId()))
-                .collect(java.util.stream.Collectors.toList());
+    public List<FeatureFlagJobSummary> getJobRetryChain(Long jobId) {
+        return replicaRouting.findWithPrimaryFallback(
+                        () -> Optional.of(jobRepository.findRetryChain(jobId)).filter(chain -> !chain.isEmpty()))
+                .orElseThrow(() -> new IllegalArgumentException("Job not found: " + jobId));
     }
 }
@@ -0,0 +1,182 @@
+package com.featureflags.service;
+
+import com.featureflags.config.Workload;
+import com.featureflags.metrics.FeatureFlagMetrics;
+import com.featureflags.repository.FeatureFlagJobPartitionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the monthly partitions of feature_flag_jobs: creates the partitions of
+ * the coming months ahead of time, and once every job of a month is older
+ * than featureflags.jobs.retention, exports the month to
+ * featureflags.jobs.archive.directory (gzipped CSV) and drops its partition.
+ * A month that still has unfinished jobs is kept until they finish. The
+ * archive directory must be an absolute path on storage that outlives the
+ * node; until one is configured, expired months are kept rather than dropped.
+ */
+@Component
+public class FeatureFlagJobPartitionMaintainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeatureFlagJobPartitionMaintainer.class);
+
+    private final FeatureFlagJobPartitionRepository partitionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final FeatureFlagMetrics metrics;
+    private final Duration retention;
+    private final int premadeMonths;
+    // Null when not configured, in which case no partition is dropped
+    private final Path archiveDirectory;
+
+    @Autowired
+    public FeatureFlagJobPartitionMaintainer(FeatureFlagJobPartitionRepository partitionRepository,
+            TransactionTemplate transactionTemplate,
+            FeatureFlagMetrics metrics,
+            @Value("${featureflags.jobs.retention:90d}") Duration retention,
+            @Value("${featureflags.jobs.partitions.premade-months:2}") int premadeMonths,
+            @Value("${featureflags.jobs.archive.directory:}") String archiveDirectory) {
+        this.partitionRepository = partitionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+        this.retention = retention;
+        this.premadeMonths = premadeMonths;
+        this.archiveDirectory = archiveDirectory(archiveDirectory);
+        if (this.archiveDirectory == null && !retention.isZero()) {
+            logger.warn("featureflags.jobs.archive.directory is not set; job partitions past the {} retention "
+                    + "are kept until it is", retention);
+        }
+    }
+
+    /**
+     * A relative directory would resolve inside the node's working directory
+     * and go with it, so only an absolute one is accepted
+     */
+    static Path archiveDirectory(String directory) {
+        if (directory == null || directory.isBlank()) {
+            return null;
+        }
+        Path path = Path.of(directory);
+        if (!path.isAbsolute()) {
+            throw new IllegalArgumentException("featureflags.jobs.archive.directory must be an absolute path "
+                    + "on durable, shared storage, got: " + directory);
+        }
+        return path;
+    }
+
+    @Scheduled(fixedDelayString = "${featureflags.jobs.partitions.maintenance-interval:PT1H}")
+    public void maintainPartitions() {
+        Workload.MAINTENANCE.run(() -> {
+            List<YearMonth> expired = transactionTemplate.execute(status -> createUpcomingPartitions());
+            if (expired == null) {
+                return; // Another node is maintaining the partitions
+            }
+            // One transaction per month, so each drop holds its locks only briefly
+            for (YearMonth month : expired) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> archiveAndDrop(month));
+                } catch (RuntimeException e) {
+                    logger.error("Failed to archive and drop job partition {}: {}",
+                            FeatureFlagJobPartitionRepository.partitionName(month), e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the months past retention, or null if the lock was not acquired
+     */
+    private List<YearMonth> createUpcomingPartitions() {
+        if (!partitionRepository.tryLockMaintenance()) {
+            return null;
+        }
+        List<YearMonth> existing = partitionRepository.findPartitions();
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= premadeMonths; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (!existing.contains(month)) {
+                partitionRepository.createPartition(month);
+                logger.info("Created job partition {}", FeatureFlagJobPartitionRepository.partitionName(month));
+            }
+        }
+
+        if (retention.isZero()) {
+            return List.of();
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        List<YearMonth> expired = new ArrayList<>();
+        for (YearMonth month : existing) {
+            // Expired once its last possible job is older than the retention period
+            if (!month.plusMonths(1).atDay(1).atStartOfDay().isAfter(cutoff)) {
+                expired.add(month);
+            }
+        }
+        if (!expired.isEmpty() && archiveDirectory == null) {
+            logger.warn("Keeping {} expired job partition(s): featureflags.jobs.archive.directory is not set",
+                    expired.size());
+            return List.of();
+        }
+        return expired;
+    }
+
+    private void archiveAndDrop(YearMonth month) {
+        if (!partitionRepository.tryLockMaintenance()) {
+            return;
+        }
+        String partition = FeatureFlagJobPartitionRepository.partitionName(month);
+        long unfinished = partitionRepository.countUnfinishedJobs(month);
+        if (unfinished > 0) {
+            logger.warn("Keeping expired job partition {}: {} job(s) not finished", partition, unfinished);
+            return;
+        }
+
+        long archived = archive(month, partition);
+        partitionRepository.dropPartition(month);
+        metrics.jobPartitionDropped(archived);
+        logger.info("Dropped job partition {} after archiving {} job(s) to {}", partition, archived,
+                archiveDirectory);
+    }
+
+    /**
+     * Export to a temporary file first, so an archive file is always complete;
+     * a failed drop leaves the partition to be exported again next time
+     */
+    private long archive(YearMonth month, String partition) {
+        Path archive = archiveDirectory.resolve(partition + ".csv.gz");
+        Path partial = archiveDirectory.resolve(partition + ".csv.gz.partial");
+        try {
+            Files.createDirectories(archiveDirectory);
+            long rows;
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial))) {
+                rows = partitionRepository.exportPartition(month, out);
+            }
+            Files.move(partial, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException e) {
+                logger.warn("Could not delete {}: {}", partial, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.featureflags.service;
+
+import com.featureflags.config.Workload;
+import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.repository.FeatureFlagJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Resumes hierarchy update jobs whose worker died: a running job commits its
+ * progress with every chunk, so one whose row has not changed for
+ * featureflags.jobs.reclaim-after is taken over and continued from its cursor
+ */
+@Component
+public class FeatureFlagJobReclaimer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeatureFlagJobReclaimer.class);
+
+    private final FeatureFlagJobRepository jobRepository;
+    private final FeatureFlagBackgroundService backgroundService;
+    private final Duration reclaimAfter;
+
+    @Autowired
+    public FeatureFlagJobReclaimer(FeatureFlagJobRepository jobRepository,
+            FeatureFlagBackgroundService backgroundService,
+            @Value("${featureflags.jobs.reclaim-after:10m}") Duration reclaimAfter) {
+        this.jobRepository = jobRepository;
+        this.backgroundService = backgroundService;
+        this.reclaimAfter = reclaimAfter;
+    }
+
+    @Scheduled(fixedDelayString = "${featureflags.jobs.reclaim-interval:PT1M}")
+    @Transactional
+    public void reclaimAbandonedJobs() {
+        Workload.MAINTENANCE.run(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime updatedBefore = now.minus(reclaimAfter);
+            List<FeatureFlagJob> stale = jobRepository.findByStatusAndUpdatedAtBefore(
+                    FeatureFlagJob.JobStatus.IN_PROGRESS, updatedBefore);
+            for (FeatureFlagJob job : stale) {
+                if (jobRepository.claimAbandoned(job.getId(), updatedBefore, now) == 0) {
+                    continue; // Progressed meanwhile, or reclaimed by another node
+                }
+                Long jobId = job.getId();
+                logger.warn("Reclaiming job {} with no progress since {}, resuming after organization {}",
+                        jobId, job.getUpdatedAt(), job.getLastProcessedOrgId());
+                TransactionCallbacks.afterCommit(() -> backgroundService.processFeatureFlagHierarchyUpdate(jobId));
+            }
+        });
+    }
+}
@@ -0,0 +1,184 @@
+package com.featureflags.service;
+
+import com.featureflags.config.Workload;
+import com.featureflags.metrics.FeatureFlagMetrics;
+import com.featureflags.repository.FeatureFlagKeyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+
+/**
+ * A Bloom filter of the (organization, flag) keys that have a row, so a
+ * lookup of a flag that was never set is answered without the lookup cache
+ * or the database. Built by a streaming scan of feature_flags soon after
+ * startup; until then, and while it is being rebuilt from nothing, every
+ * lookup goes through.
+ *
+ * A key must be in the filter before its row can be read. Writes on this
+ * instance add their keys before and again after they commit, and writes on
+ * other instances are added as their invalidations arrive (see
+ * LookupCacheInvalidator); keys added while the filter is rebuilt go into
+ * both filters. While invalidations may be getting lost the filter is
+ * dropped, and it is rebuilt once they are received again. It is also
+ * rebuilt, larger, once it holds more keys than it was sized for. Without
+ * cross-instance invalidation it stays off, since flags set elsewhere would
+ * never be added.
+ */
+@Component
+public class FeatureFlagKeyFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeatureFlagKeyFilter.class);
+
+    // Room for the table to grow before the filter has to be rebuilt
+    private static final int HEADROOM = 2;
+
+    private final FeatureFlagKeyRepository keyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final double falsePositiveRate;
+    private final long minCapacity;
+    private final FeatureFlagMetrics metrics;
+    private volatile KeyBloomFilter filter;
+    private volatile KeyBloomFilter building;
+    private volatile boolean stale = true;
+    private volatile boolean paused;
+
+    @Autowired
+    public FeatureFlagKeyFilter(FeatureFlagKeyRepository keyRepository,
+            PlatformTransactionManager transactionManager,
+            FeatureFlagMetrics metrics,
+            @Value("${featureflags.lookups.filter.enabled:true}") boolean enabled,
+            @Value("${featureflags.cache.invalidation.enabled:true}") boolean invalidationEnabled,
+            @Value("${featureflags.lookups.filter.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${featureflags.lookups.filter.min-capacity:1000000}") long minCapacity) {
+        this.keyRepository = keyRepository;
+        // Not read-only: the scan must not be served by a lagging replica
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.metrics = metrics;
+        this.enabled = enabled && invalidationEnabled;
+        this.falsePositiveRate = falsePositiveRate;
+        this.minCapacity = minCapacity;
+        if (enabled && !invalidationEnabled) {
+            logger.info("Lookup key filter is off: it needs featureflags.cache.invalidation.enabled");
+        }
+        if (this.enabled) {
+            metrics.monitorLookupFilter(this, FeatureFlagKeyFilter::memoryBytes,
+                    FeatureFlagKeyFilter::expectedFalsePositiveRate);
+        }
+    }
+
+    /**
+     * @return false if the flag certainly has no row for the organization
+     */
+    public boolean mightExist(Long organizationId, String featureFlagName) {
+        KeyBloomFilter current = filter;
+        if (current == null || current.mightContain(organizationId, featureFlagName)) {
+            return true;
+        }
+        metrics.lookupFilteredOut();
+        return false;
+    }
+
+    /**
+     * A lookup let through by {@link #mightExist} found no row
+     */
+    public void recordMissing() {
+        if (filter != null) {
+            metrics.lookupFilterFalsePositive();
+        }
+    }
+
+    /**
+     * A flag has been, or is about to be, written for the given organizations
+     */
+    public void add(String featureFlagName, Collection<Long> organizationIds) {
+        KeyBloomFilter current = filter;
+        KeyBloomFilter next = building;
+        for (Long organizationId : organizationIds) {
+            if (current != null) {
+                current.put(organizationId, featureFlagName);
+            }
+            if (next != null) {
+                next.put(organizationId, featureFlagName);
+            }
+        }
+    }
+
+    /**
+     * Stop filtering lookups: keys written elsewhere may be missed until
+     * {@link #resume()}
+     */
+    public void suspend() {
+        paused = true;
+        stale = true;
+        filter = null;
+    }
+
+    /**
+     * Keys are received again; the filter is rebuilt on the next check
+     */
+    public void resume() {
+        paused = false;
+    }
+
+    @Scheduled(fixedDelayString = "${featureflags.lookups.filter.check-interval:PT10S}")
+    public void maintain() {
+        if (!enabled || paused) {
+            return;
+        }
+        KeyBloomFilter current = filter;
+        if (!stale && current != null && current.approximateKeyCount() <= current.capacity()) {
+            return;
+        }
+        Workload.MAINTENANCE.run(() -> {
+            try {
+                rebuild(current);
+            } catch (RuntimeException e) {
+                stale = true;
+                logger.warn("Could not build the lookup key filter: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Scan every key into a new filter. Keys added from here on go into it
+     * too; those committed before the scan starts are read by it.
+     */
+    private void rebuild(KeyBloomFilter current) {
+        stale = false;
+        long known = Math.max(keyRepository.estimateCount(), current != null ? current.approximateKeyCount() : 0);
+        KeyBloomFilter next = new KeyBloomFilter(Math.max(minCapacity, HEADROOM * known), falsePositiveRate);
+        building = next;
+        try {
+            long start = System.nanoTime();
+            Long keys = transactionTemplate.execute(status -> keyRepository.forEachKey(
+                    (featureFlagName, organizationId) -> next.put(organizationId, featureFlagName)));
+            if (stale || paused) {
+                // Keys may have been missed while the scan ran
+                return;
+            }
+            filter = next;
+            logger.info("Built the lookup key filter from {} key(s) in {} ms: {} KiB, sized for {} keys",
+                    keys, (System.nanoTime() - start) / 1_000_000, next.memoryBytes() / 1024, next.capacity());
+        } finally {
+            building = null;
+        }
+    }
+
+    private double memoryBytes() {
+        KeyBloomFilter current = filter;
+        return current != null ? current.memoryBytes() : 0;
+    }
+
+    private double expectedFalsePositiveRate() {
+        KeyBloomFilter current = filter;
+        return current != null ? current.expectedFalsePositiveRate() : Double.NaN;
+    }
+}
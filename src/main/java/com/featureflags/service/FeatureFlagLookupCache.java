@@ -0,0 +1,207 @@
+package com.featureflags.service;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import com.featureflags.model.FeatureFlagKey;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of flag lookups, including flags that have no row. Writes
+ * made on this instance evict their entries once committed, and writes made
+ * on other instances as soon as their invalidation arrives (see
+ * LookupCacheInvalidator); without invalidations they are seen after at most
+ * featureflags.cache.lookups.ttl.
+ */
+@Component
+public class FeatureFlagLookupCache {
+
+    // Caffeine does not store nulls, so a missing flag is an empty Optional
+    private final Cache<FeatureFlagKey, Optional<Boolean>> cache;
+    // The flags cached for each organization, so its entries are evicted without scanning the cache
+    private final Map<Long, Set<String>> cachedFlagNames = new ConcurrentHashMap<>();
+    // Bumped before every eviction, so a value read outside get is not cached over one
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile boolean suspended;
+
+    @Autowired
+    public FeatureFlagLookupCache(@Value("${featureflags.cache.lookups.enabled:true}") boolean enabled,
+            @Value("${featureflags.cache.lookups.ttl:5m}") Duration ttl,
+            @Value("${featureflags.cache.lookups.max-size:100000}") long maxSize,
+            FeatureFlagMetrics metrics) {
+        if (enabled) {
+            this.cache = Caffeine.newBuilder()
+                    .expireAfterWrite(ttl)
+                    .maximumSize(maxSize)
+                    .recordStats()
+                    // Called under the entry's lock for expiry and size evictions
+                    .evictionListener((FeatureFlagKey key, Optional<Boolean> value, RemovalCause cause) ->
+                            unindexFlagName(key))
+                    .build();
+            metrics.monitorLookupCache(cache);
+        } else {
+            this.cache = null;
+        }
+    }
+
+    /**
+     * The cached value, or the loader's result, which is cached. An eviction
+     * racing with the load waits for it, so a value read before a write
+     * commits is never left behind.
+     *
+     * @return the flag value, null if the flag has no row
+     */
+    public Boolean get(Long organizationId, String featureFlagName, Supplier<Boolean> loader) {
+        if (cache == null || suspended) {
+            return loader.get();
+        }
+        return cache.get(new FeatureFlagKey(organizationId, featureFlagName), key -> {
+            Optional<Boolean> value = Optional.ofNullable(loader.get());
+            indexFlagName(key);
+            return value;
+        }).orElse(null);
+    }
+
+    /**
+     * The cached value, without loading it: null when nothing is cached, an
+     * empty Optional when the flag is cached as having no row
+     */
+    public Optional<Boolean> getIfPresent(Long organizationId, String featureFlagName) {
+        if (cache == null || suspended) {
+            return null;
+        }
+        return cache.getIfPresent(new FeatureFlagKey(organizationId, featureFlagName));
+    }
+
+    /**
+     * For values read outside {@link #get}, such as by a non-blocking query:
+     * take a stamp before the read and pass it to {@link #putIfNotEvicted}
+     */
+    public long stamp() {
+        return evictions.get();
+    }
+
+    /**
+     * Cache a value read after {@link #stamp} was taken, unless something has
+     * been evicted since, as the value may predate the write behind it. Runs
+     * under the entry's lock, as does its eviction, which bumps the stamp
+     * first, so either the eviction removes the value or the value is skipped.
+     *
+     * @param enabled the flag value, null if the flag has no row
+     */
+    public void putIfNotEvicted(Long organizationId, String featureFlagName, Boolean enabled, long stamp) {
+        if (cache == null || suspended) {
+            return;
+        }
+        cache.asMap().compute(new FeatureFlagKey(organizationId, featureFlagName), (key, cached) -> {
+            if (cached != null || evictions.get() != stamp) {
+                return cached;
+            }
+            indexFlagName(key);
+            return Optional.ofNullable(enabled);
+        });
+    }
+
+    public void evict(Long organizationId, String featureFlagName) {
+        if (cache != null) {
+            evictions.incrementAndGet();
+            remove(new FeatureFlagKey(organizationId, featureFlagName));
+        }
+    }
+
+    public void evict(Collection<Long> organizationIds, String featureFlagName) {
+        if (cache != null) {
+            evictions.incrementAndGet();
+            for (Long organizationId : organizationIds) {
+                remove(new FeatureFlagKey(organizationId, featureFlagName));
+            }
+        }
+    }
+
+    /**
+     * Evict every flag of the given organizations
+     */
+    public void evictOrganizations(Collection<Long> organizationIds) {
+        if (cache != null) {
+            evictions.incrementAndGet();
+            for (Long organizationId : organizationIds) {
+                Set<String> featureFlagNames = cachedFlagNames.get(organizationId);
+                if (featureFlagNames != null) {
+                    // Copied, as each removal takes its name out of the set
+                    for (String featureFlagName : List.copyOf(featureFlagNames)) {
+                        remove(new FeatureFlagKey(organizationId, featureFlagName));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Empty the cache and serve every lookup from the database until
+     * {@link #resume()}, for while invalidations may be getting lost
+     */
+    public void suspend() {
+        suspended = true;
+        clear();
+    }
+
+    /**
+     * Start caching again, from empty: anything cached while suspended may
+     * have missed its invalidation
+     */
+    public void resume() {
+        clear();
+        suspended = false;
+    }
+
+    public void clear() {
+        if (cache != null) {
+            evictions.incrementAndGet();
+            cache.asMap().keySet().forEach(this::remove);
+        }
+    }
+
+    public long size() {
+        return cache != null ? cache.estimatedSize() : 0;
+    }
+
+    // A set only changes within a compute on its organization, so a name is never lost to a concurrent removal
+    private void indexFlagName(FeatureFlagKey key) {
+        cachedFlagNames.compute(key.getOrganizationId(), (organizationId, featureFlagNames) -> {
+            Set<String> names = featureFlagNames != null ? featureFlagNames : ConcurrentHashMap.newKeySet();
+            names.add(key.getName());
+            return names;
+        });
+    }
+
+    private void unindexFlagName(FeatureFlagKey key) {
+        cachedFlagNames.computeIfPresent(key.getOrganizationId(), (organizationId, featureFlagNames) -> {
+            featureFlagNames.remove(key.getName());
+            return featureFlagNames.isEmpty() ? null : featureFlagNames;
+        });
+    }
+
+    /**
+     * Remove an entry and its name from the index in one step under the
+     * entry's lock, so a load of the same key cannot slip in between them
+     */
+    private void remove(FeatureFlagKey key) {
+        cache.asMap().computeIfPresent(key, (cachedKey, value) -> {
+            unindexFlagName(cachedKey);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package com.featureflags.service;
+
+import com.featureflags.health.WarmUpHealthIndicator;
+import com.featureflags.model.FeatureFlagKey;
+import com.featureflags.repository.FeatureFlagAccessStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Loads the most read flags (per feature_flag_access_stats) into the lookup
+ * cache at startup, then repeats lookups of them until the lookup path has
+ * been compiled by the JIT. Reported as the lookupCache task of
+ * {@link WarmUpHealthIndicator}, so readiness waits for it.
+ */
+@Component
+public class FeatureFlagLookupWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeatureFlagLookupWarmer.class);
+
+    static final String TASK = "lookupCache";
+    // Looked up when no access stats have been recorded yet, to still compile the path
+    static final FeatureFlagKey PLACEHOLDER = new FeatureFlagKey(0L, "warm-up");
+
+    private final FeatureFlagService featureFlagService;
+    private final FeatureFlagAccessStatsRepository accessStatsRepository;
+    private final WarmUpHealthIndicator warmUp;
+    private final boolean enabled;
+    private final int entries;
+    private final Duration window;
+    private final int iterations;
+
+    @Autowired
+    public FeatureFlagLookupWarmer(FeatureFlagService featureFlagService,
+            FeatureFlagAccessStatsRepository accessStatsRepository,
+            WarmUpHealthIndicator warmUp,
+            @Value("${featureflags.warm-up.lookups.enabled:true}") boolean enabled,
+            @Value("${featureflags.warm-up.lookups.entries:10000}") int entries,
+            @Value("${featureflags.warm-up.lookups.window:1d}") Duration window,
+            @Value("${featureflags.warm-up.lookups.iterations:20000}") int iterations) {
+        this.featureFlagService = featureFlagService;
+        this.accessStatsRepository = accessStatsRepository;
+        this.warmUp = warmUp;
+        this.enabled = enabled;
+        this.entries = entries;
+        this.window = window;
+        this.iterations = iterations;
+        if (enabled) {
+            warmUp.begin(TASK);
+        }
+    }
+
+    /**
+     * Runs on the background executor (and its connection pool); readiness
+     * waits for it through the warm-up indicator rather than by blocking startup
+     */
+    @Async("featureFlagTaskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<FeatureFlagKey> hot = accessStatsRepository.findMostRead(LocalDateTime.now().minus(window), entries);
+            if (hot.isEmpty()) {
+                hot = List.of(PLACEHOLDER);
+            }
+            // Misses: each entry is read from the database into the cache
+            for (FeatureFlagKey key : hot) {
+                featureFlagService.lookup(key.getOrganizationId(), key.getName());
+            }
+            // Hits, until the cached path is hot enough to be compiled
+            for (int i = 0; i < iterations; i++) {
+                FeatureFlagKey key = hot.get(i % hot.size());
+                featureFlagService.lookup(key.getOrganizationId(), key.getName());
+            }
+            logger.info("Preloaded {} flag lookups", hot.size());
+            warmUp.complete(TASK);
+        } catch (RuntimeException e) {
+            logger.warn("Could not preload flag lookups: {}", e.getMessage());
+            warmUp.fail(TASK);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.featureflags.service;
+
+import com.featureflags.config.Workload;
+import com.featureflags.repository.FeatureFlagPartitionBackfillRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Moves feature_flags onto its hash partitions while the application keeps
+ * running: copies the existing rows into feature_flags_partitioned one batch
+ * per run (writes made meanwhile are mirrored by a trigger), and once none
+ * are left swaps the two tables in one transaction. Progress is committed
+ * with each batch, so a restart or another node carries on where it stopped;
+ * one node copies at a time. Does nothing once the tables have been swapped.
+ */
+@Component
+@ConditionalOnProperty(name = "featureflags.flags.partition-backfill.enabled", havingValue = "true",
+        matchIfMissing = true)
+public class FeatureFlagPartitionBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(FeatureFlagPartitionBackfill.class);
+
+    private final FeatureFlagPartitionBackfillRepository backfillRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration lockTimeout;
+    private volatile boolean completed;
+
+    @Autowired
+    public FeatureFlagPartitionBackfill(FeatureFlagPartitionBackfillRepository backfillRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${featureflags.flags.partition-backfill.batch-size:5000}") int batchSize,
+            @Value("${featureflags.flags.partition-backfill.lock-timeout:5s}") Duration lockTimeout) {
+        this.backfillRepository = backfillRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.lockTimeout = lockTimeout;
+    }
+
+    @Scheduled(fixedDelayString = "${featureflags.flags.partition-backfill.interval:PT1S}")
+    public void backfill() {
+        if (completed) {
+            return;
+        }
+        Workload.MAINTENANCE.run(() -> {
+            try {
+                completed = Boolean.TRUE.equals(transactionTemplate.execute(status -> copyNextBatch()));
+            } catch (RuntimeException e) {
+                // Nothing of the batch is kept; it is copied again next run
+                logger.warn("Feature flag partition backfill failed: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * @return whether the tables have been swapped
+     */
+    private boolean copyNextBatch() {
+        Optional<Long> lastId = backfillRepository.lockProgress();
+        if (lastId.isEmpty()) {
+            return backfillRepository.isCompleted(); // Or another node is copying
+        }
+        Optional<Long> copiedTo = backfillRepository.copyBatch(lastId.get(), batchSize);
+        if (copiedTo.isPresent()) {
+            backfillRepository.saveProgress(copiedTo.get());
+            logger.debug("Copied feature flags up to id {} into their partitions", copiedTo.get());
+            return false;
+        }
+        long copied = backfillRepository.swap(lastId.get(), lockTimeout);
+        logger.info("Swapped in hash-partitioned feature_flags ({} row(s) copied under lock); "
+                + "the old table is kept as feature_flags_unpartitioned", copied);
+        return true;
+    }
+}
@@ -1,14 +1,26 @@
 package com.featureflags.service;
 
+import com.featureflags.config.ReplicaRouting;
+import com.featureflags.metrics.FeatureFlagMetrics;
 import com.featureflags.model.FeatureFlag;
 import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.model.FeatureFlagJobPage;
+import com.featureflags.model.FeatureFlagJobStats;
+import com.featureflags.model.FeatureFlagJobSummary;
 import com.featureflags.repository.FeatureFlagJobRepository;
 import com.featureflags.repository.FeatureFlagRepository;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class FeatureFlagService {
@@ -16,23 +28,75 @@ public class FeatureFlagService {
     private final FeatureFlagJobRepository jobRepository;
     private final FeatureFlagBackgroundService backgroundService;
     private final OrganizationService organizationService;
+    private final FeatureFlagMetrics metrics;
+    private final ReplicaRouting replicaRouting;
+    private final FeatureFlagLookupCache lookupCache;
+    private final FeatureFlagKeyFilter keyFilter;
+    private final FeatureFlagAccessStats accessStats;
+    private final LookupCacheInvalidator cacheInvalidator;
+    private final TransactionTemplate readOnlyTransaction;
 
     @Autowired
     public FeatureFlagService(FeatureFlagRepository featureFlagRepository,
             FeatureFlagJobRepository jobRepository,
             FeatureFlagBackgroundService backgroundService,
-            OrganizationService organizationService) {
+            OrganizationService organizationService,
+            FeatureFlagMetrics metrics,
+            ReplicaRouting replicaRouting,
+            FeatureFlagLookupCache lookupCache,
+            FeatureFlagKeyFilter keyFilter,
+            FeatureFlagAccessStats accessStats,
+            LookupCacheInvalidator cacheInvalidator,
+            PlatformTransactionManager transactionManager) {
         this.featureFlagRepository = featureFlagRepository;
         this.jobRepository = jobRepository;
         this.backgroundService = backgroundService;
         this.organizationService = organizationService;
+        this.metrics = metrics;
+        this.replicaRouting = replicaRouting;
+        this.lookupCache = lookupCache;
+        this.keyFilter = keyFilter;
+        this.accessStats = accessStats;
+        this.cacheInvalidator = cacheInvalidator;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
+    /**
+     * Look up the effective flag value: a flag the key filter has never seen
+     * is false right away, others come from the lookup cache; on a miss it is
+     * read by a read replica when replica routing is enabled, unless the flag
+     * was written moments ago
+     */
     public boolean getFeatureFlag(Long organizationId, String featureFlagName) {
-        return featureFlagRepository
-                .findByOrganizationIdAndName(organizationId, featureFlagName)
-                .map(FeatureFlag::isEnabled)
-                .orElse(false);
+        long start = metrics.monotonicTime();
+        accessStats.recordRead(organizationId, featureFlagName);
+        Boolean enabled = lookup(organizationId, featureFlagName);
+        if (enabled == null) {
+            metrics.recordLookup(start, FeatureFlagMetrics.OUTCOME_MISSING);
+            return false;
+        }
+        metrics.recordLookup(start, enabled ? FeatureFlagMetrics.OUTCOME_ENABLED : FeatureFlagMetrics.OUTCOME_DISABLED);
+        return enabled;
+    }
+
+    /**
+     * The lookup without metrics or access counting, for warming the cache
+     *
+     * @return the flag value, null if the flag has no row
+     */
+    Boolean lookup(Long organizationId, String featureFlagName) {
+        if (!keyFilter.mightExist(organizationId, featureFlagName)) {
+            return null;
+        }
+        // Only a miss opens a transaction, read-only so that it may use a replica
+        Boolean enabled = lookupCache.get(organizationId, featureFlagName,
+                () -> replicaRouting.read(featureFlagName, () -> readOnlyTransaction.execute(status ->
+                        featureFlagRepository.findEnabledByOrganizationIdAndName(organizationId, featureFlagName))));
+        if (enabled == null) {
+            keyFilter.recordMissing();
+        }
+        return enabled;
     }
 
     /**
@@ -40,38 +104,72 @@ public class FeatureFlagService {
      */
     @Transactional
     public void setFeatureFlag(Long organizationId, String featureFlagName, boolean enabled) {
+        Timer.Sample sample = metrics.startTimer();
         FeatureFlag featureFlag = featureFlagRepository
                 .findByOrganizationIdAndName(organizationId, featureFlagName)
                 .orElseGet(() -> new FeatureFlag(featureFlagName, null, enabled, organizationId));
 
         featureFlag.setEnabled(enabled);
         featureFlagRepository.save(featureFlag);
+        cacheInvalidator.flagChanged(featureFlagName, List.of(organizationId));
+        TransactionCallbacks.afterCommit(() -> replicaRouting.recordWrite(featureFlagName));
+        metrics.recordToggle(sample);
     }
 
     /**
      * Set feature flag for an organization and ALL its descendants (background
      * processing)
-     * Returns immediately with a job ID that can be used to track progress
+     * Returns immediately with a job ID that can be used to track progress.
+     * Jobs still queued for the same organization and flag are superseded by
+     * this one, and a job already running stops at its next checkpoint, so a
+     * burst of toggles costs one subtree rewrite with the latest value.
      * 
      * @param organizationId  The parent organization ID
      * @param featureFlagName The feature flag name
      * @param enabled         The flag value
+     * @param idempotencyKey  Client-supplied key, or null; a request repeating
+     *                        a key gets the job created for it the first time
      * @return Job ID for tracking the background process
+     * @throws IllegalStateException if the key was used for a different request
      */
     @Transactional
-    public Long setFeatureFlagWithHierarchy(Long organizationId, String featureFlagName, boolean enabled) {
+    public Long setFeatureFlagWithHierarchy(Long organizationId, String featureFlagName, boolean enabled,
+            String idempotencyKey) {
+        if (idempotencyKey != null) {
+            jobRepository.lockIdempotencyKey(idempotencyKey);
+            Optional<FeatureFlagJob> existing = jobRepository.findByIdempotencyKey(idempotencyKey);
+            if (existing.isPresent()) {
+                if (!existing.get().isSameRequest(organizationId, featureFlagName, enabled)) {
+                    throw new IllegalStateException("Idempotency-Key was already used for a different request");
+                }
+                metrics.propagationCoalesced("idempotent-replay", 1);
+                return existing.get().getId();
+            }
+        }
+
         // Get count of all organizations that will be affected
-        List<Long> descendantIds = organizationService.getAllDescendantIds(organizationId);
-        int totalOrganizations = descendantIds.size() + 1; // +1 for parent org
+        int totalOrganizations = (int) organizationService.countDescendants(organizationId) + 1; // +1 for parent org
 
         // Create a job to track the background processing
         FeatureFlagJob job = new FeatureFlagJob(organizationId, featureFlagName, enabled, totalOrganizations);
+        job.setIdempotencyKey(idempotencyKey);
         job = jobRepository.save(job);
 
-        // Start background processing
-        backgroundService.processFeatureFlagHierarchyUpdate(job.getId());
-
-        return job.getId();
+        // Collapse jobs still waiting for a worker into this one
+        Long jobId = job.getId();
+        List<FeatureFlagJob> pending = jobRepository.lockPendingJobs(organizationId, featureFlagName, jobId);
+        for (FeatureFlagJob pendingJob : pending) {
+            pendingJob.markAsSuperseded(jobId);
+        }
+        if (!pending.isEmpty()) {
+            jobRepository.saveAll(pending);
+            metrics.propagationCoalesced(FeatureFlagMetrics.OUTCOME_SUPERSEDED, pending.size());
+        }
+
+        // Start background processing once the job row is committed
+        TransactionCallbacks.afterCommit(() -> backgroundService.processFeatureFlagHierarchyUpdate(jobId));
+
+        return jobId;
     }
 
     /**
@@ -82,10 +180,18 @@ public class FeatureFlagService {
     }
 
     /**
-     * Get all background jobs for an organization
+     * Get a page of an organization's background jobs, newest first
      */
-    public List<FeatureFlagJob> getJobsForOrganization(Long organizationId) {
-        return backgroundService.getJobsForOrganization(organizationId);
+    public FeatureFlagJobPage getJobsForOrganization(Long organizationId, Set<FeatureFlagJob.JobStatus> statuses,
+            LocalDateTime since, LocalDateTime until, String cursor, int limit) {
+        return backgroundService.getJobsForOrganization(organizationId, statuses, since, until, cursor, limit);
+    }
+
+    /**
+     * Get aggregate timing and throughput of recently completed background jobs
+     */
+    public FeatureFlagJobStats getJobStats(Duration window) {
+        return backgroundService.getJobStats(window);
     }
 
     /**
@@ -93,8 +199,7 @@ public class FeatureFlagService {
      * processing is needed)
      */
     public boolean organizationHasChildren(Long organizationId) {
-        List<Long> descendants = organizationService.getAllDescendantIds(organizationId);
-        return !descendants.isEmpty();
+        return organizationService.hasDescendants(organizationId);
     }
 
     /**
@@ -104,10 +209,17 @@ public class FeatureFlagService {
         return backgroundService.manualRetryJob(jobId);
     }
 
+    /**
+     * Cancel a pending, running or retrying job
+     */
+    public FeatureFlagJob cancelJob(Long jobId) {
+        return backgroundService.cancelJob(jobId);
+    }
+
     /**
      * Get retry chain for a job
      */
-    public List<FeatureFlagJob> getJobRetryChain(Long jobId) {
+    public List<FeatureFlagJobSummary> getJobRetryChain(Long jobId) {
         return backgroundService.getJobRetryChain(jobId);
     }
 }
\ No newline at end of file
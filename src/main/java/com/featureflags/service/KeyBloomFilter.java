@@ -0,0 +1,115 @@
+package com.featureflags.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of (organization, flag) keys, sized for a number of keys
+ * and a false-positive rate. Keys are added concurrently without locks and
+ * never removed. Bit positions come from one 64-bit hash of the key split in
+ * two (Kirsch and Mitzenmacher), so a check costs one pass over the flag name.
+ */
+final class KeyBloomFilter {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final long capacity;
+    private final AtomicLong setBits = new AtomicLong();
+
+    KeyBloomFilter(long capacity, double falsePositiveRate) {
+        if (capacity < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Capacity must be positive and the false-positive rate in (0, 1)");
+        }
+        long wanted = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (wanted + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bits = wordCount * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        this.capacity = capacity;
+    }
+
+    void put(long organizationId, String featureFlagName) {
+        long hash = hash(organizationId, featureFlagName);
+        long step = mix(hash + GOLDEN_GAMMA) | 1;
+        for (int i = 0; i < hashes; i++) {
+            set(Long.remainderUnsigned(hash + i * step, bits));
+        }
+    }
+
+    /**
+     * @return false if the key was certainly never added
+     */
+    boolean mightContain(long organizationId, String featureFlagName) {
+        long hash = hash(organizationId, featureFlagName);
+        long step = mix(hash + GOLDEN_GAMMA) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * step, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void set(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        while (true) {
+            long current = words.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+            if (words.compareAndSet(word, current, current | mask)) {
+                setBits.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    long capacity() {
+        return capacity;
+    }
+
+    long memoryBytes() {
+        return bits / 8;
+    }
+
+    /**
+     * The chance that a key never added is reported as present, from the
+     * share of bits set
+     */
+    double expectedFalsePositiveRate() {
+        return Math.pow((double) setBits.get() / bits, hashes);
+    }
+
+    /**
+     * The number of distinct keys added, estimated from the share of bits set
+     */
+    long approximateKeyCount() {
+        double setShare = (double) setBits.get() / bits;
+        if (setShare >= 1) {
+            return Long.MAX_VALUE;
+        }
+        return Math.round(-(double) bits / hashes * Math.log(1 - setShare));
+    }
+
+    private static long hash(long organizationId, String featureFlagName) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < featureFlagName.length(); i++) {
+            hash = (hash ^ featureFlagName.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash ^ mix(organizationId * GOLDEN_GAMMA));
+    }
+
+    // The MurmurHash3 finalizer: every input bit affects every output bit
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+}
@@ -0,0 +1,301 @@
+package com.featureflags.service;
+
+import com.featureflags.config.ReplicaRouting;
+import com.featureflags.metrics.FeatureFlagMetrics;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the lookup caches of all instances in step with writes. A write
+ * evicts its entries on this instance once committed and sends a
+ * notification on the feature_flag_invalidations channel in the same
+ * transaction, which Postgres delivers to every listening instance only if
+ * and when it commits. Each instance listens on a dedicated connection; while
+ * that connection is down notifications may be missed, so its cache is
+ * suspended until it is listening again. The lookup key filter
+ * ({@link FeatureFlagKeyFilter}) is kept in step the same way, except that
+ * keys are added rather than evicted.
+ *
+ * Payloads are "F:&lt;organization ids&gt;:&lt;flag&gt;" for one flag of some
+ * organizations and "O:&lt;organization ids&gt;:" for every flag of some
+ * organizations, with at most {@value #MAX_IDS_PER_NOTIFICATION} ids each.
+ */
+@Component
+public class LookupCacheInvalidator implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(LookupCacheInvalidator.class);
+
+    static final String CHANNEL = "feature_flag_invalidations";
+    static final String KIND_FLAG = "F";
+    static final String KIND_ORGANIZATIONS = "O";
+    // Keeps a payload well under the 8000 byte NOTIFY limit
+    static final int MAX_IDS_PER_NOTIFICATION = 300;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FeatureFlagLookupCache lookupCache;
+    private final FeatureFlagKeyFilter keyFilter;
+    private final ReplicaRouting replicaRouting;
+    private final FeatureFlagMetrics metrics;
+    private final DataSourceProperties dataSourceProperties;
+    private final boolean enabled;
+    private final Duration pollInterval;
+    private final Duration reconnectDelay;
+    private volatile boolean running;
+    private volatile boolean listening;
+    private Thread listener;
+
+    @Autowired
+    public LookupCacheInvalidator(JdbcTemplate jdbcTemplate,
+            FeatureFlagLookupCache lookupCache,
+            FeatureFlagKeyFilter keyFilter,
+            ReplicaRouting replicaRouting,
+            FeatureFlagMetrics metrics,
+            DataSourceProperties dataSourceProperties,
+            @Value("${featureflags.cache.invalidation.enabled:true}") boolean enabled,
+            @Value("${featureflags.cache.invalidation.poll-interval:5s}") Duration pollInterval,
+            @Value("${featureflags.cache.invalidation.reconnect-delay:5s}") Duration reconnectDelay) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lookupCache = lookupCache;
+        this.keyFilter = keyFilter;
+        this.replicaRouting = replicaRouting;
+        this.metrics = metrics;
+        this.dataSourceProperties = dataSourceProperties;
+        this.enabled = enabled;
+        this.pollInterval = pollInterval;
+        this.reconnectDelay = reconnectDelay;
+        if (enabled) {
+            metrics.monitorInvalidationListener(this, invalidator -> invalidator.listening ? 1 : 0);
+        }
+    }
+
+    /**
+     * A flag was written for the given organizations in the current transaction
+     */
+    public void flagChanged(String featureFlagName, Collection<Long> organizationIds) {
+        if (organizationIds.isEmpty()) {
+            return;
+        }
+        // Added before the rows can be read, and again after commit in case a
+        // filter rebuild started in between and its scan missed them
+        keyFilter.add(featureFlagName, organizationIds);
+        publish(KIND_FLAG, organizationIds, featureFlagName);
+        TransactionCallbacks.afterCommit(() -> {
+            keyFilter.add(featureFlagName, organizationIds);
+            lookupCache.evict(organizationIds, featureFlagName);
+        });
+    }
+
+    /**
+     * Organizations were created or changed in the current transaction
+     */
+    public void organizationsChanged(Collection<Long> organizationIds) {
+        if (organizationIds.isEmpty()) {
+            return;
+        }
+        publish(KIND_ORGANIZATIONS, organizationIds, "");
+        TransactionCallbacks.afterCommit(() -> lookupCache.evictOrganizations(organizationIds));
+    }
+
+    private void publish(String kind, Collection<Long> organizationIds, String featureFlagName) {
+        if (!enabled) {
+            return;
+        }
+        for (String payload : payloads(kind, organizationIds, featureFlagName)) {
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload);
+        }
+    }
+
+    static List<String> payloads(String kind, Collection<Long> organizationIds, String featureFlagName) {
+        List<Long> ids = new ArrayList<>(organizationIds);
+        List<String> payloads = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_NOTIFICATION) {
+            String idList = ids.subList(from, Math.min(from + MAX_IDS_PER_NOTIFICATION, ids.size())).stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(","));
+            payloads.add(kind + ":" + idList + ":" + featureFlagName);
+        }
+        return payloads;
+    }
+
+    /**
+     * Evict what a notification names; a payload that cannot be read empties
+     * the whole cache and rebuilds the key filter
+     */
+    void apply(String payload) {
+        String[] parts = payload.split(":", 3);
+        try {
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("expected 3 fields");
+            }
+            List<Long> organizationIds = new ArrayList<>();
+            for (String id : parts[1].split(",")) {
+                organizationIds.add(Long.valueOf(id));
+            }
+            if (KIND_FLAG.equals(parts[0])) {
+                // Replicas may not have the write yet; read the flag from the primary for a while
+                replicaRouting.recordWrite(parts[2]);
+                keyFilter.add(parts[2], organizationIds);
+                lookupCache.evict(organizationIds, parts[2]);
+                metrics.invalidationReceived("flag");
+            } else if (KIND_ORGANIZATIONS.equals(parts[0])) {
+                lookupCache.evictOrganizations(organizationIds);
+                metrics.invalidationReceived("organization");
+            } else {
+                throw new IllegalArgumentException("unknown kind " + parts[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unreadable cache invalidation '{}' ({}); clearing the lookup cache", payload,
+                    e.getMessage());
+            lookupCache.clear();
+            keyFilter.suspend();
+            keyFilter.resume();
+        }
+    }
+
+    /**
+     * Listen before the application takes traffic, so that nothing it caches
+     * can miss an invalidation; if the database is not reachable yet the
+     * cache stays suspended until the listener thread gets through
+     */
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        Connection connection = null;
+        try {
+            connection = listen();
+        } catch (SQLException e) {
+            lookupCache.suspend();
+            keyFilter.suspend();
+            logger.warn("Could not listen for cache invalidations, lookups bypass the cache until it can: {}",
+                    e.getMessage());
+        }
+        Connection initial = connection;
+        listener = new Thread(() -> run(initial), "lookup-cache-invalidation");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run(Connection initial) {
+        Connection connection = initial;
+        while (running) {
+            try {
+                if (connection == null) {
+                    connection = listen();
+                    lookupCache.resume();
+                    keyFilter.resume();
+                    logger.info("Listening for cache invalidations again");
+                }
+                receive(connection);
+            } catch (SQLException e) {
+                if (listening) {
+                    lookupCache.suspend();
+                    keyFilter.suspend();
+                    logger.warn("Lost the cache invalidation connection, lookups bypass the cache: {}",
+                            e.getMessage());
+                }
+                listening = false;
+                close(connection);
+                connection = null;
+                if (!sleep(reconnectDelay)) {
+                    break;
+                }
+            }
+        }
+        listening = false;
+        close(connection);
+    }
+
+    private Connection listen() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", dataSourceProperties.determineUsername());
+        if (dataSourceProperties.determinePassword() != null) {
+            properties.setProperty("password", dataSourceProperties.determinePassword());
+        }
+        properties.setProperty("ApplicationName", "feature-flags-invalidation-listener");
+        properties.setProperty("connectTimeout", "5");
+        properties.setProperty("tcpKeepAlive", "true");
+        Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(), properties);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + CHANNEL);
+        } catch (SQLException e) {
+            close(connection);
+            throw e;
+        }
+        listening = true;
+        return connection;
+    }
+
+    private void receive(Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications((int) pollInterval.toMillis());
+            if (notifications == null || notifications.length == 0) {
+                // A quiet connection may be a dead one
+                if (!connection.isValid((int) Math.max(pollInterval.getSeconds(), 1))) {
+                    throw new SQLException("Listener connection is no longer valid");
+                }
+                continue;
+            }
+            for (PGNotification notification : notifications) {
+                apply(notification.getParameter());
+            }
+        }
+    }
+
+    private static void close(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Could not close the cache invalidation connection: {}", e.getMessage());
+        }
+    }
+
+    private static boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.featureflags.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.featureflags.config.ReplicaRouting;
+import com.featureflags.metrics.FeatureFlagMetrics;
+import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.model.Organization;
+import com.featureflags.model.OrganizationInterval;
+import com.featureflags.model.OrganizationJob;
+import com.featureflags.model.OrganizationMove;
+import com.featureflags.repository.FeatureFlagPropagationRepository;
+import com.featureflags.repository.OrganizationDeletionRepository;
+import com.featureflags.repository.OrganizationJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+@Service
+public class OrganizationBackgroundService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrganizationBackgroundService.class);
+
+    private final OrganizationJobRepository jobRepository;
+    private final OrganizationService organizationService;
+    private final FeatureFlagPropagationRepository propagationRepository;
+    private final OrganizationDeletionRepository deletionRepository;
+    private final LookupCacheInvalidator cacheInvalidator;
+    private final ReplicaRouting replicaRouting;
+    private final ObjectMapper objectMapper;
+    private final FeatureFlagMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int moveChunkSize;
+    private final int deleteChunkSize;
+    private final int deleteBatchSize;
+    private final Duration deletePause;
+
+    @Autowired
+    public OrganizationBackgroundService(OrganizationJobRepository jobRepository,
+            OrganizationService organizationService,
+            FeatureFlagPropagationRepository propagationRepository,
+            OrganizationDeletionRepository deletionRepository,
+            LookupCacheInvalidator cacheInvalidator,
+            ReplicaRouting replicaRouting,
+            ObjectMapper objectMapper,
+            FeatureFlagMetrics metrics,
+            PlatformTransactionManager transactionManager,
+            @Value("${featureflags.organizations.import.chunk-size:500}") int chunkSize,
+            @Value("${featureflags.organizations.move.chunk-size:500}") int moveChunkSize,
+            @Value("${featureflags.organizations.delete.chunk-size:500}") int deleteChunkSize,
+            @Value("${featureflags.organizations.delete.batch-size:5000}") int deleteBatchSize,
+            @Value("${featureflags.organizations.delete.pause:PT0.05S}") Duration deletePause) {
+        this.jobRepository = jobRepository;
+        this.organizationService = organizationService;
+        this.propagationRepository = propagationRepository;
+        this.deletionRepository = deletionRepository;
+        this.cacheInvalidator = cacheInvalidator;
+        this.replicaRouting = replicaRouting;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.moveChunkSize = moveChunkSize;
+        this.deleteChunkSize = deleteChunkSize;
+        this.deleteBatchSize = deleteBatchSize;
+        this.deletePause = deletePause;
+    }
+
+    /**
+     * Import the organizations stored on the job in the background, committing
+     * one chunk at a time. Each chunk is saved in the same transaction as the
+     * job cursor, so a rerun resumes right after the last committed chunk.
+     */
+    @Async("featureFlagTaskExecutor")
+    public void processOrganizationImport(Long jobId) {
+        OrganizationJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Job not found: " + jobId));
+
+        try {
+            logger.info("Starting organization import job {} at position {}", jobId, job.getLastPosition());
+
+            job.markAsInProgress();
+            job = jobRepository.save(job);
+
+            List<Organization> organizations = readPayload(job);
+
+            // Validate once, before anything is written; resumed runs already passed
+            if (job.getLastPosition() == 0) {
+                String validationError = organizationService.findValidationError(organizations);
+                if (validationError != null) {
+                    logger.warn("Organization import job {} rejected: {}", jobId, validationError);
+                    job.markAsFailed(validationError);
+                    jobRepository.save(job);
+                    metrics.importFinished(FeatureFlagMetrics.MODE_BACKGROUND, FeatureFlagMetrics.OUTCOME_FAILED);
+                    return;
+                }
+            }
+
+            List<Organization> ordered = organizationService.orderParentsFirst(organizations);
+            job.setTotalOrganizations(ordered.size());
+
+            while (job.getLastPosition() < ordered.size()) {
+                int from = job.getLastPosition();
+                int to = Math.min(from + chunkSize, ordered.size());
+                List<Organization> chunk = ordered.subList(from, to);
+
+                OrganizationJob current = job;
+                job = transactionTemplate.execute(status -> {
+                    organizationService.saveOrganizations(chunk);
+                    current.advance(to, chunk.size());
+                    return jobRepository.save(current);
+                });
+                metrics.organizationsIngested(FeatureFlagMetrics.MODE_BACKGROUND, chunk.size());
+                logger.debug("Organization import job {} progress: {}/{} organizations imported",
+                        jobId, job.getProcessedOrganizations(), job.getTotalOrganizations());
+            }
+
+            job.markAsCompleted();
+            jobRepository.save(job);
+            metrics.importFinished(FeatureFlagMetrics.MODE_BACKGROUND, FeatureFlagMetrics.OUTCOME_SUCCESS);
+
+            logger.info("Completed organization import job {} - Imported {}/{} organizations",
+                    jobId, job.getProcessedOrganizations(), job.getTotalOrganizations());
+
+        } catch (Exception e) {
+            logger.error("Failed to process organization import job {}: {}", jobId, e.getMessage(), e);
+            if (retryOrFail(jobId, job, e)) {
+                metrics.importFinished(FeatureFlagMetrics.MODE_BACKGROUND, FeatureFlagMetrics.OUTCOME_FAILED);
+            }
+        }
+    }
+
+    /**
+     * Run a job of any type
+     */
+    public void process(Long jobId, OrganizationJob.JobType jobType) {
+        switch (jobType) {
+            case MOVE:
+                processOrganizationMove(jobId);
+                break;
+            case DELETE:
+                processOrganizationDeletion(jobId);
+                break;
+            default:
+                processOrganizationImport(jobId);
+        }
+    }
+
+    /**
+     * Recompute the flags a moved subtree inherited, in pre-order chunks of
+     * the subtree's interval, each committed with the job cursor. A chunk
+     * reads the new parent's values again, so a flag set on the new ancestors
+     * since the move is not undone; only flags whose value differed between
+     * the old and new parent are touched, and only in rows still holding the
+     * old parent's value.
+     */
+    @Async("featureFlagTaskExecutor")
+    public void processOrganizationMove(Long jobId) {
+        OrganizationJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Job not found: " + jobId));
+
+        try {
+            logger.info("Starting organization move job {} for organization {} after {}", jobId,
+                    job.getOrganizationId(), job.getLastProcessedOrgId());
+
+            job.markAsInProgress();
+            job = jobRepository.save(job);
+
+            OrganizationMove move = objectMapper.readValue(job.getPayload(), OrganizationMove.class);
+            while (job.getStatus() != FeatureFlagJob.JobStatus.COMPLETED) {
+                OrganizationJob current = job;
+                job = transactionTemplate.execute(status -> recomputeNextChunk(current, move));
+                logger.debug("Organization move job {} progress: {}/{} organizations recomputed",
+                        jobId, job.getProcessedOrganizations(), job.getTotalOrganizations());
+            }
+
+            logger.info("Completed organization move job {} - Recomputed {} organizations under {}",
+                    jobId, job.getProcessedOrganizations(), move.getParentId());
+
+        } catch (Exception e) {
+            logger.error("Failed to process organization move job {}: {}", jobId, e.getMessage(), e);
+            retryOrFail(jobId, job, e);
+        }
+    }
+
+    /**
+     * Recompute the next chunk of the moved subtree after the job's cursor,
+     * or complete the job if none are left. The subtree's tree is kept from
+     * being renumbered until the chunk commits, so the range read is the
+     * range written.
+     */
+    private OrganizationJob recomputeNextChunk(OrganizationJob job, OrganizationMove move) {
+        OrganizationInterval subtree = organizationService.lockSubtree(job.getOrganizationId());
+        long afterEnter = resumeAfter(job, subtree);
+        List<OrganizationInterval> chunk = organizationService.findSubtreeChunk(subtree, afterEnter, moveChunkSize);
+        if (chunk.isEmpty()) {
+            job.markAsCompleted();
+            return jobRepository.save(job);
+        }
+
+        OrganizationInterval last = chunk.get(chunk.size() - 1);
+        Map<String, Boolean> values = propagationRepository.findValues(move.getParentId());
+        for (Map.Entry<String, Boolean> flag : move.getPreviousValues().entrySet()) {
+            String featureFlagName = flag.getKey();
+            Boolean value = values.get(featureFlagName);
+            if (Objects.equals(value, flag.getValue())) {
+                continue;
+            }
+            List<Long> written = propagationRepository.replaceInheritedRange(featureFlagName, flag.getValue(),
+                    value, subtree.getRootId(), afterEnter, last.getEnter());
+            if (!written.isEmpty()) {
+                cacheInvalidator.flagChanged(featureFlagName, written);
+                TransactionCallbacks.afterCommit(() -> replicaRouting.recordWrite(featureFlagName));
+            }
+        }
+        job.advancePast(last.getOrganizationId(), chunk.size());
+        return jobRepository.save(job);
+    }
+
+    /**
+     * Where in the subtree's numbering the next chunk starts: after the
+     * cursor, or from the subtree's root if the cursor has not been set or
+     * has left the subtree
+     */
+    private long resumeAfter(OrganizationJob job, OrganizationInterval subtree) {
+        Long cursor = job.getLastProcessedOrgId();
+        if (subtree.getOrganizationId().equals(cursor)) {
+            return subtree.getEnter();
+        }
+        Optional<OrganizationInterval> last = cursor != null ? organizationService.findInterval(cursor)
+                : Optional.empty();
+        if (last.isPresent() && subtree.contains(last.get())) {
+            return last.get().getEnter();
+        }
+        return subtree.getEnter() - 1;
+    }
+
+    /**
+     * Delete a subtree, with its flags and hierarchy update jobs, from the end
+     * of its pre-order numbering backwards, so an organization always goes
+     * after its descendants. Each transaction deletes at most one batch of
+     * flag or job rows, or one chunk of organizations once nothing references
+     * them any more, and the job pauses between transactions, so row locks
+     * are held briefly and WAL is written at a bounded rate. Lookups take no
+     * locks and are never blocked.
+     */
+    @Async("featureFlagTaskExecutor")
+    public void processOrganizationDeletion(Long jobId) {
+        OrganizationJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Job not found: " + jobId));
+
+        try {
+            logger.info("Starting organization delete job {} for organization {}", jobId, job.getOrganizationId());
+
+            job.markAsInProgress();
+            job = jobRepository.save(job);
+
+            while (job.getStatus() != FeatureFlagJob.JobStatus.COMPLETED) {
+                OrganizationJob current = job;
+                job = transactionTemplate.execute(status -> deleteNextBatch(current));
+                if (job.getStatus() != FeatureFlagJob.JobStatus.COMPLETED && !deletePause.isZero()) {
+                    Thread.sleep(deletePause.toMillis());
+                }
+            }
+
+            logger.info("Completed organization delete job {} - Deleted {} organizations",
+                    jobId, job.getProcessedOrganizations());
+
+        } catch (InterruptedException e) {
+            logger.warn("Organization delete job {} interrupted", jobId);
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Failed to process organization delete job {}: {}", jobId, e.getMessage(), e);
+            retryOrFail(jobId, job, e);
+        }
+    }
+
+    /**
+     * Delete the next batch of the subtree, or complete the job once its root
+     * is gone. The tree stays locked until the batch commits, so nothing is
+     * propagated into the rows being deleted and the range read is the range
+     * deleted.
+     */
+    private OrganizationJob deleteNextBatch(OrganizationJob job) {
+        Optional<OrganizationInterval> found = organizationService.lockTree(job.getOrganizationId());
+        if (found.isEmpty()) {
+            job.markAsCompleted();
+            return jobRepository.save(job);
+        }
+        OrganizationInterval subtree = found.get();
+        Long rootId = subtree.getRootId();
+        long fromEnter = deletionRepository.findTailStart(subtree, deleteChunkSize);
+
+        // Whatever references the chunk goes first, a batch at a time
+        if (deletionRepository.deleteFeatureFlags(rootId, fromEnter, subtree.getExit(), deleteBatchSize)
+                == deleteBatchSize) {
+            return job;
+        }
+        if (deletionRepository.deleteFeatureFlagJobs(rootId, fromEnter, subtree.getExit(), deleteBatchSize)
+                == deleteBatchSize) {
+            return job;
+        }
+        if (deletionRepository.deleteAccessStats(rootId, fromEnter, subtree.getExit(), deleteBatchSize)
+                == deleteBatchSize) {
+            return job;
+        }
+        List<Long> deleted = deletionRepository.deleteOrganizations(rootId, fromEnter, subtree.getExit());
+        if (!deleted.isEmpty()) {
+            cacheInvalidator.organizationsChanged(deleted);
+            job.advancePast(deleted.get(deleted.size() - 1), deleted.size());
+        }
+        logger.debug("Organization delete job {} progress: {}/{} organizations deleted",
+                job.getId(), job.getProcessedOrganizations(), job.getTotalOrganizations());
+        return jobRepository.save(job);
+    }
+
+    /**
+     * Retry a failed job from what committed, or mark it as failed once its
+     * retries are used up
+     *
+     * @return true if the job failed for good
+     */
+    private boolean retryOrFail(Long jobId, OrganizationJob job, Exception e) {
+        // The in-memory cursor may be ahead of a rolled back chunk; continue from what committed
+        job = jobRepository.findById(jobId).orElse(job);
+
+        if (job.canRetry()) {
+            logger.info("Organization job {} failed but can be retried. Retry count: {}/{}",
+                    jobId, job.getRetryCount(), job.getMaxRetries());
+            scheduleRetry(job);
+            return false;
+        }
+        logger.error("Organization job {} exhausted all retries. Marking as permanently failed.", jobId);
+        job.markAsFailed(e.getMessage());
+        jobRepository.save(job);
+        return true;
+    }
+
+    private List<Organization> readPayload(OrganizationJob job) throws IOException {
+        return objectMapper.readValue(job.getPayload(), new TypeReference<List<Organization>>() {
+        });
+    }
+
+    /**
+     * Retry the same job with exponential backoff; the stored cursor makes the
+     * retry skip chunks that already committed
+     */
+    private void scheduleRetry(OrganizationJob failedJob) {
+        failedJob.incrementRetryCount();
+        failedJob.markAsRetrying();
+        jobRepository.save(failedJob);
+
+        // Calculate delay with exponential backoff: 2^retryCount seconds
+        long delaySeconds = (long) Math.pow(2, failedJob.getRetryCount());
+
+        logger.info("Scheduling retry for organization {} job {} in {} seconds", failedJob.getJobType(),
+                failedJob.getId(), delaySeconds);
+
+        scheduleDelayedRetry(failedJob.getId(), failedJob.getJobType(), delaySeconds);
+    }
+
+    /**
+     * Schedule a delayed retry execution
+     */
+    @Async("featureFlagTaskExecutor")
+    public void scheduleDelayedRetry(Long jobId, OrganizationJob.JobType jobType, long delaySeconds) {
+        try {
+            // Wait for the delay period
+            Thread.sleep(delaySeconds * 1000);
+
+            logger.info("Starting delayed retry for organization {} job {}", jobType, jobId);
+            process(jobId, jobType);
+
+        } catch (InterruptedException e) {
+            logger.warn("Retry scheduling interrupted for organization job {}", jobId);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.featureflags.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.model.Organization;
+import com.featureflags.model.OrganizationInterval;
+import com.featureflags.model.OrganizationJob;
+import com.featureflags.model.OrganizationMove;
+import com.featureflags.repository.FeatureFlagPropagationRepository;
+import com.featureflags.repository.OrganizationDeletionRepository;
+import com.featureflags.repository.OrganizationJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+@Service
+public class OrganizationJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrganizationJobService.class);
+
+    // A job that has not finished: the subtree cannot be moved or deleted again until it does
+    private static final Set<FeatureFlagJob.JobStatus> RUNNING = EnumSet.of(FeatureFlagJob.JobStatus.PENDING,
+            FeatureFlagJob.JobStatus.IN_PROGRESS, FeatureFlagJob.JobStatus.RETRYING);
+
+    private final OrganizationJobRepository jobRepository;
+    private final OrganizationBackgroundService backgroundService;
+    private final OrganizationService organizationService;
+    private final FeatureFlagPropagationRepository propagationRepository;
+    private final OrganizationDeletionRepository deletionRepository;
+    private final ObjectMapper objectMapper;
+    private final int asyncThreshold;
+
+    @Autowired
+    public OrganizationJobService(OrganizationJobRepository jobRepository,
+            OrganizationBackgroundService backgroundService,
+            OrganizationService organizationService,
+            FeatureFlagPropagationRepository propagationRepository,
+            OrganizationDeletionRepository deletionRepository,
+            ObjectMapper objectMapper,
+            @Value("${featureflags.organizations.import.async-threshold:1000}") int asyncThreshold) {
+        this.jobRepository = jobRepository;
+        this.backgroundService = backgroundService;
+        this.organizationService = organizationService;
+        this.propagationRepository = propagationRepository;
+        this.deletionRepository = deletionRepository;
+        this.objectMapper = objectMapper;
+        this.asyncThreshold = asyncThreshold;
+    }
+
+    /**
+     * Check if a bulk import is large enough to be processed as a background job
+     */
+    public boolean shouldImportInBackground(List<Organization> organizations) {
+        return organizations != null && organizations.size() > asyncThreshold;
+    }
+
+    /**
+     * Store the organizations on a new import job and process them in the
+     * background. Returns immediately with a job ID that can be used to track
+     * progress.
+     */
+    @Transactional
+    public Long submitImport(List<Organization> organizations) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(organizations);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Organizations could not be serialized: " + e.getMessage(), e);
+        }
+
+        OrganizationJob job = new OrganizationJob(OrganizationJob.JobType.IMPORT, organizations.size(), payload);
+        job = jobRepository.save(job);
+
+        Long jobId = job.getId();
+        logger.info("Queued organization import job {} for {} organizations", jobId, organizations.size());
+        TransactionCallbacks.afterCommit(() -> backgroundService.processOrganizationImport(jobId));
+
+        return jobId;
+    }
+
+    /**
+     * Move an organization, with its subtree, under another parent, and queue
+     * a job recomputing the flags it inherited. Only flags whose value differs
+     * between the old and the new parent are recomputed, so a move between
+     * parents with the same flags writes nothing.
+     *
+     * @return the ID of the move job, or null if no inherited flag changed
+     * @throws IllegalStateException if the subtree's previous move is still
+     *                               being recomputed
+     */
+    @Transactional
+    public Long submitMove(Long organizationId, Long parentId) {
+        Long previousParentId = organizationService.moveOrganization(organizationId, parentId);
+        if (parentId.equals(previousParentId)) {
+            return null;
+        }
+        // Checked once the move holds its tree locks, which a previous move held until its job was stored
+        if (jobRepository.existsByOrganizationIdAndJobTypeAndStatusIn(organizationId, OrganizationJob.JobType.MOVE,
+                RUNNING)) {
+            throw new IllegalStateException("Organization " + organizationId
+                    + " is still being recomputed after its previous move");
+        }
+
+        // Both parents' trees stay locked, so neither value can change until commit
+        Map<String, Boolean> previous = previousParentId != null
+                ? propagationRepository.findValues(previousParentId)
+                : Map.of();
+        Map<String, Boolean> current = propagationRepository.findValues(parentId);
+        Set<String> featureFlagNames = new HashSet<>(previous.keySet());
+        featureFlagNames.addAll(current.keySet());
+        Map<String, Boolean> changed = new TreeMap<>();
+        for (String featureFlagName : featureFlagNames) {
+            if (!Objects.equals(previous.get(featureFlagName), current.get(featureFlagName))) {
+                changed.put(featureFlagName, previous.get(featureFlagName));
+            }
+        }
+        if (changed.isEmpty()) {
+            logger.info("Moved organization {} under {}; no inherited flag changed", organizationId, parentId);
+            return null;
+        }
+
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(new OrganizationMove(parentId, previousParentId, changed));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Move could not be serialized: " + e.getMessage(), e);
+        }
+        int totalOrganizations = (int) organizationService.countDescendants(organizationId) + 1;
+        OrganizationJob job = new OrganizationJob(OrganizationJob.JobType.MOVE, totalOrganizations, payload);
+        job.setOrganizationId(organizationId);
+        job = jobRepository.save(job);
+
+        Long jobId = job.getId();
+        logger.info("Moved organization {} under {}; queued job {} recomputing {} flag(s) for {} organizations",
+                organizationId, parentId, jobId, changed.size(), totalOrganizations);
+        TransactionCallbacks.afterCommit(() -> backgroundService.processOrganizationMove(jobId));
+
+        return jobId;
+    }
+
+    /**
+     * Queue a job deleting an organization with its subtree, their flags and
+     * their hierarchy update jobs. The subtree is deleted in the background,
+     * in batches, so a large one never holds its locks in one long
+     * transaction.
+     *
+     * @return the ID of the delete job
+     * @throws IllegalArgumentException if the organization does not exist
+     * @throws IllegalStateException    if the subtree is already being deleted,
+     *                                  or jobs writing into it have not finished
+     */
+    @Transactional
+    public Long submitDeletion(Long organizationId) {
+        // Holding the tree lock, so no move or numbering changes the subtree until the job is stored
+        OrganizationInterval subtree = organizationService.lockTree(organizationId)
+                .orElseThrow(() -> new IllegalArgumentException("Organization not found: " + organizationId));
+        if (jobRepository.existsByOrganizationIdAndJobTypeAndStatusIn(organizationId,
+                OrganizationJob.JobType.DELETE, RUNNING)) {
+            throw new IllegalStateException("Organization " + organizationId + " is already being deleted");
+        }
+        long runningJobs = deletionRepository.countRunningJobs(subtree);
+        if (runningJobs > 0) {
+            throw new IllegalStateException(runningJobs + " job(s) are still writing into organization "
+                    + organizationId + "; cancel them first");
+        }
+
+        int totalOrganizations = (int) organizationService.countDescendants(organizationId) + 1;
+        OrganizationJob job = new OrganizationJob(OrganizationJob.JobType.DELETE, totalOrganizations, null);
+        job.setOrganizationId(organizationId);
+        job = jobRepository.save(job);
+
+        Long jobId = job.getId();
+        logger.info("Queued job {} deleting organization {} with {} organizations", jobId, organizationId,
+                totalOrganizations);
+        TransactionCallbacks.afterCommit(() -> backgroundService.processOrganizationDeletion(jobId));
+
+        return jobId;
+    }
+
+    /**
+     * Get the status of an organization job
+     */
+    public OrganizationJob getJobStatus(Long jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Job not found: " + jobId));
+    }
+
+    /**
+     * Manually resume a failed job from its last committed chunk
+     */
+    @Transactional
+    public Long retryFailedJob(Long jobId) {
+        OrganizationJob job = getJobStatus(jobId);
+
+        if (job.getStatus() != FeatureFlagJob.JobStatus.FAILED) {
+            throw new IllegalStateException("Can only retry failed jobs. Current status: " + job.getStatus());
+        }
+
+        job.resetForRetry();
+        job.setMaxRetries(job.getMaxRetries() + 1); // Allow one more retry for manual retries
+        jobRepository.save(job);
+
+        OrganizationJob.JobType jobType = job.getJobType();
+        logger.info("Manual retry initiated for organization job {} from position {}", jobId,
+                jobType == OrganizationJob.JobType.IMPORT ? job.getLastPosition() : job.getLastProcessedOrgId());
+        TransactionCallbacks.afterCommit(() -> backgroundService.process(jobId, jobType));
+
+        return jobId;
+    }
+}
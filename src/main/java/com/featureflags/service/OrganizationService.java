@@ -1,12 +1,21 @@
 package com.featureflags.service;
 
+import com.featureflags.config.ReplicaRouting;
+import com.featureflags.metrics.FeatureFlagMetrics;
 import com.featureflags.model.Organization;
+import com.featureflags.model.OrganizationDescendant;
+import com.featureflags.model.OrganizationInterval;
+import com.featureflags.repository.OrganizationClosureRepository;
+import com.featureflags.repository.OrganizationIntervalRepository;
 import com.featureflags.repository.OrganizationRepository;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import com.featureflags.model.OrganizationBulkResult;
@@ -19,10 +28,25 @@ public class OrganizationService {
     private static final String SUCCESS_MESSAGE = "Organizations processed successfully!";
 
     private final OrganizationRepository organizationRepository;
+    private final OrganizationClosureRepository closureRepository;
+    private final OrganizationIntervalRepository intervalRepository;
+    private final FeatureFlagMetrics metrics;
+    private final ReplicaRouting replicaRouting;
+    private final LookupCacheInvalidator cacheInvalidator;
+    private final int maxDepth;
 
     @Autowired
-    public OrganizationService(OrganizationRepository organizationRepository) {
+    public OrganizationService(OrganizationRepository organizationRepository,
+            OrganizationClosureRepository closureRepository, OrganizationIntervalRepository intervalRepository,
+            FeatureFlagMetrics metrics, ReplicaRouting replicaRouting, LookupCacheInvalidator cacheInvalidator,
+            @Value("${featureflags.organizations.max-depth:7}") int maxDepth) {
         this.organizationRepository = organizationRepository;
+        this.closureRepository = closureRepository;
+        this.intervalRepository = intervalRepository;
+        this.metrics = metrics;
+        this.replicaRouting = replicaRouting;
+        this.cacheInvalidator = cacheInvalidator;
+        this.maxDepth = maxDepth;
     }
 
     private static final String ERROR_INVALID_ORGS = "Organizations list contains invalid entries!";
@@ -33,11 +57,40 @@ public class OrganizationService {
             return new OrganizationBulkResult(OperationStatus.SUCCESS, SUCCESS_MESSAGE);
         }
 
+        String validationError = findValidationError(organizations);
+        if (validationError != null) {
+            metrics.importFinished(FeatureFlagMetrics.MODE_SYNC, FeatureFlagMetrics.OUTCOME_FAILED);
+            return new OrganizationBulkResult(OperationStatus.FAILED, validationError);
+        }
+
+        // Save all organizations
+        try {
+            List<Organization> savedOrgs = this.organizationRepository.saveAll(organizations);
+            addToHierarchy(savedOrgs);
+            cacheInvalidator.organizationsChanged(organizationIds(savedOrgs));
+            metrics.organizationsIngested(FeatureFlagMetrics.MODE_SYNC, savedOrgs.size());
+            metrics.importFinished(FeatureFlagMetrics.MODE_SYNC, FeatureFlagMetrics.OUTCOME_SUCCESS);
+            return new OrganizationBulkResult(OperationStatus.SUCCESS, SUCCESS_MESSAGE,
+                    savedOrgs.stream().map(org -> org.getId()).collect(Collectors.toList()));
+        } catch (Exception e) {
+            metrics.importFinished(FeatureFlagMetrics.MODE_SYNC, FeatureFlagMetrics.OUTCOME_FAILED);
+            return new OrganizationBulkResult(OperationStatus.FAILED,
+                    "Failed to save organizations: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Validate a batch of organizations against itself and the organizations
+     * already stored
+     *
+     * @return the failure message, or null when the batch can be saved
+     */
+    public String findValidationError(List<Organization> organizations) {
         // Validate all organizations in the list
         try {
             organizations.forEach(this::validateOrganization);
         } catch (IllegalArgumentException e) {
-            return new OrganizationBulkResult(OperationStatus.FAILED, ERROR_INVALID_ORGS);
+            return ERROR_INVALID_ORGS;
         }
 
         // Fetch existing organizations
@@ -54,28 +107,82 @@ public class OrganizationService {
         // Validate parent-child relationships
         HashMap<Long, Long> childToParentMap = new HashMap<>();
         if (!this.tryBuildChildParentMap(allOrganizations, childToParentMap)) {
-            return new OrganizationBulkResult(OperationStatus.FAILED, ERROR_MULTIPLE_PARENTS);
+            return ERROR_MULTIPLE_PARENTS;
         }
 
         // Check for cycles in the hierarchy
         if (this.isCyclic(allOrganizations)) {
-            return new OrganizationBulkResult(OperationStatus.FAILED, ERROR_CYCLE_EXISTS);
+            return ERROR_CYCLE_EXISTS;
         }
+        return null;
+    }
 
-        // Save all organizations
-        try {
-            List<Organization> savedOrgs = this.organizationRepository.saveAll(organizations);
-            return new OrganizationBulkResult(OperationStatus.SUCCESS, SUCCESS_MESSAGE,
-                    savedOrgs.stream().map(org -> org.getId()).collect(Collectors.toList()));
-        } catch (Exception e) {
-            return new OrganizationBulkResult(OperationStatus.FAILED,
-                    "Failed to save organizations: " + e.getMessage());
+    /**
+     * Order a validated batch so every organization comes after its parent when
+     * both are in the batch. The order is deterministic for a given input, which
+     * lets a chunked import resume from a stored position.
+     */
+    public List<Organization> orderParentsFirst(List<Organization> organizations) {
+        Map<Long, List<Organization>> childrenByParent = new HashMap<>();
+        Set<Long> batchIds = new HashSet<>();
+        for (Organization org : organizations) {
+            batchIds.add(org.getId());
+        }
+
+        Deque<Organization> queue = new ArrayDeque<>();
+        Set<Long> queued = new HashSet<>();
+        for (Organization org : organizations) {
+            if (org.getParentId() == null || !batchIds.contains(org.getParentId())) {
+                if (queued.add(org.getId())) {
+                    queue.add(org);
+                }
+            } else {
+                childrenByParent.computeIfAbsent(org.getParentId(), k -> new ArrayList<>()).add(org);
+            }
         }
+
+        List<Organization> ordered = new ArrayList<>(organizations.size());
+        while (!queue.isEmpty()) {
+            Organization org = queue.poll();
+            ordered.add(org);
+            for (Organization child : childrenByParent.getOrDefault(org.getId(), Collections.emptyList())) {
+                if (queued.add(child.getId())) {
+                    queue.add(child);
+                }
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Save one chunk of an already validated import
+     */
+    @Transactional
+    public List<Organization> saveOrganizations(List<Organization> organizations) {
+        List<Organization> saved = this.organizationRepository.saveAll(organizations);
+        addToHierarchy(saved);
+        cacheInvalidator.organizationsChanged(organizationIds(saved));
+        return saved;
+    }
+
+    /**
+     * Add saved organizations to the closure table, which references them, so
+     * their inserts are flushed first, then number them from their closure rows
+     */
+    private void addToHierarchy(List<Organization> organizations) {
+        this.organizationRepository.flush();
+        this.closureRepository.addOrganizations(organizations);
+        this.intervalRepository.number(orderParentsFirst(organizations));
+    }
+
+    private static List<Long> organizationIds(List<Organization> organizations) {
+        return organizations.stream().map(Organization::getId).collect(Collectors.toList());
     }
 
     private boolean tryBuildChildParentMap(List<Organization> organizations, HashMap<Long, Long> childToParentMap) {
         for (Organization org : organizations) {
-            if (childToParentMap.containsKey(org.getId()) && childToParentMap.get(org.getId()) != org.getParentId()) {
+            if (childToParentMap.containsKey(org.getId())
+                    && !Objects.equals(childToParentMap.get(org.getId()), org.getParentId())) {
                 return false;
             }
             childToParentMap.put(org.getId(), org.getParentId());
@@ -142,6 +249,8 @@ public class OrganizationService {
     }
 
     private static final String ERROR_ORG_EXISTS_AS_CHILD = "Organization already exists and is assigned as a child to another organization!";
+    private static final String ERROR_ORG_EXISTS_AS_ROOT = "Organization already exists; move it with "
+            + "PUT /organizations/%d/parent/%d, which checks the depth limit and recomputes inherited flags";
     private static final String ERROR_INVALID_ORG = "Organization cannot be null and must have a valid ID!";
     private static final String ERROR_INVALID_ID = "Organization ID cannot be null!";
 
@@ -153,14 +262,81 @@ public class OrganizationService {
         if (orgFromDb != null && orgFromDb.getParentId() != null) {
             throw new UnsupportedOperationException(ERROR_ORG_EXISTS_AS_CHILD);
         }
+        // Re-parenting an existing root goes through moveOrganization, as a move job
+        if (orgFromDb != null && org.getParentId() != null) {
+            throw new UnsupportedOperationException(String.format(ERROR_ORG_EXISTS_AS_ROOT, org.getId(),
+                    org.getParentId()));
+        }
+        if (org.getId().equals(org.getParentId())) {
+            throw new UnsupportedOperationException(ERROR_CYCLE_EXISTS);
+        }
+        this.organizationRepository.save(org);
+        this.organizationRepository.flush();
+        if (orgFromDb == null) {
+            this.closureRepository.addOrganizations(List.of(org));
+            this.intervalRepository.number(List.of(org));
+        }
+        cacheInvalidator.organizationsChanged(List.of(org.getId()));
+    }
+
+    private static final String ERROR_TOO_DEEP = "Organizations can be at most %d levels below their root!";
+
+    /**
+     * Move an organization, with its whole subtree, under another parent. The
+     * trees of both are locked until the transaction ends, so concurrent moves
+     * cannot form a cycle and propagation waits for the hierarchy to be
+     * consistent. Inherited flags are not recomputed here (see
+     * OrganizationJobService#submitMove).
+     *
+     * @return the previous parent, null if the organization was a root
+     * @throws IllegalArgumentException if either organization does not exist
+     *                                  or the subtree would be too deep
+     * @throws UnsupportedOperationException if the parent is in the subtree
+     */
+    @Transactional
+    public Long moveOrganization(Long organizationId, Long parentId) {
+        if (organizationId == null || parentId == null) {
+            throw new IllegalArgumentException(ERROR_INVALID_ID);
+        }
+        if (organizationId.equals(parentId)) {
+            throw new UnsupportedOperationException(ERROR_CYCLE_EXISTS);
+        }
+        Map<Long, OrganizationInterval> intervals = intervalRepository.findLockingTrees(
+                List.of(organizationId, parentId));
+        OrganizationInterval subtree = intervals.get(organizationId);
+        OrganizationInterval parent = intervals.get(parentId);
+        if (subtree == null || parent == null) {
+            throw new IllegalArgumentException("Organization not found: "
+                    + (subtree == null ? organizationId : parentId));
+        }
+        if (subtree.contains(parent)) {
+            throw new UnsupportedOperationException(ERROR_CYCLE_EXISTS);
+        }
+        Organization org = this.organizationRepository.findById(organizationId)
+                .orElseThrow(() -> new IllegalArgumentException("Organization not found: " + organizationId));
+        Long previousParentId = org.getParentId();
+        if (parentId.equals(previousParentId)) {
+            return previousParentId;
+        }
+        if (closureRepository.findDepth(parentId) + 1 + closureRepository.findHeight(organizationId) > maxDepth) {
+            throw new IllegalArgumentException(String.format(ERROR_TOO_DEEP, maxDepth));
+        }
+
+        org.setParentId(parentId);
         this.organizationRepository.save(org);
+        this.organizationRepository.flush();
+        this.closureRepository.move(organizationId, parentId);
+        this.intervalRepository.move(subtree, parent);
+        cacheInvalidator.organizationsChanged(List.of(organizationId));
+        return previousParentId;
     }
 
     public Organization getOrganization(Long id) {
         if (id == null) {
             throw new IllegalArgumentException(ERROR_INVALID_ID);
         }
-        return this.organizationRepository.findById(id).orElse(null);
+        // Served by a replica when enabled; an organization created moments ago is re-read from the primary
+        return replicaRouting.findWithPrimaryFallback(() -> this.organizationRepository.findById(id)).orElse(null);
     }
 
     private void validateOrganization(Organization org) {
@@ -171,21 +347,109 @@ public class OrganizationService {
 
     /**
      * Get all descendant organizations (children, grandchildren, etc.) of a given
-     * organization
+     * organization, in ascending id order
      * This is used for hierarchical feature flag propagation
      */
     public List<Long> getAllDescendantIds(Long organizationId) {
-        List<Long> allDescendants = new ArrayList<>();
-        collectDescendants(organizationId, allDescendants);
+        Timer.Sample sample = metrics.startTimer();
+        List<Long> allDescendants = closureRepository.findDescendantIds(organizationId);
+        metrics.recordDescendantLookup(sample);
         return allDescendants;
     }
 
-    private void collectDescendants(Long parentId, List<Long> descendants) {
-        List<Organization> directChildren = organizationRepository.findByParentId(parentId);
-        for (Organization child : directChildren) {
-            descendants.add(child.getId());
-            // Recursively collect descendants of this child
-            collectDescendants(child.getId(), descendants);
+    /**
+     * Where an export of an organization's descendants starts: after the
+     * descendant a cursor points at, or at the top of the subtree without one
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public OrganizationDescendant findDescendantsStart(Long organizationId, String cursor) {
+        if (cursor == null) {
+            return new OrganizationDescendant(organizationId, null, null, 0);
+        }
+        int separator = cursor.indexOf(OrganizationDescendant.CURSOR_SEPARATOR);
+        int depth;
+        Long id;
+        try {
+            depth = Integer.parseInt(cursor.substring(0, separator));
+            id = Long.valueOf(cursor.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
         }
+        if (depth < 1) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return new OrganizationDescendant(id, null, null, depth);
+    }
+
+    /**
+     * Pass the descendants of an organization to the consumer, by depth then
+     * id, after the given one and at most depthLimit levels below it. They are
+     * streamed from the hierarchy index within one read-only transaction, so
+     * memory stays constant however large the subtree is.
+     *
+     * @return the number of descendants passed
+     */
+    @Transactional(readOnly = true)
+    public long forEachDescendant(Long organizationId, OrganizationDescendant after, int depthLimit,
+            Consumer<OrganizationDescendant> consumer) {
+        return closureRepository.forEachDescendant(organizationId, after.getDepth(), after.getId(), depthLimit,
+                consumer);
+    }
+
+    public long countDescendants(Long organizationId) {
+        return closureRepository.countDescendants(organizationId);
+    }
+
+    public boolean hasDescendants(Long organizationId) {
+        return closureRepository.hasDescendants(organizationId);
+    }
+
+    /**
+     * Get the ancestors of an organization, its parent first
+     */
+    public List<Long> getAncestorIds(Long organizationId) {
+        return closureRepository.findAncestorIds(organizationId);
+    }
+
+    /**
+     * Whether an organization is in the subtree of another, compared by their
+     * intervals
+     */
+    public boolean isDescendant(Long organizationId, Long ancestorId) {
+        Optional<OrganizationInterval> ancestor = intervalRepository.find(ancestorId);
+        Optional<OrganizationInterval> organization = intervalRepository.find(organizationId);
+        return ancestor.isPresent() && organization.isPresent() && ancestor.get().contains(organization.get());
+    }
+
+    public Optional<OrganizationInterval> findInterval(Long organizationId) {
+        return intervalRepository.find(organizationId);
+    }
+
+    /**
+     * Get an organization's interval, keeping its tree from being renumbered
+     * until the transaction ends, so ranges read from it stay valid for writes
+     */
+    public OrganizationInterval lockSubtree(Long organizationId) {
+        return intervalRepository.findLockingTree(organizationId)
+                .orElseThrow(() -> new IllegalArgumentException("Organization not found: " + organizationId));
+    }
+
+    /**
+     * Get an organization's interval, keeping its tree from being numbered,
+     * moved into or written by propagation until the transaction ends
+     *
+     * @return empty if the organization does not exist
+     */
+    public Optional<OrganizationInterval> lockTree(Long organizationId) {
+        return Optional.ofNullable(intervalRepository.findLockingTrees(List.of(organizationId)).get(organizationId));
+    }
+
+    /**
+     * Get the next organizations of a subtree in pre-order, after the one
+     * numbered afterEnter
+     */
+    public List<OrganizationInterval> findSubtreeChunk(OrganizationInterval subtree, long afterEnter, int limit) {
+        return intervalRepository.findChunk(subtree, afterEnter, limit);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,54 @@
+-- Range-partition feature_flag_jobs by created_at, one partition per calendar
+-- month (feature_flag_jobs_pYYYY_MM), so expired history is archived and
+-- dropped a partition at a time (FeatureFlagJobPartitionMaintainer) instead
+-- of deleted row by row.
+--
+-- Postgres requires the partition key in every unique constraint and in any
+-- key a foreign key references, so:
+--   * the primary key becomes (id, created_at); ids still come from the one sequence
+--   * Idempotency-Key uniqueness is enforced by the application, which
+--     serializes submissions of a key with an advisory lock
+--   * the parent_job_id foreign key is dropped; a retry chain whose original
+--     job has expired starts at its oldest remaining job
+ALTER TABLE feature_flag_jobs RENAME TO feature_flag_jobs_unpartitioned;
+ALTER SEQUENCE feature_flag_jobs_id_seq OWNED BY NONE;
+
+CREATE TABLE feature_flag_jobs (LIKE feature_flag_jobs_unpartitioned INCLUDING DEFAULTS)
+    PARTITION BY RANGE (created_at);
+
+-- Partitions from the oldest job's month to two months ahead; later months
+-- are created by the maintainer
+DO $$
+DECLARE
+    partition_start DATE := date_trunc('month',
+            LEAST((SELECT min(created_at) FROM feature_flag_jobs_unpartitioned), LOCALTIMESTAMP));
+BEGIN
+    WHILE partition_start <= date_trunc('month', LOCALTIMESTAMP) + INTERVAL '2 months' LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF feature_flag_jobs FOR VALUES FROM (%L) TO (%L)',
+                'feature_flag_jobs_p' || to_char(partition_start, 'YYYY_MM'),
+                partition_start, (partition_start + INTERVAL '1 month')::date);
+        partition_start := partition_start + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO feature_flag_jobs SELECT * FROM feature_flag_jobs_unpartitioned;
+
+DROP TABLE feature_flag_jobs_unpartitioned;
+ALTER SEQUENCE feature_flag_jobs_id_seq OWNED BY feature_flag_jobs.id;
+
+ALTER TABLE feature_flag_jobs ADD CONSTRAINT feature_flag_jobs_pkey PRIMARY KEY (id, created_at);
+ALTER TABLE feature_flag_jobs ADD CONSTRAINT fk_feature_flag_jobs_organization
+    FOREIGN KEY (organization_id) REFERENCES organizations(id);
+
+-- Indexes of the unpartitioned table, created on every partition
+CREATE INDEX idx_feature_flag_jobs_org_created_at_id
+    ON feature_flag_jobs(organization_id, created_at DESC, id DESC);
+CREATE INDEX idx_feature_flag_jobs_status ON feature_flag_jobs(status);
+CREATE INDEX idx_feature_flag_jobs_created_at ON feature_flag_jobs(created_at);
+CREATE INDEX idx_feature_flag_jobs_parent_job_id ON feature_flag_jobs(parent_job_id);
+CREATE INDEX idx_feature_flag_jobs_status_completed_at ON feature_flag_jobs(status, completed_at);
+CREATE INDEX idx_feature_flag_jobs_idempotency_key
+    ON feature_flag_jobs(idempotency_key) WHERE idempotency_key IS NOT NULL;
+CREATE INDEX idx_feature_flag_jobs_org_flag_requested_at
+    ON feature_flag_jobs(organization_id, feature_flag_name, requested_at);
+CREATE INDEX idx_feature_flag_jobs_status_updated_at ON feature_flag_jobs(status, updated_at);
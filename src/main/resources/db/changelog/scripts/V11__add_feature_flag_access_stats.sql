@@ -0,0 +1,15 @@
+-- Sampled lookup counts per organization and flag, flushed periodically by
+-- every node; the warm-up preloads the most read entries into the lookup cache.
+-- No foreign keys: a flag that was never set is looked up (and cached) too.
+CREATE TABLE feature_flag_access_stats (
+    organization_id BIGINT NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    reads BIGINT NOT NULL,
+    last_read_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (organization_id, name)
+);
+
+CREATE INDEX idx_feature_flag_access_stats_reads ON feature_flag_access_stats(reads DESC);
+
+-- Hierarchy walks read the children of one organization at a time
+CREATE INDEX idx_organizations_parent_id ON organizations(parent_id);
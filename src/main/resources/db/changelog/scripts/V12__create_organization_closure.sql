@@ -0,0 +1,24 @@
+-- Every (ancestor, descendant) pair of the hierarchy, each organization also
+-- being its own ancestor at depth 0, so a subtree or the ancestors of an
+-- organization are one index range. With hierarchies at most 7 levels deep
+-- an organization has at most 8 rows.
+CREATE TABLE organization_closure (
+    ancestor_id BIGINT NOT NULL REFERENCES organizations(id),
+    descendant_id BIGINT NOT NULL REFERENCES organizations(id),
+    depth SMALLINT NOT NULL,
+    -- Subtrees are read and counted from the index alone, in descendant order
+    PRIMARY KEY (ancestor_id, descendant_id) INCLUDE (depth)
+);
+
+-- Ancestors of an organization, nearest first
+CREATE INDEX idx_organization_closure_descendant ON organization_closure(descendant_id, depth) INCLUDE (ancestor_id);
+
+INSERT INTO organization_closure (ancestor_id, descendant_id, depth)
+WITH RECURSIVE closure AS (
+    SELECT id AS ancestor_id, id AS descendant_id, 0 AS depth FROM organizations
+    UNION ALL
+    SELECT c.ancestor_id, o.id, c.depth + 1
+    FROM closure c
+    JOIN organizations o ON o.parent_id = c.descendant_id
+)
+SELECT ancestor_id, descendant_id, depth FROM closure;
@@ -0,0 +1,56 @@
+-- Pre-order interval numbering of each organization tree, so a subtree is one
+-- range of an index: within the tree of root tree_root_id an organization is
+-- numbered tree_enter, and its descendants are the organizations numbered in
+-- (tree_enter, tree_exit]. Intervals are sized by subtree, leaving about half
+-- of each one free, so a new organization takes a gap of its parent's interval
+-- instead of renumbering the tree (OrganizationIntervalRepository). Nullable:
+-- a new organization is numbered after its insert, in the same transaction.
+ALTER TABLE organizations ADD COLUMN tree_root_id BIGINT;
+ALTER TABLE organizations ADD COLUMN tree_enter BIGINT;
+ALTER TABLE organizations ADD COLUMN tree_exit BIGINT;
+
+-- Roots span the whole range; each level is placed inside its parents'
+-- intervals, siblings in id order, one level at a time
+DO $$
+DECLARE
+    tree_depth INT;
+BEGIN
+    UPDATE organizations SET tree_root_id = id, tree_enter = 0, tree_exit = 4611686018427387903
+    WHERE parent_id IS NULL;
+
+    FOR tree_depth IN 1 .. (SELECT COALESCE(max(depth), 0) FROM organization_closure) LOOP
+        WITH width AS (
+            SELECT c.ancestor_id AS root_id, o.id, o.parent_id,
+                   (1024 * sum(2::BIGINT << LEAST(s.depth, 16)))::BIGINT AS width
+            FROM organization_closure c
+            JOIN organizations r ON r.id = c.ancestor_id AND r.parent_id IS NULL
+            JOIN organizations o ON o.id = c.descendant_id
+            JOIN organization_closure s ON s.ancestor_id = o.id
+            WHERE c.depth = tree_depth
+            GROUP BY c.ancestor_id, o.id, o.parent_id
+        ), placed AS (
+            SELECT w.root_id, w.id, w.width,
+                   p.tree_enter + 1 + COALESCE(sum(w.width) OVER (PARTITION BY w.parent_id ORDER BY w.id
+                           ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING), 0)::BIGINT AS enter
+            FROM width w
+            JOIN organizations p ON p.id = w.parent_id
+        )
+        UPDATE organizations o
+        SET tree_root_id = placed.root_id, tree_enter = placed.enter, tree_exit = placed.enter + placed.width - 1
+        FROM placed
+        WHERE o.id = placed.id;
+    END LOOP;
+END $$;
+
+-- A subtree in pre-order, read from the index alone
+CREATE INDEX idx_organizations_tree ON organizations(tree_root_id, tree_enter) INCLUDE (id, tree_exit);
+
+-- The children of one organization, and where the last one's interval ends
+-- when placing a new child
+DROP INDEX idx_organizations_parent_id;
+CREATE INDEX idx_organizations_parent_id_tree_exit ON organizations(parent_id, tree_exit);
+
+-- feature_flags.id never had a default, so a row could only be inserted with
+-- an explicit id; propagation inserts missing rows with INSERT ... SELECT
+ALTER TABLE feature_flags ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY;
+SELECT setval(pg_get_serial_sequence('feature_flags', 'id'), COALESCE(max(id), 0) + 1, false) FROM feature_flags;
@@ -0,0 +1,70 @@
+-- Hash-partition feature_flags on organization_id, so each partition's heap
+-- and indexes stay small enough to vacuum and cache, and a lookup or an
+-- organization's flags are read from one partition. The partition count is
+-- the featureFlagPartitions changelog parameter (spring.liquibase.parameters).
+--
+-- The table is converted online: this script only creates the partitioned
+-- table (feature_flags_partitioned) and a trigger that mirrors every write to
+-- feature_flags into it. FeatureFlagPartitionBackfill then copies the existing
+-- rows in batches and, once they are all copied, swaps the two tables in one
+-- short transaction. Until then the application keeps using feature_flags.
+--
+-- Postgres requires the partition key in every unique constraint, so the
+-- primary key becomes (id, organization_id) and organization_id is NOT NULL;
+-- rows without an organization are not copied. Postgres 14 has no identity
+-- columns on partitioned tables, so ids come from a sequence, set past the
+-- old table's ids at the swap.
+CREATE SEQUENCE feature_flags_partitioned_id_seq;
+
+CREATE TABLE feature_flags_partitioned (
+    id BIGINT NOT NULL DEFAULT nextval('feature_flags_partitioned_id_seq'),
+    name VARCHAR(255) NOT NULL,
+    description TEXT,
+    enabled BOOLEAN DEFAULT false,
+    organization_id BIGINT NOT NULL REFERENCES organizations(id),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, organization_id)
+) PARTITION BY HASH (organization_id);
+
+ALTER SEQUENCE feature_flags_partitioned_id_seq OWNED BY feature_flags_partitioned.id;
+
+DO $$
+BEGIN
+    FOR remainder IN 0 .. ${featureFlagPartitions} - 1 LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF feature_flags_partitioned ' ||
+                'FOR VALUES WITH (MODULUS %s, REMAINDER %s)',
+                'feature_flags_p' || remainder, ${featureFlagPartitions}, remainder);
+    END LOOP;
+END $$;
+
+-- The lookup index, created on every partition
+CREATE UNIQUE INDEX uq_feature_flags_partitioned_organization_id_name
+    ON feature_flags_partitioned (organization_id, name) INCLUDE (enabled);
+
+CREATE FUNCTION feature_flags_mirror() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        DELETE FROM feature_flags_partitioned WHERE id = OLD.id AND organization_id = OLD.organization_id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.organization_id IS NOT NULL THEN
+        INSERT INTO feature_flags_partitioned (id, name, description, enabled, organization_id, created_at, updated_at)
+        VALUES (NEW.id, NEW.name, NEW.description, NEW.enabled, NEW.organization_id, NEW.created_at, NEW.updated_at)
+        ON CONFLICT (organization_id, name) DO UPDATE
+        SET id = EXCLUDED.id, description = EXCLUDED.description, enabled = EXCLUDED.enabled,
+            created_at = EXCLUDED.created_at, updated_at = EXCLUDED.updated_at;
+    END IF;
+    RETURN NULL;
+END $$ LANGUAGE plpgsql;
+
+CREATE TRIGGER feature_flags_mirror AFTER INSERT OR UPDATE OR DELETE ON feature_flags
+    FOR EACH ROW EXECUTE FUNCTION feature_flags_mirror();
+
+-- Backfill progress: rows of feature_flags up to last_id have been copied
+CREATE TABLE feature_flags_partition_backfill (
+    last_id BIGINT NOT NULL,
+    started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+INSERT INTO feature_flags_partition_backfill (last_id) SELECT COALESCE(min(id), 1) - 1 FROM feature_flags;
@@ -0,0 +1,6 @@
+-- Durable cursor of move jobs, which recompute the inherited flags of a moved
+-- subtree: the last organization recomputed, in pre-order
+ALTER TABLE organization_jobs ADD COLUMN last_processed_org_id BIGINT;
+
+-- Finding a move still running for an organization
+CREATE INDEX idx_organization_jobs_organization_id ON organization_jobs(organization_id, job_type, status);
@@ -0,0 +1,6 @@
+-- Descendants of an organization by depth then id, so a subtree is streamed
+-- level by level from one index range without sorting, and an export resumes
+-- from its last (depth, id) without reading what it has already returned.
+-- Built without blocking hierarchy writes.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_organization_closure_ancestor_depth
+    ON organization_closure(ancestor_id, depth, descendant_id);
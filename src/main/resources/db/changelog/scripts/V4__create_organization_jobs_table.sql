@@ -0,0 +1,20 @@
+-- Create organization jobs table for tracking background organization imports
+CREATE TABLE organization_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    job_type VARCHAR(50) NOT NULL,
+    organization_id BIGINT,
+    status VARCHAR(50) NOT NULL DEFAULT 'PENDING',
+    total_organizations INTEGER,
+    processed_organizations INTEGER DEFAULT 0,
+    last_position INTEGER DEFAULT 0,
+    payload TEXT,
+    error_message TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP,
+    retry_count INTEGER DEFAULT 0,
+    max_retries INTEGER DEFAULT 3
+);
+
+CREATE INDEX idx_organization_jobs_status ON organization_jobs(status);
+CREATE INDEX idx_organization_jobs_created_at ON organization_jobs(created_at);
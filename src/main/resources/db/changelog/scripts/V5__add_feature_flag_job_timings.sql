@@ -0,0 +1,12 @@
+-- Per-phase timing and throughput for hierarchy update jobs
+ALTER TABLE feature_flag_jobs
+    ADD COLUMN started_at TIMESTAMP,
+    ADD COLUMN discovery_millis BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN write_millis BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN checkpoint_millis BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN rows_written INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN rows_skipped INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN orgs_per_second DOUBLE PRECISION;
+
+-- Aggregates filter on finished jobs by completion time
+CREATE INDEX idx_feature_flag_jobs_status_completed_at ON feature_flag_jobs(status, completed_at);
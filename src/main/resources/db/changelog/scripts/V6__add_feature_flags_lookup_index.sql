@@ -0,0 +1,12 @@
+-- Keep only the most recently updated row for each organization and flag
+DELETE FROM feature_flags f
+USING feature_flags newer
+WHERE f.organization_id = newer.organization_id
+  AND f.name = newer.name
+  AND (COALESCE(f.updated_at, '-infinity'::timestamp), f.id)
+    < (COALESCE(newer.updated_at, '-infinity'::timestamp), newer.id);
+
+-- One row per organization and flag; carrying enabled in the index lets
+-- lookups be answered by an index-only scan
+CREATE UNIQUE INDEX uq_feature_flags_organization_id_name
+    ON feature_flags (organization_id, name) INCLUDE (enabled);
@@ -0,0 +1,17 @@
+-- Coalescing and idempotent submission of hierarchy update jobs
+ALTER TABLE feature_flag_jobs
+    ADD COLUMN requested_at TIMESTAMP,
+    ADD COLUMN superseded_by_job_id BIGINT,
+    ADD COLUMN idempotency_key VARCHAR(255);
+
+UPDATE feature_flag_jobs SET requested_at = created_at;
+
+ALTER TABLE feature_flag_jobs ALTER COLUMN requested_at SET NOT NULL;
+
+-- One job per client-supplied key
+CREATE UNIQUE INDEX uq_feature_flag_jobs_idempotency_key
+    ON feature_flag_jobs(idempotency_key) WHERE idempotency_key IS NOT NULL;
+
+-- Newer-request checks and pending-job coalescing for an organization and flag
+CREATE INDEX idx_feature_flag_jobs_org_flag_requested_at
+    ON feature_flag_jobs(organization_id, feature_flag_name, requested_at);
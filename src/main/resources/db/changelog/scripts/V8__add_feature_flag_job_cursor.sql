@@ -0,0 +1,6 @@
+-- Durable cursor of hierarchy update jobs: the last organization written, in
+-- write order (the root, then descendants by ascending id)
+ALTER TABLE feature_flag_jobs ADD COLUMN last_processed_org_id BIGINT;
+
+-- Finding jobs left running by a worker that died
+CREATE INDEX idx_feature_flag_jobs_status_updated_at ON feature_flag_jobs(status, updated_at);
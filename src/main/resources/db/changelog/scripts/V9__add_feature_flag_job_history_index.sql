@@ -0,0 +1,5 @@
+-- Job history of an organization is read newest first, a page at a time,
+-- continuing after the (created_at, id) of the last job shown; this index
+-- serves that order directly and makes the organization_id one redundant
+CREATE INDEX idx_feature_flag_jobs_org_created_at_id ON feature_flag_jobs(organization_id, created_at DESC, id DESC);
+DROP INDEX idx_feature_flag_jobs_organization_id;
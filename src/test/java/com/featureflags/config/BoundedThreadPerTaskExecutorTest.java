@@ -0,0 +1,159 @@
+package com.featureflags.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedThreadPerTaskExecutorTest {
+
+    // Platform threads stand in for virtual threads; the limit logic is the same
+    private final BoundedThreadPerTaskExecutor executor =
+            new BoundedThreadPerTaskExecutor(Executors.defaultThreadFactory(), 2, 1, 5);
+
+    @Test
+    void execute_LimitReached_QueuesWithoutBlockingCaller() throws Exception {
+        // Given - both slots taken
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                awaitQuietly(release);
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(2, executor.getActiveCount());
+
+        // When - a third submission returns at once and waits in the queue
+        AtomicBoolean thirdRan = new AtomicBoolean();
+        executor.execute(() -> thirdRan.set(true));
+        assertEquals(1, executor.getWaitingCount());
+        assertFalse(thirdRan.get());
+
+        // Then - it runs once a slot frees up
+        release.countDown();
+        waitUntil(thirdRan::get);
+        waitUntil(() -> executor.getActiveCount() == 0);
+        assertEquals(0, executor.getWaitingCount());
+    }
+
+    @Test
+    void execute_QueueFull_RejectsTask() throws Exception {
+        // Given - both slots taken and the one queue place used
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                awaitQuietly(release);
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> {
+        });
+
+        // When & Then
+        assertThrows(TaskRejectedException.class, () -> executor.execute(() -> {
+        }));
+        release.countDown();
+        waitUntil(() -> executor.getActiveCount() == 0);
+    }
+
+    @Test
+    void execute_QueuedTaskAfterFailingTask_StillRuns() throws Exception {
+        // Given
+        BoundedThreadPerTaskExecutor single = new BoundedThreadPerTaskExecutor(Executors.defaultThreadFactory(),
+                1, 1, 5);
+        CountDownLatch release = new CountDownLatch(1);
+        single.execute(() -> {
+            awaitQuietly(release);
+            throw new IllegalStateException("Job failed");
+        });
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        single.execute(() -> queuedRan.set(true));
+
+        // When
+        release.countDown();
+
+        // Then
+        waitUntil(queuedRan::get);
+        waitUntil(() -> single.getActiveCount() == 0);
+    }
+
+    @Test
+    void submit_ReturnsResultOfCallable() throws Exception {
+        Future<String> future = executor.submit(() -> "done");
+
+        assertEquals("done", future.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void execute_WithTaskDecorator_RunsDecoratedTask() throws Exception {
+        // Given
+        executor.setTaskDecorator(Workload.BACKGROUND.taskDecorator());
+
+        // When
+        Future<Workload> workload = executor.submit(Workload::current);
+
+        // Then
+        assertEquals(Workload.BACKGROUND, workload.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void execute_ThreadFactoryFails_ReleasesSlot() {
+        // Given
+        BoundedThreadPerTaskExecutor failing = new BoundedThreadPerTaskExecutor(task -> null, 1, 1, 5);
+
+        // When & Then
+        assertThrows(TaskRejectedException.class, () -> failing.execute(() -> {
+        }));
+        assertEquals(0, failing.getActiveCount());
+    }
+
+    @Test
+    void destroy_WaitsForRunningTasks() throws Exception {
+        // Given
+        AtomicBoolean finished = new AtomicBoolean();
+        executor.execute(() -> {
+            sleepQuietly(200);
+            finished.set(true);
+        });
+
+        // When
+        executor.destroy();
+
+        // Then
+        assertTrue(finished.get());
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
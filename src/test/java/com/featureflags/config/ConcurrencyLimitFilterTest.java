@@ -0,0 +1,83 @@
+package com.featureflags.config;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ConcurrencyLimitFilter filter =
+            new ConcurrencyLimitFilter(1, Duration.ofMillis(50), new FeatureFlagMetrics(registry));
+
+    @Test
+    void doFilter_UnderLimit_PassesRequestThrough() throws Exception {
+        // Given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(new MockHttpServletRequest("GET", "/1/FeatureFlag1"), response, chain);
+
+        // Then
+        assertNotNull(chain.getRequest());
+        assertEquals(200, response.getStatus());
+        assertEquals(1, filter.getAvailablePermits());
+    }
+
+    @Test
+    void doFilter_LimitReached_RejectsWithServiceUnavailable() throws Exception {
+        // Given - one request holds the only permit
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain blockingChain = (request, response) -> {
+            inside.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        Thread holder = new Thread(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/1/FeatureFlag1"),
+                        new MockHttpServletResponse(), blockingChain);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        holder.start();
+        assertTrue(inside.await(5, TimeUnit.SECONDS));
+
+        // When
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET", "/1/FeatureFlag1"), rejected, chain);
+
+        // Then
+        assertNull(chain.getRequest());
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals(1.0, registry.get("featureflags.requests.rejected").counter().count());
+
+        // Actuator requests are never limited
+        MockHttpServletResponse probe = new MockHttpServletResponse();
+        MockFilterChain probeChain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), probe, probeChain);
+        assertNotNull(probeChain.getRequest());
+
+        release.countDown();
+        holder.join(5000);
+        assertEquals(1, filter.getAvailablePermits());
+    }
+}
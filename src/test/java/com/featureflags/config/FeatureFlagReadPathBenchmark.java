@@ -0,0 +1,88 @@
+package com.featureflags.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.featureflags.model.FeatureFlag;
+import com.featureflags.model.FeatureFlagValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response construction and serialization cost of a flag lookup, old path
+ * (JPA entity through Jackson) against the new one (FeatureFlagValue through
+ * the pre-encoded converter). Compare gc.alloc.rate.norm for bytes per
+ * lookup. The database round trip is covered by the endpoint benchmark in
+ * src/ittest.
+ *
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Djmh.include=ReadPath
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeatureFlagReadPathBenchmark {
+
+    private static final String FLAG_NAME = "FeatureFlag1";
+
+    private final OutputStream sink = OutputStream.nullOutputStream();
+    private ObjectMapper objectMapper;
+    private FeatureFlagValueMessageConverter converter;
+    private long organizationId;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        converter = new FeatureFlagValueMessageConverter();
+        organizationId = 100_000;
+    }
+
+    private Long nextOrganizationId() {
+        // Varies the ID per call and keeps it outside the Long cache like real IDs
+        organizationId = organizationId == 200_000 ? 100_000 : organizationId + 1;
+        return organizationId;
+    }
+
+    @Benchmark
+    public void entityWithJackson() throws IOException {
+        Long orgId = nextOrganizationId();
+        objectMapper.writeValue(sink, new FeatureFlag(FLAG_NAME, null, (orgId & 1) == 0, orgId));
+    }
+
+    @Benchmark
+    public void valueWithJackson() throws IOException {
+        Long orgId = nextOrganizationId();
+        objectMapper.writeValue(sink, new FeatureFlagValue(FLAG_NAME, (orgId & 1) == 0, orgId));
+    }
+
+    @Benchmark
+    public void valueWithConverter() throws IOException {
+        Long orgId = nextOrganizationId();
+        converter.writeTo(new FeatureFlagValue(FLAG_NAME, (orgId & 1) == 0, orgId), sink);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FeatureFlagReadPathBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,65 @@
+package com.featureflags.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.featureflags.model.FeatureFlagValue;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeatureFlagValueMessageConverterTest {
+
+    private final FeatureFlagValueMessageConverter converter = new FeatureFlagValueMessageConverter();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void write_MatchesJacksonOutput() throws Exception {
+        FeatureFlagValue[] values = {
+                new FeatureFlagValue("FeatureFlag1", true, 1L),
+                new FeatureFlagValue("FeatureFlag1", false, 1L),
+                new FeatureFlagValue("FeatureFlag2", true, 0L),
+                new FeatureFlagValue("FeatureFlag3", false, 9_876_543_210L),
+                new FeatureFlagValue("FeatureFlag4", true, -42L),
+                new FeatureFlagValue("FeatureFlag5", true, Long.MAX_VALUE),
+                new FeatureFlagValue("FeatureFlag5", false, Long.MIN_VALUE),
+                new FeatureFlagValue("quote\"and\\slash", true, null),
+                new FeatureFlagValue("naïve-flag", false, 7L)
+        };
+
+        for (FeatureFlagValue value : values) {
+            // When
+            MockHttpOutputMessage message = new MockHttpOutputMessage();
+            converter.write(value, MediaType.APPLICATION_JSON, message);
+
+            // Then
+            byte[] expected = objectMapper.writeValueAsBytes(value);
+            assertEquals(new String(expected, StandardCharsets.UTF_8),
+                    message.getBodyAsString(StandardCharsets.UTF_8));
+            assertEquals(expected.length, message.getHeaders().getContentLength());
+        }
+    }
+
+    @Test
+    void supports_OnlyWritesFeatureFlagValue() {
+        assertTrue(converter.canWrite(FeatureFlagValue.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canRead(FeatureFlagValue.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(String.class, MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void writeDecimal_WritesDigitsOfValue() throws Exception {
+        long[] numbers = { 0, 7, 10, 99, 100, 123_456_789, -1, -10, Long.MAX_VALUE, Long.MIN_VALUE };
+
+        for (long number : numbers) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            FeatureFlagValueMessageConverter.writeDecimal(number, out);
+
+            assertEquals(Long.toString(number), out.toString(StandardCharsets.US_ASCII));
+            assertEquals(Long.toString(number).length(), FeatureFlagValueMessageConverter.decimalLength(number));
+        }
+    }
+}
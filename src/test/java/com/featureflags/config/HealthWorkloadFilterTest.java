@@ -0,0 +1,33 @@
+package com.featureflags.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HealthWorkloadFilterTest {
+
+    private final HealthWorkloadFilter filter = new HealthWorkloadFilter();
+
+    @Test
+    void doFilter_HealthEndpoint_RunsAsHealthWorkload() throws Exception {
+        assertEquals(Workload.HEALTH, workloadDuring("/actuator/health/readiness"));
+        assertEquals(Workload.INTERACTIVE, Workload.current());
+    }
+
+    @Test
+    void doFilter_OtherRequests_StayInteractive() throws Exception {
+        assertEquals(Workload.INTERACTIVE, workloadDuring("/1/FeatureFlag1"));
+        assertEquals(Workload.INTERACTIVE, workloadDuring("/actuator/prometheus"));
+    }
+
+    private Workload workloadDuring(String uri) throws Exception {
+        AtomicReference<Workload> seen = new AtomicReference<>();
+        filter.doFilter(new MockHttpServletRequest("GET", uri), new MockHttpServletResponse(),
+                (request, response) -> seen.set(Workload.current()));
+        return seen.get();
+    }
+}
@@ -0,0 +1,87 @@
+package com.featureflags.config;
+
+import com.featureflags.health.WarmUpHealthIndicator;
+import com.featureflags.metrics.FeatureFlagMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LookupIndexPrewarmerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final WarmUpHealthIndicator warmUp = new WarmUpHealthIndicator(
+            new FeatureFlagMetrics(new SimpleMeterRegistry()));
+
+    @Test
+    void prewarm_ExtensionInstalled_PrewarmsIndexesThenReady() {
+        // Given
+        when(jdbcTemplate.queryForObject(contains("pg_extension"), eq(Boolean.class))).thenReturn(true);
+        when(jdbcTemplate.queryForObject(contains("pg_prewarm("), eq(Long.class), anyString())).thenReturn(128L);
+        LookupIndexPrewarmer prewarmer = new LookupIndexPrewarmer(jdbcTemplate, warmUp, true);
+        assertEquals(Status.OUT_OF_SERVICE, warmUp.health().getStatus());
+
+        // When
+        prewarmer.prewarm();
+
+        // Then
+        for (String relation : LookupIndexPrewarmer.RELATIONS) {
+            verify(jdbcTemplate).queryForObject(contains("pg_prewarm("), eq(Long.class), eq(relation));
+        }
+        assertEquals(Status.UP, warmUp.health().getStatus());
+        assertEquals("done", warmUp.health().getDetails().get(LookupIndexPrewarmer.TASK));
+    }
+
+    @Test
+    void prewarm_ExtensionMissing_SkipsAndReady() {
+        // Given
+        when(jdbcTemplate.queryForObject(contains("pg_extension"), eq(Boolean.class))).thenReturn(false);
+        LookupIndexPrewarmer prewarmer = new LookupIndexPrewarmer(jdbcTemplate, warmUp, true);
+
+        // When
+        prewarmer.prewarm();
+
+        // Then
+        verify(jdbcTemplate, never()).queryForObject(contains("pg_prewarm("), eq(Long.class), any());
+        assertEquals(Status.UP, warmUp.health().getStatus());
+    }
+
+    @Test
+    void prewarm_DatabaseUnavailable_ReadyButMarkedFailed() {
+        // Given
+        when(jdbcTemplate.queryForObject(contains("pg_extension"), eq(Boolean.class)))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+        LookupIndexPrewarmer prewarmer = new LookupIndexPrewarmer(jdbcTemplate, warmUp, true);
+
+        // When
+        prewarmer.prewarm();
+
+        // Then
+        assertEquals(Status.UP, warmUp.health().getStatus());
+        assertEquals("failed", warmUp.health().getDetails().get(LookupIndexPrewarmer.TASK));
+    }
+
+    @Test
+    void prewarm_Disabled_DoesNothing() {
+        // Given
+        LookupIndexPrewarmer prewarmer = new LookupIndexPrewarmer(jdbcTemplate, warmUp, false);
+
+        // When
+        prewarmer.prewarm();
+
+        // Then
+        verifyNoInteractions(jdbcTemplate);
+        assertTrue(warmUp.health().getDetails().isEmpty());
+    }
+}
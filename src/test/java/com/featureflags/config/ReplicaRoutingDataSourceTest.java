@@ -0,0 +1,141 @@
+package com.featureflags.config;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FeatureFlagMetrics metrics = new FeatureFlagMetrics(meterRegistry);
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica1 = mock(DataSource.class);
+    private final DataSource replica2 = mock(DataSource.class);
+
+    private final ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary,
+            Arrays.asList(replica1, replica2), Duration.ofSeconds(2));
+
+    @BeforeEach
+    void setUp() {
+        routing.setMetrics(metrics);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void determineCurrentLookupKey_WriteTransaction_UsesPrimary() {
+        // Given
+        routing.recordLag(0, 0);
+        routing.recordLag(1, 0);
+
+        // When & Then
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    void determineCurrentLookupKey_ReadOnly_AlternatesBetweenReplicas() {
+        // Given
+        routing.recordLag(0, 0);
+        routing.recordLag(1, 100);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // When
+        Set<Object> keys = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            keys.add(routing.determineCurrentLookupKey());
+        }
+
+        // Then
+        assertEquals(new HashSet<>(Arrays.asList(0, 1)), keys);
+    }
+
+    @Test
+    void determineCurrentLookupKey_ReplicaBehindLimit_IsSkipped() {
+        // Given
+        routing.recordLag(0, 5000);
+        routing.recordLag(1, 10);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // When & Then
+        for (int i = 0; i < 4; i++) {
+            assertEquals(1, routing.determineCurrentLookupKey());
+        }
+    }
+
+    @Test
+    void determineCurrentLookupKey_NoReplicaWithinLimit_FallsBackToPrimary() {
+        // Given - lag has not been measured yet
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // When & Then
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routing.determineCurrentLookupKey());
+        assertEquals(1.0, meterRegistry.get("featureflags.datasource.primary.reads")
+                .tag("reason", "lag").counter().count());
+    }
+
+    @Test
+    void determineCurrentLookupKey_PrimaryRequired_UsesPrimary() {
+        // Given
+        routing.recordLag(0, 0);
+        routing.recordLag(1, 0);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReplicaRouting replicaRouting = new ReplicaRouting(true, Duration.ofSeconds(5), Duration.ofSeconds(2),
+                metrics);
+
+        // When
+        Object key = replicaRouting.onPrimary(routing::determineCurrentLookupKey);
+
+        // Then
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, key);
+    }
+
+    @Test
+    void determineCurrentLookupKey_BackgroundWorkload_UsesPrimary() {
+        // Given
+        routing.recordLag(0, 0);
+        routing.recordLag(1, 0);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        AtomicReference<Object> key = new AtomicReference<>();
+
+        // When
+        Workload.BACKGROUND.run(() -> key.set(routing.determineCurrentLookupKey()));
+
+        // Then
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, key.get());
+    }
+
+    @Test
+    void refreshLag_UnreachableReplica_MarkedUnavailable() throws Exception {
+        // Given
+        routing.recordLag(0, 0);
+        routing.recordLag(1, 0);
+        when(replica1.getConnection()).thenThrow(new SQLException("Connection refused"));
+        when(replica2.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        // When
+        routing.refreshLag();
+
+        // Then
+        assertTrue(Double.isNaN(routing.getLagMillis(0)));
+        assertTrue(Double.isNaN(routing.getLagMillis(1)));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals(ReplicaRoutingDataSource.PRIMARY, routing.determineCurrentLookupKey());
+    }
+}
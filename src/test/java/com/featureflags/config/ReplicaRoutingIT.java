@@ -0,0 +1,137 @@
+package com.featureflags.config;
+
+import com.featureflags.model.Organization;
+import com.featureflags.service.FeatureFlagService;
+import com.featureflags.service.OrganizationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.MountableFile;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Primary plus streaming replica in two containers, using the same scripts as
+ * the docker-compose stack
+ */
+@SpringBootTest(properties = {
+        "featureflags.datasource.replica.enabled=true",
+        "featureflags.datasource.replica.lag-probe-interval=100ms"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaRoutingIT {
+
+    private static final String DATABASE = "feature_flag_service_db";
+    private static final Network network = Network.newNetwork();
+
+    @Container
+    static final PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:14-alpine")
+            .withDatabaseName(DATABASE)
+            .withNetwork(network)
+            .withNetworkAliases("db")
+            .withCopyFileToContainer(MountableFile.forClasspathResource("replication/init-primary.sh", 0755),
+                    "/docker-entrypoint-initdb.d/init-primary.sh");
+
+    @Container
+    static final GenericContainer<?> replica = new GenericContainer<>("postgres:14-alpine")
+            .dependsOn(primary)
+            .withNetwork(network)
+            .withEnv("PRIMARY_HOST", "db")
+            .withCopyFileToContainer(MountableFile.forClasspathResource("replication/start-replica.sh", 0755),
+                    "/start-replica.sh")
+            .withCommand("sh", "/start-replica.sh")
+            .withExposedPorts(5432)
+            .waitingFor(Wait.forLogMessage(".*ready to accept read-only connections.*\\n", 1)
+                    .withStartupTimeout(Duration.ofMinutes(2)));
+
+    @DynamicPropertySource
+    static void dataSources(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("featureflags.datasource.replica.urls", () -> "jdbc:postgresql://" + replica.getHost() + ":"
+                + replica.getMappedPort(5432) + "/" + DATABASE);
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private FeatureFlagService featureFlagService;
+
+    @Autowired
+    private OrganizationService organizationService;
+
+    @Test
+    void readOnlyTransactions_UseReplica_WritesUsePrimary() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        // Replicas are only used once the lag probe has measured them
+        awaitTrue(() -> Boolean.TRUE.equals(readOnly.execute(
+                status -> jdbc.queryForObject("SELECT pg_is_in_recovery()", Boolean.class))));
+        assertFalse(jdbc.queryForObject("SELECT pg_is_in_recovery()", Boolean.class));
+    }
+
+    @Test
+    void justWrittenRows_AreReadBackImmediately() {
+        // Given
+        organizationService.addOrganization(new Organization(9001L, "Replica IT", null));
+        assertNotNull(organizationService.getOrganization(9001L));
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("INSERT INTO feature_flags (id, name, enabled, organization_id) VALUES (9001, 'FeatureFlag1', "
+                + "false, 9001)");
+        awaitTrue(() -> replicaHasFlag(9001L));
+
+        // When
+        featureFlagService.setFeatureFlag(9001L, "FeatureFlag1", true);
+
+        // Then - served by the primary while the replica may still be catching up
+        assertTrue(featureFlagService.getFeatureFlag(9001L, "FeatureFlag1"));
+    }
+
+    private boolean replicaHasFlag(Long organizationId) {
+        JdbcTemplate replicaJdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:postgresql://" + replica.getHost() + ":" + replica.getMappedPort(5432) + "/" + DATABASE,
+                primary.getUsername(), primary.getPassword()));
+        Integer count = replicaJdbc.queryForObject("SELECT count(*) FROM feature_flags WHERE organization_id = ?",
+                Integer.class, organizationId);
+        return count != null && count > 0;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met within 30 seconds");
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted");
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.featureflags.config;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FeatureFlagMetrics metrics = new FeatureFlagMetrics(meterRegistry);
+    private final ReplicaRouting replicaRouting = new ReplicaRouting(true, Duration.ofSeconds(5),
+            Duration.ofSeconds(2), metrics);
+
+    @Test
+    void read_FlagNotWritten_LeftToRoutingDataSource() {
+        assertFalse(replicaRouting.read("test-flag", ReplicaRouting::isPrimaryRequired));
+    }
+
+    @Test
+    void read_FlagWrittenRecently_RequiresPrimary() {
+        // Given
+        replicaRouting.recordWrite("test-flag");
+
+        // When & Then
+        assertTrue(replicaRouting.read("test-flag", ReplicaRouting::isPrimaryRequired));
+        assertFalse(replicaRouting.read("other-flag", ReplicaRouting::isPrimaryRequired));
+        assertFalse(ReplicaRouting.isPrimaryRequired());
+        assertEquals(1.0, meterRegistry.get("featureflags.datasource.primary.reads")
+                .tag("reason", "recent-write").counter().count());
+    }
+
+    @Test
+    void read_WindowElapsed_LeftToRoutingDataSource() throws Exception {
+        // Given - the window is never shorter than max-lag
+        ReplicaRouting shortWindow = new ReplicaRouting(true, Duration.ZERO, Duration.ofMillis(20), metrics);
+        shortWindow.recordWrite("test-flag");
+
+        // When
+        Thread.sleep(50);
+
+        // Then
+        assertFalse(shortWindow.read("test-flag", ReplicaRouting::isPrimaryRequired));
+    }
+
+    @Test
+    void findWithPrimaryFallback_MissOnReplica_RereadsOnPrimary() {
+        // Given
+        List<Boolean> primaryRequired = new ArrayList<>();
+
+        // When
+        Optional<String> result = replicaRouting.findWithPrimaryFallback(() -> {
+            primaryRequired.add(ReplicaRouting.isPrimaryRequired());
+            return ReplicaRouting.isPrimaryRequired() ? Optional.of("job") : Optional.empty();
+        });
+
+        // Then
+        assertEquals(Optional.of("job"), result);
+        assertEquals(List.of(false, true), primaryRequired);
+    }
+
+    @Test
+    void disabled_PassesThrough() {
+        // Given
+        ReplicaRouting disabled = new ReplicaRouting(false, Duration.ofSeconds(5), Duration.ofSeconds(2), metrics);
+        disabled.recordWrite("test-flag");
+        List<Boolean> calls = new ArrayList<>();
+
+        // When
+        boolean primaryRequired = disabled.read("test-flag", ReplicaRouting::isPrimaryRequired);
+        Optional<String> result = disabled.findWithPrimaryFallback(() -> {
+            calls.add(true);
+            return Optional.empty();
+        });
+
+        // Then
+        assertFalse(primaryRequired);
+        assertFalse(result.isPresent());
+        assertEquals(1, calls.size());
+    }
+}
@@ -0,0 +1,94 @@
+package com.featureflags.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WorkloadRoutingDataSourceTest {
+
+    private final DataSource interactive = mock(DataSource.class);
+    private final DataSource background = mock(DataSource.class);
+    private final DataSource streaming = mock(DataSource.class);
+    private final DataSource maintenance = mock(DataSource.class);
+    private final DataSource health = mock(DataSource.class);
+
+    private final WorkloadRoutingDataSource routing = new WorkloadRoutingDataSource(interactive, background,
+            streaming, maintenance, health);
+
+    @Test
+    void getConnection_RequestThread_UsesInteractivePool() throws Exception {
+        // Given
+        Connection connection = mock(Connection.class);
+        when(interactive.getConnection()).thenReturn(connection);
+
+        // When & Then
+        assertSame(connection, routing.getConnection());
+        verifyNoInteractions(background, streaming, maintenance, health);
+    }
+
+    @Test
+    void getConnection_BackgroundTask_UsesBackgroundPool() throws Exception {
+        // Given
+        Connection connection = mock(Connection.class);
+        when(background.getConnection()).thenReturn(connection);
+        AtomicReference<Connection> borrowed = new AtomicReference<>();
+
+        // When
+        Workload.BACKGROUND.taskDecorator().decorate(() -> {
+            try {
+                borrowed.set(routing.getConnection());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).run();
+
+        // Then
+        assertSame(connection, borrowed.get());
+        verifyNoInteractions(interactive, streaming, maintenance, health);
+        assertEquals(Workload.INTERACTIVE, Workload.current());
+    }
+
+    @Test
+    void getConnection_ScheduledTask_UsesMaintenancePool() throws Exception {
+        // Given
+        Connection connection = mock(Connection.class);
+        when(maintenance.getConnection()).thenReturn(connection);
+        AtomicReference<Connection> borrowed = new AtomicReference<>();
+
+        // When
+        Workload.MAINTENANCE.run(() -> {
+            try {
+                borrowed.set(routing.getConnection());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // Then
+        assertSame(connection, borrowed.get());
+        verifyNoInteractions(interactive, background, streaming, health);
+    }
+
+    @Test
+    void run_Nested_RestoresOuterWorkload() {
+        // Given
+        AtomicReference<Workload> inner = new AtomicReference<>();
+        AtomicReference<Workload> afterInner = new AtomicReference<>();
+
+        // When
+        Workload.BACKGROUND.run(() -> {
+            Workload.HEALTH.run(() -> inner.set(Workload.current()));
+            afterInner.set(Workload.current());
+        });
+
+        // Then
+        assertEquals(Workload.HEALTH, inner.get());
+        assertEquals(Workload.BACKGROUND, afterInner.get());
+        assertEquals(Workload.INTERACTIVE, Workload.current());
+    }
+}
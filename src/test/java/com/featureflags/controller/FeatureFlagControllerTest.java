@@ -2,6 +2,10 @@ package com.featureflags.controller;
 
 import com.featureflags.model.FeatureFlag;
 import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.model.FeatureFlagJobPage;
+import com.featureflags.model.FeatureFlagJobStats;
+import com.featureflags.model.FeatureFlagJobSummary;
+import com.featureflags.model.FeatureFlagValue;
 import com.featureflags.service.FeatureFlagService;
 import com.featureflags.service.FeatureFlagValidator;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,8 +18,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -47,12 +55,12 @@ class FeatureFlagControllerTest {
         when(featureFlagService.getFeatureFlag(ORG_ID, FEATURE_FLAG_NAME)).thenReturn(true);
 
         // When
-        ResponseEntity<FeatureFlag> response = featureFlagController.getFeatureFlag(ORG_ID, FEATURE_FLAG_NAME);
+        FeatureFlagValue response = featureFlagController.getFeatureFlag(ORG_ID, FEATURE_FLAG_NAME);
 
         // Then
-        assertTrue(response.getBody().isEnabled());
-        assertEquals(FEATURE_FLAG_NAME, response.getBody().getName());
-        assertEquals(ORG_ID, response.getBody().getOrganizationId());
+        assertTrue(response.isEnabled());
+        assertEquals(FEATURE_FLAG_NAME, response.getName());
+        assertEquals(ORG_ID, response.getOrganizationId());
         verify(featureFlagValidator).isFeatureFlagRegistered(FEATURE_FLAG_NAME);
         verify(featureFlagService).getFeatureFlag(ORG_ID, FEATURE_FLAG_NAME);
     }
@@ -64,12 +72,12 @@ class FeatureFlagControllerTest {
         when(featureFlagService.getFeatureFlag(ORG_ID, FEATURE_FLAG_NAME)).thenReturn(false);
 
         // When
-        ResponseEntity<FeatureFlag> response = featureFlagController.getFeatureFlag(ORG_ID, FEATURE_FLAG_NAME);
+        FeatureFlagValue response = featureFlagController.getFeatureFlag(ORG_ID, FEATURE_FLAG_NAME);
 
         // Then
-        assertFalse(response.getBody().isEnabled());
-        assertEquals(FEATURE_FLAG_NAME, response.getBody().getName());
-        assertEquals(ORG_ID, response.getBody().getOrganizationId());
+        assertFalse(response.isEnabled());
+        assertEquals(FEATURE_FLAG_NAME, response.getName());
+        assertEquals(ORG_ID, response.getOrganizationId());
         verify(featureFlagValidator).isFeatureFlagRegistered(FEATURE_FLAG_NAME);
         verify(featureFlagService).getFeatureFlag(ORG_ID, FEATURE_FLAG_NAME);
     }
@@ -85,7 +93,7 @@ class FeatureFlagControllerTest {
 
         // When
         ResponseEntity<Map<String, Object>> response = featureFlagController.setFeatureFlag(ORG_ID, FEATURE_FLAG_NAME,
-                enabled, description);
+                enabled, description, null);
 
         // Then
         assertNotNull(response.getBody());
@@ -116,11 +124,11 @@ class FeatureFlagControllerTest {
         Long jobId = 123L;
         when(featureFlagValidator.isFeatureFlagRegistered(FEATURE_FLAG_NAME)).thenReturn(true);
         when(featureFlagService.organizationHasChildren(ORG_ID)).thenReturn(true);
-        when(featureFlagService.setFeatureFlagWithHierarchy(ORG_ID, FEATURE_FLAG_NAME, enabled)).thenReturn(jobId);
+        when(featureFlagService.setFeatureFlagWithHierarchy(ORG_ID, FEATURE_FLAG_NAME, enabled, null)).thenReturn(jobId);
 
         // When
         ResponseEntity<Map<String, Object>> response = featureFlagController.setFeatureFlag(ORG_ID, FEATURE_FLAG_NAME,
-                enabled, null);
+                enabled, null, null);
 
         // Then
         assertNotNull(response.getBody());
@@ -137,10 +145,52 @@ class FeatureFlagControllerTest {
 
         verify(featureFlagValidator).isFeatureFlagRegistered(FEATURE_FLAG_NAME);
         verify(featureFlagService).organizationHasChildren(ORG_ID);
-        verify(featureFlagService).setFeatureFlagWithHierarchy(ORG_ID, FEATURE_FLAG_NAME, enabled);
+        verify(featureFlagService).setFeatureFlagWithHierarchy(ORG_ID, FEATURE_FLAG_NAME, enabled, null);
         verify(featureFlagService, never()).setFeatureFlag(any(), any(), anyBoolean());
     }
 
+    @Test
+    void setFeatureFlag_HasChildren_PassesIdempotencyKey() {
+        // Given
+        when(featureFlagValidator.isFeatureFlagRegistered(FEATURE_FLAG_NAME)).thenReturn(true);
+        when(featureFlagService.organizationHasChildren(ORG_ID)).thenReturn(true);
+        when(featureFlagService.setFeatureFlagWithHierarchy(ORG_ID, FEATURE_FLAG_NAME, true, "key-1")).thenReturn(7L);
+
+        // When
+        ResponseEntity<Map<String, Object>> response = featureFlagController.setFeatureFlag(ORG_ID, FEATURE_FLAG_NAME,
+                true, null, "key-1");
+
+        // Then
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(7L, response.getBody().get("jobId"));
+    }
+
+    @Test
+    void setFeatureFlag_IdempotencyKeyReusedForOtherRequest_ReturnsUnprocessableEntity() {
+        // Given
+        when(featureFlagValidator.isFeatureFlagRegistered(FEATURE_FLAG_NAME)).thenReturn(true);
+        when(featureFlagService.organizationHasChildren(ORG_ID)).thenReturn(true);
+        when(featureFlagService.setFeatureFlagWithHierarchy(ORG_ID, FEATURE_FLAG_NAME, true, "key-1"))
+                .thenThrow(new IllegalStateException("Idempotency-Key was already used for a different request"));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> featureFlagController.setFeatureFlag(ORG_ID, FEATURE_FLAG_NAME, true, null, "key-1"));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, exception.getStatus());
+    }
+
+    @Test
+    void setFeatureFlag_BlankIdempotencyKey_ReturnsBadRequest() {
+        // Given
+        when(featureFlagValidator.isFeatureFlagRegistered(FEATURE_FLAG_NAME)).thenReturn(true);
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> featureFlagController.setFeatureFlag(ORG_ID, FEATURE_FLAG_NAME, true, null, " "));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        verifyNoInteractions(featureFlagService);
+    }
+
     @Test
     void setFeatureFlag_WithoutDescription_NoChildren_ProcessesImmediately() {
         // Given
@@ -151,7 +201,7 @@ class FeatureFlagControllerTest {
 
         // When
         ResponseEntity<Map<String, Object>> response = featureFlagController.setFeatureFlag(ORG_ID, FEATURE_FLAG_NAME,
-                enabled, null);
+                enabled, null, null);
 
         // Then
         assertNotNull(response.getBody());
@@ -194,7 +244,7 @@ class FeatureFlagControllerTest {
 
         // When & Then
         assertThrows(ResponseStatusException.class,
-                () -> featureFlagController.setFeatureFlag(ORG_ID, FEATURE_FLAG_NAME, enabled, null));
+                () -> featureFlagController.setFeatureFlag(ORG_ID, FEATURE_FLAG_NAME, enabled, null, null));
 
         verify(featureFlagValidator).isFeatureFlagRegistered(FEATURE_FLAG_NAME);
         verifyNoInteractions(featureFlagService);
@@ -237,27 +287,92 @@ class FeatureFlagControllerTest {
     }
 
     @Test
-    void getJobsForOrganization_ValidOrgId_ReturnsJobList() {
+    void getJobsForOrganization_ValidOrgId_ReturnsJobPage() {
         // Given
-        FeatureFlagJob job1 = new FeatureFlagJob(ORG_ID, FEATURE_FLAG_NAME, true, 5);
-        job1.setId(1L);
-        FeatureFlagJob job2 = new FeatureFlagJob(ORG_ID, "another-flag", false, 10);
-        job2.setId(2L);
+        FeatureFlagJobSummary job1 = summary(2L, null, FeatureFlagJob.JobStatus.COMPLETED, 0);
+        FeatureFlagJobSummary job2 = summary(1L, null, FeatureFlagJob.JobStatus.FAILED, 3);
+        FeatureFlagJobPage page = new FeatureFlagJobPage(List.of(job1, job2), "2024-01-15T10:30_1");
+        when(featureFlagService.getJobsForOrganization(ORG_ID, null, null, null, null, 50)).thenReturn(page);
+
+        // When
+        ResponseEntity<FeatureFlagJobPage> response = featureFlagController.getJobsForOrganization(ORG_ID, null,
+                null, null, null, 50);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(page, response.getBody());
+
+        verify(featureFlagService).getJobsForOrganization(ORG_ID, null, null, null, null, 50);
+    }
 
-        List<FeatureFlagJob> jobs = List.of(job1, job2);
-        when(featureFlagService.getJobsForOrganization(ORG_ID)).thenReturn(jobs);
+    @Test
+    void getJobsForOrganization_FiltersAndCursor_PassedToService() {
+        // Given
+        Set<FeatureFlagJob.JobStatus> statuses = Set.of(FeatureFlagJob.JobStatus.FAILED);
+        LocalDateTime since = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime until = LocalDateTime.of(2024, 2, 1, 0, 0);
+        FeatureFlagJobPage page = new FeatureFlagJobPage(List.of(), null);
+        when(featureFlagService.getJobsForOrganization(ORG_ID, statuses, since, until, "2024-01-15T10:30_7", 10))
+                .thenReturn(page);
 
         // When
-        ResponseEntity<List<FeatureFlagJob>> response = featureFlagController.getJobsForOrganization(ORG_ID);
+        ResponseEntity<FeatureFlagJobPage> response = featureFlagController.getJobsForOrganization(ORG_ID, statuses,
+                since, until, "2024-01-15T10:30_7", 10);
+
+        // Then
+        assertSame(page, response.getBody());
+        assertNull(response.getBody().getNextCursor());
+    }
+
+    @Test
+    void getJobsForOrganization_LimitOutOfRange_ReturnsBadRequest() {
+        ResponseStatusException tooSmall = assertThrows(ResponseStatusException.class,
+                () -> featureFlagController.getJobsForOrganization(ORG_ID, null, null, null, null, 0));
+        ResponseStatusException tooLarge = assertThrows(ResponseStatusException.class,
+                () -> featureFlagController.getJobsForOrganization(ORG_ID, null, null, null, null, 501));
+
+        assertEquals(HttpStatus.BAD_REQUEST, tooSmall.getStatus());
+        assertEquals(HttpStatus.BAD_REQUEST, tooLarge.getStatus());
+        verifyNoInteractions(featureFlagService);
+    }
+
+    @Test
+    void getJobsForOrganization_InvalidCursor_ReturnsBadRequest() {
+        // Given
+        when(featureFlagService.getJobsForOrganization(ORG_ID, null, null, null, "garbage", 50))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: garbage"));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> featureFlagController.getJobsForOrganization(ORG_ID, null, null, null, "garbage", 50));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        assertEquals("Invalid cursor: garbage", exception.getReason());
+    }
+
+    @Test
+    void getJobStats_DefaultWindow_ReturnsStats() {
+        // Given
+        FeatureFlagJobStats stats = new FeatureFlagJobStats(4L, 1000L, 990L, 10L, 40L, 3800L, 160L, 240.0, 310.0);
+        when(featureFlagService.getJobStats(Duration.ofHours(24))).thenReturn(stats);
+
+        // When
+        ResponseEntity<FeatureFlagJobStats> response = featureFlagController.getJobStats(24);
 
         // Then
-        assertNotNull(response.getBody());
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(2, response.getBody().size());
-        assertEquals(job1.getId(), response.getBody().get(0).getId());
-        assertEquals(job2.getId(), response.getBody().get(1).getId());
+        assertSame(stats, response.getBody());
+        assertEquals(250.0, response.getBody().getAggregateOrgsPerSecond(), 0.001);
+    }
 
-        verify(featureFlagService).getJobsForOrganization(ORG_ID);
+    @Test
+    void getJobStats_NonPositiveWindow_ThrowsBadRequestException() {
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> featureFlagController.getJobStats(0));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        verifyNoInteractions(featureFlagService);
     }
 
     @Test
@@ -320,27 +435,13 @@ class FeatureFlagControllerTest {
     @Test
     void getJobRetryChain_ValidJobId_ReturnsRetryChain() {
         // Given
-        Long jobId = 123L;
-
-        // Create original job
-        FeatureFlagJob originalJob = new FeatureFlagJob(ORG_ID, FEATURE_FLAG_NAME, true, 10);
-        originalJob.setId(123L);
-        originalJob.setRetryCount(3);
-        originalJob.setMaxRetries(3);
-        originalJob.markAsFailed("Database connection timeout");
-
-        // Create retry job
-        FeatureFlagJob retryJob = new FeatureFlagJob(ORG_ID, FEATURE_FLAG_NAME, true, 10, 123L);
-        retryJob.setId(124L);
-        retryJob.setRetryCount(1);
-        retryJob.setMaxRetries(3);
-        retryJob.markAsCompleted();
-
-        List<FeatureFlagJob> retryChain = List.of(originalJob, retryJob);
-        when(featureFlagService.getJobRetryChain(jobId)).thenReturn(retryChain);
+        Long jobId = 124L;
+        FeatureFlagJobSummary originalJob = summary(123L, null, FeatureFlagJob.JobStatus.FAILED, 3);
+        FeatureFlagJobSummary retryJob = summary(124L, 123L, FeatureFlagJob.JobStatus.COMPLETED, 1);
+        when(featureFlagService.getJobRetryChain(jobId)).thenReturn(List.of(originalJob, retryJob));
 
         // When
-        ResponseEntity<List<FeatureFlagJob>> response = featureFlagController.getJobRetryChain(jobId);
+        ResponseEntity<List<FeatureFlagJobSummary>> response = featureFlagController.getJobRetryChain(jobId);
 
         // Then
         assertNotNull(response.getBody());
@@ -348,14 +449,14 @@ class FeatureFlagControllerTest {
         assertEquals(2, response.getBody().size());
 
         // Verify original job
-        FeatureFlagJob returnedOriginalJob = response.getBody().get(0);
+        FeatureFlagJobSummary returnedOriginalJob = response.getBody().get(0);
         assertEquals(123L, returnedOriginalJob.getId());
         assertEquals(FeatureFlagJob.JobStatus.FAILED, returnedOriginalJob.getStatus());
         assertEquals(3, returnedOriginalJob.getRetryCount());
         assertNull(returnedOriginalJob.getParentJobId());
 
         // Verify retry job
-        FeatureFlagJob returnedRetryJob = response.getBody().get(1);
+        FeatureFlagJobSummary returnedRetryJob = response.getBody().get(1);
         assertEquals(124L, returnedRetryJob.getId());
         assertEquals(FeatureFlagJob.JobStatus.COMPLETED, returnedRetryJob.getStatus());
         assertEquals(1, returnedRetryJob.getRetryCount());
@@ -385,24 +486,18 @@ class FeatureFlagControllerTest {
     void getJobRetryChain_SingleJob_ReturnsChainWithOneJob() {
         // Given
         Long jobId = 123L;
-
-        FeatureFlagJob singleJob = new FeatureFlagJob(ORG_ID, FEATURE_FLAG_NAME, true, 5);
-        singleJob.setId(123L);
-        singleJob.setRetryCount(0);
-        singleJob.markAsCompleted();
-
-        List<FeatureFlagJob> retryChain = List.of(singleJob);
-        when(featureFlagService.getJobRetryChain(jobId)).thenReturn(retryChain);
+        FeatureFlagJobSummary singleJob = summary(123L, null, FeatureFlagJob.JobStatus.COMPLETED, 0);
+        when(featureFlagService.getJobRetryChain(jobId)).thenReturn(List.of(singleJob));
 
         // When
-        ResponseEntity<List<FeatureFlagJob>> response = featureFlagController.getJobRetryChain(jobId);
+        ResponseEntity<List<FeatureFlagJobSummary>> response = featureFlagController.getJobRetryChain(jobId);
 
         // Then
         assertNotNull(response.getBody());
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(1, response.getBody().size());
 
-        FeatureFlagJob returnedJob = response.getBody().get(0);
+        FeatureFlagJobSummary returnedJob = response.getBody().get(0);
         assertEquals(123L, returnedJob.getId());
         assertEquals(FeatureFlagJob.JobStatus.COMPLETED, returnedJob.getStatus());
         assertEquals(0, returnedJob.getRetryCount());
@@ -410,4 +505,51 @@ class FeatureFlagControllerTest {
 
         verify(featureFlagService).getJobRetryChain(jobId);
     }
-}
\ No newline at end of file
+
+    @Test
+    void cancelJob_ActiveJob_ReturnsCancelledJob() {
+        // Given
+        FeatureFlagJob job = new FeatureFlagJob(ORG_ID, FEATURE_FLAG_NAME, true, 10);
+        job.markAsCancelled();
+        when(featureFlagService.cancelJob(123L)).thenReturn(job);
+
+        // When
+        ResponseEntity<FeatureFlagJob> response = featureFlagController.cancelJob(123L);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(FeatureFlagJob.JobStatus.CANCELLED, response.getBody().getStatus());
+    }
+
+    @Test
+    void cancelJob_FinishedJob_ReturnsConflict() {
+        // Given
+        when(featureFlagService.cancelJob(123L)).thenThrow(new IllegalStateException("already finished"));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> featureFlagController.cancelJob(123L));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+    }
+
+    @Test
+    void cancelJob_UnknownJob_ReturnsNotFound() {
+        // Given
+        when(featureFlagService.cancelJob(123L)).thenThrow(new IllegalArgumentException("Job not found: 123"));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> featureFlagController.cancelJob(123L));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+    }
+
+    private static FeatureFlagJobSummary summary(Long id, Long parentJobId, FeatureFlagJob.JobStatus status,
+            int retryCount) {
+        FeatureFlagJobSummary summary = mock(FeatureFlagJobSummary.class);
+        lenient().when(summary.getId()).thenReturn(id);
+        lenient().when(summary.getParentJobId()).thenReturn(parentJobId);
+        lenient().when(summary.getStatus()).thenReturn(status);
+        lenient().when(summary.getRetryCount()).thenReturn(retryCount);
+        return summary;
+    }
+}
@@ -1,18 +1,34 @@
 package com.featureflags.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.featureflags.model.Organization;
 import com.featureflags.model.OrganizationBulkResult;
+import com.featureflags.model.OrganizationDescendant;
+import com.featureflags.model.OrganizationJob;
+import com.featureflags.service.OrganizationJobService;
 import com.featureflags.service.OrganizationService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,7 +39,14 @@ class OrganizationControllerTest {
     @Mock
     private OrganizationService organizationService;
 
-    @InjectMocks
+    @Mock
+    private OrganizationJobService organizationJobService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ThreadPoolTaskExecutor streamingTaskExecutor = new ThreadPoolTaskExecutor();
+
     private OrganizationController organizationController;
 
     private static final Long ORG_ID = 1L;
@@ -32,7 +55,15 @@ class OrganizationControllerTest {
 
     @BeforeEach
     void setUp() {
-        // Any common setup can go here
+        streamingTaskExecutor.initialize();
+        // One export at a time and one waiting
+        organizationController = new OrganizationController(organizationService, organizationJobService,
+                objectMapper, streamingTaskExecutor, Duration.ofMinutes(30), 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamingTaskExecutor.shutdown();
     }
 
     @Test
@@ -94,6 +125,18 @@ class OrganizationControllerTest {
                 org.getName().equals(ORG_NAME)));
     }
 
+    @Test
+    void addOrganizationToParent_ExistingOrganization_ThrowsBadRequestException() {
+        // Given
+        doThrow(new UnsupportedOperationException("Organization already exists; move it with PUT"))
+                .when(organizationService).addOrganization(any(Organization.class));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> organizationController.addOrganizationToParent(ORG_ID, PARENT_ID, ORG_NAME));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
     @Test
     void addOrganizationToParent_VerifiesOrganizationStructure() {
         // Given
@@ -138,4 +181,243 @@ class OrganizationControllerTest {
         verify(organizationService).getOrganization(ORG_ID);
         assertNull(response.getBody());
     }
-}
\ No newline at end of file
+
+    @Test
+    void processOrganizations_LargeBatch_StartsBackgroundImport() {
+        // Given
+        List<Organization> organizations = Arrays.asList(
+                new Organization(1L, "Org1", null),
+                new Organization(2L, "Org2", 1L));
+        when(organizationJobService.shouldImportInBackground(organizations)).thenReturn(true);
+        when(organizationJobService.submitImport(organizations)).thenReturn(42L);
+
+        // When
+        ResponseEntity<OrganizationBulkResult> response = organizationController.processOrganizations(organizations);
+
+        // Then
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(OrganizationBulkResult.OperationStatus.ACCEPTED, response.getBody().getStatus());
+        assertEquals(42L, response.getBody().getJobId());
+        assertEquals("/organizations/jobs/42", response.getBody().getTrackingUrl());
+        verify(organizationService, never()).processOrganizations(any());
+    }
+
+    @Test
+    void getJobStatus_ReturnsJob() {
+        // Given
+        OrganizationJob job = new OrganizationJob(OrganizationJob.JobType.IMPORT, 5000, "[]");
+        job.setId(42L);
+        when(organizationJobService.getJobStatus(42L)).thenReturn(job);
+
+        // When
+        ResponseEntity<OrganizationJob> response = organizationController.getJobStatus(42L);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(42L, response.getBody().getId());
+        assertEquals(5000, response.getBody().getTotalOrganizations());
+    }
+
+    @Test
+    void getJobStatus_JobNotFound_ThrowsNotFoundException() {
+        // Given
+        when(organizationJobService.getJobStatus(999L))
+                .thenThrow(new IllegalArgumentException("Job not found: 999"));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> organizationController.getJobStatus(999L));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+    }
+
+    @Test
+    void retryFailedJob_ReturnsAccepted() {
+        // Given
+        when(organizationJobService.retryFailedJob(42L)).thenReturn(42L);
+
+        // When
+        ResponseEntity<Map<String, Object>> response = organizationController.retryFailedJob(42L);
+
+        // Then
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(42L, response.getBody().get("jobId"));
+        assertEquals("/organizations/jobs/42", response.getBody().get("trackingUrl"));
+    }
+
+    @Test
+    void retryFailedJob_JobNotFailed_ThrowsBadRequestException() {
+        // Given
+        when(organizationJobService.retryFailedJob(42L))
+                .thenThrow(new IllegalStateException("Can only retry failed jobs. Current status: COMPLETED"));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> organizationController.retryFailedJob(42L));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    void moveOrganization_InheritedFlagsChanged_ReturnsAcceptedWithJob() {
+        // Given
+        when(organizationJobService.submitMove(ORG_ID, PARENT_ID)).thenReturn(42L);
+
+        // When
+        ResponseEntity<Map<String, Object>> response = organizationController.moveOrganization(ORG_ID, PARENT_ID);
+
+        // Then
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(42L, response.getBody().get("jobId"));
+        assertEquals("/organizations/jobs/42", response.getBody().get("trackingUrl"));
+    }
+
+    @Test
+    void moveOrganization_NoInheritedFlagsChanged_ReturnsOk() {
+        // Given
+        when(organizationJobService.submitMove(ORG_ID, PARENT_ID)).thenReturn(null);
+
+        // When
+        ResponseEntity<Map<String, Object>> response = organizationController.moveOrganization(ORG_ID, PARENT_ID);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertFalse(response.getBody().containsKey("jobId"));
+    }
+
+    @Test
+    void moveOrganization_Cycle_ThrowsBadRequestException() {
+        // Given
+        when(organizationJobService.submitMove(ORG_ID, PARENT_ID))
+                .thenThrow(new UnsupportedOperationException("Cycle Exists!"));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> organizationController.moveOrganization(ORG_ID, PARENT_ID));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    void moveOrganization_PreviousMoveRunning_ThrowsConflictException() {
+        // Given
+        when(organizationJobService.submitMove(ORG_ID, PARENT_ID))
+                .thenThrow(new IllegalStateException("Organization 1 is still being recomputed"));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> organizationController.moveOrganization(ORG_ID, PARENT_ID));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+    }
+
+    @Test
+    void deleteOrganization_ReturnsAcceptedWithJob() {
+        // Given
+        when(organizationJobService.submitDeletion(ORG_ID)).thenReturn(43L);
+
+        // When
+        ResponseEntity<Map<String, Object>> response = organizationController.deleteOrganization(ORG_ID);
+
+        // Then
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(43L, response.getBody().get("jobId"));
+        assertEquals("/organizations/jobs/43", response.getBody().get("trackingUrl"));
+    }
+
+    @Test
+    void deleteOrganization_NotFound_ThrowsNotFoundException() {
+        // Given
+        when(organizationJobService.submitDeletion(ORG_ID))
+                .thenThrow(new IllegalArgumentException("Organization not found: 1"));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> organizationController.deleteOrganization(ORG_ID));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+    }
+
+    @Test
+    void deleteOrganization_JobsRunning_ThrowsConflictException() {
+        // Given
+        when(organizationJobService.submitDeletion(ORG_ID))
+                .thenThrow(new IllegalStateException("1 job(s) are still writing into organization 1"));
+
+        // When & Then
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> organizationController.deleteOrganization(ORG_ID));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+    }
+
+    @Test
+    void getDescendants_StreamsOneJsonObjectPerLine() throws Exception {
+        // Arrange
+        OrganizationDescendant start = new OrganizationDescendant(ORG_ID, null, null, 0);
+        when(organizationService.getOrganization(ORG_ID)).thenReturn(new Organization(ORG_ID, ORG_NAME, null));
+        when(organizationService.findDescendantsStart(ORG_ID, null)).thenReturn(start);
+        doAnswer(invocation -> {
+            Consumer<OrganizationDescendant> consumer = invocation.getArgument(3);
+            consumer.accept(new OrganizationDescendant(2L, "Child", ORG_ID, 1));
+            consumer.accept(new OrganizationDescendant(3L, "Grandchild", 2L, 2));
+            return 2L;
+        }).when(organizationService).forEachDescendant(eq(ORG_ID), eq(start), eq(2), any());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        WebAsyncTask<Void> task = organizationController.getDescendants(ORG_ID, 2, null, response);
+        task.getCallable().call();
+
+        // Assert
+        assertEquals(Duration.ofMinutes(30).toMillis(), task.getTimeout());
+        assertSame(streamingTaskExecutor, task.getExecutor());
+        assertEquals(MediaType.APPLICATION_NDJSON_VALUE, response.getContentType());
+        String[] lines = response.getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        Map<?, ?> first = objectMapper.readValue(lines[0], Map.class);
+        assertEquals("Child", first.get("name"));
+        assertEquals(1, first.get("depth"));
+        assertEquals("1_2", first.get("cursor"));
+        assertEquals("2_3", objectMapper.readValue(lines[1], Map.class).get("cursor"));
+    }
+
+    @Test
+    void getDescendants_OrganizationNotFound_ThrowsNotFoundException() {
+        // Arrange
+        when(organizationService.getOrganization(ORG_ID)).thenReturn(null);
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> organizationController.getDescendants(ORG_ID, null, null, new MockHttpServletResponse()));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatus());
+        verify(organizationService, never()).forEachDescendant(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void getDescendants_InvalidCursor_ThrowsBadRequestException() {
+        // Arrange
+        when(organizationService.getOrganization(ORG_ID)).thenReturn(new Organization(ORG_ID, ORG_NAME, null));
+        when(organizationService.findDescendantsStart(ORG_ID, "bogus"))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: bogus"));
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> organizationController.getDescendants(ORG_ID, null, "bogus", new MockHttpServletResponse()));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    void getDescendants_ThreadAndQueueTaken_ThrowsServiceUnavailable() throws Exception {
+        // Arrange
+        when(organizationService.getOrganization(ORG_ID)).thenReturn(new Organization(ORG_ID, ORG_NAME, null));
+        WebAsyncTask<Void> running = organizationController.getDescendants(ORG_ID, null, null,
+                new MockHttpServletResponse());
+        organizationController.getDescendants(ORG_ID, null, null, new MockHttpServletResponse());
+        MockHttpServletResponse refused = new MockHttpServletResponse();
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> organizationController.getDescendants(ORG_ID, null, null, refused));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+        assertEquals("1", refused.getHeader(HttpHeaders.RETRY_AFTER));
+
+        running.getCallable().call();
+        assertNotNull(organizationController.getDescendants(ORG_ID, null, null, new MockHttpServletResponse()));
+    }
+}
@@ -0,0 +1,49 @@
+package com.featureflags.health;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutorSaturationHealthIndicatorTest {
+
+    private final FeatureFlagMetrics metrics = new FeatureFlagMetrics(new SimpleMeterRegistry());
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ExecutorSaturationHealthIndicator indicator = new ExecutorSaturationHealthIndicator(metrics, 40);
+
+    ExecutorSaturationHealthIndicatorTest() {
+        metrics.monitorExecutor("featureFlagTaskExecutor", waiting, AtomicInteger::get, w -> 10);
+    }
+
+    @Test
+    void health_QueueBelowLimit_ReportsUp() {
+        // Given
+        waiting.set(39);
+
+        // When
+        Health health = indicator.health();
+
+        // Then
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(Map.of("featureFlagTaskExecutor", 39.0), health.getDetails().get("queueDepth"));
+    }
+
+    @Test
+    void health_QueueAtLimit_ReportsOutOfService() {
+        // Given
+        waiting.set(40);
+
+        // When
+        Health health = indicator.health();
+
+        // Then
+        assertEquals(Status.OUT_OF_SERVICE, health.getStatus());
+        assertEquals(40, health.getDetails().get("maxQueueDepth"));
+    }
+}
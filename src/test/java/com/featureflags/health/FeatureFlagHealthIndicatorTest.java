@@ -0,0 +1,93 @@
+package com.featureflags.health;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagHealthIndicatorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void health_DatabaseReachable_ReportsApproximateRows() {
+        // Given
+        when(jdbcTemplate.query(anyString(), any(ResultSetExtractor.class)))
+                .thenReturn(Map.of("feature_flags", 120_000_000L, "organizations", 4_000_000L));
+        FeatureFlagHealthIndicator indicator = new FeatureFlagHealthIndicator(jdbcTemplate, Duration.ZERO);
+
+        // When
+        Health health = indicator.health();
+
+        // Then
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(Map.of("feature_flags", 120_000_000L, "organizations", 4_000_000L),
+                health.getDetails().get("approximateRows"));
+        verify(jdbcTemplate).query(contains("pg_class"), any(ResultSetExtractor.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void health_QueryFails_ReportsDown() {
+        // Given
+        when(jdbcTemplate.query(anyString(), any(ResultSetExtractor.class)))
+                .thenThrow(new QueryTimeoutException("canceling statement due to statement timeout"));
+        FeatureFlagHealthIndicator indicator = new FeatureFlagHealthIndicator(jdbcTemplate, Duration.ZERO);
+
+        // When
+        Health health = indicator.health();
+
+        // Then
+        assertEquals(Status.DOWN, health.getStatus());
+        assertEquals("canceling statement due to statement timeout", health.getDetails().get("error"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void health_WithinCacheTtl_ReusesResult() {
+        // Given
+        when(jdbcTemplate.query(anyString(), any(ResultSetExtractor.class)))
+                .thenReturn(Map.of("feature_flags", 10L, "organizations", 2L));
+        FeatureFlagHealthIndicator indicator = new FeatureFlagHealthIndicator(jdbcTemplate, Duration.ofMinutes(1));
+
+        // When
+        Health first = indicator.health();
+        Health second = indicator.health();
+
+        // Then
+        assertSame(first, second);
+        verify(jdbcTemplate, times(1)).query(anyString(), any(ResultSetExtractor.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void health_CacheExpired_ChecksAgain() {
+        // Given
+        when(jdbcTemplate.query(anyString(), any(ResultSetExtractor.class)))
+                .thenReturn(Map.of("feature_flags", 10L, "organizations", 2L));
+        FeatureFlagHealthIndicator indicator = new FeatureFlagHealthIndicator(jdbcTemplate, Duration.ZERO);
+
+        // When
+        indicator.health();
+        indicator.health();
+
+        // Then
+        verify(jdbcTemplate, times(2)).query(anyString(), any(ResultSetExtractor.class));
+    }
+}
@@ -0,0 +1,67 @@
+package com.featureflags.health;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmUpHealthIndicatorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WarmUpHealthIndicator warmUp = new WarmUpHealthIndicator(new FeatureFlagMetrics(meterRegistry));
+
+    @Test
+    void health_NoTasks_ReportsUp() {
+        assertEquals(Status.UP, warmUp.health().getStatus());
+    }
+
+    @Test
+    void health_TaskRunning_ReportsOutOfService() {
+        // Given
+        warmUp.begin("lookupIndexes");
+        warmUp.begin("other");
+        warmUp.complete("other");
+
+        // When
+        Health health = warmUp.health();
+
+        // Then
+        assertEquals(Status.OUT_OF_SERVICE, health.getStatus());
+        assertEquals("warming", health.getDetails().get("lookupIndexes"));
+        assertEquals("done", health.getDetails().get("other"));
+    }
+
+    @Test
+    void health_TaskFailed_ReportsUp() {
+        // Given
+        warmUp.begin("lookupIndexes");
+        warmUp.fail("lookupIndexes");
+
+        // When
+        Health health = warmUp.health();
+
+        // Then
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals("failed", health.getDetails().get("lookupIndexes"));
+    }
+
+    @Test
+    void finish_RecordsTaskDuration() {
+        // Given
+        warmUp.begin("lookupCache");
+        warmUp.begin("lookupIndexes");
+
+        // When
+        warmUp.complete("lookupCache");
+        warmUp.fail("lookupIndexes");
+
+        // Then
+        assertEquals(1, meterRegistry.get("featureflags.warmup").tag("task", "lookupCache")
+                .tag("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("featureflags.warmup").tag("task", "lookupIndexes")
+                .tag("outcome", "failed").timer().count());
+    }
+}
@@ -0,0 +1,78 @@
+package com.featureflags.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeatureFlagMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private FeatureFlagMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new FeatureFlagMetrics(registry);
+    }
+
+    @Test
+    void recordLookup_TagsTimerByOutcome() {
+        // When
+        metrics.recordLookup(metrics.monotonicTime(), FeatureFlagMetrics.OUTCOME_ENABLED);
+        metrics.recordLookup(metrics.monotonicTime(), FeatureFlagMetrics.OUTCOME_ENABLED);
+        metrics.recordLookup(metrics.monotonicTime(), FeatureFlagMetrics.OUTCOME_MISSING);
+
+        // Then
+        assertEquals(2, lookupTimer(FeatureFlagMetrics.OUTCOME_ENABLED).count());
+        assertEquals(0, lookupTimer(FeatureFlagMetrics.OUTCOME_DISABLED).count());
+        assertEquals(1, lookupTimer(FeatureFlagMetrics.OUTCOME_MISSING).count());
+    }
+
+    @Test
+    void propagationJobs_TrackActiveJobsAndOutcomes() {
+        // When
+        metrics.propagationJobStarted();
+        metrics.propagationJobStarted();
+        metrics.propagationJobFinished(FeatureFlagMetrics.OUTCOME_SUCCESS);
+
+        // Then
+        assertEquals(1.0, registry.get("featureflags.propagation.jobs.active").gauge().value());
+        assertEquals(1.0, registry.get("featureflags.propagation.jobs")
+                .tag("outcome", FeatureFlagMetrics.OUTCOME_SUCCESS).counter().count());
+    }
+
+    @Test
+    void throughputWindow_AveragesOverWindowAndExpiresOldBuckets() {
+        // Given
+        FeatureFlagMetrics.ThroughputWindow window = new FeatureFlagMetrics.ThroughputWindow(10);
+
+        // When
+        window.add(30, 100);
+        window.add(20, 105);
+
+        // Then
+        assertEquals(5.0, window.ratePerSecond(105));
+        assertEquals(2.0, window.ratePerSecond(110)); // first bucket has aged out
+        assertEquals(0.0, window.ratePerSecond(120));
+    }
+
+    @Test
+    void throughputWindow_ReusedSlotStartsFromZero() {
+        // Given
+        FeatureFlagMetrics.ThroughputWindow window = new FeatureFlagMetrics.ThroughputWindow(10);
+        window.add(30, 100);
+
+        // When - same slot, one full window later
+        window.add(10, 110);
+
+        // Then
+        assertEquals(1.0, window.ratePerSecond(110));
+    }
+
+    private Timer lookupTimer(String outcome) {
+        return registry.get("featureflags.lookup").tag("outcome", outcome).timer();
+    }
+}
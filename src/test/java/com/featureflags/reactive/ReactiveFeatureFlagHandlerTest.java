@@ -0,0 +1,148 @@
+package com.featureflags.reactive;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import com.featureflags.service.FeatureFlagAccessStats;
+import com.featureflags.service.FeatureFlagKeyFilter;
+import com.featureflags.service.FeatureFlagLookupCache;
+import com.featureflags.service.FeatureFlagValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveFeatureFlagHandlerTest {
+
+    private static final Long ORG_ID = 1L;
+    private static final String FEATURE_FLAG_NAME = "FeatureFlag1";
+
+    @Mock
+    private ReactiveFeatureFlagRepository repository;
+
+    @Mock
+    private FeatureFlagValidator featureFlagValidator;
+
+    @Mock
+    private FeatureFlagKeyFilter keyFilter;
+
+    @Mock
+    private FeatureFlagAccessStats accessStats;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FeatureFlagLookupCache lookupCache;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        FeatureFlagMetrics metrics = new FeatureFlagMetrics(meterRegistry);
+        lookupCache = new FeatureFlagLookupCache(true, Duration.ofSeconds(10), 100, metrics);
+        ReactiveFeatureFlagHandler handler = new ReactiveFeatureFlagHandler(repository, featureFlagValidator,
+                keyFilter, lookupCache, accessStats, metrics);
+        client = WebTestClient.bindToRouterFunction(handler.routes()).build();
+    }
+
+    @Test
+    void getFeatureFlag_WhenEnabled_ReturnsEnabledValue() {
+        // Given
+        when(featureFlagValidator.isFeatureFlagRegistered(FEATURE_FLAG_NAME)).thenReturn(true);
+        when(keyFilter.mightExist(ORG_ID, FEATURE_FLAG_NAME)).thenReturn(true);
+        when(repository.findEnabledByOrganizationIdAndName(ORG_ID, FEATURE_FLAG_NAME)).thenReturn(Mono.just(true));
+
+        // When & Then
+        client.get().uri("/{orgId}/{name}", ORG_ID, FEATURE_FLAG_NAME)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"name\":\"FeatureFlag1\",\"enabled\":true,\"organizationId\":1}");
+        assertEquals(1, meterRegistry.get("featureflags.lookup").tag("outcome", "enabled").timer().count());
+        verify(accessStats).recordRead(ORG_ID, FEATURE_FLAG_NAME);
+    }
+
+    @Test
+    void getFeatureFlag_SecondLookup_IsServedFromCache() {
+        // Given
+        when(featureFlagValidator.isFeatureFlagRegistered(FEATURE_FLAG_NAME)).thenReturn(true);
+        when(keyFilter.mightExist(ORG_ID, FEATURE_FLAG_NAME)).thenReturn(true);
+        when(repository.findEnabledByOrganizationIdAndName(ORG_ID, FEATURE_FLAG_NAME)).thenReturn(Mono.just(true));
+
+        // When
+        client.get().uri("/{orgId}/{name}", ORG_ID, FEATURE_FLAG_NAME).exchange().expectStatus().isOk();
+        client.get().uri("/{orgId}/{name}", ORG_ID, FEATURE_FLAG_NAME)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.enabled").isEqualTo(true);
+
+        // Then
+        verify(repository, times(1)).findEnabledByOrganizationIdAndName(ORG_ID, FEATURE_FLAG_NAME);
+        assertEquals(1, lookupCache.size());
+    }
+
+    @Test
+    void getFeatureFlag_KeyFilteredOut_ReturnsDisabledWithoutQuery() {
+        // Given
+        when(featureFlagValidator.isFeatureFlagRegistered(FEATURE_FLAG_NAME)).thenReturn(true);
+        when(keyFilter.mightExist(ORG_ID, FEATURE_FLAG_NAME)).thenReturn(false);
+
+        // When & Then
+        client.get().uri("/{orgId}/{name}", ORG_ID, FEATURE_FLAG_NAME)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.enabled").isEqualTo(false);
+        verifyNoInteractions(repository);
+        assertEquals(1, meterRegistry.get("featureflags.lookup").tag("outcome", "missing").timer().count());
+    }
+
+    @Test
+    void getFeatureFlag_WhenMissing_ReturnsDisabledValue() {
+        // Given
+        when(featureFlagValidator.isFeatureFlagRegistered(FEATURE_FLAG_NAME)).thenReturn(true);
+        when(keyFilter.mightExist(ORG_ID, FEATURE_FLAG_NAME)).thenReturn(true);
+        when(repository.findEnabledByOrganizationIdAndName(ORG_ID, FEATURE_FLAG_NAME)).thenReturn(Mono.empty());
+
+        // When & Then
+        client.get().uri("/{orgId}/{name}", ORG_ID, FEATURE_FLAG_NAME)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.enabled").isEqualTo(false);
+        assertEquals(1, meterRegistry.get("featureflags.lookup").tag("outcome", "missing").timer().count());
+        verify(keyFilter).recordMissing();
+    }
+
+    @Test
+    void getFeatureFlag_WhenNotRegistered_ReturnsNotFound() {
+        // Given
+        when(featureFlagValidator.isFeatureFlagRegistered("unknown")).thenReturn(false);
+
+        // When & Then
+        client.get().uri("/{orgId}/{name}", ORG_ID, "unknown")
+                .exchange()
+                .expectStatus().isNotFound();
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void getFeatureFlag_InvalidOrgId_ReturnsBadRequest() {
+        client.get().uri("/abc/{name}", FEATURE_FLAG_NAME)
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(repository, never()).findEnabledByOrganizationIdAndName(any(), anyString());
+    }
+
+    @Test
+    void toR2dbcUrl_ConvertsPostgresJdbcUrl() {
+        assertEquals("r2dbc:postgresql://db:5432/feature_flag_service_db",
+                ReactiveServerConfiguration.toR2dbcUrl("jdbc:postgresql://db:5432/feature_flag_service_db"));
+        assertThrows(IllegalStateException.class,
+                () -> ReactiveServerConfiguration.toR2dbcUrl("jdbc:h2:mem:test"));
+    }
+}
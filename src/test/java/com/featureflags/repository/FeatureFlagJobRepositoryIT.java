@@ -0,0 +1,79 @@
+package com.featureflags.repository;
+
+import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.model.Organization;
+import com.featureflags.service.OrganizationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Job queries that only Postgres can run, against the migrated schema
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class FeatureFlagJobRepositoryIT {
+
+    @Container
+    static final PostgreSQLContainer<?> database = new PostgreSQLContainer<>("postgres:14-alpine")
+            .withDatabaseName("feature_flag_service_db");
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", database::getJdbcUrl);
+        registry.add("spring.datasource.username", database::getUsername);
+        registry.add("spring.datasource.password", database::getPassword);
+    }
+
+    @Autowired
+    private FeatureFlagJobRepository jobRepository;
+
+    @Autowired
+    private OrganizationService organizationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void cancel_TwoLevelRetryChain_CancelsEveryUnfinishedRetry() {
+        // Given - A retried as B, B retried as C, and a job outside the chain
+        organizationService.addOrganization(new Organization(9101L, "Cancel IT", null));
+        FeatureFlagJob original = job(null, FeatureFlagJob.JobStatus.IN_PROGRESS);
+        FeatureFlagJob retry = job(original.getId(), FeatureFlagJob.JobStatus.RETRYING);
+        FeatureFlagJob retryOfRetry = job(retry.getId(), FeatureFlagJob.JobStatus.PENDING);
+        FeatureFlagJob unrelated = job(null, FeatureFlagJob.JobStatus.PENDING);
+
+        // When
+        Integer cancelled = new TransactionTemplate(transactionManager).execute(
+                status -> jobRepository.cancel(original.getId(), LocalDateTime.now()));
+
+        // Then
+        assertEquals(3, cancelled);
+        assertEquals(FeatureFlagJob.JobStatus.CANCELLED, statusOf(original));
+        assertEquals(FeatureFlagJob.JobStatus.CANCELLED, statusOf(retry));
+        assertEquals(FeatureFlagJob.JobStatus.CANCELLED, statusOf(retryOfRetry));
+        assertEquals(FeatureFlagJob.JobStatus.PENDING, statusOf(unrelated));
+    }
+
+    private FeatureFlagJob job(Long parentJobId, FeatureFlagJob.JobStatus status) {
+        FeatureFlagJob job = new FeatureFlagJob(9101L, "cancel-it", true, 1);
+        job.setParentJobId(parentJobId);
+        job.setStatus(status);
+        return jobRepository.save(job);
+    }
+
+    private FeatureFlagJob.JobStatus statusOf(FeatureFlagJob job) {
+        return jobRepository.findById(job.getId()).orElseThrow().getStatus();
+    }
+}
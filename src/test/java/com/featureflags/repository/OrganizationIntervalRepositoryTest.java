@@ -0,0 +1,64 @@
+package com.featureflags.repository;
+
+import com.featureflags.model.OrganizationInterval;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrganizationIntervalRepositoryTest {
+
+        private static final OrganizationInterval ROOT = new OrganizationInterval(1L, 1L, 0,
+                        OrganizationIntervalRepository.ROOT_EXIT);
+
+        @Test
+        void childWidth_ParentWithFreeSlots_TakesFixedSlotEveryTime() {
+                // Given
+                OrganizationInterval parent = new OrganizationInterval(2L, 1L, 1, 1L << 44);
+                long lastExit = parent.getEnter();
+
+                // When - the first CHILD_SLOTS - 1 children
+                for (int child = 1; child < OrganizationIntervalRepository.CHILD_SLOTS; child++) {
+                        long width = OrganizationIntervalRepository.childWidth(parent, lastExit);
+
+                        // Then
+                        assertEquals(1L << 37, width);
+                        lastExit += width;
+                }
+                assertTrue(lastExit <= parent.getExit());
+        }
+
+        @Test
+        void childWidth_ChildOfRoot_IsCapped() {
+                // When
+                long width = OrganizationIntervalRepository.childWidth(ROOT, ROOT.getEnter());
+
+                // Then
+                assertEquals(OrganizationIntervalRepository.MAX_NEW_ORGANIZATION_WIDTH, width);
+        }
+
+        @Test
+        void childWidth_SevenLevelsBelowRoot_StillHasRoom() {
+                // Given
+                OrganizationInterval parent = ROOT;
+
+                // When
+                for (int depth = 1; depth <= 7; depth++) {
+                        long width = OrganizationIntervalRepository.childWidth(parent, parent.getEnter());
+                        parent = new OrganizationInterval((long) depth + 1, 1L, parent.getEnter() + 1,
+                                        parent.getEnter() + width);
+                }
+
+                // Then
+                assertEquals(4, parent.getExit() - parent.getEnter() + 1);
+        }
+
+        @Test
+        void childWidth_NoSlotLeft_HalvesTheFreeEndUntilItRunsOut() {
+                // Given - a slot is 8 wide but only 5 are free
+                OrganizationInterval parent = new OrganizationInterval(2L, 1L, 0, 1023);
+
+                // When / Then
+                assertEquals(2, OrganizationIntervalRepository.childWidth(parent, 1018));
+                assertEquals(0, OrganizationIntervalRepository.childWidth(parent, 1022));
+        }
+}
@@ -0,0 +1,96 @@
+package com.featureflags.service;
+
+import com.featureflags.model.FeatureFlagKey;
+import com.featureflags.repository.FeatureFlagAccessStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagAccessStatsTest {
+
+        @Mock
+        private FeatureFlagAccessStatsRepository repository;
+
+        @Test
+        void flush_AddsCountsSinceLastFlush() {
+                // Given
+                FeatureFlagAccessStats accessStats = new FeatureFlagAccessStats(repository, 1, 100);
+                accessStats.recordRead(1L, "test-flag");
+                accessStats.recordRead(1L, "test-flag");
+                accessStats.recordRead(2L, "test-flag");
+
+                // When
+                accessStats.flush();
+                accessStats.flush();
+
+                // Then - the second flush has nothing to add
+                @SuppressWarnings("unchecked")
+                ArgumentCaptor<Map<FeatureFlagKey, Long>> reads = ArgumentCaptor.forClass(Map.class);
+                verify(repository).addReads(reads.capture(), any(LocalDateTime.class));
+                assertEquals(Map.of(new FeatureFlagKey(1L, "test-flag"), 2L, new FeatureFlagKey(2L, "test-flag"), 1L),
+                                reads.getValue());
+        }
+
+        @Test
+        void recordRead_Sampled_CountsSampleRatePerSampledRead() {
+                // Given
+                FeatureFlagAccessStats accessStats = new FeatureFlagAccessStats(repository, 4, 100);
+                for (int i = 0; i < 1000; i++) {
+                        accessStats.recordRead(1L, "test-flag");
+                }
+
+                // When
+                accessStats.flush();
+
+                // Then
+                @SuppressWarnings("unchecked")
+                ArgumentCaptor<Map<FeatureFlagKey, Long>> reads = ArgumentCaptor.forClass(Map.class);
+                verify(repository).addReads(reads.capture(), any(LocalDateTime.class));
+                long estimate = reads.getValue().get(new FeatureFlagKey(1L, "test-flag"));
+                assertEquals(0, estimate % 4);
+                assertTrue(estimate > 500 && estimate < 1500, "estimate " + estimate);
+        }
+
+        @Test
+        void recordRead_Full_IgnoresNewEntries() {
+                // Given
+                FeatureFlagAccessStats accessStats = new FeatureFlagAccessStats(repository, 1, 1);
+                accessStats.recordRead(1L, "test-flag");
+                accessStats.recordRead(2L, "test-flag");
+                accessStats.recordRead(1L, "test-flag");
+
+                // When
+                accessStats.flush();
+
+                // Then
+                verify(repository).addReads(eq(Map.of(new FeatureFlagKey(1L, "test-flag"), 2L)),
+                                any(LocalDateTime.class));
+        }
+
+        @Test
+        void flush_DatabaseUnavailable_DropsCounts() {
+                // Given
+                FeatureFlagAccessStats accessStats = new FeatureFlagAccessStats(repository, 1, 100);
+                accessStats.recordRead(1L, "test-flag");
+                doThrow(new DataAccessResourceFailureException("Connection refused"))
+                                .when(repository).addReads(any(), any());
+
+                // When
+                accessStats.flush();
+                accessStats.flush();
+
+                // Then
+                verify(repository, times(1)).addReads(any(), any());
+        }
+}
@@ -1,20 +1,39 @@
 package com.featureflags.service;
 
+import com.featureflags.config.ReplicaRouting;
+import com.featureflags.metrics.FeatureFlagMetrics;
 import com.featureflags.model.FeatureFlag;
 import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.model.FeatureFlagJobPage;
+import com.featureflags.model.FeatureFlagJobStats;
+import com.featureflags.model.FeatureFlagJobSummary;
+import com.featureflags.model.OrganizationInterval;
 import com.featureflags.repository.FeatureFlagJobRepository;
+import com.featureflags.repository.FeatureFlagPropagationRepository;
 import com.featureflags.repository.FeatureFlagRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -26,13 +45,34 @@ class FeatureFlagBackgroundServiceTest {
         @Mock
         private FeatureFlagRepository featureFlagRepository;
 
+        @Mock
+        private FeatureFlagPropagationRepository propagationRepository;
+
         @Mock
         private FeatureFlagJobRepository jobRepository;
 
         @Mock
         private OrganizationService organizationService;
 
-        @InjectMocks
+        @Spy
+        private FeatureFlagMetrics metrics = new FeatureFlagMetrics(new SimpleMeterRegistry());
+
+        @Spy
+        private ReplicaRouting replicaRouting = new ReplicaRouting(false, Duration.ofSeconds(5),
+                        Duration.ofSeconds(2), metrics);
+
+        @Spy
+        private TransactionTemplate transactionTemplate = new TransactionTemplate(
+                        mock(PlatformTransactionManager.class));
+
+        private final FeatureFlagLookupCache lookupCache = new FeatureFlagLookupCache(true, Duration.ofSeconds(10),
+                        1000, metrics);
+
+        @Spy
+        private LookupCacheInvalidator cacheInvalidator = new LookupCacheInvalidator(mock(JdbcTemplate.class),
+                        lookupCache, mock(FeatureFlagKeyFilter.class), replicaRouting, metrics,
+                        new DataSourceProperties(), false, Duration.ofSeconds(5), Duration.ofSeconds(5));
+
         private FeatureFlagBackgroundService backgroundService;
 
         private FeatureFlagJob testJob;
@@ -43,17 +83,49 @@ class FeatureFlagBackgroundServiceTest {
 
         @BeforeEach
         void setUp() {
+                backgroundService = new FeatureFlagBackgroundService(featureFlagRepository, propagationRepository,
+                                jobRepository, organizationService, metrics, replicaRouting, transactionTemplate,
+                                cacheInvalidator, 10);
                 testJob = new FeatureFlagJob(ORG_ID, FLAG_NAME, ENABLED, 3); // parent + 2 children
                 testJob.setId(JOB_ID);
         }
 
+        /**
+         * Number ORG_ID's subtree with its descendants in the given pre-order,
+         * ten apart, and have range writes return the organizations in range
+         */
+        private void givenSubtree(List<Long> descendantIds) {
+                OrganizationInterval subtree = new OrganizationInterval(ORG_ID, ORG_ID, 0, 1000);
+                List<OrganizationInterval> preOrder = new ArrayList<>();
+                for (int i = 0; i < descendantIds.size(); i++) {
+                        long enter = 10L * (i + 1);
+                        preOrder.add(new OrganizationInterval(descendantIds.get(i), ORG_ID, enter, enter));
+                }
+                lenient().when(organizationService.countDescendants(ORG_ID)).thenReturn((long) descendantIds.size());
+                lenient().when(organizationService.lockSubtree(ORG_ID)).thenReturn(subtree);
+                lenient().when(organizationService.findInterval(anyLong())).thenAnswer(invocation -> preOrder.stream()
+                                .filter(org -> org.getOrganizationId().equals(invocation.getArgument(0)))
+                                .findFirst());
+                lenient().when(organizationService.findSubtreeChunk(eq(subtree), anyLong(), anyInt()))
+                                .thenAnswer(invocation -> preOrder.stream()
+                                                .filter(org -> org.getEnter() > (long) invocation.getArgument(1))
+                                                .limit((int) invocation.getArgument(2))
+                                                .collect(Collectors.toList()));
+                lenient().when(propagationRepository.writeRange(eq(FLAG_NAME), anyBoolean(), eq(ORG_ID), anyLong(),
+                                anyLong())).thenAnswer(invocation -> preOrder.stream()
+                                                .filter(org -> org.getEnter() > (long) invocation.getArgument(3)
+                                                                && org.getEnter() <= (long) invocation.getArgument(4))
+                                                .map(OrganizationInterval::getOrganizationId)
+                                                .collect(Collectors.toList()));
+        }
+
         @Test
         void processFeatureFlagHierarchyUpdate_Success_CompletesJob() {
                 // Given
                 List<Long> descendantIds = Arrays.asList(2L, 3L);
 
                 when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
-                when(organizationService.getAllDescendantIds(ORG_ID)).thenReturn(descendantIds);
+                givenSubtree(descendantIds);
                 when(featureFlagRepository.findByOrganizationIdAndName(anyLong(), eq(FLAG_NAME)))
                                 .thenReturn(Optional.empty());
                 when(featureFlagRepository.save(any(FeatureFlag.class)))
@@ -66,46 +138,340 @@ class FeatureFlagBackgroundServiceTest {
 
                 // Then
                 verify(jobRepository, atLeast(1)).findById(JOB_ID);
-                verify(organizationService).getAllDescendantIds(ORG_ID);
+                verify(organizationService).countDescendants(ORG_ID);
 
                 // Verify parent organization updated
                 verify(featureFlagRepository).findByOrganizationIdAndName(ORG_ID, FLAG_NAME);
+                verify(featureFlagRepository, times(1)).save(any(FeatureFlag.class));
 
-                // Verify descendant organizations updated
-                verify(featureFlagRepository).findByOrganizationIdAndName(2L, FLAG_NAME);
-                verify(featureFlagRepository).findByOrganizationIdAndName(3L, FLAG_NAME);
-
-                // Verify feature flags saved (parent + 2 descendants = 3 total)
-                verify(featureFlagRepository, times(3)).save(any(FeatureFlag.class));
+                // Verify descendant organizations updated with one range write
+                verify(propagationRepository).writeRange(FLAG_NAME, ENABLED, ORG_ID, 0L, 20L);
 
                 // Verify job status updated multiple times (progress updates)
                 verify(jobRepository, atLeast(3)).save(any(FeatureFlagJob.class));
+
+                // Verify run statistics recorded on the job
+                assertEquals(3, testJob.getRowsWritten());
+                assertEquals(0, testJob.getRowsSkipped());
+                assertNotNull(testJob.getStartedAt());
+                assertNotNull(testJob.getOrgsPerSecond());
+                assertTrue(testJob.getOrgsPerSecond() > 0);
         }
 
         @Test
-        void processFeatureFlagHierarchyUpdate_WithExistingFlags_UpdatesFlags() {
+        void processFeatureFlagHierarchyUpdate_InvalidatesCachedLookupsOfWrittenOrganizations() {
                 // Given
-                List<Long> descendantIds = Arrays.asList(2L);
-                FeatureFlag existingFlag = new FeatureFlag(FLAG_NAME, null, false, 2L);
+                lookupCache.get(ORG_ID, FLAG_NAME, () -> !ENABLED);
+                lookupCache.get(2L, FLAG_NAME, () -> null);
+                lookupCache.get(2L, "other-flag", () -> ENABLED);
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+                givenSubtree(Arrays.asList(2L, 3L));
+                when(featureFlagRepository.findByOrganizationIdAndName(anyLong(), eq(FLAG_NAME)))
+                                .thenReturn(Optional.empty());
 
+                // When
+                backgroundService.processFeatureFlagHierarchyUpdate(JOB_ID);
+
+                // Then
+                verify(cacheInvalidator).flagChanged(FLAG_NAME, List.of(ORG_ID));
+                verify(cacheInvalidator).flagChanged(FLAG_NAME, List.of(2L, 3L));
+                assertEquals(1, lookupCache.size());
+        }
+
+        @Test
+        void processFeatureFlagHierarchyUpdate_RowsAlreadyHoldingValue_CountedAsSkipped() {
+                // Given - the parent and organization 2 already have the value
+                FeatureFlag parentFlag = new FeatureFlag(FLAG_NAME, null, ENABLED, ORG_ID);
                 when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
-                when(organizationService.getAllDescendantIds(ORG_ID)).thenReturn(descendantIds);
+                givenSubtree(Arrays.asList(2L, 3L));
+                when(propagationRepository.writeRange(FLAG_NAME, ENABLED, ORG_ID, 0L, 20L)).thenReturn(List.of(3L));
                 when(featureFlagRepository.findByOrganizationIdAndName(ORG_ID, FLAG_NAME))
+                                .thenReturn(Optional.of(parentFlag));
+
+                // When
+                backgroundService.processFeatureFlagHierarchyUpdate(JOB_ID);
+
+                // Then
+                verify(featureFlagRepository, never()).save(any(FeatureFlag.class));
+                verify(cacheInvalidator, never()).flagChanged(FLAG_NAME, List.of(ORG_ID));
+                verify(cacheInvalidator).flagChanged(FLAG_NAME, List.of(3L));
+                assertEquals(3, testJob.getProcessedOrganizations());
+                assertEquals(1, testJob.getRowsWritten());
+                assertEquals(2, testJob.getRowsSkipped());
+                assertEquals(FeatureFlagJob.JobStatus.COMPLETED, testJob.getStatus());
+        }
+
+        @Test
+        void processFeatureFlagHierarchyUpdate_SupersededWhileQueued_SkipsJob() {
+                // Given
+                testJob.markAsSuperseded(2L);
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+
+                // When
+                backgroundService.processFeatureFlagHierarchyUpdate(JOB_ID);
+
+                // Then
+                verifyNoInteractions(featureFlagRepository, organizationService);
+                verify(jobRepository, never()).save(any());
+                verify(jobRepository, never()).lockHierarchyUpdates(any(), any());
+        }
+
+        @Test
+        void processFeatureFlagHierarchyUpdate_NewerRequestBeforeStart_SupersedesWithoutWriting() {
+                // Given
+                FeatureFlagJob newerJob = new FeatureFlagJob(ORG_ID, FLAG_NAME, !ENABLED, 3);
+                newerJob.setId(2L);
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+                when(jobRepository.findFirstByOrganizationIdAndFeatureFlagNameAndRequestedAtAfterOrderByRequestedAtDesc(
+                                ORG_ID, FLAG_NAME, testJob.getRequestedAt())).thenReturn(Optional.of(newerJob));
+
+                // When
+                backgroundService.processFeatureFlagHierarchyUpdate(JOB_ID);
+
+                // Then
+                verify(jobRepository).lockHierarchyUpdates(ORG_ID, FLAG_NAME);
+                verifyNoInteractions(featureFlagRepository);
+                assertEquals(FeatureFlagJob.JobStatus.SUPERSEDED, testJob.getStatus());
+                assertEquals(2L, testJob.getSupersededByJobId());
+                verify(metrics).propagationJobFinished(FeatureFlagMetrics.OUTCOME_SUPERSEDED);
+        }
+
+        @Test
+        void processFeatureFlagHierarchyUpdate_NewerRequestWhileRunning_StopsBeforeNextChunk() {
+                // Given: parent, then a chunk of 10 and a chunk of 4 descendants
+                List<Long> descendantIds = new java.util.ArrayList<>();
+                for (long id = 2; id <= 15; id++) {
+                        descendantIds.add(id);
+                }
+                testJob.setTotalOrganizations(15);
+                FeatureFlagJob newerJob = new FeatureFlagJob(ORG_ID, FLAG_NAME, !ENABLED, 15);
+                newerJob.setId(2L);
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+                givenSubtree(descendantIds);
+                when(featureFlagRepository.findByOrganizationIdAndName(anyLong(), eq(FLAG_NAME)))
                                 .thenReturn(Optional.empty());
-                when(featureFlagRepository.findByOrganizationIdAndName(2L, FLAG_NAME))
-                                .thenReturn(Optional.of(existingFlag));
-                when(featureFlagRepository.save(any(FeatureFlag.class)))
-                                .thenAnswer(invocation -> invocation.getArgument(0));
-                when(jobRepository.save(any(FeatureFlagJob.class)))
-                                .thenAnswer(invocation -> invocation.getArgument(0));
+                when(jobRepository.findFirstByOrganizationIdAndFeatureFlagNameAndRequestedAtAfterOrderByRequestedAtDesc(
+                                ORG_ID, FLAG_NAME, testJob.getRequestedAt()))
+                                .thenReturn(Optional.empty())
+                                .thenReturn(Optional.empty())
+                                .thenReturn(Optional.of(newerJob));
 
                 // When
                 backgroundService.processFeatureFlagHierarchyUpdate(JOB_ID);
 
                 // Then
-                verify(featureFlagRepository).save(argThat(flag -> flag.getOrganizationId().equals(2L) &&
-                                flag.getName().equals(FLAG_NAME) &&
-                                flag.isEnabled() == ENABLED));
+                verify(featureFlagRepository, times(1)).save(any(FeatureFlag.class));
+                verify(propagationRepository, times(1)).writeRange(anyString(), anyBoolean(), anyLong(), anyLong(),
+                                anyLong());
+                assertEquals(FeatureFlagJob.JobStatus.SUPERSEDED, testJob.getStatus());
+                assertEquals(11, testJob.getProcessedOrganizations());
+                verify(metrics).propagationJobFinished(FeatureFlagMetrics.OUTCOME_SUPERSEDED);
+        }
+
+        @Test
+        void processFeatureFlagHierarchyUpdate_CancelledWhileRunning_StopsBeforeNextChunk() {
+                // Given: parent, then a chunk of 10 and a chunk of 4 descendants
+                List<Long> descendantIds = new java.util.ArrayList<>();
+                for (long id = 2; id <= 15; id++) {
+                        descendantIds.add(id);
+                }
+                testJob.setTotalOrganizations(15);
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+                givenSubtree(descendantIds);
+                when(featureFlagRepository.findByOrganizationIdAndName(anyLong(), eq(FLAG_NAME)))
+                                .thenReturn(Optional.empty());
+                when(jobRepository.lockStatus(JOB_ID)).thenReturn("PENDING", "IN_PROGRESS", "CANCELLED");
+
+                // When
+                backgroundService.processFeatureFlagHierarchyUpdate(JOB_ID);
+
+                // Then
+                verify(featureFlagRepository, times(1)).save(any(FeatureFlag.class));
+                verify(propagationRepository, times(1)).writeRange(anyString(), anyBoolean(), anyLong(), anyLong(),
+                                anyLong());
+                assertEquals(FeatureFlagJob.JobStatus.CANCELLED, testJob.getStatus());
+                assertEquals(11, testJob.getProcessedOrganizations());
+                assertNotNull(testJob.getCompletedAt());
+                verify(jobRepository, never()).save(argThat(job -> job.getStatus() == FeatureFlagJob.JobStatus.COMPLETED));
+                verify(metrics).propagationJobFinished(FeatureFlagMetrics.OUTCOME_CANCELLED);
+        }
+
+        @Test
+        void processFeatureFlagHierarchyUpdate_CancelledWhileQueued_SkipsJob() {
+                // Given
+                testJob.markAsCancelled();
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+
+                // When
+                backgroundService.processFeatureFlagHierarchyUpdate(JOB_ID);
+
+                // Then
+                verifyNoInteractions(featureFlagRepository, organizationService, transactionTemplate);
+                verify(metrics, never()).propagationJobStarted();
+        }
+
+        @Test
+        void processFeatureFlagHierarchyUpdate_CommitsEachChunkSeparately() {
+                // Given: parent, then chunks of 10 and 2 descendants, then completion
+                List<Long> descendantIds = new java.util.ArrayList<>();
+                for (long id = 2; id <= 13; id++) {
+                        descendantIds.add(id);
+                }
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+                givenSubtree(descendantIds);
+                when(featureFlagRepository.findByOrganizationIdAndName(anyLong(), eq(FLAG_NAME)))
+                                .thenReturn(Optional.empty());
+
+                // When
+                backgroundService.processFeatureFlagHierarchyUpdate(JOB_ID);
+
+                // Then
+                verify(transactionTemplate, times(4)).execute(any());
+                verify(jobRepository, times(4)).lockStatus(JOB_ID);
+                assertEquals(FeatureFlagJob.JobStatus.COMPLETED, testJob.getStatus());
+                assertEquals(13, testJob.getTotalOrganizations());
+        }
+
+        @Test
+        void processFeatureFlagHierarchyUpdate_ResumedJob_SkipsCommittedOrganizations() {
+                // Given: an earlier run committed the root and descendants up to 5 in pre-order
+                FeatureFlagJob previousRun = new FeatureFlagJob(ORG_ID, FLAG_NAME, ENABLED, 6);
+                previousRun.setProcessedOrganizations(4);
+                previousRun.advanceCursor(5L);
+                testJob.resumeFrom(previousRun);
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+                givenSubtree(Arrays.asList(7L, 3L, 5L, 9L, 4L));
+
+                // When
+                backgroundService.processFeatureFlagHierarchyUpdate(JOB_ID);
+
+                // Then: only the range after organization 5 is written
+                verifyNoInteractions(featureFlagRepository);
+                verify(propagationRepository).writeRange(FLAG_NAME, ENABLED, ORG_ID, 30L, 50L);
+                verifyNoMoreInteractions(propagationRepository);
+                assertEquals(FeatureFlagJob.JobStatus.COMPLETED, testJob.getStatus());
+                assertEquals(6, testJob.getProcessedOrganizations());
+                assertEquals(2, testJob.getRowsWritten());
+                assertEquals(4L, testJob.getLastProcessedOrgId());
+        }
+
+        @Test
+        void processFeatureFlagHierarchyUpdate_ChunkRollsBack_KeepsCursorAtLastCommit() {
+                // Given: root, a chunk of 10 that commits, then a chunk whose checkpoint fails
+                List<Long> descendantIds = new java.util.ArrayList<>();
+                for (long id = 2; id <= 13; id++) {
+                        descendantIds.add(id);
+                }
+                testJob.setRetryCount(testJob.getMaxRetries());
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+                givenSubtree(descendantIds);
+                when(featureFlagRepository.findByOrganizationIdAndName(anyLong(), eq(FLAG_NAME)))
+                                .thenReturn(Optional.empty());
+                java.util.concurrent.atomic.AtomicInteger saves = new java.util.concurrent.atomic.AtomicInteger();
+                when(jobRepository.save(any(FeatureFlagJob.class))).thenAnswer(invocation -> {
+                        if (saves.incrementAndGet() == 3) {
+                                throw new RuntimeException("Connection reset");
+                        }
+                        return invocation.getArgument(0);
+                });
+
+                // When
+                backgroundService.processFeatureFlagHierarchyUpdate(JOB_ID);
+
+                // Then
+                assertEquals(FeatureFlagJob.JobStatus.FAILED, testJob.getStatus());
+                assertEquals(11L, testJob.getLastProcessedOrgId());
+                assertEquals(11, testJob.getProcessedOrganizations());
+                assertEquals(11, testJob.getRowsWritten());
+        }
+
+        @Test
+        void manualRetryJob_ContinuesFromFailedJobCursor() {
+                // Given
+                FeatureFlagJob failedJob = new FeatureFlagJob(ORG_ID, FLAG_NAME, ENABLED, 15);
+                failedJob.setId(JOB_ID);
+                failedJob.setProcessedOrganizations(11);
+                failedJob.advanceCursor(11L);
+                failedJob.markAsFailed("Connection reset");
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(failedJob));
+                when(jobRepository.save(any(FeatureFlagJob.class))).thenAnswer(invocation -> {
+                        FeatureFlagJob job = invocation.getArgument(0);
+                        if (job.getId() == null) {
+                                job.setId(125L);
+                        }
+                        return job;
+                });
+                // The retry run itself is covered above; skip it here
+                FeatureFlagJob retryJob = new FeatureFlagJob(ORG_ID, FLAG_NAME, ENABLED, 15, JOB_ID);
+                retryJob.markAsCancelled();
+                when(jobRepository.findById(125L)).thenReturn(Optional.of(retryJob));
+
+                // When
+                backgroundService.manualRetryJob(JOB_ID);
+
+                // Then
+                verify(jobRepository).save(argThat(job -> JOB_ID.equals(job.getParentJobId())
+                                && Long.valueOf(11L).equals(job.getLastProcessedOrgId())
+                                && job.getProcessedOrganizations() == 11
+                                && job.getRequestedAt().equals(failedJob.getRequestedAt())));
+        }
+
+        @Test
+        void cancelJob_ActiveJob_ReturnsCancelledJob() {
+                // Given
+                FeatureFlagJob cancelledJob = new FeatureFlagJob(ORG_ID, FLAG_NAME, ENABLED, 3);
+                cancelledJob.markAsCancelled();
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob))
+                                .thenReturn(Optional.of(cancelledJob));
+                when(jobRepository.cancel(eq(JOB_ID), any(LocalDateTime.class))).thenReturn(1);
+
+                // When
+                FeatureFlagJob result = backgroundService.cancelJob(JOB_ID);
+
+                // Then
+                assertEquals(FeatureFlagJob.JobStatus.CANCELLED, result.getStatus());
+        }
+
+        @Test
+        void cancelJob_FinishedJob_ThrowsIllegalStateException() {
+                // Given
+                testJob.markAsCompleted();
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+                when(jobRepository.cancel(eq(JOB_ID), any(LocalDateTime.class))).thenReturn(0);
+
+                // When & Then
+                IllegalStateException exception = assertThrows(IllegalStateException.class,
+                                () -> backgroundService.cancelJob(JOB_ID));
+                assertTrue(exception.getMessage().contains("COMPLETED"));
+        }
+
+        @Test
+        void cancelJob_UnknownJob_ThrowsIllegalArgumentException() {
+                // Given
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.empty());
+
+                // When & Then
+                assertThrows(IllegalArgumentException.class, () -> backgroundService.cancelJob(JOB_ID));
+                verify(jobRepository, never()).cancel(any(), any());
+        }
+
+        @Test
+        void processFeatureFlagHierarchyUpdate_CursorLeftSubtree_RestartsFromSubtreeStart() {
+                // Given: the cursor's organization has since been moved out of the subtree
+                FeatureFlagJob previousRun = new FeatureFlagJob(ORG_ID, FLAG_NAME, ENABLED, 3);
+                previousRun.setProcessedOrganizations(2);
+                previousRun.advanceCursor(8L);
+                testJob.resumeFrom(previousRun);
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+                givenSubtree(Arrays.asList(2L, 3L));
+
+                // When
+                backgroundService.processFeatureFlagHierarchyUpdate(JOB_ID);
+
+                // Then
+                verify(propagationRepository).writeRange(FLAG_NAME, ENABLED, ORG_ID, 0L, 20L);
+                assertEquals(FeatureFlagJob.JobStatus.COMPLETED, testJob.getStatus());
+                assertEquals(3L, testJob.getLastProcessedOrgId());
         }
 
         @Test
@@ -114,7 +480,7 @@ class FeatureFlagBackgroundServiceTest {
                 List<Long> descendantIds = Collections.emptyList();
 
                 when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
-                when(organizationService.getAllDescendantIds(ORG_ID)).thenReturn(descendantIds);
+                givenSubtree(descendantIds);
                 when(featureFlagRepository.findByOrganizationIdAndName(ORG_ID, FLAG_NAME))
                                 .thenReturn(Optional.empty());
                 when(featureFlagRepository.save(any(FeatureFlag.class)))
@@ -126,10 +492,11 @@ class FeatureFlagBackgroundServiceTest {
                 backgroundService.processFeatureFlagHierarchyUpdate(JOB_ID);
 
                 // Then
-                verify(organizationService).getAllDescendantIds(ORG_ID);
+                verify(organizationService).countDescendants(ORG_ID);
 
                 // Only parent organization should be updated
                 verify(featureFlagRepository, times(1)).save(any(FeatureFlag.class));
+                verifyNoInteractions(propagationRepository);
                 verify(featureFlagRepository).save(argThat(flag -> flag.getOrganizationId().equals(ORG_ID) &&
                                 flag.getName().equals(FLAG_NAME) &&
                                 flag.isEnabled() == ENABLED));
@@ -153,7 +520,7 @@ class FeatureFlagBackgroundServiceTest {
         void processFeatureFlagHierarchyUpdate_OrganizationServiceThrowsException_MarksJobAsFailed() {
                 // Given
                 when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
-                when(organizationService.getAllDescendantIds(ORG_ID))
+                when(organizationService.countDescendants(ORG_ID))
                                 .thenThrow(new RuntimeException("Database connection failed"));
                 when(jobRepository.save(any(FeatureFlagJob.class)))
                                 .thenAnswer(invocation -> {
@@ -180,35 +547,25 @@ class FeatureFlagBackgroundServiceTest {
         }
 
         @Test
-        void processFeatureFlagHierarchyUpdate_IndividualOrganizationFails_ContinuesWithOthers() {
+        void processFeatureFlagHierarchyUpdate_RangeWriteFails_KeepsCursorAtLastCommit() {
                 // Given
-                List<Long> descendantIds = Arrays.asList(2L, 3L, 4L);
-
+                testJob.setRetryCount(testJob.getMaxRetries());
                 when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
-                when(organizationService.getAllDescendantIds(ORG_ID)).thenReturn(descendantIds);
+                givenSubtree(Arrays.asList(2L, 3L, 4L));
                 when(featureFlagRepository.findByOrganizationIdAndName(ORG_ID, FLAG_NAME))
                                 .thenReturn(Optional.empty());
-                when(featureFlagRepository.findByOrganizationIdAndName(2L, FLAG_NAME))
-                                .thenReturn(Optional.empty());
-                when(featureFlagRepository.findByOrganizationIdAndName(3L, FLAG_NAME))
-                                .thenThrow(new RuntimeException("Individual org failure"));
-                when(featureFlagRepository.findByOrganizationIdAndName(4L, FLAG_NAME))
-                                .thenReturn(Optional.empty());
-                when(featureFlagRepository.save(any(FeatureFlag.class)))
-                                .thenAnswer(invocation -> invocation.getArgument(0));
-                when(jobRepository.save(any(FeatureFlagJob.class)))
-                                .thenAnswer(invocation -> invocation.getArgument(0));
+                when(propagationRepository.writeRange(FLAG_NAME, ENABLED, ORG_ID, 0L, 30L))
+                                .thenThrow(new RuntimeException("Deadlock detected"));
 
                 // When
                 backgroundService.processFeatureFlagHierarchyUpdate(JOB_ID);
 
                 // Then
-                // Should still process parent, org 2, and org 4 (skipping org 3)
-                verify(featureFlagRepository, times(3)).save(any(FeatureFlag.class));
-
-                // Job should complete successfully despite individual failure
-                verify(jobRepository, atLeastOnce())
-                                .save(argThat(job -> job.getStatus() == FeatureFlagJob.JobStatus.COMPLETED));
+                assertEquals(FeatureFlagJob.JobStatus.FAILED, testJob.getStatus());
+                assertEquals(ORG_ID, testJob.getLastProcessedOrgId());
+                assertEquals(1, testJob.getProcessedOrganizations());
+                assertEquals(1, testJob.getRowsWritten());
+                verify(cacheInvalidator, never()).flagChanged(FLAG_NAME, List.of(2L, 3L, 4L));
         }
 
         @Test
@@ -219,7 +576,7 @@ class FeatureFlagBackgroundServiceTest {
                 testJob.setTotalOrganizations(16); // parent + 15 descendants
 
                 when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
-                when(organizationService.getAllDescendantIds(ORG_ID)).thenReturn(descendantIds);
+                givenSubtree(descendantIds);
                 when(featureFlagRepository.findByOrganizationIdAndName(anyLong(), eq(FLAG_NAME)))
                                 .thenReturn(Optional.empty());
                 when(featureFlagRepository.save(any(FeatureFlag.class)))
@@ -235,8 +592,12 @@ class FeatureFlagBackgroundServiceTest {
                 // completion)
                 verify(jobRepository, atLeast(3)).save(any(FeatureFlagJob.class));
 
-                // Should process all organizations
-                verify(featureFlagRepository, times(16)).save(any(FeatureFlag.class));
+                // Should process all organizations: the parent, then ranges of 10 and 5
+                verify(featureFlagRepository, times(1)).save(any(FeatureFlag.class));
+                verify(propagationRepository).writeRange(FLAG_NAME, ENABLED, ORG_ID, 0L, 100L);
+                verify(propagationRepository).writeRange(FLAG_NAME, ENABLED, ORG_ID, 100L, 150L);
+                assertEquals(16, testJob.getProcessedOrganizations());
+                assertEquals(16, testJob.getRowsWritten());
         }
 
         @Test
@@ -271,40 +632,56 @@ class FeatureFlagBackgroundServiceTest {
         }
 
         @Test
-        void getJobsForOrganization_ValidOrgId_ReturnsJobList() {
+        void getJobsForOrganization_MoreJobsThanLimit_ReturnsPageWithNextCursor() {
                 // Given
-                FeatureFlagJob job1 = new FeatureFlagJob(ORG_ID, FLAG_NAME, true, 5);
-                FeatureFlagJob job2 = new FeatureFlagJob(ORG_ID, "another-flag", false, 3);
-                List<FeatureFlagJob> jobs = Arrays.asList(job1, job2);
-
-                when(jobRepository.findByOrganizationIdOrderByCreatedAtDesc(ORG_ID)).thenReturn(jobs);
+                LocalDateTime createdAt = LocalDateTime.of(2024, 1, 15, 10, 30, 0, 123456000);
+                FeatureFlagJobSummary newest = summary(12L, null, createdAt.plusMinutes(1));
+                FeatureFlagJobSummary older = summary(11L, null, createdAt);
+                FeatureFlagJobSummary oldest = summary(10L, null, createdAt.minusMinutes(1));
+                when(jobRepository.findPage(eq(ORG_ID), anyCollection(), any(), any(), any(), anyLong(), any()))
+                                .thenReturn(Arrays.asList(newest, older, oldest));
 
                 // When
-                List<FeatureFlagJob> result = backgroundService.getJobsForOrganization(ORG_ID);
+                FeatureFlagJobPage page = backgroundService.getJobsForOrganization(ORG_ID, null, null, null, null, 2);
 
                 // Then
-                assertNotNull(result);
-                assertEquals(2, result.size());
-                assertEquals(job1, result.get(0));
-                assertEquals(job2, result.get(1));
+                assertEquals(Arrays.asList(newest, older), page.getJobs());
+                assertEquals("2024-01-15T10:30:00.123456_11", page.getNextCursor());
 
-                verify(jobRepository).findByOrganizationIdOrderByCreatedAtDesc(ORG_ID);
+                // All statuses, no time bounds, from the newest job; one extra row to detect a next page
+                verify(jobRepository).findPage(eq(ORG_ID), eq(EnumSet.allOf(FeatureFlagJob.JobStatus.class)),
+                                any(LocalDateTime.class), any(LocalDateTime.class), any(LocalDateTime.class),
+                                eq(Long.MAX_VALUE), eq(PageRequest.of(0, 3)));
         }
 
         @Test
-        void getJobsForOrganization_NoJobs_ReturnsEmptyList() {
+        void getJobsForOrganization_WithCursorAndFilters_ContinuesAfterCursor() {
                 // Given
-                when(jobRepository.findByOrganizationIdOrderByCreatedAtDesc(ORG_ID))
-                                .thenReturn(Collections.emptyList());
+                Set<FeatureFlagJob.JobStatus> statuses = EnumSet.of(FeatureFlagJob.JobStatus.FAILED);
+                LocalDateTime since = LocalDateTime.of(2024, 1, 1, 0, 0);
+                LocalDateTime until = LocalDateTime.of(2024, 2, 1, 0, 0);
+                FeatureFlagJobSummary last = summary(5L, null, since.plusDays(1));
+                when(jobRepository.findPage(eq(ORG_ID), anyCollection(), any(), any(), any(), anyLong(), any()))
+                                .thenReturn(Collections.singletonList(last));
 
                 // When
-                List<FeatureFlagJob> result = backgroundService.getJobsForOrganization(ORG_ID);
+                FeatureFlagJobPage page = backgroundService.getJobsForOrganization(ORG_ID, statuses, since, until,
+                                "2024-01-15T10:30:00.123456_11", 2);
 
                 // Then
-                assertNotNull(result);
-                assertTrue(result.isEmpty());
+                assertEquals(Collections.singletonList(last), page.getJobs());
+                assertNull(page.getNextCursor());
+                verify(jobRepository).findPage(ORG_ID, statuses, since, until,
+                                LocalDateTime.of(2024, 1, 15, 10, 30, 0, 123456000), 11L, PageRequest.of(0, 3));
+        }
 
-                verify(jobRepository).findByOrganizationIdOrderByCreatedAtDesc(ORG_ID);
+        @Test
+        void getJobsForOrganization_MalformedCursor_ThrowsException() {
+                IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                                () -> backgroundService.getJobsForOrganization(ORG_ID, null, null, null, "garbage", 2));
+
+                assertEquals("Invalid cursor: garbage", exception.getMessage());
+                verify(jobRepository, never()).findPage(any(), any(), any(), any(), any(), any(), any());
         }
 
         @Test
@@ -314,7 +691,7 @@ class FeatureFlagBackgroundServiceTest {
                 testJob.setTotalOrganizations(2); // Incorrect count (should be 4: parent + 3 descendants)
 
                 when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
-                when(organizationService.getAllDescendantIds(ORG_ID)).thenReturn(descendantIds);
+                givenSubtree(descendantIds);
                 when(featureFlagRepository.findByOrganizationIdAndName(anyLong(), eq(FLAG_NAME)))
                                 .thenReturn(Optional.empty());
                 when(featureFlagRepository.save(any(FeatureFlag.class)))
@@ -338,7 +715,7 @@ class FeatureFlagBackgroundServiceTest {
         void processFeatureFlagHierarchyUpdate_JobFailsWithRetryAvailable_SchedulesRetry() {
                 // Given
                 when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
-                when(organizationService.getAllDescendantIds(ORG_ID))
+                when(organizationService.countDescendants(ORG_ID))
                                 .thenThrow(new RuntimeException("Database connection timeout"));
                 when(jobRepository.save(any(FeatureFlagJob.class)))
                                 .thenAnswer(invocation -> {
@@ -378,7 +755,7 @@ class FeatureFlagBackgroundServiceTest {
                 testJob.setMaxRetries(3);
 
                 when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
-                when(organizationService.getAllDescendantIds(ORG_ID))
+                when(organizationService.countDescendants(ORG_ID))
                                 .thenThrow(new RuntimeException("Database connection timeout"));
                 when(jobRepository.save(any(FeatureFlagJob.class)))
                                 .thenAnswer(invocation -> {
@@ -427,6 +804,7 @@ class FeatureFlagBackgroundServiceTest {
                 retryJob.setId(125L);
                 retryJob.setMaxRetries(4);
                 when(jobRepository.findById(125L)).thenReturn(Optional.of(retryJob));
+                givenSubtree(Collections.emptyList());
 
                 // When
                 Long retryJobId = backgroundService.manualRetryJob(JOB_ID);
@@ -472,105 +850,35 @@ class FeatureFlagBackgroundServiceTest {
         }
 
         @Test
-        void getJobRetryChain_OriginalJob_ReturnsCompleteChain() {
-                // Given
-                Long originalJobId = 123L;
-                Long retryJobId1 = 124L;
-                Long retryJobId2 = 125L;
-
-                // Original job
-                FeatureFlagJob originalJob = new FeatureFlagJob(ORG_ID, FLAG_NAME, ENABLED, 5);
-                originalJob.setId(originalJobId);
-                originalJob.setRetryCount(2);
-                originalJob.markAsFailed("Original failure");
-
-                // First retry job
-                FeatureFlagJob retryJob1 = new FeatureFlagJob(ORG_ID, FLAG_NAME, ENABLED, 5, originalJobId);
-                retryJob1.setId(retryJobId1);
-                retryJob1.setRetryCount(1);
-                retryJob1.markAsFailed("First retry failure");
-
-                // Second retry job
-                FeatureFlagJob retryJob2 = new FeatureFlagJob(ORG_ID, FLAG_NAME, ENABLED, 5, originalJobId);
-                retryJob2.setId(retryJobId2);
-                retryJob2.setRetryCount(2);
-                retryJob2.markAsCompleted();
-
-                List<FeatureFlagJob> allJobs = Arrays.asList(originalJob, retryJob1, retryJob2);
-
-                when(jobRepository.findById(originalJobId)).thenReturn(Optional.of(originalJob));
-                when(jobRepository.findByOrganizationIdOrderByCreatedAtDesc(ORG_ID)).thenReturn(allJobs);
+        void getJobRetryChain_ReturnsChainFromQuery() {
+                // Given - a retry of a retry of the original job
+                LocalDateTime createdAt = LocalDateTime.now();
+                List<FeatureFlagJobSummary> chain = Arrays.asList(
+                                summary(123L, null, createdAt),
+                                summary(124L, 123L, createdAt.plusSeconds(2)),
+                                summary(125L, 124L, createdAt.plusSeconds(6)));
+                when(jobRepository.findRetryChain(125L)).thenReturn(chain);
 
                 // When
-                List<FeatureFlagJob> retryChain = backgroundService.getJobRetryChain(originalJobId);
+                List<FeatureFlagJobSummary> retryChain = backgroundService.getJobRetryChain(125L);
 
                 // Then
-                assertNotNull(retryChain);
-                assertEquals(3, retryChain.size());
-
-                // Verify original job
-                FeatureFlagJob returnedOriginal = retryChain.get(0);
-                assertEquals(originalJobId, returnedOriginal.getId());
-                assertNull(returnedOriginal.getParentJobId());
-
-                // Verify retry jobs
-                FeatureFlagJob returnedRetry1 = retryChain.get(1);
-                assertEquals(retryJobId1, returnedRetry1.getId());
-                assertEquals(originalJobId, returnedRetry1.getParentJobId());
-
-                FeatureFlagJob returnedRetry2 = retryChain.get(2);
-                assertEquals(retryJobId2, returnedRetry2.getId());
-                assertEquals(originalJobId, returnedRetry2.getParentJobId());
-        }
-
-        @Test
-        void getJobRetryChain_RetryJob_ReturnsCompleteChain() {
-                // Given
-                Long originalJobId = 123L;
-                Long retryJobId = 124L;
-
-                // Original job
-                FeatureFlagJob originalJob = new FeatureFlagJob(ORG_ID, FLAG_NAME, ENABLED, 5);
-                originalJob.setId(originalJobId);
-                originalJob.markAsFailed("Original failure");
-
-                // Retry job
-                FeatureFlagJob retryJob = new FeatureFlagJob(ORG_ID, FLAG_NAME, ENABLED, 5, originalJobId);
-                retryJob.setId(retryJobId);
-                retryJob.markAsCompleted();
-
-                List<FeatureFlagJob> allJobs = Arrays.asList(originalJob, retryJob);
-
-                when(jobRepository.findById(retryJobId)).thenReturn(Optional.of(retryJob));
-                when(jobRepository.findByOrganizationIdOrderByCreatedAtDesc(ORG_ID)).thenReturn(allJobs);
-
-                // When
-                List<FeatureFlagJob> retryChain = backgroundService.getJobRetryChain(retryJobId);
-
-                // Then
-                assertNotNull(retryChain);
-                assertEquals(2, retryChain.size());
-
-                // Should find the root job (original) and return both
-                FeatureFlagJob returnedOriginal = retryChain.get(0);
-                assertEquals(originalJobId, returnedOriginal.getId());
-
-                FeatureFlagJob returnedRetry = retryChain.get(1);
-                assertEquals(retryJobId, returnedRetry.getId());
-                assertEquals(originalJobId, returnedRetry.getParentJobId());
+                assertEquals(chain, retryChain);
+                verify(jobRepository).findRetryChain(125L);
+                verify(jobRepository, never()).findById(anyLong());
         }
 
         @Test
         void getJobRetryChain_JobNotFound_ThrowsException() {
                 // Given
-                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.empty());
+                when(jobRepository.findRetryChain(JOB_ID)).thenReturn(Collections.emptyList());
 
                 // When & Then
                 IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
                                 () -> backgroundService.getJobRetryChain(JOB_ID));
 
                 assertEquals("Job not found: " + JOB_ID, exception.getMessage());
-                verify(jobRepository).findById(JOB_ID);
+                verify(jobRepository).findRetryChain(JOB_ID);
         }
 
         @Test
@@ -580,7 +888,7 @@ class FeatureFlagBackgroundServiceTest {
                 long delaySeconds = 2L;
 
                 when(jobRepository.findById(retryJobId)).thenReturn(Optional.of(testJob));
-                when(organizationService.getAllDescendantIds(ORG_ID)).thenReturn(Collections.emptyList());
+                givenSubtree(Collections.emptyList());
                 when(featureFlagRepository.findByOrganizationIdAndName(anyLong(), eq(FLAG_NAME)))
                                 .thenReturn(Optional.empty());
                 when(featureFlagRepository.save(any(FeatureFlag.class)))
@@ -596,7 +904,7 @@ class FeatureFlagBackgroundServiceTest {
 
                 // Verify the retry job was processed
                 verify(jobRepository, atLeastOnce()).findById(retryJobId);
-                verify(organizationService).getAllDescendantIds(ORG_ID);
+                verify(organizationService).countDescendants(ORG_ID);
                 verify(featureFlagRepository, atLeastOnce()).save(any(FeatureFlag.class));
         }
 
@@ -621,4 +929,33 @@ class FeatureFlagBackgroundServiceTest {
                 // No exceptions should be thrown
                 assertTrue(true); // Test passes if no exception is thrown
         }
+
+        @Test
+        void getJobStats_QueriesCompletedJobsWithinWindow() {
+                // Given
+                FeatureFlagJobStats stats = new FeatureFlagJobStats(2L, 300L, 290L, 10L, 100L, 1200L, 200L, 180.0,
+                                250.0);
+                when(jobRepository.aggregateStats(eq(FeatureFlagJob.JobStatus.COMPLETED), any(LocalDateTime.class)))
+                                .thenReturn(stats);
+                LocalDateTime before = LocalDateTime.now().minusHours(24);
+
+                // When
+                FeatureFlagJobStats result = backgroundService.getJobStats(Duration.ofHours(24));
+
+                // Then
+                assertSame(stats, result);
+                verify(jobRepository).aggregateStats(eq(FeatureFlagJob.JobStatus.COMPLETED),
+                                argThat(since -> !since.isBefore(before) &&
+                                                since.isBefore(LocalDateTime.now().minusHours(23))));
+                assertEquals(200.0, result.getAggregateOrgsPerSecond(), 0.001);
+                assertEquals(750.0, result.getAverageDurationMillis(), 0.001);
+        }
+
+        private static FeatureFlagJobSummary summary(Long id, Long parentJobId, LocalDateTime createdAt) {
+                FeatureFlagJobSummary summary = mock(FeatureFlagJobSummary.class);
+                lenient().when(summary.getId()).thenReturn(id);
+                lenient().when(summary.getParentJobId()).thenReturn(parentJobId);
+                lenient().when(summary.getCreatedAt()).thenReturn(createdAt);
+                return summary;
+        }
 }
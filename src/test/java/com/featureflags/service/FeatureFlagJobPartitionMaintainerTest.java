@@ -0,0 +1,193 @@
+package com.featureflags.service;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import com.featureflags.repository.FeatureFlagJobPartitionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagJobPartitionMaintainerTest {
+
+        @Mock
+        private FeatureFlagJobPartitionRepository partitionRepository;
+
+        @TempDir
+        Path archiveDirectory;
+
+        private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        private FeatureFlagJobPartitionMaintainer maintainer;
+
+        private final YearMonth current = YearMonth.now();
+        private final YearMonth expired = current.minusMonths(6);
+
+        @BeforeEach
+        void setUp() {
+                maintainer = new FeatureFlagJobPartitionMaintainer(partitionRepository,
+                                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                                new FeatureFlagMetrics(meterRegistry), Duration.ofDays(90), 2, archiveDirectory.toString());
+        }
+
+        @Test
+        void maintainPartitions_MissingUpcomingMonths_CreatesThem() {
+                // Given
+                when(partitionRepository.tryLockMaintenance()).thenReturn(true);
+                when(partitionRepository.findPartitions()).thenReturn(List.of(current));
+
+                // When
+                maintainer.maintainPartitions();
+
+                // Then
+                verify(partitionRepository, never()).createPartition(current);
+                verify(partitionRepository).createPartition(current.plusMonths(1));
+                verify(partitionRepository).createPartition(current.plusMonths(2));
+                verify(partitionRepository, never()).dropPartition(any());
+        }
+
+        @Test
+        void maintainPartitions_ExpiredMonth_ArchivesThenDrops() throws IOException {
+                // Given
+                when(partitionRepository.tryLockMaintenance()).thenReturn(true);
+                when(partitionRepository.findPartitions())
+                                .thenReturn(List.of(expired, current, current.plusMonths(1), current.plusMonths(2)));
+                when(partitionRepository.exportPartition(eq(expired), any(OutputStream.class))).thenAnswer(invocation -> {
+                        OutputStream out = invocation.getArgument(1);
+                        out.write("id,organization_id\n1,1\n2,1\n".getBytes(StandardCharsets.UTF_8));
+                        return 2L;
+                });
+
+                // When
+                maintainer.maintainPartitions();
+
+                // Then
+                InOrder inOrder = inOrder(partitionRepository);
+                inOrder.verify(partitionRepository).exportPartition(eq(expired), any(OutputStream.class));
+                inOrder.verify(partitionRepository).dropPartition(expired);
+                verify(partitionRepository, never()).dropPartition(current);
+
+                Path archive = archiveDirectory.resolve(FeatureFlagJobPartitionRepository.partitionName(expired)
+                                + ".csv.gz");
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(archive))) {
+                        assertEquals("id,organization_id\n1,1\n2,1\n",
+                                        new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+                assertEquals(1, meterRegistry.get("featureflags.jobs.partitions.dropped").counter().count());
+                assertEquals(2, meterRegistry.get("featureflags.jobs.archived").counter().count());
+        }
+
+        @Test
+        void maintainPartitions_ExpiredMonthWithUnfinishedJobs_KeepsIt() {
+                // Given
+                when(partitionRepository.tryLockMaintenance()).thenReturn(true);
+                when(partitionRepository.findPartitions())
+                                .thenReturn(List.of(expired, current, current.plusMonths(1), current.plusMonths(2)));
+                when(partitionRepository.countUnfinishedJobs(expired)).thenReturn(1L);
+
+                // When
+                maintainer.maintainPartitions();
+
+                // Then
+                verify(partitionRepository, never()).exportPartition(any(), any());
+                verify(partitionRepository, never()).dropPartition(any());
+        }
+
+        @Test
+        void maintainPartitions_ExportFails_KeepsPartition() {
+                // Given
+                when(partitionRepository.tryLockMaintenance()).thenReturn(true);
+                when(partitionRepository.findPartitions())
+                                .thenReturn(List.of(expired, current, current.plusMonths(1), current.plusMonths(2)));
+                when(partitionRepository.exportPartition(eq(expired), any(OutputStream.class)))
+                                .thenThrow(new IllegalStateException("Connection reset"));
+
+                // When
+                maintainer.maintainPartitions();
+
+                // Then
+                verify(partitionRepository, never()).dropPartition(any());
+                String partition = FeatureFlagJobPartitionRepository.partitionName(expired);
+                assertFalse(Files.exists(archiveDirectory.resolve(partition + ".csv.gz")));
+                assertFalse(Files.exists(archiveDirectory.resolve(partition + ".csv.gz.partial")));
+        }
+
+        @Test
+        void maintainPartitions_LockedByAnotherNode_DoesNothing() {
+                // Given
+                when(partitionRepository.tryLockMaintenance()).thenReturn(false);
+
+                // When
+                maintainer.maintainPartitions();
+
+                // Then
+                verify(partitionRepository, never()).findPartitions();
+                verify(partitionRepository, never()).createPartition(any());
+                verify(partitionRepository, never()).dropPartition(any());
+        }
+
+        @Test
+        void maintainPartitions_ZeroRetention_KeepsEverything() {
+                // Given
+                maintainer = new FeatureFlagJobPartitionMaintainer(partitionRepository,
+                                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                                new FeatureFlagMetrics(meterRegistry), Duration.ZERO, 2, archiveDirectory.toString());
+                when(partitionRepository.tryLockMaintenance()).thenReturn(true);
+                when(partitionRepository.findPartitions())
+                                .thenReturn(List.of(expired, current, current.plusMonths(1), current.plusMonths(2)));
+
+                // When
+                maintainer.maintainPartitions();
+
+                // Then
+                verify(partitionRepository, never()).dropPartition(any());
+        }
+
+        @Test
+        void maintainPartitions_NoArchiveDirectory_KeepsExpiredMonths() {
+                // Given
+                maintainer = new FeatureFlagJobPartitionMaintainer(partitionRepository,
+                                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                                new FeatureFlagMetrics(meterRegistry), Duration.ofDays(90), 2, "");
+                when(partitionRepository.tryLockMaintenance()).thenReturn(true);
+                when(partitionRepository.findPartitions())
+                                .thenReturn(List.of(expired, current, current.plusMonths(1), current.plusMonths(2)));
+
+                // When
+                maintainer.maintainPartitions();
+
+                // Then
+                verify(partitionRepository, never()).exportPartition(any(), any());
+                verify(partitionRepository, never()).dropPartition(any());
+        }
+
+        @Test
+        void constructor_RelativeArchiveDirectory_IsRejected() {
+                // When & Then
+                assertThrows(IllegalArgumentException.class, () -> new FeatureFlagJobPartitionMaintainer(
+                                partitionRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                                new FeatureFlagMetrics(meterRegistry), Duration.ofDays(90), 2, "job-archive"));
+        }
+}
@@ -0,0 +1,83 @@
+package com.featureflags.service;
+
+import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.repository.FeatureFlagJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagJobReclaimerTest {
+
+        @Mock
+        private FeatureFlagJobRepository jobRepository;
+
+        @Mock
+        private FeatureFlagBackgroundService backgroundService;
+
+        private FeatureFlagJobReclaimer reclaimer;
+
+        @BeforeEach
+        void setUp() {
+                reclaimer = new FeatureFlagJobReclaimer(jobRepository, backgroundService, Duration.ofMinutes(10));
+        }
+
+        @Test
+        void reclaimAbandonedJobs_StaleJob_ResumesIt() {
+                // Given
+                FeatureFlagJob stale = new FeatureFlagJob(1L, "test-flag", true, 100);
+                stale.setId(7L);
+                when(jobRepository.findByStatusAndUpdatedAtBefore(eq(FeatureFlagJob.JobStatus.IN_PROGRESS),
+                                any(LocalDateTime.class))).thenReturn(List.of(stale));
+                when(jobRepository.claimAbandoned(eq(7L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                                .thenReturn(1);
+
+                // When
+                reclaimer.reclaimAbandonedJobs();
+
+                // Then
+                verify(backgroundService).processFeatureFlagHierarchyUpdate(7L);
+        }
+
+        @Test
+        void reclaimAbandonedJobs_ClaimedElsewhere_LeavesIt() {
+                // Given
+                FeatureFlagJob stale = new FeatureFlagJob(1L, "test-flag", true, 100);
+                stale.setId(7L);
+                when(jobRepository.findByStatusAndUpdatedAtBefore(eq(FeatureFlagJob.JobStatus.IN_PROGRESS),
+                                any(LocalDateTime.class))).thenReturn(List.of(stale));
+                when(jobRepository.claimAbandoned(eq(7L), any(LocalDateTime.class), any(LocalDateTime.class)))
+                                .thenReturn(0);
+
+                // When
+                reclaimer.reclaimAbandonedJobs();
+
+                // Then
+                verifyNoInteractions(backgroundService);
+        }
+
+        @Test
+        void reclaimAbandonedJobs_LooksForJobsIdleLongerThanReclaimAfter() {
+                // Given
+                LocalDateTime before = LocalDateTime.now().minusMinutes(10);
+
+                // When
+                reclaimer.reclaimAbandonedJobs();
+
+                // Then
+                verify(jobRepository).findByStatusAndUpdatedAtBefore(eq(FeatureFlagJob.JobStatus.IN_PROGRESS),
+                                argThat(time -> !time.isBefore(before)
+                                                && time.isBefore(LocalDateTime.now().minusMinutes(9))));
+                verifyNoInteractions(backgroundService);
+        }
+}
@@ -0,0 +1,172 @@
+package com.featureflags.service;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import com.featureflags.repository.FeatureFlagKeyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagKeyFilterTest {
+
+        @Mock
+        private FeatureFlagKeyRepository keyRepository;
+
+        private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        private final FeatureFlagMetrics metrics = new FeatureFlagMetrics(meterRegistry);
+
+        private FeatureFlagKeyFilter filterUnderTest;
+
+        @Test
+        void mightExist_BeforeFirstBuild_LetsEveryLookupThrough() {
+                // Given
+                FeatureFlagKeyFilter keyFilter = keyFilter();
+
+                // Then
+                assertTrue(keyFilter.mightExist(1L, "test-flag"));
+                assertEquals(0, meterRegistry.get("featureflags.lookups.filter").tag("result", "absent")
+                                .counter().count());
+        }
+
+        @Test
+        void maintain_BuildsFromScan_FiltersKeysWithNoRow() {
+                // Given
+                givenKeys(List.of(1L, 2L), "test-flag");
+                FeatureFlagKeyFilter keyFilter = keyFilter();
+
+                // When
+                keyFilter.maintain();
+
+                // Then
+                assertTrue(keyFilter.mightExist(1L, "test-flag"));
+                assertTrue(keyFilter.mightExist(2L, "test-flag"));
+                assertFalse(keyFilter.mightExist(1L, "other-flag"));
+                assertEquals(1, meterRegistry.get("featureflags.lookups.filter").tag("result", "absent")
+                                .counter().count());
+                assertTrue(meterRegistry.get("featureflags.lookups.filter.memory").gauge().value() > 0);
+        }
+
+        @Test
+        void add_AfterBuild_KeyPasses() {
+                // Given
+                givenKeys(List.of(1L), "test-flag");
+                FeatureFlagKeyFilter keyFilter = keyFilter();
+                keyFilter.maintain();
+
+                // When
+                keyFilter.add("new-flag", List.of(1L, 5L));
+
+                // Then
+                assertTrue(keyFilter.mightExist(1L, "new-flag"));
+                assertTrue(keyFilter.mightExist(5L, "new-flag"));
+        }
+
+        @Test
+        void add_DuringBuild_KeyKeptInNewFilter() {
+                // Given - a key written while the scan runs, after its snapshot
+                doAnswer(invocation -> {
+                        ObjLongConsumer<String> consumer = invocation.getArgument(0);
+                        consumer.accept("test-flag", 1L);
+                        filterUnderTest.add("new-flag", List.of(9L));
+                        return 1L;
+                }).when(keyRepository).forEachKey(any());
+                filterUnderTest = keyFilter();
+
+                // When
+                filterUnderTest.maintain();
+
+                // Then
+                assertTrue(filterUnderTest.mightExist(9L, "new-flag"));
+        }
+
+        @Test
+        void suspend_DropsFilterUntilRebuiltAfterResume() {
+                // Given
+                givenKeys(List.of(1L), "test-flag");
+                FeatureFlagKeyFilter keyFilter = keyFilter();
+                keyFilter.maintain();
+
+                // When
+                keyFilter.suspend();
+                keyFilter.maintain();
+
+                // Then - no filtering and no rebuild while invalidations may be lost
+                assertTrue(keyFilter.mightExist(1L, "other-flag"));
+                verify(keyRepository, times(1)).forEachKey(any());
+
+                // When
+                keyFilter.resume();
+                keyFilter.maintain();
+
+                // Then
+                assertFalse(keyFilter.mightExist(1L, "other-flag"));
+                verify(keyRepository, times(2)).forEachKey(any());
+        }
+
+        @Test
+        void maintain_FilterWithinCapacity_NotRebuilt() {
+                // Given
+                givenKeys(List.of(1L), "test-flag");
+                FeatureFlagKeyFilter keyFilter = keyFilter();
+                keyFilter.maintain();
+
+                // When
+                keyFilter.maintain();
+
+                // Then
+                verify(keyRepository, times(1)).forEachKey(any());
+        }
+
+        @Test
+        void maintain_InvalidationDisabled_NeverBuilds() {
+                // Given
+                FeatureFlagKeyFilter keyFilter = new FeatureFlagKeyFilter(keyRepository,
+                                mock(PlatformTransactionManager.class), metrics, true, false, 0.01, 1000);
+
+                // When
+                keyFilter.maintain();
+
+                // Then
+                verifyNoInteractions(keyRepository);
+                assertTrue(keyFilter.mightExist(1L, "test-flag"));
+        }
+
+        @Test
+        void recordMissing_AfterBuild_CountsFalsePositive() {
+                // Given
+                givenKeys(List.of(1L), "test-flag");
+                FeatureFlagKeyFilter keyFilter = keyFilter();
+                keyFilter.recordMissing();
+                keyFilter.maintain();
+
+                // When
+                keyFilter.recordMissing();
+
+                // Then
+                assertEquals(1, meterRegistry.get("featureflags.lookups.filter").tag("result", "false-positive")
+                                .counter().count());
+        }
+
+        private FeatureFlagKeyFilter keyFilter() {
+                return new FeatureFlagKeyFilter(keyRepository, mock(PlatformTransactionManager.class), metrics,
+                                true, true, 0.01, 1000);
+        }
+
+        private void givenKeys(List<Long> organizationIds, String featureFlagName) {
+                when(keyRepository.forEachKey(any())).thenAnswer(invocation -> {
+                        ObjLongConsumer<String> consumer = invocation.getArgument(0);
+                        organizationIds.forEach(id -> consumer.accept(featureFlagName, id));
+                        return (long) organizationIds.size();
+                });
+        }
+}
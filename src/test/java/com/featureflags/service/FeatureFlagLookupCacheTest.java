@@ -0,0 +1,174 @@
+package com.featureflags.service;
+
+import com.featureflags.metrics.FeatureFlagMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeatureFlagLookupCacheTest {
+
+        private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        private final FeatureFlagMetrics metrics = new FeatureFlagMetrics(meterRegistry);
+        private final AtomicInteger loads = new AtomicInteger();
+
+        @Test
+        void get_SecondLookup_IsHit() {
+                // Given
+                FeatureFlagLookupCache cache = new FeatureFlagLookupCache(true, Duration.ofSeconds(10), 100, metrics);
+
+                // When
+                Boolean first = cache.get(1L, "test-flag", () -> load(true));
+                Boolean second = cache.get(1L, "test-flag", () -> load(false));
+
+                // Then
+                assertTrue(first);
+                assertTrue(second);
+                assertEquals(1, loads.get());
+                assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "featureflags.lookups")
+                                .tag("result", "hit").functionCounter().count());
+        }
+
+        @Test
+        void get_MissingFlag_IsCachedAsNull() {
+                // Given
+                FeatureFlagLookupCache cache = new FeatureFlagLookupCache(true, Duration.ofSeconds(10), 100, metrics);
+
+                // When
+                cache.get(1L, "test-flag", () -> load(null));
+                Boolean cached = cache.get(1L, "test-flag", () -> load(true));
+
+                // Then
+                assertNull(cached);
+                assertEquals(1, loads.get());
+        }
+
+        @Test
+        void evict_OnlyTheGivenFlagOfTheGivenOrganizations() {
+                // Given
+                FeatureFlagLookupCache cache = new FeatureFlagLookupCache(true, Duration.ofSeconds(10), 100, metrics);
+                cache.get(1L, "test-flag", () -> load(true));
+                cache.get(2L, "test-flag", () -> load(true));
+                cache.get(3L, "test-flag", () -> load(true));
+                cache.get(1L, "other-flag", () -> load(true));
+
+                // When
+                cache.evict(List.of(1L, 2L), "test-flag");
+                cache.evict(3L, "test-flag");
+
+                // Then
+                assertEquals(1, cache.size());
+                assertFalse(cache.get(1L, "test-flag", () -> load(false)));
+                assertTrue(cache.get(1L, "other-flag", () -> load(false)));
+        }
+
+        @Test
+        void evictOrganizations_EveryFlagOfTheGivenOrganizationsOnly() {
+                // Given
+                FeatureFlagLookupCache cache = new FeatureFlagLookupCache(true, Duration.ofSeconds(10), 100, metrics);
+                cache.get(1L, "test-flag", () -> load(true));
+                cache.get(1L, "other-flag", () -> load(null));
+                cache.get(2L, "test-flag", () -> load(true));
+                cache.get(3L, "test-flag", () -> load(true));
+
+                // When
+                cache.evictOrganizations(List.of(1L, 2L, 99L));
+
+                // Then
+                assertEquals(1, cache.size());
+                assertFalse(cache.get(1L, "test-flag", () -> load(false)));
+                assertFalse(cache.get(1L, "other-flag", () -> load(false)));
+                assertTrue(cache.get(3L, "test-flag", () -> load(false)));
+        }
+
+        @Test
+        void evictOrganizations_AfterEntriesEvictedAndReloaded_StillFindsThem() {
+                // Given - the organization's entries evicted one way or another, then cached again
+                FeatureFlagLookupCache cache = new FeatureFlagLookupCache(true, Duration.ofSeconds(10), 100, metrics);
+                cache.get(1L, "test-flag", () -> load(true));
+                cache.evict(1L, "test-flag");
+                cache.clear();
+                cache.get(1L, "test-flag", () -> load(true));
+
+                // When
+                cache.evictOrganizations(List.of(1L));
+
+                // Then
+                assertEquals(0, cache.size());
+                assertFalse(cache.get(1L, "test-flag", () -> load(false)));
+        }
+
+        @Test
+        void suspend_BypassesCacheUntilResumed() {
+                // Given
+                FeatureFlagLookupCache cache = new FeatureFlagLookupCache(true, Duration.ofSeconds(10), 100, metrics);
+                cache.get(1L, "test-flag", () -> load(true));
+
+                // When
+                cache.suspend();
+                cache.get(1L, "test-flag", () -> load(false));
+                cache.get(1L, "test-flag", () -> load(false));
+                cache.resume();
+
+                // Then
+                assertEquals(3, loads.get());
+                assertEquals(0, cache.size());
+                assertTrue(cache.get(1L, "test-flag", () -> load(true)));
+                assertEquals(1, cache.size());
+        }
+
+        @Test
+        void get_Disabled_AlwaysLoads() {
+                // Given
+                FeatureFlagLookupCache cache = new FeatureFlagLookupCache(false, Duration.ofSeconds(10), 100, metrics);
+
+                // When
+                cache.get(1L, "test-flag", () -> load(true));
+                cache.get(1L, "test-flag", () -> load(true));
+                cache.evict(1L, "test-flag");
+
+                // Then
+                assertEquals(2, loads.get());
+                assertEquals(0, cache.size());
+        }
+
+        private Boolean load(Boolean value) {
+                loads.incrementAndGet();
+                return value;
+        }
+
+        @Test
+        void putIfNotEvicted_NothingEvictedSinceStamp_CachesValue() {
+                // Given
+                FeatureFlagLookupCache cache = new FeatureFlagLookupCache(true, Duration.ofSeconds(10), 100, metrics);
+                long stamp = cache.stamp();
+
+                // When
+                cache.putIfNotEvicted(1L, "test-flag", null, stamp);
+
+                // Then
+                assertEquals(Optional.empty(), cache.getIfPresent(1L, "test-flag"));
+                cache.evictOrganizations(List.of(1L));
+                assertNull(cache.getIfPresent(1L, "test-flag"));
+        }
+
+        @Test
+        void putIfNotEvicted_EvictionDuringRead_IsSkipped() {
+                // Given - the flag is written and evicted while its old value is being read
+                FeatureFlagLookupCache cache = new FeatureFlagLookupCache(true, Duration.ofSeconds(10), 100, metrics);
+                long stamp = cache.stamp();
+                cache.evict(1L, "test-flag");
+
+                // When
+                cache.putIfNotEvicted(1L, "test-flag", false, stamp);
+
+                // Then
+                assertNull(cache.getIfPresent(1L, "test-flag"));
+                assertTrue(cache.get(1L, "test-flag", () -> load(true)));
+        }
+}
@@ -0,0 +1,105 @@
+package com.featureflags.service;
+
+import com.featureflags.health.WarmUpHealthIndicator;
+import com.featureflags.metrics.FeatureFlagMetrics;
+import com.featureflags.model.FeatureFlagKey;
+import com.featureflags.repository.FeatureFlagAccessStatsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagLookupWarmerTest {
+
+        @Mock
+        private FeatureFlagService featureFlagService;
+
+        @Mock
+        private FeatureFlagAccessStatsRepository accessStatsRepository;
+
+        private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        private final WarmUpHealthIndicator warmUp = new WarmUpHealthIndicator(new FeatureFlagMetrics(meterRegistry));
+
+        @Test
+        void warmUp_LoadsMostReadEntriesThenReady() {
+                // Given
+                when(accessStatsRepository.findMostRead(any(LocalDateTime.class), eq(100)))
+                                .thenReturn(List.of(new FeatureFlagKey(1L, "hot-flag"),
+                                                new FeatureFlagKey(2L, "hot-flag")));
+                FeatureFlagLookupWarmer warmer = warmer(true);
+                assertEquals(Status.OUT_OF_SERVICE, warmUp.health().getStatus());
+
+                // When
+                warmer.warmUp();
+
+                // Then - each entry once to load it, then the hit iterations
+                verify(featureFlagService, times(6)).lookup(1L, "hot-flag");
+                verify(featureFlagService, times(6)).lookup(2L, "hot-flag");
+                assertEquals(Status.UP, warmUp.health().getStatus());
+                assertEquals("done", warmUp.health().getDetails().get(FeatureFlagLookupWarmer.TASK));
+                assertEquals(1, meterRegistry.get("featureflags.warmup").tag("task", FeatureFlagLookupWarmer.TASK)
+                                .timer().count());
+        }
+
+        @Test
+        void warmUp_NoAccessStats_StillExercisesLookupPath() {
+                // Given
+                when(accessStatsRepository.findMostRead(any(LocalDateTime.class), eq(100))).thenReturn(List.of());
+                FeatureFlagLookupWarmer warmer = warmer(true);
+
+                // When
+                warmer.warmUp();
+
+                // Then
+                FeatureFlagKey placeholder = FeatureFlagLookupWarmer.PLACEHOLDER;
+                verify(featureFlagService, times(11)).lookup(placeholder.getOrganizationId(), placeholder.getName());
+                assertEquals(Status.UP, warmUp.health().getStatus());
+        }
+
+        @Test
+        void warmUp_DatabaseUnavailable_ReadyButMarkedFailed() {
+                // Given
+                when(accessStatsRepository.findMostRead(any(LocalDateTime.class), eq(100)))
+                                .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+                FeatureFlagLookupWarmer warmer = warmer(true);
+
+                // When
+                warmer.warmUp();
+
+                // Then
+                verifyNoInteractions(featureFlagService);
+                assertEquals(Status.UP, warmUp.health().getStatus());
+                assertEquals("failed", warmUp.health().getDetails().get(FeatureFlagLookupWarmer.TASK));
+        }
+
+        @Test
+        void warmUp_Disabled_DoesNothing() {
+                // Given
+                FeatureFlagLookupWarmer warmer = warmer(false);
+
+                // When
+                warmer.warmUp();
+
+                // Then
+                verifyNoInteractions(accessStatsRepository, featureFlagService);
+                assertTrue(warmUp.health().getDetails().isEmpty());
+        }
+
+        private FeatureFlagLookupWarmer warmer(boolean enabled) {
+                return new FeatureFlagLookupWarmer(featureFlagService, accessStatsRepository, warmUp, enabled, 100,
+                                Duration.ofDays(1), 10);
+        }
+}
@@ -0,0 +1,114 @@
+package com.featureflags.service;
+
+import com.featureflags.repository.FeatureFlagPartitionBackfillRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureFlagPartitionBackfillTest {
+
+        private static final Duration LOCK_TIMEOUT = Duration.ofSeconds(5);
+
+        @Mock
+        private FeatureFlagPartitionBackfillRepository backfillRepository;
+
+        private FeatureFlagPartitionBackfill backfill;
+
+        @BeforeEach
+        void setUp() {
+                backfill = new FeatureFlagPartitionBackfill(backfillRepository,
+                                new TransactionTemplate(mock(PlatformTransactionManager.class)), 100, LOCK_TIMEOUT);
+        }
+
+        @Test
+        void backfill_RowsLeft_CopiesOneBatchAndSavesProgress() {
+                // Given
+                when(backfillRepository.lockProgress()).thenReturn(Optional.of(200L));
+                when(backfillRepository.copyBatch(200L, 100)).thenReturn(Optional.of(350L));
+
+                // When
+                backfill.backfill();
+
+                // Then
+                verify(backfillRepository).saveProgress(350L);
+                verify(backfillRepository, never()).swap(anyLong(), any());
+        }
+
+        @Test
+        void backfill_NoRowsLeft_SwapsTablesOnce() {
+                // Given
+                when(backfillRepository.lockProgress()).thenReturn(Optional.of(350L));
+                when(backfillRepository.copyBatch(350L, 100)).thenReturn(Optional.empty());
+                when(backfillRepository.swap(350L, LOCK_TIMEOUT)).thenReturn(3L);
+
+                // When
+                backfill.backfill();
+                backfill.backfill();
+
+                // Then
+                verify(backfillRepository).swap(350L, LOCK_TIMEOUT);
+                verify(backfillRepository, times(1)).lockProgress();
+                verify(backfillRepository, never()).saveProgress(anyLong());
+        }
+
+        @Test
+        void backfill_HeldByAnotherNode_CopiesNothingAndTriesAgain() {
+                // Given
+                when(backfillRepository.lockProgress()).thenReturn(Optional.empty());
+                when(backfillRepository.isCompleted()).thenReturn(false);
+
+                // When
+                backfill.backfill();
+                backfill.backfill();
+
+                // Then
+                verify(backfillRepository, times(2)).lockProgress();
+                verify(backfillRepository, never()).copyBatch(anyLong(), anyInt());
+        }
+
+        @Test
+        void backfill_AlreadySwapped_StopsRunning() {
+                // Given
+                when(backfillRepository.lockProgress()).thenReturn(Optional.empty());
+                when(backfillRepository.isCompleted()).thenReturn(true);
+
+                // When
+                backfill.backfill();
+                backfill.backfill();
+
+                // Then
+                verify(backfillRepository, times(1)).lockProgress();
+                verify(backfillRepository, never()).copyBatch(anyLong(), anyInt());
+        }
+
+        @Test
+        void backfill_SwapTimesOutOnLock_TriesAgainNextRun() {
+                // Given
+                when(backfillRepository.lockProgress()).thenReturn(Optional.of(350L));
+                when(backfillRepository.copyBatch(350L, 100)).thenReturn(Optional.empty());
+                when(backfillRepository.swap(350L, LOCK_TIMEOUT))
+                                .thenThrow(new CannotAcquireLockException("lock timeout"))
+                                .thenReturn(0L);
+
+                // When
+                backfill.backfill();
+                backfill.backfill();
+
+                // Then
+                verify(backfillRepository, times(2)).swap(350L, LOCK_TIMEOUT);
+        }
+}
@@ -1,14 +1,24 @@
 package com.featureflags.service;
 
+import com.featureflags.config.ReplicaRouting;
+import com.featureflags.metrics.FeatureFlagMetrics;
 import com.featureflags.model.FeatureFlag;
+import com.featureflags.model.FeatureFlagJob;
 import com.featureflags.repository.FeatureFlagRepository;
 import com.featureflags.repository.FeatureFlagJobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,13 +36,31 @@ class FeatureFlagServiceTest {
         private FeatureFlagBackgroundService backgroundService;
         @Mock
         private OrganizationService organizationService;
+        @Mock
+        private FeatureFlagAccessStats accessStats;
+        @Mock
+        private FeatureFlagKeyFilter keyFilter;
+
+        private SimpleMeterRegistry meterRegistry;
+        private FeatureFlagLookupCache lookupCache;
+        private LookupCacheInvalidator cacheInvalidator;
 
         private FeatureFlagService featureFlagService;
 
         @BeforeEach
         void setUp() {
+                meterRegistry = new SimpleMeterRegistry();
+                FeatureFlagMetrics metrics = new FeatureFlagMetrics(meterRegistry);
+                lookupCache = new FeatureFlagLookupCache(true, Duration.ofSeconds(10), 1000, metrics);
+                lenient().when(keyFilter.mightExist(any(), any())).thenReturn(true);
+                cacheInvalidator = new LookupCacheInvalidator(mock(JdbcTemplate.class), lookupCache, keyFilter,
+                                mock(ReplicaRouting.class), metrics, new DataSourceProperties(), false,
+                                Duration.ofSeconds(5), Duration.ofSeconds(5));
                 featureFlagService = new FeatureFlagService(featureFlagRepository, jobRepository, backgroundService,
-                                organizationService);
+                                organizationService, metrics, new ReplicaRouting(false, Duration.ofSeconds(5),
+                                                Duration.ofSeconds(2), metrics),
+                                lookupCache, keyFilter, accessStats, cacheInvalidator,
+                                mock(PlatformTransactionManager.class));
         }
 
         @Test
@@ -40,16 +68,17 @@ class FeatureFlagServiceTest {
                 // Arrange
                 Long organizationId = 1L;
                 String flagName = "test-flag";
-                FeatureFlag featureFlag = new FeatureFlag(flagName, null, true, organizationId);
-                when(featureFlagRepository.findByOrganizationIdAndName(organizationId, flagName))
-                                .thenReturn(Optional.of(featureFlag));
+                when(featureFlagRepository.findEnabledByOrganizationIdAndName(organizationId, flagName))
+                                .thenReturn(true);
 
                 // Act
                 boolean result = featureFlagService.getFeatureFlag(organizationId, flagName);
 
                 // Assert
                 assertTrue(result);
-                verify(featureFlagRepository).findByOrganizationIdAndName(organizationId, flagName);
+                verify(featureFlagRepository).findEnabledByOrganizationIdAndName(organizationId, flagName);
+                verify(featureFlagRepository, never()).findByOrganizationIdAndName(any(), any());
+                assertEquals(1, meterRegistry.get("featureflags.lookup").tag("outcome", "enabled").timer().count());
         }
 
         @Test
@@ -57,15 +86,82 @@ class FeatureFlagServiceTest {
                 // Arrange
                 Long organizationId = 1L;
                 String flagName = "non-existent-flag";
-                when(featureFlagRepository.findByOrganizationIdAndName(organizationId, flagName))
-                                .thenReturn(Optional.empty());
+                when(featureFlagRepository.findEnabledByOrganizationIdAndName(organizationId, flagName))
+                                .thenReturn(null);
 
                 // Act
                 boolean result = featureFlagService.getFeatureFlag(organizationId, flagName);
 
                 // Assert
                 assertFalse(result);
-                verify(featureFlagRepository).findByOrganizationIdAndName(organizationId, flagName);
+                verify(featureFlagRepository).findEnabledByOrganizationIdAndName(organizationId, flagName);
+                assertEquals(1, meterRegistry.get("featureflags.lookup").tag("outcome", "missing").timer().count());
+        }
+
+        @Test
+        void getFeatureFlag_KeyFilteredOut_ReturnsFalseWithoutReading() {
+                // Arrange
+                when(keyFilter.mightExist(1L, "never-set-flag")).thenReturn(false);
+
+                // Act
+                boolean result = featureFlagService.getFeatureFlag(1L, "never-set-flag");
+
+                // Assert
+                assertFalse(result);
+                verifyNoInteractions(featureFlagRepository);
+                assertEquals(0, lookupCache.size());
+                verify(keyFilter, never()).recordMissing();
+                assertEquals(1, meterRegistry.get("featureflags.lookup").tag("outcome", "missing").timer().count());
+        }
+
+        @Test
+        void getFeatureFlag_KeyFilterFalsePositive_RecordsMissing() {
+                // Arrange
+                when(featureFlagRepository.findEnabledByOrganizationIdAndName(1L, "missing-flag")).thenReturn(null);
+
+                // Act
+                featureFlagService.getFeatureFlag(1L, "missing-flag");
+
+                // Assert
+                verify(keyFilter).recordMissing();
+        }
+
+        @Test
+        void getFeatureFlag_RepeatedLookup_ServedFromCache() {
+                // Arrange
+                when(featureFlagRepository.findEnabledByOrganizationIdAndName(1L, "test-flag")).thenReturn(true);
+                when(featureFlagRepository.findEnabledByOrganizationIdAndName(1L, "missing-flag")).thenReturn(null);
+
+                // Act
+                featureFlagService.getFeatureFlag(1L, "test-flag");
+                featureFlagService.getFeatureFlag(1L, "missing-flag");
+                boolean enabled = featureFlagService.getFeatureFlag(1L, "test-flag");
+                boolean missing = featureFlagService.getFeatureFlag(1L, "missing-flag");
+
+                // Assert - misses are cached too
+                assertTrue(enabled);
+                assertFalse(missing);
+                verify(featureFlagRepository).findEnabledByOrganizationIdAndName(1L, "test-flag");
+                verify(featureFlagRepository).findEnabledByOrganizationIdAndName(1L, "missing-flag");
+                verify(accessStats, times(2)).recordRead(1L, "test-flag");
+                assertEquals(2, meterRegistry.get("featureflags.lookup").tag("outcome", "missing").timer().count());
+        }
+
+        @Test
+        void setFeatureFlag_EvictsCachedLookup() {
+                // Arrange
+                when(featureFlagRepository.findEnabledByOrganizationIdAndName(1L, "test-flag"))
+                                .thenReturn(false, true);
+                when(featureFlagRepository.findByOrganizationIdAndName(1L, "test-flag"))
+                                .thenReturn(Optional.empty());
+                assertFalse(featureFlagService.getFeatureFlag(1L, "test-flag"));
+
+                // Act
+                featureFlagService.setFeatureFlag(1L, "test-flag", true);
+
+                // Assert
+                assertTrue(featureFlagService.getFeatureFlag(1L, "test-flag"));
+                verify(featureFlagRepository, times(2)).findEnabledByOrganizationIdAndName(1L, "test-flag");
         }
 
         @Test
@@ -109,4 +205,100 @@ class FeatureFlagServiceTest {
                                 flag.getOrganizationId().equals(organizationId) &&
                                 flag.isEnabled() == enabled));
         }
-}
\ No newline at end of file
+
+        @Test
+        void setFeatureFlagWithHierarchy_SupersedesPendingJobsForSameFlag() {
+                // Arrange
+                Long organizationId = 1L;
+                String flagName = "test-flag";
+                FeatureFlagJob pendingJob = new FeatureFlagJob(organizationId, flagName, true, 3);
+                pendingJob.setId(10L);
+                when(organizationService.countDescendants(organizationId)).thenReturn(2L);
+                when(jobRepository.save(any(FeatureFlagJob.class))).thenAnswer(invocation -> {
+                        FeatureFlagJob job = invocation.getArgument(0);
+                        job.setId(11L);
+                        return job;
+                });
+                when(jobRepository.lockPendingJobs(organizationId, flagName, 11L)).thenReturn(List.of(pendingJob));
+
+                // Act
+                Long jobId = featureFlagService.setFeatureFlagWithHierarchy(organizationId, flagName, false, null);
+
+                // Assert
+                assertEquals(11L, jobId);
+                assertEquals(FeatureFlagJob.JobStatus.SUPERSEDED, pendingJob.getStatus());
+                assertEquals(11L, pendingJob.getSupersededByJobId());
+                verify(jobRepository).saveAll(List.of(pendingJob));
+                verify(backgroundService).processFeatureFlagHierarchyUpdate(11L);
+                verify(backgroundService, never()).processFeatureFlagHierarchyUpdate(10L);
+                assertEquals(1, meterRegistry.get("featureflags.propagation.coalesced")
+                                .tag("reason", "superseded").counter().count());
+        }
+
+        @Test
+        void setFeatureFlagWithHierarchy_RepeatedIdempotencyKey_ReturnsExistingJob() {
+                // Arrange
+                Long organizationId = 1L;
+                String flagName = "test-flag";
+                FeatureFlagJob existingJob = new FeatureFlagJob(organizationId, flagName, true, 3);
+                existingJob.setId(10L);
+                when(jobRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.of(existingJob));
+
+                // Act
+                Long jobId = featureFlagService.setFeatureFlagWithHierarchy(organizationId, flagName, true, "key-1");
+
+                // Assert
+                assertEquals(10L, jobId);
+                verify(jobRepository, never()).save(any());
+                verifyNoInteractions(backgroundService, organizationService);
+                assertEquals(1, meterRegistry.get("featureflags.propagation.coalesced")
+                                .tag("reason", "idempotent-replay").counter().count());
+        }
+
+        @Test
+        void setFeatureFlagWithHierarchy_IdempotencyKeyReusedForOtherRequest_Throws() {
+                // Arrange
+                FeatureFlagJob existingJob = new FeatureFlagJob(1L, "test-flag", true, 3);
+                existingJob.setId(10L);
+                when(jobRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.of(existingJob));
+
+                // Act & Assert
+                assertThrows(IllegalStateException.class,
+                                () -> featureFlagService.setFeatureFlagWithHierarchy(1L, "test-flag", false, "key-1"));
+                verify(jobRepository, never()).save(any());
+        }
+
+        @Test
+        void setFeatureFlagWithHierarchy_NewIdempotencyKey_StoresKeyOnJob() {
+                // Arrange
+                when(jobRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.empty());
+                when(organizationService.countDescendants(1L)).thenReturn(1L);
+                when(jobRepository.save(any(FeatureFlagJob.class))).thenAnswer(invocation -> {
+                        FeatureFlagJob job = invocation.getArgument(0);
+                        job.setId(11L);
+                        return job;
+                });
+
+                // Act
+                Long jobId = featureFlagService.setFeatureFlagWithHierarchy(1L, "test-flag", true, "key-1");
+
+                // Assert
+                assertEquals(11L, jobId);
+                InOrder inOrder = inOrder(jobRepository);
+                inOrder.verify(jobRepository).lockIdempotencyKey("key-1");
+                inOrder.verify(jobRepository).findByIdempotencyKey("key-1");
+                inOrder.verify(jobRepository).save(argThat(job -> "key-1".equals(job.getIdempotencyKey())
+                                && job.getTotalOrganizations() == 2));
+                verify(jobRepository, never()).saveAll(any());
+        }
+
+        @Test
+        void organizationHasChildren_AsksClosureTableWithoutListingDescendants() {
+                // Arrange
+                when(organizationService.hasDescendants(1L)).thenReturn(true);
+
+                // Act & Assert
+                assertTrue(featureFlagService.organizationHasChildren(1L));
+                verify(organizationService, never()).getAllDescendantIds(any());
+        }
+}
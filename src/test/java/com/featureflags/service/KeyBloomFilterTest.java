@@ -0,0 +1,70 @@
+package com.featureflags.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyBloomFilterTest {
+
+        @Test
+        void mightContain_AddedKeys_AlwaysPresent() {
+                // Given
+                KeyBloomFilter filter = new KeyBloomFilter(10_000, 0.01);
+                for (long org = 1; org <= 10_000; org++) {
+                        filter.put(org, "flag-" + (org % 7));
+                }
+
+                // Then
+                for (long org = 1; org <= 10_000; org++) {
+                        assertTrue(filter.mightContain(org, "flag-" + (org % 7)));
+                }
+        }
+
+        @Test
+        void mightContain_KeysNeverAdded_FalsePositivesNearTarget() {
+                // Given
+                KeyBloomFilter filter = new KeyBloomFilter(10_000, 0.01);
+                for (long org = 1; org <= 10_000; org++) {
+                        filter.put(org, "test-flag");
+                }
+
+                // When - the same organizations with another flag, and other organizations
+                int falsePositives = 0;
+                for (long org = 1; org <= 10_000; org++) {
+                        if (filter.mightContain(org, "other-flag")) {
+                                falsePositives++;
+                        }
+                        if (filter.mightContain(org + 10_000, "test-flag")) {
+                                falsePositives++;
+                        }
+                }
+
+                // Then
+                assertTrue(falsePositives < 20_000 * 0.02, "false positives: " + falsePositives);
+                assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.005);
+        }
+
+        @Test
+        void approximateKeyCount_EstimatesDistinctKeys() {
+                // Given
+                KeyBloomFilter filter = new KeyBloomFilter(10_000, 0.01);
+
+                // When - every key twice
+                for (int round = 0; round < 2; round++) {
+                        for (long org = 1; org <= 5_000; org++) {
+                                filter.put(org, "test-flag");
+                        }
+                }
+
+                // Then
+                assertEquals(5_000, filter.approximateKeyCount(), 100);
+                assertEquals(10_000, filter.capacity());
+                assertTrue(filter.memoryBytes() >= 10_000 * 9.5 / 8, "bytes: " + filter.memoryBytes());
+        }
+
+        @Test
+        void constructor_InvalidRate_Rejected() {
+                assertThrows(IllegalArgumentException.class, () -> new KeyBloomFilter(1000, 1.0));
+                assertThrows(IllegalArgumentException.class, () -> new KeyBloomFilter(0, 0.01));
+        }
+}
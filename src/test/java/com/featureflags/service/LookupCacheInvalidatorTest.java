@@ -0,0 +1,143 @@
+package com.featureflags.service;
+
+import com.featureflags.config.ReplicaRouting;
+import com.featureflags.metrics.FeatureFlagMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LookupCacheInvalidatorTest {
+
+        @Mock
+        private JdbcTemplate jdbcTemplate;
+
+        @Mock
+        private ReplicaRouting replicaRouting;
+
+        @Mock
+        private FeatureFlagKeyFilter keyFilter;
+
+        private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        private final FeatureFlagMetrics metrics = new FeatureFlagMetrics(meterRegistry);
+        private final FeatureFlagLookupCache lookupCache = new FeatureFlagLookupCache(true, Duration.ofMinutes(5),
+                        1000, metrics);
+
+        @Test
+        void flagChanged_NotifiesAndEvictsLocally() {
+                // Given
+                LookupCacheInvalidator invalidator = invalidator(true);
+                lookupCache.get(1L, "test-flag", () -> false);
+                lookupCache.get(2L, "test-flag", () -> false);
+
+                // When
+                invalidator.flagChanged("test-flag", List.of(1L));
+
+                // Then
+                verify(jdbcTemplate).queryForList("SELECT pg_notify(?, ?)", LookupCacheInvalidator.CHANNEL,
+                                "F:1:test-flag");
+                assertEquals(1, lookupCache.size());
+                // Before the write and after its commit, which is immediate outside a transaction
+                verify(keyFilter, times(2)).add("test-flag", List.of(1L));
+        }
+
+        @Test
+        void organizationsChanged_Disabled_OnlyEvictsLocally() {
+                // Given
+                LookupCacheInvalidator invalidator = invalidator(false);
+                lookupCache.get(1L, "test-flag", () -> false);
+                lookupCache.get(1L, "other-flag", () -> false);
+                lookupCache.get(2L, "test-flag", () -> false);
+
+                // When
+                invalidator.organizationsChanged(List.of(1L));
+
+                // Then
+                verifyNoInteractions(jdbcTemplate);
+                assertEquals(1, lookupCache.size());
+        }
+
+        @Test
+        void payloads_ManyOrganizations_SplitIntoSeveralNotifications() {
+                // Given
+                List<Long> ids = LongStream.rangeClosed(1, 700).boxed().collect(Collectors.toList());
+
+                // When
+                List<String> payloads = LookupCacheInvalidator.payloads("F", ids, "test-flag");
+
+                // Then
+                assertEquals(3, payloads.size());
+                assertTrue(payloads.get(0).startsWith("F:1,2,3,"));
+                assertTrue(payloads.get(2).endsWith(",700:test-flag"));
+                assertTrue(payloads.stream().allMatch(payload -> payload.length() < 8000));
+        }
+
+        @Test
+        void apply_FlagNotification_EvictsAndReadsFlagFromPrimary() {
+                // Given
+                LookupCacheInvalidator invalidator = invalidator(true);
+                lookupCache.get(1L, "test:flag", () -> true);
+                lookupCache.get(2L, "test:flag", () -> true);
+                lookupCache.get(3L, "test:flag", () -> true);
+
+                // When
+                invalidator.apply("F:1,2:test:flag");
+
+                // Then
+                assertEquals(1, lookupCache.size());
+                verify(replicaRouting).recordWrite("test:flag");
+                verify(keyFilter).add("test:flag", List.of(1L, 2L));
+                assertEquals(1, meterRegistry.get("featureflags.cache.invalidations").tag("kind", "flag")
+                                .counter().count());
+        }
+
+        @Test
+        void apply_OrganizationNotification_EvictsAllFlagsOfOrganizations() {
+                // Given
+                LookupCacheInvalidator invalidator = invalidator(true);
+                lookupCache.get(1L, "test-flag", () -> true);
+                lookupCache.get(1L, "other-flag", () -> true);
+                lookupCache.get(2L, "test-flag", () -> true);
+
+                // When
+                invalidator.apply("O:1:");
+
+                // Then
+                assertEquals(1, lookupCache.size());
+                verifyNoInteractions(replicaRouting);
+                verifyNoInteractions(keyFilter);
+        }
+
+        @Test
+        void apply_UnreadablePayload_ClearsCache() {
+                // Given
+                LookupCacheInvalidator invalidator = invalidator(true);
+                lookupCache.get(1L, "test-flag", () -> true);
+
+                // When
+                invalidator.apply("F:not-a-number:test-flag");
+
+                // Then
+                assertEquals(0, lookupCache.size());
+                verify(keyFilter).suspend();
+                verify(keyFilter).resume();
+        }
+
+        private LookupCacheInvalidator invalidator(boolean enabled) {
+                return new LookupCacheInvalidator(jdbcTemplate, lookupCache, keyFilter, replicaRouting, metrics,
+                                new DataSourceProperties(), enabled, Duration.ofSeconds(5), Duration.ofSeconds(5));
+        }
+}
@@ -0,0 +1,355 @@
+package com.featureflags.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.featureflags.config.ReplicaRouting;
+import com.featureflags.metrics.FeatureFlagMetrics;
+import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.model.Organization;
+import com.featureflags.model.OrganizationInterval;
+import com.featureflags.model.OrganizationJob;
+import com.featureflags.model.OrganizationMove;
+import com.featureflags.repository.FeatureFlagPropagationRepository;
+import com.featureflags.repository.OrganizationDeletionRepository;
+import com.featureflags.repository.OrganizationJobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrganizationBackgroundServiceTest {
+
+        @Mock
+        private OrganizationJobRepository jobRepository;
+
+        @Mock
+        private OrganizationService organizationService;
+
+        @Mock
+        private FeatureFlagPropagationRepository propagationRepository;
+
+        @Mock
+        private OrganizationDeletionRepository deletionRepository;
+
+        @Mock
+        private LookupCacheInvalidator cacheInvalidator;
+
+        @Mock
+        private ReplicaRouting replicaRouting;
+
+        @Mock
+        private PlatformTransactionManager transactionManager;
+
+        private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+        private SimpleMeterRegistry meterRegistry;
+
+        private OrganizationBackgroundService backgroundService;
+
+        private static final Long JOB_ID = 7L;
+
+        private List<Organization> organizations;
+        private OrganizationJob testJob;
+
+        @BeforeEach
+        void setUp() throws Exception {
+                meterRegistry = new SimpleMeterRegistry();
+                backgroundService = new OrganizationBackgroundService(jobRepository, organizationService,
+                                propagationRepository, deletionRepository, cacheInvalidator, replicaRouting,
+                                objectMapper, new FeatureFlagMetrics(meterRegistry), transactionManager, 2, 2, 2, 3,
+                                Duration.ZERO);
+
+                organizations = Arrays.asList(
+                                new Organization(1L, "Root", null),
+                                new Organization(2L, "Child", 1L),
+                                new Organization(3L, "Grandchild", 2L));
+                testJob = new OrganizationJob(OrganizationJob.JobType.IMPORT, 3,
+                                objectMapper.writeValueAsString(organizations));
+                testJob.setId(JOB_ID);
+        }
+
+        @Test
+        void processOrganizationImport_Success_CommitsInChunks() {
+                // Given
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+                when(jobRepository.save(any(OrganizationJob.class)))
+                                .thenAnswer(invocation -> invocation.getArgument(0));
+                when(organizationService.findValidationError(anyList())).thenReturn(null);
+                when(organizationService.orderParentsFirst(anyList()))
+                                .thenAnswer(invocation -> invocation.getArgument(0));
+
+                // When
+                backgroundService.processOrganizationImport(JOB_ID);
+
+                // Then - chunk size 2 means two chunks, each in its own transaction
+                verify(organizationService, times(2)).saveOrganizations(anyList());
+                verify(transactionManager, times(2)).commit(any());
+                assertEquals(FeatureFlagJob.JobStatus.COMPLETED, testJob.getStatus());
+                assertEquals(3, testJob.getProcessedOrganizations());
+                assertEquals(3, testJob.getLastPosition());
+                assertEquals(3.0, meterRegistry.get("featureflags.organizations.ingested")
+                                .tag("mode", "background").counter().count());
+        }
+
+        @Test
+        void processOrganizationImport_ResumedJob_SkipsCommittedChunksAndValidation() {
+                // Given - first chunk already committed by an earlier run
+                testJob.advance(2, 2);
+                testJob.setStatus(FeatureFlagJob.JobStatus.RETRYING);
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+                when(jobRepository.save(any(OrganizationJob.class)))
+                                .thenAnswer(invocation -> invocation.getArgument(0));
+                when(organizationService.orderParentsFirst(anyList()))
+                                .thenAnswer(invocation -> invocation.getArgument(0));
+
+                // When
+                backgroundService.processOrganizationImport(JOB_ID);
+
+                // Then
+                verify(organizationService, never()).findValidationError(anyList());
+                verify(organizationService).saveOrganizations(argThat(chunk -> chunk.size() == 1 &&
+                                chunk.get(0).getId().equals(3L)));
+                assertEquals(FeatureFlagJob.JobStatus.COMPLETED, testJob.getStatus());
+                assertEquals(3, testJob.getProcessedOrganizations());
+        }
+
+        @Test
+        void processOrganizationImport_InvalidHierarchy_FailsWithoutSaving() {
+                // Given
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+                when(jobRepository.save(any(OrganizationJob.class)))
+                                .thenAnswer(invocation -> invocation.getArgument(0));
+                when(organizationService.findValidationError(anyList())).thenReturn("Cycle Exists!");
+
+                // When
+                backgroundService.processOrganizationImport(JOB_ID);
+
+                // Then
+                verify(organizationService, never()).saveOrganizations(anyList());
+                assertEquals(FeatureFlagJob.JobStatus.FAILED, testJob.getStatus());
+                assertEquals("Cycle Exists!", testJob.getErrorMessage());
+        }
+
+        @Test
+        void processOrganizationImport_ChunkFailsWithoutRetries_MarksJobAsFailed() {
+                // Given
+                testJob.setMaxRetries(0);
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(testJob));
+                when(jobRepository.save(any(OrganizationJob.class)))
+                                .thenAnswer(invocation -> invocation.getArgument(0));
+                when(organizationService.findValidationError(anyList())).thenReturn(null);
+                when(organizationService.orderParentsFirst(anyList()))
+                                .thenAnswer(invocation -> invocation.getArgument(0));
+                when(organizationService.saveOrganizations(anyList()))
+                                .thenThrow(new RuntimeException("Database connection failed"));
+
+                // When
+                backgroundService.processOrganizationImport(JOB_ID);
+
+                // Then
+                verify(transactionManager).rollback(any());
+                verify(jobRepository, atLeastOnce())
+                                .save(argThat(job -> job.getStatus() == FeatureFlagJob.JobStatus.FAILED &&
+                                                job.getErrorMessage().contains("Database connection failed")));
+        }
+
+        @Test
+        void processOrganizationImport_JobNotFound_ThrowsException() {
+                // Given
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.empty());
+
+                // When & Then
+                assertThrows(IllegalArgumentException.class,
+                                () -> backgroundService.processOrganizationImport(JOB_ID));
+                verifyNoInteractions(organizationService);
+        }
+
+        @Test
+        void processOrganizationMove_RecomputesChangedFlagsChunkByChunk() throws Exception {
+                // Given - "a" and "b" changed with the move; "c" has since been set back to the old value
+                OrganizationJob moveJob = givenMoveJob();
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(moveJob));
+                when(jobRepository.save(any(OrganizationJob.class)))
+                                .thenAnswer(invocation -> invocation.getArgument(0));
+                givenMovedSubtree();
+                when(propagationRepository.findValues(4L)).thenReturn(Map.of("a", false, "b", true, "c", true));
+                when(propagationRepository.replaceInheritedRange(anyString(), any(), any(), eq(1L), anyLong(),
+                                anyLong())).thenReturn(List.of(5L));
+
+                // When
+                backgroundService.processOrganizationMove(JOB_ID);
+
+                // Then - chunk size 2: the subtree root and its first descendant, then the last one
+                verify(propagationRepository).replaceInheritedRange("a", true, false, 1L, 99L, 110L);
+                verify(propagationRepository).replaceInheritedRange("a", true, false, 1L, 110L, 120L);
+                verify(propagationRepository).replaceInheritedRange("b", null, true, 1L, 99L, 110L);
+                verify(propagationRepository).replaceInheritedRange("b", null, true, 1L, 110L, 120L);
+                verify(propagationRepository, never()).replaceInheritedRange(eq("c"), any(), any(), any(),
+                                anyLong(), anyLong());
+                verify(cacheInvalidator, times(2)).flagChanged("a", List.of(5L));
+                verify(transactionManager, times(3)).commit(any());
+                assertEquals(FeatureFlagJob.JobStatus.COMPLETED, moveJob.getStatus());
+                assertEquals(3, moveJob.getProcessedOrganizations());
+                assertEquals(7L, moveJob.getLastProcessedOrgId());
+        }
+
+        @Test
+        void processOrganizationMove_ResumedJob_ContinuesAfterCursor() throws Exception {
+                // Given
+                OrganizationJob moveJob = givenMoveJob();
+                moveJob.advancePast(6L, 2);
+                moveJob.setStatus(FeatureFlagJob.JobStatus.RETRYING);
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(moveJob));
+                when(jobRepository.save(any(OrganizationJob.class)))
+                                .thenAnswer(invocation -> invocation.getArgument(0));
+                givenMovedSubtree();
+                when(propagationRepository.findValues(4L)).thenReturn(Map.of("a", false));
+                when(propagationRepository.replaceInheritedRange(anyString(), any(), any(), eq(1L), anyLong(),
+                                anyLong())).thenReturn(List.of());
+
+                // When
+                backgroundService.processOrganizationMove(JOB_ID);
+
+                // Then - nothing written, so nothing invalidated
+                verify(propagationRepository).replaceInheritedRange("a", true, false, 1L, 110L, 120L);
+                verify(propagationRepository, never()).replaceInheritedRange(anyString(), any(), any(), any(),
+                                eq(99L), anyLong());
+                verifyNoInteractions(cacheInvalidator);
+                assertEquals(FeatureFlagJob.JobStatus.COMPLETED, moveJob.getStatus());
+                assertEquals(3, moveJob.getProcessedOrganizations());
+        }
+
+        @Test
+        void processOrganizationMove_ChunkFailsWithoutRetries_MarksJobAsFailed() throws Exception {
+                // Given
+                OrganizationJob moveJob = givenMoveJob();
+                moveJob.setMaxRetries(0);
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(moveJob));
+                when(jobRepository.save(any(OrganizationJob.class)))
+                                .thenAnswer(invocation -> invocation.getArgument(0));
+                when(organizationService.lockSubtree(5L)).thenThrow(new RuntimeException("Lock timeout"));
+
+                // When
+                backgroundService.processOrganizationMove(JOB_ID);
+
+                // Then
+                verify(transactionManager).rollback(any());
+                assertEquals(FeatureFlagJob.JobStatus.FAILED, moveJob.getStatus());
+                assertEquals("Lock timeout", moveJob.getErrorMessage());
+        }
+
+        @Test
+        void processOrganizationDeletion_DeletesSubtreeFromTheEndInBatches() {
+                // Given - organization 5 numbered 100 in tree 1, with descendants 6 and 7 numbered 110 and 120
+                OrganizationJob deleteJob = givenDeleteJob();
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(deleteJob));
+                when(jobRepository.save(any(OrganizationJob.class)))
+                                .thenAnswer(invocation -> invocation.getArgument(0));
+                OrganizationInterval subtree = new OrganizationInterval(5L, 1L, 100, 200);
+                when(organizationService.lockTree(5L)).thenReturn(Optional.of(subtree))
+                                .thenReturn(Optional.of(subtree))
+                                .thenReturn(Optional.of(subtree))
+                                .thenReturn(Optional.of(subtree))
+                                .thenReturn(Optional.empty());
+                when(deletionRepository.findTailStart(subtree, 2)).thenReturn(110L, 110L, 110L, 100L);
+                when(deletionRepository.deleteFeatureFlags(1L, 110L, 200L, 3)).thenReturn(3, 1);
+                when(deletionRepository.deleteFeatureFlagJobs(1L, 110L, 200L, 3)).thenReturn(0);
+                when(deletionRepository.deleteAccessStats(1L, 110L, 200L, 3)).thenReturn(3, 0);
+                when(deletionRepository.deleteOrganizations(1L, 110L, 200L)).thenReturn(List.of(7L, 6L));
+                when(deletionRepository.deleteFeatureFlags(1L, 100L, 200L, 3)).thenReturn(0);
+                when(deletionRepository.deleteFeatureFlagJobs(1L, 100L, 200L, 3)).thenReturn(0);
+                when(deletionRepository.deleteAccessStats(1L, 100L, 200L, 3)).thenReturn(0);
+                when(deletionRepository.deleteOrganizations(1L, 100L, 200L)).thenReturn(List.of(5L));
+
+                // When
+                backgroundService.processOrganizationDeletion(JOB_ID);
+
+                // Then - a full batch of flags, a full batch of lookup counts, the rest of the tail,
+                // the subtree root, then nothing left
+                verify(deletionRepository, times(3)).deleteFeatureFlags(1L, 110L, 200L, 3);
+                verify(deletionRepository, times(2)).deleteFeatureFlagJobs(1L, 110L, 200L, 3);
+                verify(deletionRepository, times(2)).deleteAccessStats(1L, 110L, 200L, 3);
+                verify(cacheInvalidator).organizationsChanged(List.of(7L, 6L));
+                verify(cacheInvalidator).organizationsChanged(List.of(5L));
+                verify(transactionManager, times(5)).commit(any());
+                assertEquals(FeatureFlagJob.JobStatus.COMPLETED, deleteJob.getStatus());
+                assertEquals(3, deleteJob.getProcessedOrganizations());
+                assertEquals(5L, deleteJob.getLastProcessedOrgId());
+        }
+
+        @Test
+        void processOrganizationDeletion_BatchFailsWithoutRetries_MarksJobAsFailed() {
+                // Given
+                OrganizationJob deleteJob = givenDeleteJob();
+                deleteJob.setMaxRetries(0);
+                when(jobRepository.findById(JOB_ID)).thenReturn(Optional.of(deleteJob));
+                when(jobRepository.save(any(OrganizationJob.class)))
+                                .thenAnswer(invocation -> invocation.getArgument(0));
+                when(organizationService.lockTree(5L)).thenThrow(new RuntimeException("Lock timeout"));
+
+                // When
+                backgroundService.processOrganizationDeletion(JOB_ID);
+
+                // Then
+                verify(transactionManager).rollback(any());
+                verifyNoInteractions(deletionRepository, cacheInvalidator);
+                assertEquals(FeatureFlagJob.JobStatus.FAILED, deleteJob.getStatus());
+                assertEquals("Lock timeout", deleteJob.getErrorMessage());
+        }
+
+        private OrganizationJob givenDeleteJob() {
+                OrganizationJob deleteJob = new OrganizationJob(OrganizationJob.JobType.DELETE, 3, null);
+                deleteJob.setId(JOB_ID);
+                deleteJob.setOrganizationId(5L);
+                return deleteJob;
+        }
+
+        /**
+         * A job for organization 5, moved under 4, whose old parent had "a"
+         * enabled, no "b" and "c" enabled
+         */
+        private OrganizationJob givenMoveJob() throws Exception {
+                Map<String, Boolean> previousValues = new HashMap<>();
+                previousValues.put("a", true);
+                previousValues.put("b", null);
+                previousValues.put("c", true);
+                OrganizationJob moveJob = new OrganizationJob(OrganizationJob.JobType.MOVE, 3,
+                                objectMapper.writeValueAsString(new OrganizationMove(4L, 2L, previousValues)));
+                moveJob.setId(JOB_ID);
+                moveJob.setOrganizationId(5L);
+                return moveJob;
+        }
+
+        /**
+         * Organization 5 numbered 100 in tree 1, with descendants 6 and 7
+         */
+        private void givenMovedSubtree() {
+                OrganizationInterval subtree = new OrganizationInterval(5L, 1L, 100, 200);
+                List<OrganizationInterval> preOrder = List.of(subtree, new OrganizationInterval(6L, 1L, 110, 110),
+                                new OrganizationInterval(7L, 1L, 120, 120));
+                when(organizationService.lockSubtree(5L)).thenReturn(subtree);
+                lenient().when(organizationService.findInterval(anyLong())).thenAnswer(invocation -> preOrder.stream()
+                                .filter(org -> org.getOrganizationId().equals(invocation.getArgument(0)))
+                                .findFirst());
+                when(organizationService.findSubtreeChunk(eq(subtree), anyLong(), eq(2)))
+                                .thenAnswer(invocation -> preOrder.stream()
+                                                .filter(org -> org.getEnter() > (long) invocation.getArgument(1))
+                                                .limit(2)
+                                                .collect(Collectors.toList()));
+        }
+}
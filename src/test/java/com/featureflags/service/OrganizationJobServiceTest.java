@@ -0,0 +1,243 @@
+package com.featureflags.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.featureflags.model.FeatureFlagJob;
+import com.featureflags.model.Organization;
+import com.featureflags.model.OrganizationInterval;
+import com.featureflags.model.OrganizationJob;
+import com.featureflags.model.OrganizationMove;
+import com.featureflags.repository.FeatureFlagPropagationRepository;
+import com.featureflags.repository.OrganizationDeletionRepository;
+import com.featureflags.repository.OrganizationJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrganizationJobServiceTest {
+
+        @Mock
+        private OrganizationJobRepository jobRepository;
+
+        @Mock
+        private OrganizationBackgroundService backgroundService;
+
+        @Mock
+        private OrganizationService organizationService;
+
+        @Mock
+        private FeatureFlagPropagationRepository propagationRepository;
+
+        @Mock
+        private OrganizationDeletionRepository deletionRepository;
+
+        private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+        private OrganizationJobService jobService;
+
+        @BeforeEach
+        void setUp() {
+                jobService = new OrganizationJobService(jobRepository, backgroundService, organizationService,
+                                propagationRepository, deletionRepository, objectMapper, 2);
+        }
+
+        @Test
+        void shouldImportInBackground_OnlyAboveThreshold() {
+                Organization org = new Organization(1L, "Org", null);
+
+                assertFalse(jobService.shouldImportInBackground(null));
+                assertFalse(jobService.shouldImportInBackground(Arrays.asList(org, org)));
+                assertTrue(jobService.shouldImportInBackground(Arrays.asList(org, org, org)));
+        }
+
+        @Test
+        void submitImport_StoresPayloadAndStartsProcessing() throws Exception {
+                // Given
+                List<Organization> organizations = Arrays.asList(
+                                new Organization(1L, "Root", null),
+                                new Organization(2L, "Child", 1L));
+                when(jobRepository.save(any(OrganizationJob.class))).thenAnswer(invocation -> {
+                        OrganizationJob job = invocation.getArgument(0);
+                        job.setId(11L);
+                        return job;
+                });
+
+                // When
+                Long jobId = jobService.submitImport(organizations);
+
+                // Then
+                assertEquals(11L, jobId);
+                verify(jobRepository).save(argThat(job -> job.getJobType() == OrganizationJob.JobType.IMPORT &&
+                                job.getTotalOrganizations() == 2 &&
+                                job.getStatus() == FeatureFlagJob.JobStatus.PENDING &&
+                                job.getPayload().contains("\"parentId\":1")));
+                verify(backgroundService).processOrganizationImport(11L);
+        }
+
+        @Test
+        void submitMove_ParentsDiffer_QueuesJobForChangedFlagsOnly() throws Exception {
+                // Given
+                when(organizationService.moveOrganization(5L, 4L)).thenReturn(2L);
+                when(propagationRepository.findValues(2L)).thenReturn(Map.of("a", true, "same", true));
+                when(propagationRepository.findValues(4L)).thenReturn(Map.of("b", false, "same", true));
+                when(organizationService.countDescendants(5L)).thenReturn(9L);
+                when(jobRepository.save(any(OrganizationJob.class))).thenAnswer(invocation -> {
+                        OrganizationJob job = invocation.getArgument(0);
+                        job.setId(12L);
+                        return job;
+                });
+
+                // When
+                Long jobId = jobService.submitMove(5L, 4L);
+
+                // Then
+                assertEquals(12L, jobId);
+                ArgumentCaptor<OrganizationJob> saved = ArgumentCaptor.forClass(OrganizationJob.class);
+                verify(jobRepository).save(saved.capture());
+                assertEquals(OrganizationJob.JobType.MOVE, saved.getValue().getJobType());
+                assertEquals(5L, saved.getValue().getOrganizationId());
+                assertEquals(10, saved.getValue().getTotalOrganizations());
+                OrganizationMove move = objectMapper.readValue(saved.getValue().getPayload(), OrganizationMove.class);
+                assertEquals(4L, move.getParentId());
+                assertEquals(2L, move.getPreviousParentId());
+                assertEquals(Boolean.TRUE, move.getPreviousValues().get("a"));
+                assertTrue(move.getPreviousValues().containsKey("b"));
+                assertNull(move.getPreviousValues().get("b"));
+                assertFalse(move.getPreviousValues().containsKey("same"));
+                verify(backgroundService).processOrganizationMove(12L);
+        }
+
+        @Test
+        void submitMove_ParentsHaveSameFlags_MovesWithoutJob() {
+                // Given
+                when(organizationService.moveOrganization(5L, 4L)).thenReturn(2L);
+                when(propagationRepository.findValues(anyLong())).thenReturn(Map.of("same", true));
+
+                // When
+                Long jobId = jobService.submitMove(5L, 4L);
+
+                // Then
+                assertNull(jobId);
+                verify(jobRepository, never()).save(any());
+                verifyNoInteractions(backgroundService);
+        }
+
+        @Test
+        void submitMove_PreviousMoveStillRunning_ThrowsIllegalStateException() {
+                // Given
+                when(organizationService.moveOrganization(5L, 4L)).thenReturn(2L);
+                when(jobRepository.existsByOrganizationIdAndJobTypeAndStatusIn(eq(5L),
+                                eq(OrganizationJob.JobType.MOVE), any())).thenReturn(true);
+
+                // When & Then
+                assertThrows(IllegalStateException.class, () -> jobService.submitMove(5L, 4L));
+                verify(jobRepository, never()).save(any());
+                verifyNoInteractions(propagationRepository);
+        }
+
+        @Test
+        void submitDeletion_NoJobsRunning_QueuesDeleteJob() {
+                // Given
+                OrganizationInterval subtree = new OrganizationInterval(5L, 1L, 100, 200);
+                when(organizationService.lockTree(5L)).thenReturn(Optional.of(subtree));
+                when(deletionRepository.countRunningJobs(subtree)).thenReturn(0L);
+                when(organizationService.countDescendants(5L)).thenReturn(9L);
+                when(jobRepository.save(any(OrganizationJob.class))).thenAnswer(invocation -> {
+                        OrganizationJob job = invocation.getArgument(0);
+                        job.setId(13L);
+                        return job;
+                });
+
+                // When
+                Long jobId = jobService.submitDeletion(5L);
+
+                // Then
+                assertEquals(13L, jobId);
+                ArgumentCaptor<OrganizationJob> saved = ArgumentCaptor.forClass(OrganizationJob.class);
+                verify(jobRepository).save(saved.capture());
+                assertEquals(OrganizationJob.JobType.DELETE, saved.getValue().getJobType());
+                assertEquals(5L, saved.getValue().getOrganizationId());
+                assertEquals(10, saved.getValue().getTotalOrganizations());
+                verify(backgroundService).processOrganizationDeletion(13L);
+        }
+
+        @Test
+        void submitDeletion_JobsWritingIntoSubtree_ThrowsIllegalStateException() {
+                // Given
+                OrganizationInterval subtree = new OrganizationInterval(5L, 1L, 100, 200);
+                when(organizationService.lockTree(5L)).thenReturn(Optional.of(subtree));
+                when(deletionRepository.countRunningJobs(subtree)).thenReturn(2L);
+
+                // When & Then
+                assertThrows(IllegalStateException.class, () -> jobService.submitDeletion(5L));
+                verify(jobRepository, never()).save(any());
+                verifyNoInteractions(backgroundService);
+        }
+
+        @Test
+        void submitDeletion_OrganizationNotFound_ThrowsIllegalArgumentException() {
+                // Given
+                when(organizationService.lockTree(5L)).thenReturn(Optional.empty());
+
+                // When & Then
+                assertThrows(IllegalArgumentException.class, () -> jobService.submitDeletion(5L));
+                verifyNoInteractions(deletionRepository, backgroundService);
+        }
+
+        @Test
+        void getJobStatus_JobNotFound_ThrowsException() {
+                // Given
+                when(jobRepository.findById(11L)).thenReturn(Optional.empty());
+
+                // When & Then
+                IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                                () -> jobService.getJobStatus(11L));
+                assertEquals("Job not found: 11", exception.getMessage());
+        }
+
+        @Test
+        void retryFailedJob_FailedJob_ResumesFromCursor() {
+                // Given
+                OrganizationJob job = new OrganizationJob(OrganizationJob.JobType.IMPORT, 10, "[]");
+                job.setId(11L);
+                job.advance(4, 4);
+                job.markAsFailed("Database connection failed");
+                when(jobRepository.findById(11L)).thenReturn(Optional.of(job));
+
+                // When
+                jobService.retryFailedJob(11L);
+
+                // Then
+                assertEquals(FeatureFlagJob.JobStatus.PENDING, job.getStatus());
+                assertEquals(4, job.getLastPosition());
+                assertEquals(4, job.getMaxRetries());
+                assertNull(job.getErrorMessage());
+                verify(backgroundService).process(11L, OrganizationJob.JobType.IMPORT);
+        }
+
+        @Test
+        void retryFailedJob_JobNotFailed_ThrowsException() {
+                // Given
+                OrganizationJob job = new OrganizationJob(OrganizationJob.JobType.IMPORT, 10, "[]");
+                job.setId(11L);
+                when(jobRepository.findById(11L)).thenReturn(Optional.of(job));
+
+                // When & Then
+                assertThrows(IllegalStateException.class, () -> jobService.retryFailedJob(11L));
+                verify(backgroundService, never()).process(any(), any());
+        }
+}
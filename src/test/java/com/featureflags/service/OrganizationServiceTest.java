@@ -1,19 +1,29 @@
 package com.featureflags.service;
 
+import com.featureflags.config.ReplicaRouting;
+import com.featureflags.metrics.FeatureFlagMetrics;
 import com.featureflags.model.Organization;
 import com.featureflags.model.OrganizationBulkResult;
 import com.featureflags.model.OrganizationBulkResult.OperationStatus;
+import com.featureflags.model.OrganizationDescendant;
+import com.featureflags.model.OrganizationInterval;
+import com.featureflags.repository.OrganizationClosureRepository;
+import com.featureflags.repository.OrganizationIntervalRepository;
 import com.featureflags.repository.OrganizationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,7 +36,22 @@ class OrganizationServiceTest {
     @Mock
     private OrganizationRepository organizationRepository;
 
-    @InjectMocks
+    @Mock
+    private OrganizationClosureRepository closureRepository;
+
+    @Mock
+    private OrganizationIntervalRepository intervalRepository;
+
+    @Spy
+    private FeatureFlagMetrics metrics = new FeatureFlagMetrics(new SimpleMeterRegistry());
+
+    @Spy
+    private ReplicaRouting replicaRouting = new ReplicaRouting(false, Duration.ofSeconds(5),
+                    Duration.ofSeconds(2), metrics);
+
+    @Mock
+    private LookupCacheInvalidator cacheInvalidator;
+
     private OrganizationService organizationService;
 
     private Organization org1;
@@ -35,6 +60,9 @@ class OrganizationServiceTest {
 
     @BeforeEach
     void setUp() {
+        organizationService = new OrganizationService(organizationRepository, closureRepository, intervalRepository,
+                metrics, replicaRouting, cacheInvalidator, 7);
+
         org1 = new Organization(1L, "Parent Org", null);
 
         org2 = new Organization(2L, "Child Org", 1L);
@@ -56,6 +84,11 @@ class OrganizationServiceTest {
         assertEquals(OperationStatus.SUCCESS, result.getStatus());
         assertEquals("Organizations processed successfully!", result.getMessage());
         verify(organizationRepository).saveAll(organizations);
+        InOrder inOrder = inOrder(organizationRepository, closureRepository, intervalRepository);
+        inOrder.verify(organizationRepository).flush();
+        inOrder.verify(closureRepository).addOrganizations(organizations);
+        inOrder.verify(intervalRepository).number(organizations);
+        verify(cacheInvalidator).organizationsChanged(List.of(1L, 2L));
     }
 
     @Test
@@ -157,6 +190,9 @@ class OrganizationServiceTest {
 
         // Assert
         verify(organizationRepository).save(org1);
+        verify(closureRepository).addOrganizations(List.of(org1));
+        verify(intervalRepository).number(List.of(org1));
+        verify(cacheInvalidator).organizationsChanged(List.of(1L));
     }
 
     @Test
@@ -183,6 +219,159 @@ class OrganizationServiceTest {
 
         // Assert
         verify(organizationRepository).save(org1);
+        verifyNoInteractions(closureRepository, intervalRepository);
+    }
+
+    @Test
+    void addOrganization_ExistingRootUnderNewParent_PointsToMove() {
+        // Arrange
+        Organization existingRoot = new Organization(2L, "Existing Root", null);
+        when(organizationRepository.findById(2L)).thenReturn(Optional.of(existingRoot));
+
+        // Act & Assert
+        UnsupportedOperationException exception = assertThrows(UnsupportedOperationException.class,
+                () -> organizationService.addOrganization(org2));
+        assertTrue(exception.getMessage().contains("PUT /organizations/2/parent/1"));
+        verify(organizationRepository, never()).save(any());
+        verifyNoInteractions(closureRepository, intervalRepository, cacheInvalidator);
+    }
+
+    @Test
+    void addOrganization_OwnParent_ThrowsCycle() {
+        // Arrange
+        Organization selfParent = new Organization(5L, "Own Parent", 5L);
+        when(organizationRepository.findById(5L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(UnsupportedOperationException.class, () -> organizationService.addOrganization(selfParent));
+        verify(organizationRepository, never()).save(any());
+    }
+
+    @Test
+    void moveOrganization_UnderNewParent_MovesClosureRowsThenInterval() {
+        // Arrange
+        OrganizationInterval subtree = new OrganizationInterval(3L, 1L, 20, 30);
+        OrganizationInterval parent = new OrganizationInterval(4L, 4L, 0, 1000);
+        when(intervalRepository.findLockingTrees(List.of(3L, 4L))).thenReturn(Map.of(3L, subtree, 4L, parent));
+        when(organizationRepository.findById(3L)).thenReturn(Optional.of(org3));
+        when(closureRepository.findDepth(4L)).thenReturn(5);
+        when(closureRepository.findHeight(3L)).thenReturn(1);
+
+        // Act
+        Long previousParentId = organizationService.moveOrganization(3L, 4L);
+
+        // Assert
+        assertEquals(2L, previousParentId);
+        assertEquals(4L, org3.getParentId());
+        InOrder inOrder = inOrder(organizationRepository, closureRepository, intervalRepository);
+        inOrder.verify(organizationRepository).save(org3);
+        inOrder.verify(organizationRepository).flush();
+        inOrder.verify(closureRepository).move(3L, 4L);
+        inOrder.verify(intervalRepository).move(subtree, parent);
+        verify(cacheInvalidator).organizationsChanged(List.of(3L));
+    }
+
+    @Test
+    void moveOrganization_ParentInOwnSubtree_ThrowsCycle() {
+        // Arrange
+        when(intervalRepository.findLockingTrees(List.of(2L, 3L))).thenReturn(Map.of(
+                2L, new OrganizationInterval(2L, 1L, 10, 100),
+                3L, new OrganizationInterval(3L, 1L, 20, 30)));
+
+        // Act & Assert
+        assertThrows(UnsupportedOperationException.class, () -> organizationService.moveOrganization(2L, 3L));
+        verify(organizationRepository, never()).save(any());
+        verify(closureRepository, never()).move(any(), any());
+    }
+
+    @Test
+    void moveOrganization_SubtreeWouldExceedMaxDepth_Rejected() {
+        // Arrange
+        when(intervalRepository.findLockingTrees(List.of(2L, 4L))).thenReturn(Map.of(
+                2L, new OrganizationInterval(2L, 1L, 10, 100),
+                4L, new OrganizationInterval(4L, 4L, 0, 1000)));
+        when(organizationRepository.findById(2L)).thenReturn(Optional.of(org2));
+        when(closureRepository.findDepth(4L)).thenReturn(6);
+        when(closureRepository.findHeight(2L)).thenReturn(1);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> organizationService.moveOrganization(2L, 4L));
+        verify(organizationRepository, never()).save(any());
+        verifyNoInteractions(cacheInvalidator);
+    }
+
+    @Test
+    void moveOrganization_UnknownParent_ThrowsIllegalArgumentException() {
+        // Arrange
+        when(intervalRepository.findLockingTrees(List.of(2L, 9L))).thenReturn(Map.of(
+                2L, new OrganizationInterval(2L, 1L, 10, 100)));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> organizationService.moveOrganization(2L, 9L));
+        verify(closureRepository, never()).move(any(), any());
+    }
+
+    @Test
+    void isDescendant_ComparesIntervalsOfTheSameTree() {
+        // Arrange
+        when(intervalRepository.find(1L)).thenReturn(Optional.of(new OrganizationInterval(1L, 1L, 0, 1000)));
+        when(intervalRepository.find(2L)).thenReturn(Optional.of(new OrganizationInterval(2L, 1L, 10, 20)));
+        when(intervalRepository.find(3L)).thenReturn(Optional.of(new OrganizationInterval(3L, 1L, 21, 30)));
+        when(intervalRepository.find(5L)).thenReturn(Optional.of(new OrganizationInterval(5L, 4L, 15, 15)));
+
+        // Act & Assert
+        assertTrue(organizationService.isDescendant(2L, 1L));
+        assertTrue(organizationService.isDescendant(3L, 1L));
+        assertFalse(organizationService.isDescendant(3L, 2L));
+        assertFalse(organizationService.isDescendant(1L, 1L));
+        assertFalse(organizationService.isDescendant(5L, 2L));
+        verifyNoInteractions(closureRepository);
+    }
+
+    @Test
+    void getAllDescendantIds_ReadsClosureTable() {
+        // Arrange
+        when(closureRepository.findDescendantIds(1L)).thenReturn(List.of(2L, 3L));
+
+        // Act
+        List<Long> descendants = organizationService.getAllDescendantIds(1L);
+
+        // Assert
+        assertEquals(List.of(2L, 3L), descendants);
+        verify(organizationRepository, never()).findByParentId(any());
+        verify(metrics).recordDescendantLookup(any());
+    }
+
+    @Test
+    void forEachDescendant_WithCursor_ResumesAfterIt() {
+        // Arrange
+        OrganizationDescendant after = organizationService.findDescendantsStart(1L, "2_17");
+
+        // Act
+        organizationService.forEachDescendant(1L, after, 3, descendant -> { });
+
+        // Assert
+        verify(closureRepository).forEachDescendant(eq(1L), eq(2), eq(17L), eq(3), any());
+    }
+
+    @Test
+    void forEachDescendant_WithoutCursor_StartsAfterTheOrganizationItself() {
+        // Arrange
+        OrganizationDescendant after = organizationService.findDescendantsStart(1L, null);
+
+        // Act
+        organizationService.forEachDescendant(1L, after, Integer.MAX_VALUE, descendant -> { });
+
+        // Assert
+        verify(closureRepository).forEachDescendant(eq(1L), eq(0), eq(1L), eq(Integer.MAX_VALUE), any());
+    }
+
+    @Test
+    void findDescendantsStart_InvalidCursor_ThrowsIllegalArgumentException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> organizationService.findDescendantsStart(1L, "bogus"));
+        assertThrows(IllegalArgumentException.class, () -> organizationService.findDescendantsStart(1L, "0_1"));
+        assertThrows(IllegalArgumentException.class, () -> organizationService.findDescendantsStart(1L, "x_1"));
     }
 
     @Test
@@ -209,4 +398,36 @@ class OrganizationServiceTest {
         // Assert
         assertNull(result);
     }
-}
\ No newline at end of file
+
+    @Test
+    void processOrganizations_ResubmittedExistingOrganizations_Success() {
+        // Arrange - ids outside the Long cache must still compare by value
+        Organization parent = new Organization(1000L, "Parent", null);
+        Organization child = new Organization(1001L, "Child", 1000L);
+        List<Organization> organizations = Arrays.asList(parent, child);
+        when(organizationRepository.findAllById(any())).thenReturn(Arrays.asList(
+                new Organization(1000L, "Parent", null),
+                new Organization(1001L, "Child", 1000L)));
+        when(organizationRepository.saveAll(any())).thenReturn(organizations);
+
+        // Act
+        OrganizationBulkResult result = organizationService.processOrganizations(organizations);
+
+        // Assert
+        assertEquals(OperationStatus.SUCCESS, result.getStatus());
+    }
+
+    @Test
+    void orderParentsFirst_ChildrenListedBeforeParents_ReordersByDepth() {
+        // Arrange
+        Organization outsideParent = new Organization(4L, "Child of existing org", 99L);
+        List<Organization> organizations = Arrays.asList(org3, org2, outsideParent, org1);
+
+        // Act
+        List<Organization> ordered = organizationService.orderParentsFirst(organizations);
+
+        // Assert
+        assertEquals(Arrays.asList(4L, 1L, 2L, 3L),
+                ordered.stream().map(Organization::getId).collect(java.util.stream.Collectors.toList()));
+    }
+}
@@ -0,0 +1,10 @@
+#!/bin/sh
+# Runs once on a fresh primary (docker-entrypoint-initdb.d): creates the
+# streaming replication role used by start-replica.sh
+set -e
+
+psql -v ON_ERROR_STOP=1 --username "$POSTGRES_USER" --dbname "$POSTGRES_DB" <<-EOSQL
+    CREATE ROLE replicator WITH REPLICATION LOGIN PASSWORD '${REPLICATION_PASSWORD:-replicator}';
+EOSQL
+
+echo "host replication replicator all scram-sha-256" >> "$PGDATA/pg_hba.conf"
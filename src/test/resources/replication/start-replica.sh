@@ -0,0 +1,22 @@
+#!/bin/sh
+# Clones $PRIMARY_HOST with pg_basebackup on first start, then runs as a hot
+# standby following it
+set -e
+
+if [ "$(id -u)" = '0' ]; then
+    mkdir -p "$PGDATA"
+    chown postgres "$PGDATA"
+    chmod 0700 "$PGDATA"
+    exec su-exec postgres sh "$0" "$@"
+fi
+
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+    export PGPASSWORD="${REPLICATION_PASSWORD:-replicator}"
+    until pg_basebackup -h "${PRIMARY_HOST:-db}" -U replicator -D "$PGDATA" -R -X stream; do
+        echo "Waiting for primary ${PRIMARY_HOST:-db}..."
+        rm -rf "${PGDATA:?}"/*
+        sleep 1
+    done
+fi
+
+exec postgres